@@ -16,10 +16,14 @@ package com.google.api.ads.adwords.lib.client;
 
 import com.google.api.ads.common.lib.client.AdsServiceClient;
 import com.google.api.ads.common.lib.client.HeaderHandler;
+import com.google.api.ads.common.lib.soap.SoapCallDeduplicator;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
+import com.google.api.ads.common.lib.soap.SoapResponseCache;
 import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
 import com.google.inject.assistedinject.Assisted;
 
+import java.util.Arrays;
+
 import javax.inject.Inject;
 
 /**
@@ -29,6 +33,28 @@ import javax.inject.Inject;
 public class AdWordsServiceClient extends AdsServiceClient<AdWordsSession,
                                                            AdWordsServiceDescriptor> {
 
+  /**
+   * Constructor without response caching or call deduplication.
+   *
+   * @param soapClient the SOAP client
+   * @param adWordsServiceDescriptor the AdWords service descriptor
+   * @param adWordsSession the AdWords session
+   * @param soapClientHandler the SOAP client handler
+   * @param adWordsHeaderHandler the AdWords header handler
+   * @param adsServiceLoggers the ads service loggers
+   */
+  @SuppressWarnings("unchecked") /* See comments on soapClientHandler argument. */
+  public AdWordsServiceClient(
+      Object soapClient,
+      AdWordsServiceDescriptor adWordsServiceDescriptor,
+      AdWordsSession adWordsSession,
+      @SuppressWarnings("rawtypes") SoapClientHandlerInterface soapClientHandler,
+      HeaderHandler<AdWordsSession, AdWordsServiceDescriptor> adWordsHeaderHandler,
+      AdsServiceLoggers adsServiceLoggers) {
+    super(soapClient, adWordsSession, adWordsServiceDescriptor, soapClientHandler,
+        adWordsHeaderHandler, adsServiceLoggers);
+  }
+
   /**
    * Constructor.
    *
@@ -38,6 +64,8 @@ public class AdWordsServiceClient extends AdsServiceClient<AdWordsSession,
    * @param soapClientHandler the SOAP client handler
    * @param adWordsHeaderHandler the AdWords header handler
    * @param adsServiceLoggers the ads service loggers
+   * @param responseCache the response cache
+   * @param callDeduplicator the call deduplicator
    */
   @SuppressWarnings("unchecked") /* See comments on soapClientHandler argument. */
   @Inject
@@ -51,9 +79,21 @@ public class AdWordsServiceClient extends AdsServiceClient<AdWordsSession,
                                      * the raw type here. */
       SoapClientHandlerInterface soapClientHandler,
       HeaderHandler<AdWordsSession, AdWordsServiceDescriptor> adWordsHeaderHandler,
-      AdsServiceLoggers adsServiceLoggers) {
+      AdsServiceLoggers adsServiceLoggers,
+      SoapResponseCache responseCache,
+      SoapCallDeduplicator callDeduplicator) {
     super(soapClient, adWordsSession, adWordsServiceDescriptor, soapClientHandler,
-        adWordsHeaderHandler, adsServiceLoggers);
+        adWordsHeaderHandler, adsServiceLoggers, responseCache,
+        callDeduplicator);
+  }
+
+  /**
+   * Adds the client customer ID of the session to the scope, since it can be changed on the same
+   * session.
+   */
+  @Override
+  protected Object getResponseCacheScope() {
+    return Arrays.asList(super.getResponseCacheScope(), getAdsSession().getClientCustomerId());
   }
 
 }
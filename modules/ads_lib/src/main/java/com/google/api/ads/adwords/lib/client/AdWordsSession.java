@@ -80,6 +80,26 @@ public class AdWordsSession implements AdsSession, OAuth2Compatible {
     this.reportingConfiguration = builder.reportingConfiguration;
   }
 
+  /**
+   * Copy constructor that replaces the client customer ID. The session is not validated again,
+   * since all other settings come from an already validated session.
+   *
+   * @param sessionToCopy the session to copy the settings from
+   * @param clientCustomerId the client customer ID of the copy
+   */
+  private AdWordsSession(AdWordsSession sessionToCopy, @Nullable String clientCustomerId) {
+    this.clientCustomerId = clientCustomerId;
+    this.expressBusinessId = sessionToCopy.getExpressBusinessId();
+    this.expressPlusPageId = sessionToCopy.getExpressPlusPageId();
+    this.developerToken = sessionToCopy.getDeveloperToken();
+    this.endpoint = sessionToCopy.getEndpoint();
+    this.isPartialFailure = sessionToCopy.isPartialFailure();
+    this.isValidateOnly = sessionToCopy.isValidateOnly();
+    this.oAuth2Credential = sessionToCopy.getOAuth2Credential();
+    this.userAgent = sessionToCopy.getUserAgent();
+    this.reportingConfiguration = sessionToCopy.getReportingConfiguration();
+  }
+
   /**
    * Gets the client customer ID.
    */
@@ -232,6 +252,24 @@ public class AdWordsSession implements AdsSession, OAuth2Compatible {
     return new Builder(this);
   }
 
+  /**
+   * Returns an {@link ImmutableAdWordsSession} for the given client customer ID with all other
+   * settings copied from this session. The new session shares this session's OAuth2 credential
+   * and reporting configuration, and is not validated again, so deriving one session per account
+   * from a base session is cheap. Service clients created with the new session can be used
+   * concurrently with those of other derived sessions, since no setting can change between
+   * calls.
+   *
+   * <p>This is <em>not</em> thread-safe unless this session is an
+   * {@link ImmutableAdWordsSession}.
+   *
+   * @param clientCustomerId the client customer ID of the new session
+   * @return the new immutable session
+   */
+  public ImmutableAdWordsSession forClientCustomerId(@Nullable String clientCustomerId) {
+    return new ImmutableAdWordsSession(this, clientCustomerId);
+  }
+
   /**
    * Immutable, thread-safe implementation of AdWordsSession.
    */
@@ -241,6 +279,11 @@ public class AdWordsSession implements AdsSession, OAuth2Compatible {
       super(builder);
     }
 
+    private ImmutableAdWordsSession(AdWordsSession sessionToCopy,
+        @Nullable String clientCustomerId) {
+      super(sessionToCopy, clientCustomerId);
+    }
+
     private void throwUnsupportedOperationException(String attributeName) {
       throw new UnsupportedOperationException(
           String.format(
@@ -29,6 +29,7 @@ public class AdWordsLibConfiguration extends AdsLibConfiguration {
   private static final String KEY_PREFIX = "api.adwords";
   private static final String REPORT_DOWNLOAD_TIMEOUT_KEY = "reportDownloadTimeout";
   private static final int DEFAULT_REPORT_DOWNLOAD_TIMEOUT = 3 * 60 * 1000;
+  private static final String USE_REQUEST_COMPRESSION_KEY = "useRequestCompression";
 
   /**
    * Constructor.
@@ -54,6 +55,15 @@ public class AdWordsLibConfiguration extends AdsLibConfiguration {
         KEY_PREFIX + "." + REPORT_DOWNLOAD_TIMEOUT_KEY, DEFAULT_REPORT_DOWNLOAD_TIMEOUT);
   }
   
+  /**
+   * Returns true if the bodies of report download requests and batch job uploads should be gzip
+   * compressed, as specified in ads.properties (default false). Whether SOAP requests are
+   * compressed is determined by {@link #isCompressionEnabled()}.
+   */
+  public boolean isRequestCompressionEnabled() {
+    return config.getBoolean(KEY_PREFIX + "." + USE_REQUEST_COMPRESSION_KEY, false);
+  }
+
   @Override
   public boolean isCompressionEnabled() {
     return config.getBoolean(KEY_PREFIX + "." + USE_COMPRESSION_POSTFIX, false);
@@ -71,5 +81,26 @@ public class AdWordsLibConfiguration extends AdsLibConfiguration {
         KEY_PREFIX + "." + INCLUDE_UTILITIES_IN_USER_AGENT_POSTFIX, null);
     return isInclude != null ? isInclude : super.isIncludeAdsUtilitiesInUserAgent();
   }
-  
+
+  @Override
+  public String[] getResponseCacheMethods() {
+    return config.getStringArray(KEY_PREFIX + "." + RESPONSE_CACHE_METHODS_POSTFIX);
+  }
+
+  @Override
+  public long getResponseCacheTtl() {
+    return config.getLong(
+        KEY_PREFIX + "." + RESPONSE_CACHE_TTL_POSTFIX, DEFAULT_RESPONSE_CACHE_TTL);
+  }
+
+  @Override
+  public long getResponseCacheMaxSize() {
+    return config.getLong(
+        KEY_PREFIX + "." + RESPONSE_CACHE_MAX_SIZE_POSTFIX, DEFAULT_RESPONSE_CACHE_MAX_SIZE);
+  }
+
+  @Override
+  public String[] getSingleFlightMethods() {
+    return config.getStringArray(KEY_PREFIX + "." + SINGLE_FLIGHT_METHODS_POSTFIX);
+  }
 }
@@ -15,6 +15,7 @@
 package com.google.api.ads.adwords.lib.utils;
 
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.conf.AdWordsLibConfiguration;
 import com.google.api.ads.adwords.lib.utils.logging.BatchJobLogger;
 import com.google.api.ads.common.lib.utils.Streams;
 import com.google.api.client.http.ByteArrayContent;
@@ -30,22 +31,34 @@ import com.google.api.client.http.HttpTransport;
 import com.google.api.client.util.Charsets;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
 import com.google.inject.Inject;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
  * Utility for uploading operations to a BatchJob and downloading results from
  * a completed BatchJob.
+ *
+ * <p>If {@link AdWordsLibConfiguration#isRequestCompressionEnabled()}, uploads are gzip compressed
+ * and sent with {@code Content-Encoding: gzip}. Each incremental upload is compressed on its own,
+ * so the uploaded object is a sequence of gzip members, which decompresses to the same contents
+ * as an uncompressed upload.
  */
 public class BatchJobUploader {
   private final AdWordsSession session;
   private final HttpTransport httpTransport;
   private final BatchJobLogger batchJobLogger;
+  private final boolean isRequestCompressionEnabled;
 
   /**
    * Charset for request contents.
@@ -59,12 +72,43 @@ public class BatchJobUploader {
   @VisibleForTesting
   static final int REQUIRED_CONTENT_LENGTH_INCREMENT = 262144;
 
+  private static final byte[] MUTATE_BYTES = "mutate".getBytes(REQUEST_CHARSET);
+
+  /**
+   * The maximum length of the data of a stored (uncompressed) deflate block.
+   */
+  private static final int MAX_STORED_BLOCK_LENGTH = 65535;
+
+  /**
+   * The header of a gzip member without optional fields, file name or modification time.
+   */
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  /**
+   * The length of a gzip member's trailer, which holds the CRC-32 and length of its data.
+   */
+  private static final int GZIP_TRAILER_LENGTH = 8;
+
   @Inject
-  BatchJobUploader(
-      AdWordsSession session, HttpTransport httpTransport, BatchJobLogger batchJobLogger) {
+  BatchJobUploader(AdWordsSession session, HttpTransport httpTransport,
+      BatchJobLogger batchJobLogger, AdWordsLibConfiguration adWordsLibConfiguration) {
+    this(session, httpTransport, batchJobLogger,
+        adWordsLibConfiguration.isRequestCompressionEnabled());
+  }
+
+  @VisibleForTesting
+  BatchJobUploader(AdWordsSession session, HttpTransport httpTransport,
+      BatchJobLogger batchJobLogger) {
+    this(session, httpTransport, batchJobLogger, false);
+  }
+
+  @VisibleForTesting
+  BatchJobUploader(AdWordsSession session, HttpTransport httpTransport,
+      BatchJobLogger batchJobLogger, boolean isRequestCompressionEnabled) {
     this.session = session;
     this.httpTransport = httpTransport;
     this.batchJobLogger = batchJobLogger;
+    this.isRequestCompressionEnabled = isRequestCompressionEnabled;
   }
 
   private HttpHeaders createHttpHeaders() {
@@ -102,16 +146,21 @@ public class BatchJobUploader {
     // The process below follows the Google Cloud Storage guidelines for resumable
     // uploads of unknown size:
     // https://cloud.google.com/storage/docs/concepts-techniques#unknownresumables
+    boolean isFirstRequest = effectiveStatus.getTotalContentLength() == 0L;
     ByteArrayContent content = request.createBatchJobUploadBodyProvider().getHttpContent(
-        request, effectiveStatus.getTotalContentLength() == 0, isLastRequest);
+        request, isFirstRequest, isLastRequest);
+    String requestXml;
     try {
-      content = postProcessContent(
-          content, effectiveStatus.getTotalContentLength() == 0L, isLastRequest);
+      content = postProcessContent(content, isFirstRequest, isLastRequest);
+      // Log the request XML rather than the compressed request.
+      requestXml = Streams.readAll(content.getInputStream(), REQUEST_CHARSET);
+      if (isRequestCompressionEnabled) {
+        content = compressContent(content, !(isFirstRequest && isLastRequest));
+      }
     } catch (IOException e) {
       throw new BatchJobException("Failed to post-process the request content", e);
     }
     
-    String requestXml = null;
     Throwable exception = null;
     BatchJobUploadResponse batchJobUploadResponse = null;
     final long contentLength = content.getLength();
@@ -124,6 +173,9 @@ public class BatchJobUploader {
                 public void initialize(HttpRequest request) throws IOException {
                   HttpHeaders headers = createHttpHeaders();
                   headers.setContentLength(contentLength);
+                  if (isRequestCompressionEnabled) {
+                    headers.setContentEncoding("gzip");
+                  }
                   headers.setContentRange(
                       constructContentRangeHeaderValue(
                           contentLength, isLastRequest, effectiveStatus));
@@ -137,9 +189,6 @@ public class BatchJobUploader {
           requestFactory.buildPutRequest(
               new GenericUrl(effectiveStatus.getResumableUploadUri()), content);
 
-      requestXml = Streams.readAll(content.getInputStream(), REQUEST_CHARSET);
-      content.getInputStream().reset();
-
       HttpResponse response = httpRequest.execute();
       batchJobUploadResponse = new BatchJobUploadResponse(
           response,
@@ -182,6 +231,11 @@ public class BatchJobUploader {
             HttpHeaders headers = createHttpHeaders();
             headers.setContentLength(0L);
             headers.set("x-goog-resumable", "start");
+            if (isRequestCompressionEnabled) {
+              // Cloud Storage takes the object's metadata from this request rather than from the
+              // uploads, so the encoding of the uploaded content must be declared here.
+              headers.setContentEncoding("gzip");
+            }
             request.setHeaders(headers);
             request.setLoggingEnabled(true);
           }
@@ -214,20 +268,80 @@ public class BatchJobUploader {
       return content;
     }
 
-    String serializedRequest = Streams.readAll(content.getInputStream(), REQUEST_CHARSET);
-
-    serializedRequest = trimStartEndElements(serializedRequest, isFirstRequest, isLastRequest);
-
     // The request is part of a set of incremental uploads, so pad to the required content
     // length. This is not necessary if all operations for the job are being uploaded in a
-    // single request.
-    int numBytes = serializedRequest.getBytes(REQUEST_CHARSET).length;
-    int remainder = numBytes % REQUIRED_CONTENT_LENGTH_INCREMENT;
-    if (remainder > 0) {
-      int pad = REQUIRED_CONTENT_LENGTH_INCREMENT - remainder;
-      serializedRequest = Strings.padEnd(serializedRequest, numBytes + pad, ' ');
+    // single request. Compressed requests are padded after compression instead.
+    byte[] serializedRequest = ByteStreams.toByteArray(content.getInputStream());
+    int lengthIncrement = isRequestCompressionEnabled ? 1 : REQUIRED_CONTENT_LENGTH_INCREMENT;
+    return new ByteArrayContent(content.getType(), trimStartEndElements(serializedRequest,
+        isFirstRequest, isLastRequest, lengthIncrement));
+  }
+
+  /**
+   * Returns the gzip compressed content.
+   *
+   * @param content the content to compress
+   * @param pad if true, a gzip member that decompresses to spaces is appended so that the length
+   *     of the compressed content is a multiple of {@link #REQUIRED_CONTENT_LENGTH_INCREMENT}.
+   *     The decompressed content then ends with spaces, like padded uncompressed content.
+   */
+  private static ByteArrayContent compressContent(ByteArrayContent content, boolean pad)
+      throws IOException {
+    ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressedContent)) {
+      content.writeTo(gzipOutputStream);
+    }
+    if (pad) {
+      int remainder = compressedContent.size() % REQUIRED_CONTENT_LENGTH_INCREMENT;
+      if (remainder > 0) {
+        writeGzipPadding(compressedContent, REQUIRED_CONTENT_LENGTH_INCREMENT - remainder);
+      }
+    }
+    return new ByteArrayContent(content.getType(), compressedContent.toByteArray());
+  }
+
+  /**
+   * Writes a gzip member of stored deflate blocks that contain only spaces and whose length is
+   * {@code paddingLength}, or {@code paddingLength} plus
+   * {@link #REQUIRED_CONTENT_LENGTH_INCREMENT} if {@code paddingLength} is less than the length
+   * of an empty member.
+   */
+  @VisibleForTesting
+  static void writeGzipPadding(OutputStream outputStream, int paddingLength) throws IOException {
+    int memberLength = paddingLength;
+    if (memberLength < GZIP_HEADER.length + 5 + GZIP_TRAILER_LENGTH) {
+      memberLength += REQUIRED_CONTENT_LENGTH_INCREMENT;
+    }
+    // Each stored block has a 5 byte header, so use as few blocks as possible.
+    int blocksAndDataLength = memberLength - GZIP_HEADER.length - GZIP_TRAILER_LENGTH;
+    int blockCount =
+        (blocksAndDataLength + MAX_STORED_BLOCK_LENGTH + 4) / (MAX_STORED_BLOCK_LENGTH + 5);
+    int dataLength = blocksAndDataLength - 5 * blockCount;
+
+    byte[] spaces = new byte[Math.min(dataLength, MAX_STORED_BLOCK_LENGTH)];
+    Arrays.fill(spaces, (byte) ' ');
+    CRC32 crc = new CRC32();
+    outputStream.write(GZIP_HEADER);
+    int remainingDataLength = dataLength;
+    for (int i = 0; i < blockCount; i++) {
+      int blockLength = Math.min(remainingDataLength, MAX_STORED_BLOCK_LENGTH);
+      remainingDataLength -= blockLength;
+      // BFINAL is set on the last block, and BTYPE 00 means stored.
+      outputStream.write(i == blockCount - 1 ? 1 : 0);
+      writeLittleEndian(outputStream, blockLength, 2);
+      writeLittleEndian(outputStream, ~blockLength, 2);
+      outputStream.write(spaces, 0, blockLength);
+      crc.update(spaces, 0, blockLength);
+    }
+    writeLittleEndian(outputStream, (int) crc.getValue(), 4);
+    writeLittleEndian(outputStream, dataLength, 4);
+  }
+
+  private static void writeLittleEndian(OutputStream outputStream, int value, int byteCount)
+      throws IOException {
+    for (int i = 0; i < byteCount; i++) {
+      outputStream.write(value >>> (8 * i));
     }
-    return new ByteArrayContent(content.getType(), serializedRequest.getBytes(REQUEST_CHARSET));
   }
 
   /**
@@ -240,26 +354,55 @@ public class BatchJobUploader {
   @VisibleForTesting
   String trimStartEndElements(
       String serializedRequest, boolean isFirstRequest, boolean isLastRequest) {
+    return new String(trimStartEndElements(serializedRequest.getBytes(REQUEST_CHARSET),
+        isFirstRequest, isLastRequest, 1), REQUEST_CHARSET);
+  }
+
+  /**
+   * Returns the UTF-8 encoded {@code serializedRequest} with the start or end {@code mutate}
+   * element removed, padded with spaces to a multiple of {@code lengthIncrement} bytes. Works on
+   * the bytes directly, since the {@code <} and {@code >} delimiters are single bytes in UTF-8 that
+   * never occur within the encoding of other characters.
+   */
+  private static byte[] trimStartEndElements(byte[] serializedRequest, boolean isFirstRequest,
+      boolean isLastRequest, int lengthIncrement) {
     int beginIndex = 0;
-    int endIndex = serializedRequest.length();
+    int endIndex = serializedRequest.length;
     if (!isFirstRequest) {
-      // Move the beginIndex (inclusive) to the character after the first opening tag, which
+      // Move the beginIndex (inclusive) to the byte after the first opening tag, which
       // should be a "<mutate>" tag, possibly with namespace declarations.
-      beginIndex = serializedRequest.indexOf('>') + 1;
-      Preconditions.checkArgument(
-          serializedRequest.substring(0, beginIndex - 1).contains("mutate"),
-          "Did not find an opening <mutate> element at the beginning of serialized request: %s",
-          serializedRequest);
+      beginIndex = Bytes.indexOf(serializedRequest, (byte) '>') + 1;
+      checkContainsMutate(serializedRequest, 0, beginIndex - 1,
+          "Did not find an opening <mutate> element at the beginning of serialized request: %s");
     }
     if (!isLastRequest) {
       // Move the endIndex (exclusive) to the beginning of the first closing tag, which
       // should be a "</mutate>" tag.
-      endIndex = serializedRequest.lastIndexOf('<');
-      Preconditions.checkArgument(serializedRequest.substring(endIndex).contains("mutate"),
-          "Did not find a closing </mutate> element at the end of serialized request: %s",
-          serializedRequest);
+      endIndex = Bytes.lastIndexOf(serializedRequest, (byte) '<');
+      checkContainsMutate(serializedRequest, endIndex, serializedRequest.length,
+          "Did not find a closing </mutate> element at the end of serialized request: %s");
+    }
+
+    int length = endIndex - beginIndex;
+    int remainder = length % lengthIncrement;
+    int paddedLength = remainder > 0 ? length + lengthIncrement - remainder : length;
+    byte[] processedRequest = new byte[paddedLength];
+    System.arraycopy(serializedRequest, beginIndex, processedRequest, 0, length);
+    Arrays.fill(processedRequest, length, paddedLength, (byte) ' ');
+    return processedRequest;
+  }
+
+  /**
+   * Throws an {@link IllegalArgumentException} if the bytes of {@code serializedRequest} from
+   * {@code beginIndex} (inclusive) to {@code endIndex} (exclusive) do not contain "mutate".
+   */
+  private static void checkContainsMutate(
+      byte[] serializedRequest, int beginIndex, int endIndex, String errorMessageTemplate) {
+    if (beginIndex < 0 || endIndex < beginIndex || Bytes.indexOf(
+        Arrays.copyOfRange(serializedRequest, beginIndex, endIndex), MUTATE_BYTES) < 0) {
+      throw new IllegalArgumentException(String.format(
+          errorMessageTemplate, new String(serializedRequest, REQUEST_CHARSET)));
     }
-    return serializedRequest.substring(beginIndex, endIndex);
   }
   
   /**
@@ -0,0 +1,285 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps a local copy of the campaigns, ad groups and feeds of accounts current by retrieving only
+ * the entities that {@code CustomerSyncService} reports as changed since the last sync of each
+ * account.
+ *
+ * <p>For each account, the synchronizer:
+ * <ol>
+ * <li>reads the timestamp of the account's last sync from a {@link SyncTimestampStore},</li>
+ * <li>asks a {@link ChangeSource} for the {@link CustomerChanges} since that timestamp,</li>
+ * <li>passes the IDs of the changed campaigns, ad groups and feeds to a
+ *     {@link ChangedEntityFetcher} in batches of at most {@code maxIdsPerGet} IDs, and</li>
+ * <li>stores the last change timestamp, but only after all batches were retrieved, so that
+ *     changes are retrieved again if the sync of an account fails.</li>
+ * </ol>
+ *
+ * <p>The {@code CustomerSyncAdapter} of an API version implements both the change source and the
+ * fetcher, for example with the v201702 Axis classes:
+ * <pre>
+ * CustomerSyncAdapter adapter =
+ *     new CustomerSyncAdapter(adWordsServices, session, changedEntityHandler);
+ * CustomerChangeSynchronizer synchronizer = new CustomerChangeSynchronizer(adapter, adapter,
+ *     new InMemorySyncTimestampStore(initialTimestamp), 500, 4, executorService);
+ * SyncResult result = synchronizer.syncCustomers(clientCustomerIds);
+ * </pre>
+ *
+ * <p>Implementation is thread-safe if the change source, fetcher and timestamp store are.
+ */
+@ThreadSafe
+public class CustomerChangeSynchronizer {
+
+  private final ChangeSource changeSource;
+  private final ChangedEntityFetcher changedEntityFetcher;
+  private final SyncTimestampStore syncTimestampStore;
+  private final int maxIdsPerGet;
+  private final int maxParallelism;
+  private final ExecutorService executorService;
+
+  /**
+   * Constructor.
+   *
+   * @param changeSource the source of the changes of each account
+   * @param changedEntityFetcher the fetcher that retrieves the changed entities
+   * @param syncTimestampStore the store of the timestamp of each account's last sync
+   * @param maxIdsPerGet the maximum number of IDs to pass to the fetcher at once
+   * @param maxParallelism the maximum number of accounts to sync at once
+   * @param executorService the executor to sync accounts on. This synchronizer does not shut it
+   *     down.
+   */
+  public CustomerChangeSynchronizer(ChangeSource changeSource,
+      ChangedEntityFetcher changedEntityFetcher, SyncTimestampStore syncTimestampStore,
+      int maxIdsPerGet, int maxParallelism, ExecutorService executorService) {
+    Preconditions.checkArgument(maxIdsPerGet > 0, "Max IDs per get must be > 0");
+    Preconditions.checkArgument(maxParallelism > 0, "Max parallelism must be > 0");
+    this.changeSource = Preconditions.checkNotNull(changeSource, "Null change source");
+    this.changedEntityFetcher =
+        Preconditions.checkNotNull(changedEntityFetcher, "Null changed entity fetcher");
+    this.syncTimestampStore =
+        Preconditions.checkNotNull(syncTimestampStore, "Null sync timestamp store");
+    this.maxIdsPerGet = maxIdsPerGet;
+    this.maxParallelism = maxParallelism;
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+  }
+
+  /**
+   * Syncs one account on the calling thread.
+   *
+   * @param clientCustomerId the client customer ID of the account
+   * @return the changes that were retrieved
+   * @throws Exception if retrieving the changes or the changed entities failed. The account's
+   *     sync timestamp is not updated in that case.
+   */
+  public CustomerChanges syncCustomer(String clientCustomerId) throws Exception {
+    Preconditions.checkNotNull(clientCustomerId, "Null client customer ID");
+    String minDateTime = syncTimestampStore.getLastSyncTimestamp(clientCustomerId);
+    CustomerChanges changes = changeSource.getChanges(clientCustomerId, minDateTime);
+    for (List<Long> campaignIds : Lists.partition(changes.getChangedCampaignIds(), maxIdsPerGet)) {
+      changedEntityFetcher.fetchCampaigns(clientCustomerId, campaignIds);
+    }
+    for (List<Long> adGroupIds : Lists.partition(changes.getChangedAdGroupIds(), maxIdsPerGet)) {
+      changedEntityFetcher.fetchAdGroups(clientCustomerId, adGroupIds);
+    }
+    for (List<Long> feedIds : Lists.partition(changes.getChangedFeedIds(), maxIdsPerGet)) {
+      changedEntityFetcher.fetchFeeds(clientCustomerId, feedIds);
+    }
+    if (changes.getLastChangeTimestamp() != null) {
+      syncTimestampStore.setLastSyncTimestamp(clientCustomerId, changes.getLastChangeTimestamp());
+    }
+    return changes;
+  }
+
+  /**
+   * Syncs the accounts, at most {@code maxParallelism} at once. A failed account does not stop
+   * the sync of the other accounts.
+   *
+   * @param clientCustomerIds the client customer IDs of the accounts
+   * @return the changes of each account that was synced and the failure of each account that
+   *     was not
+   * @throws ServiceException if the thread was interrupted. Accounts still being synced are
+   *     cancelled.
+   */
+  public SyncResult syncCustomers(Collection<String> clientCustomerIds) {
+    Preconditions.checkNotNull(clientCustomerIds, "Null client customer IDs");
+    CompletionService<CustomerChanges> completionService =
+        new ExecutorCompletionService<CustomerChanges>(executorService);
+    Map<Future<CustomerChanges>, String> syncsInFlight = Maps.newHashMap();
+    Map<String, CustomerChanges> changes = Maps.newLinkedHashMap();
+    Map<String, Throwable> failures = Maps.newLinkedHashMap();
+
+    Iterator<String> remainingCustomerIds = clientCustomerIds.iterator();
+    try {
+      while (!syncsInFlight.isEmpty() || remainingCustomerIds.hasNext()) {
+        while (syncsInFlight.size() < maxParallelism && remainingCustomerIds.hasNext()) {
+          final String clientCustomerId = remainingCustomerIds.next();
+          syncsInFlight.put(completionService.submit(new Callable<CustomerChanges>() {
+            @Override
+            public CustomerChanges call() throws Exception {
+              return syncCustomer(clientCustomerId);
+            }
+          }), clientCustomerId);
+        }
+        Future<CustomerChanges> completedSync = completionService.take();
+        String clientCustomerId = syncsInFlight.remove(completedSync);
+        try {
+          changes.put(clientCustomerId, completedSync.get());
+        } catch (ExecutionException e) {
+          failures.put(clientCustomerId, e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      for (Future<CustomerChanges> future : syncsInFlight.keySet()) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw new ServiceException("Interrupted while syncing accounts", e);
+    }
+    return new SyncResult(changes, failures);
+  }
+
+  /**
+   * The outcome of {@link CustomerChangeSynchronizer#syncCustomers(Collection)}.
+   */
+  public static final class SyncResult {
+    private final ImmutableMap<String, CustomerChanges> changes;
+    private final ImmutableMap<String, Throwable> failures;
+
+    private SyncResult(Map<String, CustomerChanges> changes, Map<String, Throwable> failures) {
+      this.changes = ImmutableMap.copyOf(changes);
+      this.failures = ImmutableMap.copyOf(failures);
+    }
+
+    /**
+     * Returns the changes of each account that was synced, by client customer ID.
+     */
+    public ImmutableMap<String, CustomerChanges> getChanges() {
+      return changes;
+    }
+
+    /**
+     * Returns the failure of each account that was not synced, by client customer ID.
+     */
+    public ImmutableMap<String, Throwable> getFailures() {
+      return failures;
+    }
+  }
+
+  /**
+   * Retrieves the changes of an account from {@code CustomerSyncService}.
+   */
+  public interface ChangeSource {
+
+    /**
+     * Returns the changes of the account since {@code minDateTime}.
+     *
+     * @param clientCustomerId the client customer ID of the account
+     * @param minDateTime the start of the date time range of the {@code CustomerSyncSelector},
+     *     as returned by the {@link SyncTimestampStore}
+     */
+    CustomerChanges getChanges(String clientCustomerId, @Nullable String minDateTime)
+        throws Exception;
+  }
+
+  /**
+   * Retrieves changed entities, for example with a get whose selector has an {@code IN}
+   * predicate on the IDs, and updates the local copy with them.
+   */
+  public interface ChangedEntityFetcher {
+
+    /**
+     * Retrieves the campaigns with the given IDs.
+     */
+    void fetchCampaigns(String clientCustomerId, List<Long> campaignIds) throws Exception;
+
+    /**
+     * Retrieves the ad groups with the given IDs.
+     */
+    void fetchAdGroups(String clientCustomerId, List<Long> adGroupIds) throws Exception;
+
+    /**
+     * Retrieves the feeds with the given IDs.
+     */
+    void fetchFeeds(String clientCustomerId, List<Long> feedIds) throws Exception;
+  }
+
+  /**
+   * Stores the timestamp of the last sync of each account.
+   */
+  public interface SyncTimestampStore {
+
+    /**
+     * Returns the last change timestamp of the account's last sync, or the timestamp to start
+     * the account's first sync from.
+     */
+    @Nullable
+    String getLastSyncTimestamp(String clientCustomerId);
+
+    /**
+     * Stores the last change timestamp of a successful sync of the account.
+     */
+    void setLastSyncTimestamp(String clientCustomerId, String lastChangeTimestamp);
+  }
+
+  /**
+   * A {@link SyncTimestampStore} that keeps the timestamps in memory.
+   */
+  @ThreadSafe
+  public static class InMemorySyncTimestampStore implements SyncTimestampStore {
+    private final ConcurrentMap<String, String> lastSyncTimestamps = Maps.newConcurrentMap();
+    private final String initialTimestamp;
+
+    /**
+     * Constructor.
+     *
+     * @param initialTimestamp the timestamp to start the first sync of each account from
+     */
+    public InMemorySyncTimestampStore(@Nullable String initialTimestamp) {
+      this.initialTimestamp = initialTimestamp;
+    }
+
+    @Override
+    public String getLastSyncTimestamp(String clientCustomerId) {
+      String lastSyncTimestamp = lastSyncTimestamps.get(clientCustomerId);
+      return lastSyncTimestamp == null ? initialTimestamp : lastSyncTimestamp;
+    }
+
+    @Override
+    public void setLastSyncTimestamp(String clientCustomerId, String lastChangeTimestamp) {
+      lastSyncTimestamps.put(clientCustomerId, lastChangeTimestamp);
+    }
+  }
+}
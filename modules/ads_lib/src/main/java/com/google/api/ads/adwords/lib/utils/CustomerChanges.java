@@ -0,0 +1,173 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The campaigns, ad groups and feeds of an account whose own fields changed, as reported by
+ * {@code CustomerSyncService}, independent of the API version.
+ *
+ * <p>Entities whose change status is {@code NEW} or {@code FIELDS_CHANGED} are considered
+ * changed. Entities with status {@code FIELDS_UNCHANGED} are only reported by the service because
+ * some of their children changed, so they are skipped.
+ */
+@Immutable
+public final class CustomerChanges {
+
+  private static final String NEW = "NEW";
+  private static final String FIELDS_CHANGED = "FIELDS_CHANGED";
+
+  private final ImmutableList<Long> changedCampaignIds;
+  private final ImmutableList<Long> changedAdGroupIds;
+  private final ImmutableList<Long> changedFeedIds;
+  private final String lastChangeTimestamp;
+
+  private CustomerChanges(Builder builder) {
+    this.changedCampaignIds = ImmutableList.copyOf(builder.changedCampaignIds);
+    this.changedAdGroupIds = ImmutableList.copyOf(builder.changedAdGroupIds);
+    this.changedFeedIds = ImmutableList.copyOf(builder.changedFeedIds);
+    this.lastChangeTimestamp = builder.lastChangeTimestamp;
+  }
+
+  /**
+   * Returns the IDs of the new and changed campaigns.
+   */
+  public ImmutableList<Long> getChangedCampaignIds() {
+    return changedCampaignIds;
+  }
+
+  /**
+   * Returns the IDs of the new and changed ad groups.
+   */
+  public ImmutableList<Long> getChangedAdGroupIds() {
+    return changedAdGroupIds;
+  }
+
+  /**
+   * Returns the IDs of the new and changed feeds.
+   */
+  public ImmutableList<Long> getChangedFeedIds() {
+    return changedFeedIds;
+  }
+
+  /**
+   * Returns the timestamp of the last change, or null if there were no changes.
+   */
+  @Nullable
+  public String getLastChangeTimestamp() {
+    return lastChangeTimestamp;
+  }
+
+  /**
+   * Returns true if no campaign, ad group or feed changed.
+   */
+  public boolean isEmpty() {
+    return changedCampaignIds.isEmpty() && changedAdGroupIds.isEmpty()
+        && changedFeedIds.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CustomerChanges{campaigns=%s, adGroups=%s, feeds=%s, "
+        + "lastChangeTimestamp=%s}",
+        changedCampaignIds, changedAdGroupIds, changedFeedIds, lastChangeTimestamp);
+  }
+
+  /**
+   * Returns a new builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns whether an entity with the given change status should be retrieved again.
+   */
+  private static boolean isChanged(@Nullable String changeStatus) {
+    return NEW.equals(changeStatus) || FIELDS_CHANGED.equals(changeStatus);
+  }
+
+  /**
+   * Builder for {@link CustomerChanges}. Change statuses are passed by name, as returned by
+   * {@code toString()} of the {@code ChangeStatus} of any API version. Entities that are added
+   * more than once are only included once.
+   *
+   * <p>Implementation is not thread-safe.
+   */
+  public static final class Builder {
+    private final Set<Long> changedCampaignIds = Sets.newLinkedHashSet();
+    private final Set<Long> changedAdGroupIds = Sets.newLinkedHashSet();
+    private final Set<Long> changedFeedIds = Sets.newLinkedHashSet();
+    private String lastChangeTimestamp;
+
+    private Builder() {}
+
+    /**
+     * Adds a campaign from a {@code CampaignChangeData}.
+     *
+     * @param campaignId the ID of the campaign
+     * @param changeStatus the name of the campaign's change status
+     */
+    public Builder addCampaign(long campaignId, @Nullable String changeStatus) {
+      if (isChanged(changeStatus)) {
+        changedCampaignIds.add(campaignId);
+      }
+      return this;
+    }
+
+    /**
+     * Adds an ad group from an {@code AdGroupChangeData}.
+     *
+     * @param adGroupId the ID of the ad group
+     * @param changeStatus the name of the ad group's change status
+     */
+    public Builder addAdGroup(long adGroupId, @Nullable String changeStatus) {
+      if (isChanged(changeStatus)) {
+        changedAdGroupIds.add(adGroupId);
+      }
+      return this;
+    }
+
+    /**
+     * Adds a feed from a {@code FeedChangeData}.
+     *
+     * @param feedId the ID of the feed
+     * @param changeStatus the name of the feed's change status
+     */
+    public Builder addFeed(long feedId, @Nullable String changeStatus) {
+      if (isChanged(changeStatus)) {
+        changedFeedIds.add(feedId);
+      }
+      return this;
+    }
+
+    /**
+     * Sets the {@code lastChangeTimestamp} of the {@code CustomerChangeData}.
+     */
+    public Builder withLastChangeTimestamp(@Nullable String lastChangeTimestamp) {
+      this.lastChangeTimestamp = lastChangeTimestamp;
+      return this;
+    }
+
+    public CustomerChanges build() {
+      return new CustomerChanges(this);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.primitives.Longs;
+import java.util.Arrays;
+import java.util.Comparator;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A compact index of the manager/client links of an account hierarchy.
+ *
+ * <p>Links are stored in sorted primitive arrays, once ordered by manager and once ordered by
+ * client, so that the index of a hierarchy with hundreds of thousands of accounts takes a few
+ * megabytes and lookups take logarithmic time.
+ */
+@Immutable
+public final class CustomerHierarchyIndex {
+
+  private static final long[] EMPTY = new long[0];
+
+  /** The IDs of all customers, sorted. */
+  private final long[] customerIds;
+
+  /** Manager IDs, sorted, with the client ID of each link at the same position. */
+  private final long[] managerIdsByManager;
+  private final long[] clientIdsByManager;
+
+  /** Client IDs, sorted, with the manager ID of each link at the same position. */
+  private final long[] clientIdsByClient;
+  private final long[] managerIdsByClient;
+
+  private CustomerHierarchyIndex(long[] customerIds, long[] managerIds, long[] clientIds) {
+    this.customerIds = customerIds;
+    Arrays.sort(this.customerIds);
+    this.managerIdsByManager = managerIds.clone();
+    this.clientIdsByManager = clientIds.clone();
+    sortLinks(managerIdsByManager, clientIdsByManager);
+    this.clientIdsByClient = clientIds;
+    this.managerIdsByClient = managerIds;
+    sortLinks(clientIdsByClient, managerIdsByClient);
+  }
+
+  /**
+   * Returns a new builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the number of distinct customers in the hierarchy.
+   */
+  public int getCustomerCount() {
+    return customerIds.length;
+  }
+
+  /**
+   * Returns the number of manager/client links in the hierarchy.
+   */
+  public int getLinkCount() {
+    return managerIdsByManager.length;
+  }
+
+  /**
+   * Returns true if the customer is part of the hierarchy.
+   */
+  public boolean contains(long customerId) {
+    return Arrays.binarySearch(customerIds, customerId) >= 0;
+  }
+
+  /**
+   * Returns the IDs of all customers in the hierarchy in ascending order.
+   */
+  public long[] getCustomerIds() {
+    return customerIds.clone();
+  }
+
+  /**
+   * Returns the IDs of the direct clients of a manager in ascending order.
+   */
+  public long[] getChildIds(long managerCustomerId) {
+    return getLinked(managerIdsByManager, clientIdsByManager, managerCustomerId);
+  }
+
+  /**
+   * Returns the IDs of the direct managers of a client in ascending order.
+   */
+  public long[] getParentIds(long clientCustomerId) {
+    return getLinked(clientIdsByClient, managerIdsByClient, clientCustomerId);
+  }
+
+  /**
+   * Returns the IDs of the customers that have no manager within the hierarchy in ascending
+   * order.
+   */
+  public long[] getRootIds() {
+    long[] rootIds = new long[customerIds.length];
+    int count = 0;
+    for (long customerId : customerIds) {
+      if (Arrays.binarySearch(clientIdsByClient, customerId) < 0) {
+        rootIds[count++] = customerId;
+      }
+    }
+    return Arrays.copyOf(rootIds, count);
+  }
+
+  /**
+   * Returns the values of the links whose key is {@code key}.
+   */
+  private static long[] getLinked(long[] keys, long[] values, long key) {
+    int index = Arrays.binarySearch(keys, key);
+    if (index < 0) {
+      return EMPTY;
+    }
+    int start = index;
+    while (start > 0 && keys[start - 1] == key) {
+      start--;
+    }
+    int end = index + 1;
+    while (end < keys.length && keys[end] == key) {
+      end++;
+    }
+    return Arrays.copyOfRange(values, start, end);
+  }
+
+  /**
+   * Sorts the links by key and then by value, reordering both arrays.
+   */
+  private static void sortLinks(final long[] keys, final long[] values) {
+    Integer[] order = new Integer[keys.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        int result = Longs.compare(keys[a], keys[b]);
+        return result != 0 ? result : Longs.compare(values[a], values[b]);
+      }
+    });
+    long[] sortedKeys = new long[keys.length];
+    long[] sortedValues = new long[values.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedKeys[i] = keys[order[i]];
+      sortedValues[i] = values[order[i]];
+    }
+    System.arraycopy(sortedKeys, 0, keys, 0, keys.length);
+    System.arraycopy(sortedValues, 0, values, 0, values.length);
+  }
+
+  /**
+   * Collects customers and links for a {@link CustomerHierarchyIndex}. Duplicate customers and
+   * links are ignored. This class is not thread safe.
+   */
+  public static final class Builder {
+    private long[] customerIds = new long[16];
+    private int customerCount;
+    private long[] managerIds = new long[16];
+    private long[] clientIds = new long[16];
+    private int linkCount;
+
+    private Builder() {}
+
+    /**
+     * Adds a customer to the hierarchy.
+     */
+    public Builder addCustomer(long customerId) {
+      customerIds = Longs.ensureCapacity(customerIds, customerCount + 1, customerCount);
+      customerIds[customerCount++] = customerId;
+      return this;
+    }
+
+    /**
+     * Adds a link between a manager and one of its clients. Both customers are added to the
+     * hierarchy.
+     */
+    public Builder addLink(long managerCustomerId, long clientCustomerId) {
+      managerIds = Longs.ensureCapacity(managerIds, linkCount + 1, linkCount);
+      clientIds = Longs.ensureCapacity(clientIds, linkCount + 1, linkCount);
+      managerIds[linkCount] = managerCustomerId;
+      clientIds[linkCount] = clientCustomerId;
+      linkCount++;
+      return addCustomer(managerCustomerId).addCustomer(clientCustomerId);
+    }
+
+    /**
+     * Returns the index of the customers and links added so far.
+     */
+    public CustomerHierarchyIndex build() {
+      long[] distinctCustomerIds = Arrays.copyOf(customerIds, customerCount);
+      Arrays.sort(distinctCustomerIds);
+      distinctCustomerIds = Arrays.copyOf(distinctCustomerIds,
+          removeDuplicates(distinctCustomerIds, null, distinctCustomerIds.length));
+
+      long[] linkManagerIds = Arrays.copyOf(managerIds, linkCount);
+      long[] linkClientIds = Arrays.copyOf(clientIds, linkCount);
+      sortLinks(linkManagerIds, linkClientIds);
+      int distinctLinkCount = removeDuplicates(linkManagerIds, linkClientIds, linkCount);
+      return new CustomerHierarchyIndex(distinctCustomerIds,
+          Arrays.copyOf(linkManagerIds, distinctLinkCount),
+          Arrays.copyOf(linkClientIds, distinctLinkCount));
+    }
+
+    /**
+     * Moves the distinct entries of sorted arrays to their front and returns their number.
+     */
+    private static int removeDuplicates(long[] keys, long[] values, int length) {
+      int distinct = 0;
+      for (int i = 0; i < length; i++) {
+        boolean isDuplicate = distinct > 0 && keys[i] == keys[distinct - 1]
+            && (values == null || values[i] == values[distinct - 1]);
+        if (!isDuplicate) {
+          keys[distinct] = keys[i];
+          if (values != null) {
+            values[distinct] = values[i];
+          }
+          distinct++;
+        }
+      }
+      return distinct;
+    }
+  }
+}
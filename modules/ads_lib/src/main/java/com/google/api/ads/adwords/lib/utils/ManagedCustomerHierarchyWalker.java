@@ -0,0 +1,237 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Discovers all accounts under a manager account by paging through
+ * {@code ManagedCustomerService.get} with several pages in flight at once.
+ *
+ * <p>After the first page reports the total number of accounts, up to {@code maxParallelism}
+ * pages are requested concurrently. Each page's accounts are passed to a
+ * {@link CustomerCallback} as soon as the page arrives, on the thread calling
+ * {@link #walk(CustomerCallback)}, and its links are added to a {@link CustomerHierarchyIndex}.
+ * Pages are not retained, so memory use is bounded by the index and the pages in flight.
+ *
+ * <p>Example usage with the v201702 Axis classes:
+ * <pre>
+ * SelectorBuilder builder = new SelectorBuilder()
+ *     .fields(ManagedCustomerField.CustomerId, ManagedCustomerField.Name);
+ * ManagedCustomerHierarchyWalker&lt;Selector, ManagedCustomerPage, ManagedCustomer,
+ *     ManagedCustomerLink&gt; walker = new ManagedCustomerHierarchyWalker&lt;...&gt;(
+ *         builder, 5000, 4, executor, new ManagedCustomerPageFetcher&lt;...&gt;() {
+ *           public ManagedCustomerPage getPage(Selector selector) throws Exception {
+ *             return managedCustomerService.get(selector);
+ *           }
+ *           public int getTotalNumEntries(ManagedCustomerPage page) {
+ *             return page.getTotalNumEntries();
+ *           }
+ *           public List&lt;ManagedCustomer&gt; getCustomers(ManagedCustomerPage page) {
+ *             return page.getEntries() == null
+ *                 ? null : Arrays.asList(page.getEntries());
+ *           }
+ *           ...
+ *         });
+ * CustomerHierarchyIndex index = walker.walk(callback);
+ * </pre>
+ *
+ * <p>This class is not thread safe. The selector builder is only used by the thread calling
+ * {@link #walk(CustomerCallback)}, and its offset and limit are overwritten for each page.
+ *
+ * @param <SelectorT> the selector type of the API version
+ * @param <PageT> the {@code ManagedCustomerPage} type of the API version
+ * @param <CustomerT> the {@code ManagedCustomer} type of the API version
+ * @param <LinkT> the {@code ManagedCustomerLink} type of the API version
+ */
+public class ManagedCustomerHierarchyWalker<SelectorT, PageT, CustomerT, LinkT> {
+
+  private final SelectorBuilderInterface<SelectorT> selectorBuilder;
+  private final int pageSize;
+  private final int maxParallelism;
+  private final ExecutorService executorService;
+  private final ManagedCustomerPageFetcher<SelectorT, PageT, CustomerT, LinkT> pageFetcher;
+
+  /**
+   * Constructor.
+   *
+   * @param selectorBuilder the builder for the {@code ManagedCustomerService} selector
+   * @param pageSize the number of accounts to request per page
+   * @param maxParallelism the maximum number of pages in flight at once
+   * @param executorService the executor to fetch pages on. This walker does not shut it down.
+   * @param pageFetcher the fetcher that retrieves each page and reads its contents
+   */
+  public ManagedCustomerHierarchyWalker(SelectorBuilderInterface<SelectorT> selectorBuilder,
+      int pageSize, int maxParallelism, ExecutorService executorService,
+      ManagedCustomerPageFetcher<SelectorT, PageT, CustomerT, LinkT> pageFetcher) {
+    Preconditions.checkArgument(pageSize > 0, "Page size must be > 0");
+    Preconditions.checkArgument(maxParallelism > 0, "Max parallelism must be > 0");
+    this.selectorBuilder = Preconditions.checkNotNull(selectorBuilder, "Null selector builder");
+    this.pageSize = pageSize;
+    this.maxParallelism = maxParallelism;
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+    this.pageFetcher = Preconditions.checkNotNull(pageFetcher, "Null page fetcher");
+  }
+
+  /**
+   * Retrieves every page of accounts, passing each account to {@code callback} as its page
+   * arrives. Pages may arrive out of offset order.
+   *
+   * @param callback receives each discovered account
+   * @return the index of all accounts and links that were discovered
+   * @throws ServiceException if retrieving a page failed or the thread was interrupted. Pages
+   *     still in flight are cancelled.
+   */
+  public CustomerHierarchyIndex walk(CustomerCallback<CustomerT> callback) {
+    Preconditions.checkNotNull(callback, "Null callback");
+    CompletionService<PageT> completionService =
+        new ExecutorCompletionService<PageT>(executorService);
+    List<Future<PageT>> pagesInFlight = Lists.newArrayList();
+    CustomerHierarchyIndex.Builder index = CustomerHierarchyIndex.builder();
+
+    pagesInFlight.add(requestPage(completionService, 0));
+    int nextOffset = pageSize;
+    Integer totalNumEntries = null;
+    try {
+      while (!pagesInFlight.isEmpty()) {
+        Future<PageT> completedPage = completionService.take();
+        pagesInFlight.remove(completedPage);
+        PageT page = completedPage.get();
+        if (totalNumEntries == null) {
+          totalNumEntries = pageFetcher.getTotalNumEntries(page);
+        }
+        while (pagesInFlight.size() < maxParallelism && nextOffset < totalNumEntries) {
+          pagesInFlight.add(requestPage(completionService, nextOffset));
+          nextOffset += pageSize;
+        }
+        addPage(page, index, callback);
+      }
+    } catch (ExecutionException e) {
+      cancel(pagesInFlight);
+      throw new ServiceException("Failed to retrieve page", e.getCause());
+    } catch (InterruptedException e) {
+      cancel(pagesInFlight);
+      Thread.currentThread().interrupt();
+      throw new ServiceException("Interrupted while retrieving pages", e);
+    } catch (RuntimeException e) {
+      cancel(pagesInFlight);
+      throw e;
+    }
+    return index.build();
+  }
+
+  /**
+   * Passes the page's accounts to the callback and adds them and the page's links to the index.
+   */
+  private void addPage(PageT page, CustomerHierarchyIndex.Builder index,
+      CustomerCallback<CustomerT> callback) {
+    List<CustomerT> customers = pageFetcher.getCustomers(page);
+    if (customers != null) {
+      for (CustomerT customer : customers) {
+        index.addCustomer(pageFetcher.getCustomerId(customer));
+        callback.onCustomer(customer);
+      }
+    }
+    List<LinkT> links = pageFetcher.getLinks(page);
+    if (links != null) {
+      for (LinkT link : links) {
+        index.addLink(
+            pageFetcher.getManagerCustomerId(link), pageFetcher.getClientCustomerId(link));
+      }
+    }
+  }
+
+  /**
+   * Builds the selector for {@code offset} and submits the request for its page.
+   */
+  private Future<PageT> requestPage(CompletionService<PageT> completionService, int offset) {
+    final SelectorT selector = selectorBuilder.offset(offset).limit(pageSize).build();
+    return completionService.submit(new Callable<PageT>() {
+      @Override
+      public PageT call() throws Exception {
+        return pageFetcher.getPage(selector);
+      }
+    });
+  }
+
+  private static void cancel(List<? extends Future<?>> futures) {
+    for (Future<?> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Retrieves pages from {@code ManagedCustomerService} and reads the accounts and links of
+   * each page.
+   *
+   * @param <SelectorT> the selector type of the API version
+   * @param <PageT> the {@code ManagedCustomerPage} type of the API version
+   * @param <CustomerT> the {@code ManagedCustomer} type of the API version
+   * @param <LinkT> the {@code ManagedCustomerLink} type of the API version
+   */
+  public interface ManagedCustomerPageFetcher<SelectorT, PageT, CustomerT, LinkT>
+      extends PageFetcher<SelectorT, PageT> {
+
+    /**
+     * Returns the accounts of the page, or null if it has none.
+     */
+    @Nullable
+    List<CustomerT> getCustomers(PageT page);
+
+    /**
+     * Returns the links of the page, or null if it has none.
+     */
+    @Nullable
+    List<LinkT> getLinks(PageT page);
+
+    /**
+     * Returns the customer ID of an account.
+     */
+    long getCustomerId(CustomerT customer);
+
+    /**
+     * Returns the customer ID of the manager of a link.
+     */
+    long getManagerCustomerId(LinkT link);
+
+    /**
+     * Returns the customer ID of the client of a link.
+     */
+    long getClientCustomerId(LinkT link);
+  }
+
+  /**
+   * Receives accounts as they are discovered.
+   *
+   * @param <CustomerT> the {@code ManagedCustomer} type of the API version
+   */
+  public interface CustomerCallback<CustomerT> {
+
+    /**
+     * Called once for each account on each page, on the thread that is walking the hierarchy.
+     */
+    void onCustomer(CustomerT customer);
+  }
+}
@@ -0,0 +1,377 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Combines operations submitted independently, for example from many threads, into fewer
+ * {@code mutate} calls.
+ *
+ * <p>Operations are buffered per key, which should identify the service and client customer ID the
+ * operations are sent to. A key's buffer is sent as one {@code mutate} call when it holds
+ * {@code maxOperations} operations, or {@code lingerMillis} after its first operation was
+ * submitted, whichever comes first. The {@link MutateHandler} must send the operations with
+ * partial failure enabled, so that one invalid operation does not fail the others. Partial failure
+ * errors are matched back to their operations using the {@code operations[i]} prefix of each
+ * error's field path.
+ *
+ * <p>Example usage for keyword bid changes, where each client customer ID has an
+ * {@code AdGroupCriterionService} created from a session with partial failure enabled:
+ * <pre>
+ * new MutateHandler&lt;String, AdGroupCriterionOperation, AdGroupCriterion, ApiError&gt;() {
+ *   public MutateResponse&lt;AdGroupCriterion, ApiError&gt; mutate(
+ *       String clientCustomerId, List&lt;AdGroupCriterionOperation&gt; operations)
+ *       throws Exception {
+ *     AdGroupCriterionReturnValue returnValue = getService(clientCustomerId).mutate(
+ *         operations.toArray(new AdGroupCriterionOperation[operations.size()]));
+ *     return new MutateResponse&lt;AdGroupCriterion, ApiError&gt;(
+ *         Arrays.asList(returnValue.getValue()),
+ *         Arrays.asList(returnValue.getPartialFailureErrors()));
+ *   }
+ *   public String getFieldPath(ApiError error) {
+ *     return error.getFieldPath();
+ *   }
+ * }
+ * </pre>
+ *
+ * @param <KeyT> the type of the key that operations are grouped by
+ * @param <OperationT> the operation type
+ * @param <ResultT> the type of the result of each operation
+ * @param <ErrorT> the partial failure error type
+ */
+@ThreadSafe
+public class MutateCoalescer<KeyT, OperationT, ResultT, ErrorT> implements AutoCloseable {
+
+  private static final String OPERATIONS_FIELD_PATH_PREFIX = "operations[";
+
+  private final MutateHandler<KeyT, OperationT, ResultT, ErrorT> mutateHandler;
+  private final int maxOperations;
+  private final long lingerMillis;
+  private final ScheduledExecutorService scheduler;
+
+  /** The batches that have not been sent yet, keyed by the key of their operations. */
+  private final Map<KeyT, PendingBatch<KeyT, OperationT, ResultT>> pendingBatches =
+      Maps.newHashMap();
+
+  private boolean isClosed;
+
+  /**
+   * Constructor.
+   *
+   * @param mutateHandler sends each batch of operations
+   * @param maxOperations the maximum number of operations per {@code mutate} call
+   * @param lingerMillis the maximum time to wait for more operations before sending a batch
+   * @param scheduler the scheduler to send batches on. This coalescer does not shut it down.
+   */
+  public MutateCoalescer(MutateHandler<KeyT, OperationT, ResultT, ErrorT> mutateHandler,
+      int maxOperations, long lingerMillis, ScheduledExecutorService scheduler) {
+    Preconditions.checkArgument(maxOperations > 0, "Max operations must be > 0");
+    Preconditions.checkArgument(lingerMillis >= 0, "Linger must be >= 0");
+    this.mutateHandler = Preconditions.checkNotNull(mutateHandler, "Null mutate handler");
+    this.maxOperations = maxOperations;
+    this.lingerMillis = lingerMillis;
+    this.scheduler = Preconditions.checkNotNull(scheduler, "Null scheduler");
+  }
+
+  /**
+   * Adds an operation to the batch for {@code key}.
+   *
+   * @param key identifies the service and client customer ID to send the operation to
+   * @param operation the operation
+   * @return a future for the result of the operation. The future fails with an
+   *     {@link OperationFailedException} if the operation had partial failure errors, or with the
+   *     exception thrown by the {@link MutateHandler} if the whole call failed.
+   * @throws IllegalStateException if this coalescer has been closed
+   */
+  public ListenableFuture<ResultT> submit(KeyT key, OperationT operation) {
+    Preconditions.checkNotNull(key, "Null key");
+    Preconditions.checkNotNull(operation, "Null operation");
+    SettableFuture<ResultT> future = SettableFuture.create();
+    PendingBatch<KeyT, OperationT, ResultT> fullBatch = null;
+    synchronized (this) {
+      Preconditions.checkState(!isClosed, "Coalescer has been closed");
+      PendingBatch<KeyT, OperationT, ResultT> batch = pendingBatches.get(key);
+      if (batch == null) {
+        batch = new PendingBatch<KeyT, OperationT, ResultT>(key);
+        pendingBatches.put(key, batch);
+        scheduleLingerFlush(batch);
+      }
+      batch.operations.add(operation);
+      batch.futures.add(future);
+      if (batch.operations.size() >= maxOperations) {
+        pendingBatches.remove(key);
+        fullBatch = batch;
+      }
+    }
+    if (fullBatch != null) {
+      dispatch(fullBatch);
+    }
+    return future;
+  }
+
+  /**
+   * Sends all buffered operations without waiting for their linger time to pass.
+   */
+  public void flush() {
+    List<PendingBatch<KeyT, OperationT, ResultT>> batches;
+    synchronized (this) {
+      batches = Lists.newArrayList(pendingBatches.values());
+      pendingBatches.clear();
+    }
+    for (PendingBatch<KeyT, OperationT, ResultT> batch : batches) {
+      dispatch(batch);
+    }
+  }
+
+  /**
+   * Returns the number of operations that have not been sent yet.
+   */
+  public synchronized int getPendingOperationCount() {
+    int count = 0;
+    for (PendingBatch<KeyT, OperationT, ResultT> batch : pendingBatches.values()) {
+      count += batch.operations.size();
+    }
+    return count;
+  }
+
+  /**
+   * Stops accepting operations and sends all buffered operations.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      isClosed = true;
+    }
+    flush();
+  }
+
+  private void scheduleLingerFlush(final PendingBatch<KeyT, OperationT, ResultT> batch) {
+    try {
+      batch.lingerTask = scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          synchronized (MutateCoalescer.this) {
+            if (pendingBatches.get(batch.key) != batch) {
+              // The batch was already sent because it filled up or was flushed.
+              return;
+            }
+            pendingBatches.remove(batch.key);
+          }
+          send(batch);
+        }
+      }, lingerMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // The batch is sent when it fills up or is flushed, or fails then if the scheduler is
+      // still rejecting tasks.
+    }
+  }
+
+  /**
+   * Sends a batch that has been removed from the pending batches on the scheduler.
+   */
+  private void dispatch(final PendingBatch<KeyT, OperationT, ResultT> batch) {
+    if (batch.lingerTask != null) {
+      batch.lingerTask.cancel(false);
+    }
+    try {
+      scheduler.execute(new Runnable() {
+        @Override
+        public void run() {
+          send(batch);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      for (SettableFuture<ResultT> future : batch.futures) {
+        future.setException(e);
+      }
+    }
+  }
+
+  /**
+   * Sends the operations of a batch in one {@code mutate} call and completes their futures.
+   */
+  @VisibleForTesting
+  void send(PendingBatch<KeyT, OperationT, ResultT> batch) {
+    MutateResponse<ResultT, ErrorT> response;
+    try {
+      response = mutateHandler.mutate(batch.key, ImmutableList.copyOf(batch.operations));
+    } catch (Exception e) {
+      for (SettableFuture<ResultT> future : batch.futures) {
+        future.setException(e);
+      }
+      return;
+    }
+
+    ListMultimap<Integer, ErrorT> errorsByOperation = ArrayListMultimap.create();
+    List<ErrorT> unmatchedErrors = Lists.newArrayList();
+    for (ErrorT error : response.partialFailureErrors) {
+      int operationIndex = getOperationIndex(mutateHandler.getFieldPath(error));
+      if (operationIndex >= 0 && operationIndex < batch.futures.size()) {
+        errorsByOperation.put(operationIndex, error);
+      } else {
+        unmatchedErrors.add(error);
+      }
+    }
+
+    for (int i = 0; i < batch.futures.size(); i++) {
+      SettableFuture<ResultT> future = batch.futures.get(i);
+      ResultT result = i < response.results.size() ? response.results.get(i) : null;
+      if (errorsByOperation.containsKey(i)) {
+        future.setException(new OperationFailedException(i, errorsByOperation.get(i)));
+      } else if (result == null && !unmatchedErrors.isEmpty()) {
+        // Errors without an operation index can only belong to operations without a result.
+        future.setException(new OperationFailedException(i, unmatchedErrors));
+      } else {
+        future.set(result);
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the operation that an error's field path refers to, such as 3 for
+   * {@code operations[3].operand.bid}, or -1 if the field path does not refer to an operation.
+   */
+  @VisibleForTesting
+  static int getOperationIndex(@Nullable String fieldPath) {
+    if (fieldPath == null || !fieldPath.startsWith(OPERATIONS_FIELD_PATH_PREFIX)) {
+      return -1;
+    }
+    int end = fieldPath.indexOf(']', OPERATIONS_FIELD_PATH_PREFIX.length());
+    if (end < 0) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(fieldPath.substring(OPERATIONS_FIELD_PATH_PREFIX.length(), end));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Sends a batch of operations with partial failure enabled.
+   *
+   * @param <KeyT> the type of the key that operations are grouped by
+   * @param <OperationT> the operation type
+   * @param <ResultT> the type of the result of each operation
+   * @param <ErrorT> the partial failure error type
+   */
+  public interface MutateHandler<KeyT, OperationT, ResultT, ErrorT> {
+
+    /**
+     * Sends the operations in one {@code mutate} call with partial failure enabled.
+     *
+     * @param key the key of the operations
+     * @param operations the operations, in the order they were submitted
+     * @throws Exception if the call failed. The futures of all operations in the call fail with
+     *     the exception.
+     */
+    MutateResponse<ResultT, ErrorT> mutate(KeyT key, List<OperationT> operations)
+        throws Exception;
+
+    /**
+     * Returns the field path of a partial failure error, such as {@code operations[3].operand}.
+     */
+    @Nullable
+    String getFieldPath(ErrorT error);
+  }
+
+  /**
+   * The results and partial failure errors of a {@code mutate} call.
+   *
+   * @param <ResultT> the type of the result of each operation
+   * @param <ErrorT> the partial failure error type
+   */
+  public static class MutateResponse<ResultT, ErrorT> {
+    private final List<ResultT> results;
+    private final List<ErrorT> partialFailureErrors;
+
+    /**
+     * Constructor.
+     *
+     * @param results the result of each operation, in operation order. Failed operations may
+     *     have a null result. A null list is treated as empty.
+     * @param partialFailureErrors the partial failure errors. A null list is treated as empty.
+     */
+    public MutateResponse(@Nullable List<ResultT> results,
+        @Nullable List<ErrorT> partialFailureErrors) {
+      this.results = results == null ? ImmutableList.<ResultT>of() : results;
+      this.partialFailureErrors =
+          partialFailureErrors == null ? ImmutableList.<ErrorT>of() : partialFailureErrors;
+    }
+  }
+
+  /**
+   * Thrown through an operation's future when the operation had partial failure errors.
+   */
+  public static class OperationFailedException extends Exception {
+    private final int operationIndex;
+    private final ImmutableList<Object> apiErrors;
+
+    public OperationFailedException(int operationIndex, List<?> apiErrors) {
+      super(String.format("Operation %d of the mutate call failed with %d error(s)",
+          operationIndex, apiErrors.size()));
+      this.operationIndex = operationIndex;
+      this.apiErrors = ImmutableList.<Object>copyOf(apiErrors);
+    }
+
+    /**
+     * Returns the index of the operation within the {@code mutate} call it was sent in.
+     */
+    public int getOperationIndex() {
+      return operationIndex;
+    }
+
+    /**
+     * Returns the partial failure errors of the operation, such as {@code ApiError} objects of the
+     * API version in use.
+     */
+    public List<Object> getApiErrors() {
+      return apiErrors;
+    }
+  }
+
+  /**
+   * The buffered operations for one key. Fields are guarded by the coalescer until the batch is
+   * removed from the pending batches, and are then only accessed by the task that sends it.
+   */
+  @VisibleForTesting
+  static class PendingBatch<KeyT, OperationT, ResultT> {
+    final KeyT key;
+    final List<OperationT> operations = Lists.newArrayList();
+    final List<SettableFuture<ResultT>> futures = Lists.newArrayList();
+    ScheduledFuture<?> lingerTask;
+
+    PendingBatch(KeyT key) {
+      this.key = key;
+    }
+  }
+}
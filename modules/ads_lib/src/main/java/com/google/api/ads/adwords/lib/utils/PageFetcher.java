@@ -0,0 +1,38 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+/**
+ * Retrieves a single page of results for a selector, typically by calling the {@code get} method
+ * of a service.
+ *
+ * @param <SelectorT> the selector type of the API version
+ * @param <PageT> the page type returned by the service
+ */
+public interface PageFetcher<SelectorT, PageT> {
+
+  /**
+   * Returns the page of results for {@code selector}.
+   *
+   * @param selector the selector with the paging for the requested page
+   * @throws Exception if the request for the page failed
+   */
+  PageT getPage(SelectorT selector) throws Exception;
+
+  /**
+   * Returns the total number of entries matching the selector, as reported by {@code page}.
+   */
+  int getTotalNumEntries(PageT page);
+}
@@ -0,0 +1,158 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An iterator over the pages of results for a selector that fetches upcoming pages in the
+ * background while the caller processes the current page.
+ *
+ * <p>The first page is requested when the iterator is constructed. Once its total number of
+ * entries is known, up to {@code prefetchDepth} additional pages are kept in flight on the
+ * provided executor. Pages are always returned in offset order.
+ *
+ * <p>Example usage:
+ * <pre>
+ * SelectorBuilder builder = new SelectorBuilder().fields(CampaignField.Id, CampaignField.Name);
+ * try (PrefetchingPageIterator&lt;Selector, CampaignPage&gt; pages =
+ *     new PrefetchingPageIterator&lt;Selector, CampaignPage&gt;(builder, 500, 2, executor,
+ *         new PageFetcher&lt;Selector, CampaignPage&gt;() { ... })) {
+ *   while (pages.hasNext()) {
+ *     CampaignPage page = pages.next();
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>This iterator is not thread safe. The selector builder is only used by the thread calling
+ * {@link #next()}, and its offset and limit are overwritten for each page.
+ *
+ * @param <SelectorT> the selector type of the API version
+ * @param <PageT> the page type returned by the service
+ */
+public class PrefetchingPageIterator<SelectorT, PageT> implements Iterator<PageT>, AutoCloseable {
+
+  private final SelectorBuilderInterface<SelectorT> selectorBuilder;
+  private final int pageSize;
+  private final int prefetchDepth;
+  private final ExecutorService executorService;
+  private final PageFetcher<SelectorT, PageT> pageFetcher;
+
+  /** The requested pages in offset order. */
+  private final Deque<Future<PageT>> pendingPages = Queues.newArrayDeque();
+
+  /** The offset of the next page to request. */
+  private int nextOffset;
+
+  /** The total number of entries reported by the most recent page, or null if not yet known. */
+  private Integer totalNumEntries;
+
+  /**
+   * Constructor that requests the first page.
+   *
+   * @param selectorBuilder the builder for the selector to page through
+   * @param pageSize the number of entries to request per page
+   * @param prefetchDepth the maximum number of pages to fetch ahead of the caller
+   * @param executorService the executor to fetch pages on. This iterator does not shut it down.
+   * @param pageFetcher the fetcher that retrieves each page
+   */
+  public PrefetchingPageIterator(SelectorBuilderInterface<SelectorT> selectorBuilder,
+      int pageSize, int prefetchDepth, ExecutorService executorService,
+      PageFetcher<SelectorT, PageT> pageFetcher) {
+    Preconditions.checkArgument(pageSize > 0, "Page size must be > 0");
+    Preconditions.checkArgument(prefetchDepth > 0, "Prefetch depth must be > 0");
+    this.selectorBuilder = Preconditions.checkNotNull(selectorBuilder, "Null selector builder");
+    this.pageSize = pageSize;
+    this.prefetchDepth = prefetchDepth;
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+    this.pageFetcher = Preconditions.checkNotNull(pageFetcher, "Null page fetcher");
+    requestNextPage();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !pendingPages.isEmpty() || (totalNumEntries != null && nextOffset < totalNumEntries);
+  }
+
+  /**
+   * Returns the next page, blocking until it has been retrieved.
+   *
+   * @throws ServiceException if retrieving the page failed
+   */
+  @Override
+  public PageT next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more pages");
+    }
+    if (pendingPages.isEmpty()) {
+      requestNextPage();
+    }
+    PageT page;
+    try {
+      page = Uninterruptibles.getUninterruptibly(pendingPages.removeFirst());
+    } catch (ExecutionException e) {
+      close();
+      throw new ServiceException("Failed to retrieve page", e.getCause());
+    }
+    totalNumEntries = pageFetcher.getTotalNumEntries(page);
+    // Keep the pipeline full while the caller processes this page.
+    while (pendingPages.size() < prefetchDepth && nextOffset < totalNumEntries) {
+      requestNextPage();
+    }
+    return page;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("remove is not supported");
+  }
+
+  /**
+   * Cancels all pages that have been requested but not yet returned by {@link #next()}.
+   */
+  @Override
+  public void close() {
+    for (Future<PageT> pendingPage : pendingPages) {
+      pendingPage.cancel(true);
+    }
+    pendingPages.clear();
+    totalNumEntries = nextOffset;
+  }
+
+  /**
+   * Builds the selector for the next offset and submits the request for its page.
+   */
+  private void requestNextPage() {
+    final SelectorT selector = selectorBuilder.offset(nextOffset).limit(pageSize).build();
+    nextOffset += pageSize;
+    pendingPages.addLast(executorService.submit(new Callable<PageT>() {
+      @Override
+      public PageT call() throws Exception {
+        return pageFetcher.getPage(selector);
+      }
+    }));
+  }
+}
@@ -14,6 +14,7 @@
 
 package com.google.api.ads.adwords.lib.utils;
 
+import com.google.api.ads.common.lib.utils.PipelinedGzipInputStream;
 import com.google.api.ads.common.lib.utils.Streams;
 import com.google.common.base.Preconditions;
 
@@ -74,6 +75,21 @@ public class ReportDownloadResponse {
         : getInputStream();
     return Streams.readAll(inputStream, rawResponse.getCharset());
   }
+
+  /**
+   * Returns the contents of the response, inflated if the response is in one of the gzip
+   * formats. Gzipped responses are inflated on a background thread into a bounded buffer, so the
+   * caller can parse rows while the rest of the report is inflated. Closing the returned stream
+   * closes the response's stream.
+   */
+  @Nullable
+  public InputStream getDecompressedInputStream() {
+    InputStream inputStream = getInputStream();
+    if (inputStream == null || !isGzipped()) {
+      return inputStream;
+    }
+    return new PipelinedGzipInputStream(inputStream);
+  }
   
   /**
    * Writes the contents of the response to the specified File.
@@ -20,6 +20,7 @@ import com.google.api.ads.adwords.lib.conf.AdWordsLibConfiguration;
 import com.google.api.ads.common.lib.auth.AuthorizationHeaderProvider;
 import com.google.api.ads.common.lib.exception.AuthenticationException;
 import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
+import com.google.api.client.http.GZipEncoding;
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestFactory;
@@ -42,6 +43,7 @@ public class ReportRequestFactoryHelper {
   private final AuthorizationHeaderProvider authorizationHeaderProvider;
   private final HttpTransport httpTransport;
   private int reportDownloadTimeout;
+  private final boolean isRequestCompressionEnabled;
   private final ReportResponseInterceptor responseInterceptor;
 
   /**
@@ -64,6 +66,7 @@ public class ReportRequestFactoryHelper {
     this.userAgentCombiner = userAgentCombiner;
     this.httpTransport = httpTransport;
     this.reportDownloadTimeout = adWordsLibConfiguration.getReportDownloadTimeout();
+    this.isRequestCompressionEnabled = adWordsLibConfiguration.isRequestCompressionEnabled();
     this.responseInterceptor = responseInterceptor;
   }
 
@@ -88,6 +91,10 @@ public class ReportRequestFactoryHelper {
         request.setThrowExceptionOnExecuteError(false);
         request.setLoggingEnabled(true);
         request.setResponseInterceptor(responseInterceptor);
+        if (isRequestCompressionEnabled) {
+          // Sends the report definition or query gzipped, with Content-Encoding: gzip.
+          request.setEncoding(new GZipEncoding());
+        }
       }
     });
   }
@@ -278,6 +278,7 @@ public interface SelectorBuilderInterface<SelectorT> {
    * @param propertyValue the property value as a String independently of the field type. The caller
    *        should take care of the formatting if it is necessary
    */
+  @UsesAdsUtilities({AdsUtility.SELECTOR_BUILDER, AdsUtility.SELECTOR_FIELD})
   SelectorBuilderInterface<SelectorT> greaterThan(EntityField field, long propertyValue);
 
   /**
@@ -17,9 +17,16 @@ package com.google.api.ads.common.lib.client;
 import com.google.api.ads.common.lib.exception.AuthenticationException;
 import com.google.api.ads.common.lib.exception.ServiceException;
 import com.google.api.ads.common.lib.soap.SoapCallReturn;
+import com.google.api.ads.common.lib.soap.SoapCallDeduplicator;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
+import com.google.api.ads.common.lib.soap.SoapResponseCache;
 import com.google.api.ads.common.lib.soap.SoapServiceClient;
 import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
+import com.google.common.base.Equivalence;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
 
 /**
  * The base class for all AdsServiceClients.
@@ -56,7 +63,27 @@ public abstract class AdsServiceClient<S extends AdsSession,
   public AdsServiceClient(Object soapClient, S adsSession, D adsServiceDescriptor,
       SoapClientHandlerInterface<Object> soapClientHandler, HeaderHandler<S, D> headerHandler,
       AdsServiceLoggers adsServiceLoggers) {
-    super(soapClientHandler, soapClient);
+    this(soapClient, adsSession, adsServiceDescriptor, soapClientHandler, headerHandler,
+        adsServiceLoggers, null, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param soapClient the SOAP client
+   * @param adsSession the session
+   * @param adsServiceDescriptor the service descriptor
+   * @param soapClientHandler the SOAP client handler
+   * @param headerHandler the header handler
+   * @param adsServiceLoggers the loggers
+   * @param responseCache the response cache, or null to disable caching
+   * @param callDeduplicator the call deduplicator, or null to disable deduplication
+   */
+  public AdsServiceClient(Object soapClient, S adsSession, D adsServiceDescriptor,
+      SoapClientHandlerInterface<Object> soapClientHandler, HeaderHandler<S, D> headerHandler,
+      AdsServiceLoggers adsServiceLoggers, @Nullable SoapResponseCache responseCache,
+      @Nullable SoapCallDeduplicator callDeduplicator) {
+    super(soapClientHandler, soapClient, responseCache, callDeduplicator);
     this.adsSession = adsSession;
     this.adsServiceDescriptor = adsServiceDescriptor;
     this.adsServiceLoggers = adsServiceLoggers;
@@ -99,6 +126,15 @@ public abstract class AdsServiceClient<S extends AdsSession,
     adsServiceLoggers.logSoapXml(soapCallReturn);
   }
 
+  /**
+   * Returns a scope that is unique to the session of this client and its endpoint, so that
+   * responses are never shared between sessions with different credentials.
+   */
+  @Override
+  protected Object getResponseCacheScope() {
+    return Arrays.asList(Equivalence.identity().wrap(adsSession), adsSession.getEndpoint());
+  }
+
   /**
    * @see #setHeaders()
    */
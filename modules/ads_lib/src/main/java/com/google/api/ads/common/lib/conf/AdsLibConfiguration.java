@@ -33,8 +33,14 @@ public abstract class AdsLibConfiguration extends BaseConfiguration {
   public static final String SOAP_REQUEST_TIMEOUT_POSTFIX = "soapRequestTimeout";
   public static final String INCLUDE_UTILITIES_IN_USER_AGENT_POSTFIX =
       "includeUtilitiesInUserAgent";
+  public static final String RESPONSE_CACHE_METHODS_POSTFIX = "responseCache.methods";
+  public static final String RESPONSE_CACHE_TTL_POSTFIX = "responseCache.ttlMillis";
+  public static final String RESPONSE_CACHE_MAX_SIZE_POSTFIX = "responseCache.maxSize";
+  public static final String SINGLE_FLIGHT_METHODS_POSTFIX = "singleFlight.methods";
   
   public static final int DEFAULT_SOAP_REQUEST_TIMEOUT = 20 * 60 * 1000;
+  public static final long DEFAULT_RESPONSE_CACHE_TTL = 10 * 60 * 1000L;
+  public static final long DEFAULT_RESPONSE_CACHE_MAX_SIZE = 1000L;
 
   /**
    * Constructor.
@@ -87,4 +93,34 @@ public abstract class AdsLibConfiguration extends BaseConfiguration {
   public boolean isIncludeAdsUtilitiesInUserAgent() {
     return true;
   }
+
+  /**
+   * Returns the methods whose responses may be cached, in the form
+   * {@code ServiceName.methodName}. Default is none, which disables the response cache.
+   */
+  public String[] getResponseCacheMethods() {
+    return new String[0];
+  }
+
+  /**
+   * Gets how long a cached response is used, in milliseconds.
+   */
+  public long getResponseCacheTtl() {
+    return DEFAULT_RESPONSE_CACHE_TTL;
+  }
+
+  /**
+   * Gets the maximum number of cached responses.
+   */
+  public long getResponseCacheMaxSize() {
+    return DEFAULT_RESPONSE_CACHE_MAX_SIZE;
+  }
+
+  /**
+   * Returns the methods for which identical concurrent calls share a single request, in the form
+   * {@code ServiceName.methodName}. Default is none.
+   */
+  public String[] getSingleFlightMethods() {
+    return new String[0];
+  }
 }
@@ -0,0 +1,158 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Singleton;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+/**
+ * Shares a single request between identical concurrent calls of read-only SOAP methods.
+ *
+ * <p>For methods listed in the {@code singleFlight.methods} configuration property, in the form
+ * {@code ServiceName.methodName}, a call that is identical to one already in flight, with the
+ * same scope (session), method and arguments, waits for that call and returns its response or
+ * throws its exception instead of sending another request. Nothing is kept once the call
+ * completes; use {@link SoapResponseCache} to also share responses over time.
+ *
+ * <p>Shared responses must not be modified.
+ */
+@Singleton
+@ThreadSafe
+public class SoapCallDeduplicator {
+
+  private final ImmutableSet<String> deduplicatedMethods;
+
+  /** The futures of calls in flight, keyed by their {@link SoapCallKeys} key. */
+  private final ConcurrentMap<List<Object>, SettableFuture<Object>> callsInFlight =
+      Maps.newConcurrentMap();
+
+  /** The number of calls waiting for an identical call in flight. */
+  private final AtomicInteger waitingCallCount = new AtomicInteger();
+
+  /**
+   * Constructor.
+   *
+   * @param adsLibConfiguration the lib configuration
+   */
+  @Inject
+  public SoapCallDeduplicator(AdsLibConfiguration adsLibConfiguration) {
+    this(ImmutableSet.copyOf(adsLibConfiguration.getSingleFlightMethods()));
+  }
+
+  @VisibleForTesting
+  SoapCallDeduplicator(Set<String> deduplicatedMethods) {
+    this.deduplicatedMethods = ImmutableSet.copyOf(deduplicatedMethods);
+  }
+
+  /**
+   * Returns true if identical concurrent calls of {@code method} share a request.
+   *
+   * @param method the method of the service interface
+   */
+  public boolean isDeduplicated(Method method) {
+    return !deduplicatedMethods.isEmpty()
+        && deduplicatedMethods.contains(SoapCallKeys.getMethodName(method));
+  }
+
+  /**
+   * Makes the call with {@code soapCall}, or waits for an identical call that is already in
+   * flight. If the arguments cannot be used as a key, the call is made without deduplication.
+   *
+   * @param scope identifies the session of the call. Only calls with equal scopes share a request.
+   * @param method the method of the service interface
+   * @param args the arguments of the call
+   * @param soapCall makes the call and returns its response
+   * @return the response
+   * @throws Exception the exception thrown by {@code soapCall} or by the identical call
+   */
+  public Object call(Object scope, Method method, @Nullable Object[] args,
+      Callable<Object> soapCall) throws Exception {
+    List<Object> key = SoapCallKeys.create(scope, method, args);
+    if (key == null) {
+      return soapCall.call();
+    }
+    SettableFuture<Object> future = SettableFuture.create();
+    SettableFuture<Object> callInFlight = callsInFlight.putIfAbsent(key, future);
+    if (callInFlight != null) {
+      waitingCallCount.incrementAndGet();
+      try {
+        return waitFor(callInFlight);
+      } finally {
+        waitingCallCount.decrementAndGet();
+      }
+    }
+    try {
+      Object response = soapCall.call();
+      future.set(response);
+      return response;
+    } catch (Exception | Error e) {
+      future.setException(e);
+      throw e;
+    } finally {
+      callsInFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * Returns the number of calls that are in flight.
+   */
+  @VisibleForTesting
+  int getCallsInFlightCount() {
+    return callsInFlight.size();
+  }
+
+  /**
+   * Returns the number of calls that are waiting for an identical call in flight.
+   */
+  @VisibleForTesting
+  int getWaitingCallCount() {
+    return waitingCallCount.get();
+  }
+
+  /**
+   * Waits for a call in flight and returns its response or throws its exception.
+   */
+  private static Object waitFor(SettableFuture<Object> callInFlight) throws Exception {
+    try {
+      return Uninterruptibles.getUninterruptibly(callInFlight);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+}
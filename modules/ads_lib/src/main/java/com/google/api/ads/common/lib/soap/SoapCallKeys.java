@@ -0,0 +1,135 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Builds keys that identify identical SOAP calls, for sharing responses between them.
+ */
+final class SoapCallKeys {
+
+  /** The maximum nesting depth of arguments that can be used in a key. */
+  private static final int MAX_ARGUMENT_DEPTH = 32;
+
+  private static final String INTERFACE_SUFFIX = "Interface";
+
+  private SoapCallKeys() {}
+
+  /**
+   * Returns a key that is equal for calls of the same method with the same scope and equal
+   * arguments, or null if the arguments cannot be used in a key. The key includes the method
+   * itself rather than its {@link #getMethodName(Method) name}, so that calls of services with the
+   * same name in different API versions are never shared.
+   *
+   * @param scope identifies the session of the call
+   * @param method the method of the service interface
+   * @param args the arguments of the call
+   */
+  @Nullable
+  static List<Object> create(Object scope, Method method, @Nullable Object[] args) {
+    try {
+      return Arrays.asList(scope, method, canonicalize(args, 0));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the name of a method in the form {@code ServiceName.methodName}, for matching against
+   * the configured methods. The name does not identify the API version of the service.
+   */
+  @VisibleForTesting
+  static String getMethodName(Method method) {
+    String serviceName = method.getDeclaringClass().getSimpleName();
+    if (serviceName.endsWith(INTERFACE_SUFFIX)) {
+      serviceName = serviceName.substring(0, serviceName.length() - INTERFACE_SUFFIX.length());
+    }
+    return serviceName + "." + method.getName();
+  }
+
+  /**
+   * Converts an argument to a value with structural equality. Arrays and collections become
+   * lists and beans become their class name and a map of their properties, so that arguments
+   * that would be serialized identically produce equal keys.
+   */
+  @VisibleForTesting
+  static Object canonicalize(@Nullable Object value, int depth)
+      throws ReflectiveOperationException {
+    if (value == null) {
+      return null;
+    }
+    Preconditions.checkArgument(depth < MAX_ARGUMENT_DEPTH, "Argument is nested too deeply");
+    if (value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      List<Object> elements = Lists.newArrayListWithCapacity(length);
+      for (int i = 0; i < length; i++) {
+        elements.add(canonicalize(Array.get(value, i), depth + 1));
+      }
+      return elements;
+    }
+    if (value instanceof Iterable) {
+      List<Object> elements = Lists.newArrayList();
+      for (Object element : (Iterable<?>) value) {
+        elements.add(canonicalize(element, depth + 1));
+      }
+      return elements;
+    }
+    if (value instanceof Map) {
+      Map<Object, Object> entries = Maps.newHashMap();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        entries.put(canonicalize(entry.getKey(), depth + 1),
+            canonicalize(entry.getValue(), depth + 1));
+      }
+      return entries;
+    }
+    if (isValueType(value.getClass())) {
+      return value;
+    }
+    Map<String, Object> properties = Maps.newTreeMap();
+    for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(value.getClass())) {
+      Method readMethod = descriptor.getReadMethod();
+      if (readMethod != null && readMethod.getDeclaringClass() != Object.class) {
+        properties.put(descriptor.getName(), canonicalize(readMethod.invoke(value), depth + 1));
+      }
+    }
+    return Arrays.asList(value.getClass().getName(), properties);
+  }
+
+  /**
+   * Returns true if instances of {@code type} already implement structural equality.
+   */
+  private static boolean isValueType(Class<?> type) {
+    String name = type.getName();
+    return type.isEnum()
+        || name.startsWith("java.")
+        || name.startsWith("javax.xml.datatype.")
+        || name.startsWith("javax.xml.namespace.");
+  }
+}
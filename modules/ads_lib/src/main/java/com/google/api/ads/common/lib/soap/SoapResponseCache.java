@@ -0,0 +1,137 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import com.google.api.ads.common.lib.conf.AdsLibConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Singleton;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+/**
+ * Caches the responses of read-only SOAP methods that return rarely changing data, such as
+ * {@code ConstantDataService.getAgeRangeCriterion} or {@code NetworkService.getCurrentNetwork}.
+ *
+ * <p>Only methods listed in the {@code responseCache.methods} configuration property, in the
+ * form {@code ServiceName.methodName}, are cached. Responses are keyed on the scope of the calling
+ * service client (its session), the method and a canonical form of the arguments, and are kept
+ * for at most the configured TTL. Failed calls are not cached. Concurrent identical calls for a
+ * method that is not cached yet share a single request.
+ *
+ * <p>Cached responses are shared between callers and must not be modified.
+ */
+@Singleton
+@ThreadSafe
+public class SoapResponseCache {
+
+  private final ImmutableSet<String> cacheableMethods;
+  private final Cache<List<Object>, Optional<Object>> responses;
+
+  /**
+   * Constructor.
+   *
+   * @param adsLibConfiguration the lib configuration
+   */
+  @Inject
+  public SoapResponseCache(AdsLibConfiguration adsLibConfiguration) {
+    this(ImmutableSet.copyOf(adsLibConfiguration.getResponseCacheMethods()),
+        adsLibConfiguration.getResponseCacheTtl(), adsLibConfiguration.getResponseCacheMaxSize(),
+        Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  SoapResponseCache(Set<String> cacheableMethods, long ttlMillis, long maxSize, Ticker ticker) {
+    Preconditions.checkArgument(ttlMillis >= 0, "TTL must be >= 0");
+    Preconditions.checkArgument(maxSize >= 0, "Max size must be >= 0");
+    this.cacheableMethods = ImmutableSet.copyOf(cacheableMethods);
+    this.responses = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .maximumSize(maxSize)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Returns true if responses of {@code method} may be cached.
+   *
+   * @param method the method of the service interface
+   */
+  public boolean isCacheable(Method method) {
+    return !cacheableMethods.isEmpty()
+        && cacheableMethods.contains(SoapCallKeys.getMethodName(method));
+  }
+
+  /**
+   * Returns the cached response for the call, or makes the call with {@code soapCall} and caches
+   * its response. If the arguments cannot be used as a cache key, the call is made without
+   * caching.
+   *
+   * @param scope identifies the session of the call. Responses are only shared between calls
+   *     with equal scopes.
+   * @param method the method of the service interface
+   * @param args the arguments of the call
+   * @param soapCall makes the call and returns its response
+   * @return the response
+   * @throws Exception the exception thrown by {@code soapCall}
+   */
+  public Object get(Object scope, Method method, @Nullable Object[] args,
+      final Callable<Object> soapCall) throws Exception {
+    List<Object> key = SoapCallKeys.create(scope, method, args);
+    if (key == null) {
+      return soapCall.call();
+    }
+    try {
+      return responses.get(key, new Callable<Optional<Object>>() {
+        @Override
+        public Optional<Object> call() throws Exception {
+          return Optional.fromNullable(soapCall.call());
+        }
+      }).orNull();
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Discards all cached responses.
+   */
+  public void invalidateAll() {
+    responses.invalidateAll();
+  }
+}
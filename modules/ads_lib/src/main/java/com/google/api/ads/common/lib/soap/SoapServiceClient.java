@@ -19,6 +19,10 @@ import com.google.api.ads.common.lib.exception.ServiceException;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nullable;
 
 /**
  * The {@code SoapServiceClient} class pairs together the {@code soapClient} and
@@ -34,6 +38,8 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
 
   private final SoapClientHandlerInterface<T> soapClientHandler;
   private final T soapClient;
+  private final SoapResponseCache responseCache;
+  private final SoapCallDeduplicator callDeduplicator;
 
   /**
    * Protected constructor.
@@ -43,8 +49,26 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
    */
   protected SoapServiceClient(SoapClientHandlerInterface<T> soapClientHandler,
       T soapClient) {
+    this(soapClientHandler, soapClient, null, null);
+  }
+
+  /**
+   * Protected constructor.
+   *
+   * @param soapClientHandler the SOAP client handler
+   * @param soapClient the SOAP client
+   * @param responseCache the cache for responses of cacheable methods, or null to disable
+   *     caching
+   * @param callDeduplicator shares requests between identical concurrent calls, or null to
+   *     disable deduplication
+   */
+  protected SoapServiceClient(SoapClientHandlerInterface<T> soapClientHandler,
+      T soapClient, @Nullable SoapResponseCache responseCache,
+      @Nullable SoapCallDeduplicator callDeduplicator) {
     this.soapClient = soapClient;
     this.soapClientHandler = soapClientHandler;
+    this.responseCache = responseCache;
+    this.callDeduplicator = callDeduplicator;
   }
 
   /**
@@ -88,6 +112,32 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
     } catch (NoSuchMethodException e) {
       // Ignore and let the SOAP client handler take over.
     }
+    Callable<Object> soapCall = new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        try {
+          return invokeSoapClient(method, args);
+        } catch (Exception | Error e) {
+          throw e;
+        } catch (Throwable t) {
+          throw new UndeclaredThrowableException(t);
+        }
+      }
+    };
+    if (responseCache != null && responseCache.isCacheable(method)) {
+      // The cache already shares a single request between identical concurrent calls.
+      return responseCache.get(getResponseCacheScope(), method, args, soapCall);
+    }
+    if (callDeduplicator != null && callDeduplicator.isDeduplicated(method)) {
+      return callDeduplicator.call(getResponseCacheScope(), method, args, soapCall);
+    }
+    return invokeSoapClient(method, args);
+  }
+
+  /**
+   * Sets the headers and makes the SOAP call for {@code method}.
+   */
+  private Object invokeSoapClient(Method method, Object[] args) throws Throwable {
     setHeaders();
     SoapCallReturn soapCallReturn = callSoapClient(
         createSoapCall(soapClientHandler.getSoapClientMethod(soapClient, method), args));
@@ -95,6 +145,14 @@ public abstract class SoapServiceClient<T> implements InvocationHandler {
     return unwrapSoapCallReturn(soapCallReturn);
   }
 
+  /**
+   * Returns the scope that cached or deduplicated responses of this client are shared within.
+   * Responses are only shared between clients whose scopes are equal. Defaults to this client.
+   */
+  protected Object getResponseCacheScope() {
+    return this;
+  }
+
   /**
    * Creates the {@link SoapCall} from the  {@code soapClientMethod} and its
    * {@code args}.
@@ -0,0 +1,55 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap.jaxb;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Process-wide cache of {@link JAXBContext} instances.
+ *
+ * <p>Creating a context introspects every class reachable from the bound classes, while a
+ * created context is thread safe, so each set of classes only needs one context.
+ */
+final class JaxBContextCache {
+
+  private static final ConcurrentMap<ImmutableSet<Class<?>>, JAXBContext> CONTEXTS =
+      Maps.newConcurrentMap();
+
+  private JaxBContextCache() {}
+
+  /**
+   * Returns the context for the specified classes, creating it if needed.
+   *
+   * @throws JAXBException if the context could not be created
+   */
+  static JAXBContext getContext(Class<?>... classes) throws JAXBException {
+    ImmutableSet<Class<?>> key = ImmutableSet.copyOf(classes);
+    JAXBContext context = CONTEXTS.get(key);
+    if (context == null) {
+      context = JAXBContext.newInstance(classes);
+      JAXBContext existingContext = CONTEXTS.putIfAbsent(key, context);
+      if (existingContext != null) {
+        context = existingContext;
+      }
+    }
+    return context;
+  }
+}
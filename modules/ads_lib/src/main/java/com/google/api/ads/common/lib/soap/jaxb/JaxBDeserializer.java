@@ -16,6 +16,9 @@ package com.google.api.ads.common.lib.soap.jaxb;
 
 import org.apache.commons.lang.SerializationException;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
@@ -25,6 +28,10 @@ import javax.xml.transform.Source;
 /**
  * Deserializes XML to an instance of a JAX-WS generated class.
  *
+ * <p>Instances are thread safe. The {@link JAXBContext} for each class is shared across the
+ * process, and unmarshallers are pooled per deserializer, so a deserializer should be reused
+ * rather than constructed for each document.
+ *
  * @param <T> Class we are deserializing.
  */
 public class JaxBDeserializer<T> {
@@ -32,6 +39,9 @@ public class JaxBDeserializer<T> {
   private final Class<T> clazz;
   private final JAXBContext jaxbContext;
 
+  /** Idle unmarshallers. Unmarshallers are not thread safe, so each serves one call at a time. */
+  private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+
   /**
    * Constructs a JAX-WS deserializer for the specified class.
    *
@@ -41,7 +51,7 @@ public class JaxBDeserializer<T> {
   public JaxBDeserializer(Class<T> clazz) {
     this.clazz = clazz;
     try {
-      this.jaxbContext = JAXBContext.newInstance(clazz);
+      this.jaxbContext = JaxBContextCache.getContext(clazz);
     } catch (JAXBException e) {
       throw new SerializationException(
           String.format("Could not construct deserializer for class: %s.", clazz), e);
@@ -55,8 +65,13 @@ public class JaxBDeserializer<T> {
    */
   public T deserialize(Source source) {
     try {
-      Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+      Unmarshaller unmarshaller = unmarshallers.poll();
+      if (unmarshaller == null) {
+        unmarshaller = jaxbContext.createUnmarshaller();
+      }
       JAXBElement<T> jaxbElement = unmarshaller.unmarshal(source, clazz);
+      // Only reuse unmarshallers that completed normally.
+      unmarshallers.offer(unmarshaller);
       return jaxbElement.getValue();
     } catch (JAXBException e) {
       throw new SerializationException(
@@ -16,7 +16,11 @@ package com.google.api.ads.common.lib.soap.jaxb;
 
 import org.apache.commons.lang.SerializationException;
 
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -27,6 +31,9 @@ import javax.xml.namespace.QName;
 /**
  * Serializes a JAX-WS generated class to XML.
  *
+ * <p>Instances are thread safe. The {@link JAXBContext} for each class is shared across the
+ * process, and marshallers are pooled per serializer, so a serializer should be reused rather than
+ * constructed for each object.
  *
  * @param <T> Class we are serializing.
  */
@@ -36,6 +43,9 @@ public class JaxBSerializer<T> {
   private final QName qname;
   private final JAXBContext jaxbContext;
 
+  /** Idle marshallers. Marshallers are not thread safe, so each is used by one call at a time. */
+  private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+
   /**
    * Constructs a JAX-WS serializer for the specified class.
    *
@@ -48,7 +58,7 @@ public class JaxBSerializer<T> {
     this.clazz = clazz;
     this.qname = qname;
     try {
-      this.jaxbContext = JAXBContext.newInstance(clazz);
+      this.jaxbContext = JaxBContextCache.getContext(clazz);
     } catch (JAXBException e) {
       throw new SerializationException(
           String.format(
@@ -72,14 +82,55 @@ public class JaxBSerializer<T> {
    * @throws SerializationException if we cannot serialize the object.
    */
   public String serialize(T object, boolean includeXmlDeclaration) {
+    StringWriter stringWriter = new StringWriter();
+    serialize(object, includeXmlDeclaration, stringWriter);
+    return stringWriter.toString();
+  }
+
+  /**
+   * Serializes the object to a writer, with the option to include or exclude the XML declaration.
+   * The writer is not closed.
+   *
+   * @throws SerializationException if we cannot serialize the object.
+   */
+  public void serialize(T object, boolean includeXmlDeclaration, Writer writer) {
+    Marshaller marshaller = borrowMarshaller(object, includeXmlDeclaration);
+    try {
+      marshaller.marshal(new JAXBElement<T>(qname, clazz, object), writer);
+    } catch (JAXBException e) {
+      throw new SerializationException(String.format("Could not serialize object: %s.", object), e);
+    }
+    marshallers.offer(marshaller);
+  }
+
+  /**
+   * Serializes the object as UTF-8 to an output stream, with the option to include or exclude the
+   * XML declaration. The stream is not closed.
+   *
+   * @throws SerializationException if we cannot serialize the object.
+   */
+  public void serialize(T object, boolean includeXmlDeclaration, OutputStream outputStream) {
+    Marshaller marshaller = borrowMarshaller(object, includeXmlDeclaration);
+    try {
+      marshaller.marshal(new JAXBElement<T>(qname, clazz, object), outputStream);
+    } catch (JAXBException e) {
+      throw new SerializationException(String.format("Could not serialize object: %s.", object), e);
+    }
+    marshallers.offer(marshaller);
+  }
+
+  /**
+   * Returns an idle marshaller, or a new one if none are idle, configured for the call. The caller
+   * should return the marshaller to the pool if it completes normally.
+   */
+  private Marshaller borrowMarshaller(T object, boolean includeXmlDeclaration) {
     try {
-      Marshaller marshaller = jaxbContext.createMarshaller();
+      Marshaller marshaller = marshallers.poll();
+      if (marshaller == null) {
+        marshaller = jaxbContext.createMarshaller();
+      }
       marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.valueOf(!includeXmlDeclaration));
-      JAXBElement<T> element =
-          new JAXBElement<T>(qname, clazz, object);
-      StringWriter stringWriter = new StringWriter();
-      marshaller.marshal(element, stringWriter);
-      return stringWriter.toString();
+      return marshaller;
     } catch (JAXBException e) {
       throw new SerializationException(String.format("Could not serialize object: %s.", object), e);
     }
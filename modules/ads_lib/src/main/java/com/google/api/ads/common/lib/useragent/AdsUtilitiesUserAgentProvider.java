@@ -20,9 +20,11 @@ import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
 
 /**
@@ -32,6 +34,13 @@ public class AdsUtilitiesUserAgentProvider implements UserAgentProvider {
   private final AdsUtilityRegistry adsUtilityRegistry;
   private final AdsLibConfiguration adsLibConfiguration;
 
+  /**
+   * User agents keyed by the set of utilities they were built from. There are few possible sets,
+   * and requests usually use the same utilities as the previous request.
+   */
+  private final ConcurrentMap<Set<AdsUtility>, String> userAgentsByUtilities =
+      Maps.newConcurrentMap();
+
   private static final Function<AdsUtility, String> ADS_UTILITY_FUNCTION =
       new Function<AdsUtility, String>() {
         @Override
@@ -59,10 +68,15 @@ public class AdsUtilitiesUserAgentProvider implements UserAgentProvider {
       return null;
     }
 
-    // Adheres to User-Agent product identifiers from RFC 7231.
-    // https://tools.ietf.org/html/rfc7231#section-5.5.3
-    // Sorts the collection of utilities so output is deterministic.
-    return Joiner.on(", ").skipNulls().join(
-        Sets.newTreeSet(Collections2.transform(adsUtilities, ADS_UTILITY_FUNCTION)));
+    String userAgent = userAgentsByUtilities.get(adsUtilities);
+    if (userAgent == null) {
+      // Adheres to User-Agent product identifiers from RFC 7231.
+      // https://tools.ietf.org/html/rfc7231#section-5.5.3
+      // Sorts the collection of utilities so output is deterministic.
+      userAgent = Joiner.on(", ").skipNulls().join(
+          Sets.newTreeSet(Collections2.transform(adsUtilities, ADS_UTILITY_FUNCTION)));
+      userAgentsByUtilities.putIfAbsent(Sets.immutableEnumSet(adsUtilities), userAgent);
+    }
+    return userAgent;
   }
 }
@@ -16,24 +16,39 @@ package com.google.api.ads.common.lib.useragent;
 
 import com.google.api.ads.adwords.lib.AdWordsPluginModule;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import java.util.Arrays;
 import java.util.List;
-import javax.annotation.Nullable;
 
 /**
  * Combines all user agents along with a user supplied string.
+ *
+ * <p>The user agents of all providers other than {@link AdsUtilitiesUserAgentProvider} do not
+ * change once the library is configured, so they are retrieved once. The combined user agent is
+ * then only rebuilt when the ads utilities or the user supplied string differ from the previous
+ * call.
  */
 public class UserAgentCombiner {
 
+  private static final Joiner JOINER = Joiner.on(", ").skipNulls();
+
   private ImmutableList<UserAgentProvider> userAgentProviders;
-  
+
+  /**
+   * The user agent of each provider, or null for providers whose user agent may change between
+   * calls. Null until the first call to {@link #getUserAgent(String)}.
+   */
+  private volatile String[] fixedUserAgents;
+
+  /** The most recently built user agent. */
+  private volatile CombinedUserAgent lastUserAgent;
+
   /**
    * Constructor that builds an instance based on a list of underlying user agent
    * providers. The {@code xyzHolder} parameters are for user agent providers that
@@ -88,19 +103,75 @@ public class UserAgentCombiner {
    * {@code "(UserAgent1,UserAgent2,UserAgent3,...)"}
    */
   public String getUserAgent(String nonLibraryUserAgent) {
+    String[] fixedUserAgents = getFixedUserAgents();
+    String[] userAgents = new String[fixedUserAgents.length];
+    for (int i = 0; i < userAgents.length; i++) {
+      userAgents[i] = isFixed(userAgentProviders.get(i))
+          ? fixedUserAgents[i] : userAgentProviders.get(i).getUserAgent();
+    }
+
+    CombinedUserAgent lastUserAgent = this.lastUserAgent;
+    if (lastUserAgent != null && lastUserAgent.matches(nonLibraryUserAgent, userAgents)) {
+      return lastUserAgent.userAgent;
+    }
+
     StringBuilder agentStringBuilder = new StringBuilder();
     agentStringBuilder.append(nonLibraryUserAgent);
     agentStringBuilder.append(" (");
-    agentStringBuilder.append(Joiner.on(", ").skipNulls().join(
-        Iterables.transform(userAgentProviders, new Function<UserAgentProvider, String>() {
-          @Override
-          public String apply(@Nullable UserAgentProvider input) {
-            return input == null ? null : input.getUserAgent();
-          }})));
+    JOINER.appendTo(agentStringBuilder, userAgents);
     agentStringBuilder.append(')');
-    return agentStringBuilder.toString();
+    String userAgent = agentStringBuilder.toString();
+    this.lastUserAgent = new CombinedUserAgent(nonLibraryUserAgent, userAgents, userAgent);
+    return userAgent;
   }
-  
+
+  /**
+   * Returns the user agents of the providers whose user agent does not change, retrieving them on
+   * the first call.
+   */
+  private String[] getFixedUserAgents() {
+    String[] fixedUserAgents = this.fixedUserAgents;
+    if (fixedUserAgents == null) {
+      fixedUserAgents = new String[userAgentProviders.size()];
+      for (int i = 0; i < fixedUserAgents.length; i++) {
+        UserAgentProvider userAgentProvider = userAgentProviders.get(i);
+        if (isFixed(userAgentProvider)) {
+          fixedUserAgents[i] = userAgentProvider.getUserAgent();
+        }
+      }
+      this.fixedUserAgents = fixedUserAgents;
+    }
+    return fixedUserAgents;
+  }
+
+  /**
+   * Returns true if the provider's user agent does not change between calls.
+   */
+  private static boolean isFixed(UserAgentProvider userAgentProvider) {
+    // The ads utilities user agent reports the utilities used since the previous request.
+    return !(userAgentProvider instanceof AdsUtilitiesUserAgentProvider);
+  }
+
+  /**
+   * A user agent along with the parts it was built from.
+   */
+  private static class CombinedUserAgent {
+    private final String nonLibraryUserAgent;
+    private final String[] userAgents;
+    private final String userAgent;
+
+    CombinedUserAgent(String nonLibraryUserAgent, String[] userAgents, String userAgent) {
+      this.nonLibraryUserAgent = nonLibraryUserAgent;
+      this.userAgents = userAgents;
+      this.userAgent = userAgent;
+    }
+
+    boolean matches(String nonLibraryUserAgent, String[] userAgents) {
+      return Objects.equal(this.nonLibraryUserAgent, nonLibraryUserAgent)
+          && Arrays.equals(this.userAgents, userAgents);
+    }
+  }
+
   /**
    * Holder that allows for <em>optional</em> injection of a {@link
    * ProductFrameworkUserAgentProvider}.
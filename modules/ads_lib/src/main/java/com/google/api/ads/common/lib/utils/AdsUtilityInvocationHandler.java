@@ -14,18 +14,29 @@
 
 package com.google.api.ads.common.lib.utils;
 
+import com.google.common.collect.Maps;
 import com.google.common.reflect.AbstractInvocationHandler;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * {@link InvocationHandler} that updates the {@link AdsUtilityRegistry} when a method call on the
  * proxied interface is annotated with {@link UsesAdsUtilities}.
+ *
+ * <p>Frequently called utilities should record their usage directly instead, as the
+ * {@code SelectorBuilder} classes do, to avoid the cost of a proxy on every call.
  */
 public class AdsUtilityInvocationHandler extends AbstractInvocationHandler {
 
+  private static final AdsUtility[] NO_UTILITIES = new AdsUtility[0];
+
+  /** The utilities used by each proxied method, so annotations are only read once per method. */
+  private static final ConcurrentMap<Method, AdsUtility[]> UTILITIES_BY_METHOD =
+      Maps.newConcurrentMap();
+
   private final AdsUtilityRegistry adsUtilityRegistry;
   private final Object objectToProxy;
 
@@ -36,11 +47,8 @@ public class AdsUtilityInvocationHandler extends AbstractInvocationHandler {
 
   @Override
   public Object handleInvocation(Object proxy, Method method, Object[] args) throws Throwable {
-    UsesAdsUtilities utilityAnnotation = method.getAnnotation(UsesAdsUtilities.class);
-    if (utilityAnnotation != null && utilityAnnotation.value() != null) {
-      for (AdsUtility utility : utilityAnnotation.value()) {
-        this.adsUtilityRegistry.addUtility(utility);
-      }
+    for (AdsUtility utility : getUtilities(method)) {
+      this.adsUtilityRegistry.addUtility(utility);
     }
     try {
       return method.invoke(objectToProxy, args);
@@ -54,4 +62,19 @@ public class AdsUtilityInvocationHandler extends AbstractInvocationHandler {
       throw new RuntimeException("Method invocation failed", e);
     }
   }
+
+  /**
+   * Returns the utilities in the {@link UsesAdsUtilities} annotation of {@code method}, or an
+   * empty array if the method is not annotated.
+   */
+  private static AdsUtility[] getUtilities(Method method) {
+    AdsUtility[] utilities = UTILITIES_BY_METHOD.get(method);
+    if (utilities == null) {
+      UsesAdsUtilities utilityAnnotation = method.getAnnotation(UsesAdsUtilities.class);
+      utilities = utilityAnnotation != null && utilityAnnotation.value() != null
+          ? utilityAnnotation.value() : NO_UTILITIES;
+      UTILITIES_BY_METHOD.putIfAbsent(method, utilities);
+    }
+    return utilities;
+  }
 }
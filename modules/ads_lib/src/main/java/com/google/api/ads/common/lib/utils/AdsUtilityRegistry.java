@@ -48,7 +48,11 @@ public final class AdsUtilityRegistry {
    * @throws NullPointerException if {@code adsUtility == null}
    */
   public void addUtility(AdsUtility adsUtility) {
-    adsUtilities.add(Preconditions.checkNotNull(adsUtility, "Null ads utility"));
+    Preconditions.checkNotNull(adsUtility, "Null ads utility");
+    // Utilities are usually already registered, and a read is cheaper than a write.
+    if (!adsUtilities.contains(adsUtility)) {
+      adsUtilities.add(adsUtility);
+    }
   }
 
   /** Returns all utilities in the registry. */
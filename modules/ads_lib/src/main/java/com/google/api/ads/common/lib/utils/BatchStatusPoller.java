@@ -0,0 +1,275 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import com.google.api.client.util.Clock;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Polls the status of many long-running jobs, such as report or batch jobs, from a single
+ * scheduled task.
+ *
+ * <p>On each tick, every tracked job whose next poll time has passed is checked with one call to
+ * {@link StatusFetcher#getStatuses(Set, Map)}. Each job has its own poll delay, determined by a
+ * {@link PollDelayPolicy}, so that short jobs are noticed quickly while long jobs are polled less
+ * often. The future returned by {@link #track(long)} completes once the job's status is finished.
+ *
+ * @param <StatusT> the type of a job's status
+ */
+@ThreadSafe
+public class BatchStatusPoller<StatusT> implements AutoCloseable {
+
+  private final StatusFetcher<StatusT> statusFetcher;
+  private final PollDelayPolicy<StatusT> pollDelayPolicy;
+  private final ScheduledExecutorService scheduler;
+  private final long tickMillis;
+  private final Clock clock;
+
+  /** The unfinished jobs, keyed by job ID. */
+  private final ConcurrentMap<Long, TrackedJob<StatusT>> trackedJobs = Maps.newConcurrentMap();
+
+  /** The periodic poll task, or null if it has not been scheduled yet. */
+  private ScheduledFuture<?> pollTask;
+
+  private boolean isClosed;
+
+  /**
+   * Constructor.
+   *
+   * @param statusFetcher retrieves the statuses of jobs
+   * @param pollDelayPolicy determines how long to wait between polls of each job
+   * @param scheduler the scheduler to poll on. This poller does not shut it down.
+   * @param tickMillis how often to check for jobs that are due to be polled
+   */
+  public BatchStatusPoller(StatusFetcher<StatusT> statusFetcher,
+      PollDelayPolicy<StatusT> pollDelayPolicy, ScheduledExecutorService scheduler,
+      long tickMillis) {
+    this(statusFetcher, pollDelayPolicy, scheduler, tickMillis, Clock.SYSTEM);
+  }
+
+  @VisibleForTesting
+  BatchStatusPoller(StatusFetcher<StatusT> statusFetcher,
+      PollDelayPolicy<StatusT> pollDelayPolicy, ScheduledExecutorService scheduler,
+      long tickMillis, Clock clock) {
+    Preconditions.checkArgument(tickMillis > 0, "Tick must be > 0");
+    this.statusFetcher = Preconditions.checkNotNull(statusFetcher, "Null status fetcher");
+    this.pollDelayPolicy = Preconditions.checkNotNull(pollDelayPolicy, "Null poll delay policy");
+    this.scheduler = Preconditions.checkNotNull(scheduler, "Null scheduler");
+    this.tickMillis = tickMillis;
+    this.clock = Preconditions.checkNotNull(clock, "Null clock");
+  }
+
+  /**
+   * Starts tracking the job with the specified ID. If the job is already tracked, returns the
+   * existing future for the job.
+   *
+   * @param jobId the ID of the job
+   * @return a future for the finished status of the job. The future fails if retrieving the
+   *     status failed, and can be cancelled to stop tracking the job.
+   * @throws IllegalStateException if this poller has been closed
+   */
+  public ListenableFuture<StatusT> track(long jobId) {
+    TrackedJob<StatusT> newJob = new TrackedJob<StatusT>(jobId,
+        clock.currentTimeMillis() + pollDelayPolicy.getNextPollDelayMillis(null, 0));
+    TrackedJob<StatusT> existingJob = trackedJobs.putIfAbsent(jobId, newJob);
+    if (existingJob != null) {
+      return existingJob.future;
+    }
+    synchronized (this) {
+      if (isClosed) {
+        trackedJobs.remove(jobId, newJob);
+        throw new IllegalStateException("Poller has been closed");
+      }
+      if (pollTask == null) {
+        pollTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            pollDueJobs();
+          }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+    return newJob.future;
+  }
+
+  /**
+   * Returns the number of jobs that have not finished yet.
+   */
+  public int getTrackedJobCount() {
+    return trackedJobs.size();
+  }
+
+  /**
+   * Polls all jobs that are due and completes the futures of those that finished. Called
+   * periodically on the scheduler.
+   */
+  @VisibleForTesting
+  void pollDueJobs() {
+    long now = clock.currentTimeMillis();
+    Map<Long, TrackedJob<StatusT>> dueJobs = Maps.newHashMap();
+    for (TrackedJob<StatusT> job : trackedJobs.values()) {
+      if (job.future.isDone()) {
+        // The caller cancelled the future.
+        trackedJobs.remove(job.jobId, job);
+      } else if (job.nextPollMillis <= now) {
+        dueJobs.put(job.jobId, job);
+      }
+    }
+    if (dueJobs.isEmpty()) {
+      return;
+    }
+
+    try {
+      Map<Long, Exception> failures = Maps.newHashMap();
+      Map<Long, StatusT> statuses =
+          statusFetcher.getStatuses(ImmutableSet.copyOf(dueJobs.keySet()), failures);
+      for (TrackedJob<StatusT> job : dueJobs.values()) {
+        Exception failure = failures.get(job.jobId);
+        if (failure != null) {
+          if (trackedJobs.remove(job.jobId, job)) {
+            job.future.setException(failure);
+          }
+          continue;
+        }
+        StatusT status = statuses.get(job.jobId);
+        job.pollCount++;
+        if (status != null && statusFetcher.isFinished(status)) {
+          trackedJobs.remove(job.jobId, job);
+          job.future.set(status);
+        } else {
+          job.nextPollMillis = now + pollDelayPolicy.getNextPollDelayMillis(status, job.pollCount);
+        }
+      }
+    } catch (Exception e) {
+      // Fail the jobs in this batch rather than letting the exception cancel the periodic task.
+      for (TrackedJob<StatusT> job : dueJobs.values()) {
+        if (trackedJobs.remove(job.jobId, job)) {
+          job.future.setException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops polling and cancels the futures of all unfinished jobs.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      isClosed = true;
+      if (pollTask != null) {
+        pollTask.cancel(false);
+      }
+    }
+    List<TrackedJob<StatusT>> unfinishedJobs = Lists.newArrayList(trackedJobs.values());
+    trackedJobs.clear();
+    for (TrackedJob<StatusT> job : unfinishedJobs) {
+      job.future.cancel(false);
+    }
+  }
+
+  /**
+   * Returns a policy that starts with {@code initialDelayMillis} between polls and multiplies the
+   * delay by {@code multiplier} after each poll, up to {@code maxDelayMillis}.
+   */
+  public static <StatusT> PollDelayPolicy<StatusT> exponentialBackoff(
+      final long initialDelayMillis, final long maxDelayMillis, final double multiplier) {
+    Preconditions.checkArgument(initialDelayMillis >= 0, "Initial delay must be >= 0");
+    Preconditions.checkArgument(maxDelayMillis >= initialDelayMillis,
+        "Max delay must be >= initial delay");
+    Preconditions.checkArgument(multiplier >= 1, "Multiplier must be >= 1");
+    return new PollDelayPolicy<StatusT>() {
+      @Override
+      public long getNextPollDelayMillis(@Nullable StatusT status, int pollCount) {
+        double delayMillis = initialDelayMillis * Math.pow(multiplier, pollCount);
+        return (long) Math.min(maxDelayMillis, delayMillis);
+      }
+    };
+  }
+
+  /**
+   * Retrieves the statuses of jobs.
+   *
+   * @param <StatusT> the type of a job's status
+   */
+  public interface StatusFetcher<StatusT> {
+
+    /**
+     * Returns the current status of each job. Jobs missing from the returned map and from
+     * {@code failures} will be polled again later.
+     *
+     * @param jobIds the IDs of the jobs to check
+     * @param failures receives the exception of each job whose status could not be retrieved on
+     *     its own, such as a job that no longer exists. Only the futures of these jobs fail.
+     * @throws Exception if the statuses could not be retrieved at all. The futures of all jobs in
+     *     {@code jobIds} will fail with the exception.
+     */
+    Map<Long, StatusT> getStatuses(Set<Long> jobIds, Map<Long, Exception> failures)
+        throws Exception;
+
+    /**
+     * Returns true if {@code status} is a final status, successful or otherwise.
+     */
+    boolean isFinished(StatusT status);
+  }
+
+  /**
+   * Determines the delay before the next poll of a job.
+   *
+   * @param <StatusT> the type of a job's status
+   */
+  public interface PollDelayPolicy<StatusT> {
+
+    /**
+     * Returns the number of milliseconds to wait before polling a job again.
+     *
+     * @param status the most recent unfinished status of the job, or null if the job has not
+     *     been polled yet or its status was not returned
+     * @param pollCount the number of times the job has been polled
+     */
+    long getNextPollDelayMillis(@Nullable StatusT status, int pollCount);
+  }
+
+  /**
+   * The polling state of a single job. Fields other than the future are only accessed from the
+   * poll task.
+   */
+  private static class TrackedJob<StatusT> {
+    final long jobId;
+    final SettableFuture<StatusT> future = SettableFuture.create();
+    long nextPollMillis;
+    int pollCount;
+
+    TrackedJob(long jobId, long nextPollMillis) {
+      this.jobId = jobId;
+      this.nextPollMillis = nextPollMillis;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes rows of delimiter-separated text, such as CSV or TSV, field by field without building
+ * intermediate rows or strings.
+ *
+ * <p>A field is quoted only if it contains the delimiter, a quote or a line break, in which case
+ * quotes within it are doubled. Rows end with {@code \n}. Null fields are written as empty
+ * fields. This class is not thread safe.
+ */
+public final class DelimitedTextWriter implements Closeable, Flushable {
+
+  /**
+   * The supported formats.
+   */
+  public enum Format {
+    CSV(','),
+    TSV('\t');
+
+    private final char delimiter;
+
+    private Format(char delimiter) {
+      this.delimiter = delimiter;
+    }
+
+    /**
+     * Returns the character that separates fields.
+     */
+    public char getDelimiter() {
+      return delimiter;
+    }
+  }
+
+  private static final char QUOTE = '"';
+
+  private final Writer writer;
+  private final char delimiter;
+  private boolean isRowStarted;
+
+  /**
+   * Constructor.
+   *
+   * @param writer the writer to write to. Closing this writer closes it.
+   * @param format the format to write
+   */
+  public DelimitedTextWriter(Writer writer, Format format) {
+    this.writer = Preconditions.checkNotNull(writer, "Null writer");
+    this.delimiter = Preconditions.checkNotNull(format, "Null format").getDelimiter();
+  }
+
+  /**
+   * Writes the next field of the current row.
+   *
+   * @param value the field value, or null for an empty field
+   * @throws IOException if writing failed
+   */
+  public void writeField(@Nullable CharSequence value) throws IOException {
+    if (isRowStarted) {
+      writer.write(delimiter);
+    }
+    isRowStarted = true;
+    if (value == null) {
+      return;
+    }
+    if (!needsQuoting(value)) {
+      writer.append(value);
+      return;
+    }
+    writer.write(QUOTE);
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c == QUOTE) {
+        writer.write(QUOTE);
+      }
+      writer.write(c);
+    }
+    writer.write(QUOTE);
+  }
+
+  /**
+   * Writes all fields of a row and ends it.
+   *
+   * @param values the field values
+   * @throws IOException if writing failed
+   */
+  public void writeRow(Iterable<? extends CharSequence> values) throws IOException {
+    for (CharSequence value : values) {
+      writeField(value);
+    }
+    endRow();
+  }
+
+  /**
+   * Ends the current row.
+   *
+   * @throws IOException if writing failed
+   */
+  public void endRow() throws IOException {
+    writer.write('\n');
+    isRowStarted = false;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  private boolean needsQuoting(CharSequence value) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c == delimiter || c == QUOTE || c == '\n' || c == '\r') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
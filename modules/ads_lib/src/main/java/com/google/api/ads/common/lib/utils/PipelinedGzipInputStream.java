@@ -0,0 +1,231 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An {@link InputStream} that decompresses a gzip stream on a background thread, so that
+ * decompression and the processing of the decompressed bytes, such as parsing report rows, run
+ * concurrently.
+ *
+ * <p>The background thread reads chunks of decompressed bytes into a bounded buffer, and blocks
+ * when the buffer is full, so at most {@code bufferedChunkCount} chunks are held in memory
+ * regardless of the size of the stream. Streams with multiple gzip members are decompressed like
+ * {@link GZIPInputStream} does.
+ *
+ * <p>Closing this stream interrupts the background thread and closes the compressed stream, so
+ * that a background read blocked on the compressed stream, such as a socket read, fails and the
+ * thread ends.
+ *
+ * <p>Implementation is not thread-safe: the stream must be read by one thread at a time.
+ */
+public class PipelinedGzipInputStream extends InputStream {
+
+  /** The default number of decompressed bytes per chunk. */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  /** The default maximum number of decompressed chunks that are buffered. */
+  public static final int DEFAULT_BUFFERED_CHUNK_COUNT = 16;
+
+  private static final ThreadFactory DEFAULT_THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setNameFormat("PipelinedGzipInputStream-%d")
+      .setDaemon(true)
+      .build();
+
+  /** Marks the end of the decompressed stream. */
+  private static final Chunk END_OF_STREAM = new Chunk(new byte[0], 0, null);
+
+  private final InputStream compressedStream;
+  private final int chunkSize;
+  private final BlockingQueue<Chunk> chunks;
+  private final Thread decompressionThread;
+
+  private Chunk currentChunk;
+  private int currentPosition;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a stream that decompresses {@code compressedStream} on a new daemon thread with the
+   * default chunk size and buffer size.
+   *
+   * @param compressedStream the gzip stream to decompress
+   */
+  public PipelinedGzipInputStream(InputStream compressedStream) {
+    this(compressedStream, DEFAULT_CHUNK_SIZE, DEFAULT_BUFFERED_CHUNK_COUNT,
+        DEFAULT_THREAD_FACTORY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param compressedStream the gzip stream to decompress
+   * @param chunkSize the number of decompressed bytes per chunk
+   * @param bufferedChunkCount the maximum number of decompressed chunks that are buffered
+   * @param threadFactory the factory of the thread to decompress on
+   */
+  public PipelinedGzipInputStream(InputStream compressedStream, int chunkSize,
+      int bufferedChunkCount, ThreadFactory threadFactory) {
+    Preconditions.checkNotNull(compressedStream, "Null compressed stream");
+    Preconditions.checkArgument(chunkSize > 0, "Chunk size must be > 0");
+    Preconditions.checkArgument(bufferedChunkCount > 0, "Buffered chunk count must be > 0");
+    Preconditions.checkNotNull(threadFactory, "Null thread factory");
+    this.compressedStream = compressedStream;
+    this.chunkSize = chunkSize;
+    this.chunks = new ArrayBlockingQueue<Chunk>(bufferedChunkCount);
+    this.decompressionThread = threadFactory.newThread(new Decompressor());
+    decompressionThread.start();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextChunk()) {
+      return -1;
+    }
+    return currentChunk.data[currentPosition++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    Preconditions.checkPositionIndexes(off, off + len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextChunk()) {
+      return -1;
+    }
+    int count = Math.min(len, currentChunk.length - currentPosition);
+    System.arraycopy(currentChunk.data, currentPosition, b, off, count);
+    currentPosition += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return currentChunk == null || closed ? 0 : currentChunk.length - currentPosition;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      currentChunk = END_OF_STREAM;
+      decompressionThread.interrupt();
+      chunks.clear();
+      // An interrupt doesn't unblock a read of a socket, but closing the stream does.
+      compressedStream.close();
+    }
+  }
+
+  /**
+   * Makes {@code currentChunk} a chunk with unread bytes, waiting for the background thread if
+   * necessary.
+   *
+   * @return false at the end of the stream
+   * @throws IOException if the stream is closed, decompression failed, or the thread was
+   *     interrupted
+   */
+  private boolean nextChunk() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    while (currentChunk == null || currentPosition == currentChunk.length) {
+      if (currentChunk == END_OF_STREAM) {
+        return false;
+      }
+      if (currentChunk != null && currentChunk.exception != null) {
+        // The exception chunk is never replaced, so every later read fails as well.
+        throw new IOException("Failed to decompress the stream", currentChunk.exception);
+      }
+      try {
+        currentChunk = chunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for decompressed bytes");
+      }
+      currentPosition = 0;
+    }
+    return true;
+  }
+
+  /**
+   * Decompressed bytes, or the exception that ended decompression.
+   */
+  private static final class Chunk {
+    final byte[] data;
+    final int length;
+    final IOException exception;
+
+    Chunk(byte[] data, int length, IOException exception) {
+      this.data = data;
+      this.length = length;
+      this.exception = exception;
+    }
+  }
+
+  /**
+   * Reads the decompressed stream into chunks until the end of the stream, an exception, or an
+   * interrupt.
+   */
+  private final class Decompressor implements Runnable {
+
+    @Override
+    public void run() {
+      Chunk lastChunk = null;
+      try (InputStream closedStream = compressedStream;
+          InputStream gzipStream = new GZIPInputStream(compressedStream, chunkSize)) {
+        int length;
+        do {
+          byte[] data = new byte[chunkSize];
+          length = ByteStreams.read(gzipStream, data, 0, chunkSize);
+          if (length > 0) {
+            chunks.put(new Chunk(data, length, null));
+          }
+        } while (length == chunkSize);
+        lastChunk = END_OF_STREAM;
+      } catch (InterruptedException e) {
+        // The stream was closed.
+        return;
+      } catch (Throwable t) {
+        if (closed) {
+          // Closing the compressed stream failed the read, and there is no reader left.
+          return;
+        }
+        // Any failure, including a RuntimeException or Error from the compressed stream, must end
+        // the stream so that the reader doesn't wait forever. A failure to close the compressed
+        // stream after the end was read doesn't affect the decompressed bytes.
+        if (lastChunk == null) {
+          IOException exception = t instanceof IOException
+              ? (IOException) t : new IOException("Unexpected failure while decompressing", t);
+          lastChunk = new Chunk(new byte[0], 0, exception);
+        }
+      }
+      try {
+        chunks.put(lastChunk);
+      } catch (InterruptedException e) {
+        // The stream was closed.
+      }
+    }
+  }
+}
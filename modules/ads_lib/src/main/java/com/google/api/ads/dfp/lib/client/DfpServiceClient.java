@@ -16,11 +16,15 @@ package com.google.api.ads.dfp.lib.client;
 
 import com.google.api.ads.common.lib.client.AdsServiceClient;
 import com.google.api.ads.common.lib.client.HeaderHandler;
+import com.google.api.ads.common.lib.soap.SoapCallDeduplicator;
 import com.google.api.ads.common.lib.soap.SoapClientHandlerInterface;
+import com.google.api.ads.common.lib.soap.SoapResponseCache;
 import com.google.api.ads.common.lib.soap.SoapServiceClient;
 import com.google.api.ads.common.lib.utils.logging.AdsServiceLoggers;
 import com.google.inject.assistedinject.Assisted;
 
+import java.util.Arrays;
+
 import javax.inject.Inject;
 
 /**
@@ -30,6 +34,28 @@ import javax.inject.Inject;
 public class DfpServiceClient extends AdsServiceClient<DfpSession,
                                                        DfpServiceDescriptor> {
 
+  /**
+   * Constructor without response caching or call deduplication.
+   *
+   * @param soapClient the SOAP client
+   * @param dfpServiceDescriptor the DFP service descriptor
+   * @param dfpSession the DFP session
+   * @param soapClientHandler the SOAP client handler
+   * @param dfpHeaderHandler the DFP header handler
+   * @param adsServiceLoggers the ads service loggers
+   */
+  @SuppressWarnings("unchecked") /* See comments on soapClientHandler argument. */
+  public DfpServiceClient(
+      Object soapClient,
+      DfpServiceDescriptor dfpServiceDescriptor,
+      DfpSession dfpSession,
+      @SuppressWarnings("rawtypes") SoapClientHandlerInterface soapClientHandler,
+      HeaderHandler<DfpSession, DfpServiceDescriptor> dfpHeaderHandler,
+      AdsServiceLoggers adsServiceLoggers) {
+    super(soapClient, dfpSession, dfpServiceDescriptor, soapClientHandler,
+        dfpHeaderHandler, adsServiceLoggers);
+  }
+
   /**
    * Constructor.
    *
@@ -39,6 +65,8 @@ public class DfpServiceClient extends AdsServiceClient<DfpSession,
    * @param soapClientHandler the SOAP client handler
    * @param dfpHeaderHandler the DFP header handler
    * @param adsServiceLoggers the ads service loggers
+   * @param responseCache the response cache
+   * @param callDeduplicator the call deduplicator
    */
   @SuppressWarnings("unchecked") /* See comments on soapClientHandler argument. */
   @Inject
@@ -52,9 +80,21 @@ public class DfpServiceClient extends AdsServiceClient<DfpSession,
                                      * the raw type here. */
       SoapClientHandlerInterface soapClientHandler,
       HeaderHandler<DfpSession, DfpServiceDescriptor> dfpHeaderHandler,
-      AdsServiceLoggers adsServiceLoggers) {
+      AdsServiceLoggers adsServiceLoggers,
+      SoapResponseCache responseCache,
+      SoapCallDeduplicator callDeduplicator) {
     super(soapClient, dfpSession, dfpServiceDescriptor, soapClientHandler,
-        dfpHeaderHandler, adsServiceLoggers);
+        dfpHeaderHandler, adsServiceLoggers, responseCache,
+        callDeduplicator);
+  }
+
+  /**
+   * Adds the network code of the session to the scope, since it can be changed on the same
+   * session.
+   */
+  @Override
+  protected Object getResponseCacheScope() {
+    return Arrays.asList(super.getResponseCacheScope(), getAdsSession().getNetworkCode());
   }
 
   /**
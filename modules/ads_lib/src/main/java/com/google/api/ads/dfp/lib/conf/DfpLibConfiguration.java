@@ -57,4 +57,26 @@ public class DfpLibConfiguration extends AdsLibConfiguration {
     return config.getInt(
         KEY_PREFIX + "." + SOAP_REQUEST_TIMEOUT_POSTFIX, DEFAULT_SOAP_REQUEST_TIMEOUT);
   }
+
+  @Override
+  public String[] getResponseCacheMethods() {
+    return config.getStringArray(KEY_PREFIX + "." + RESPONSE_CACHE_METHODS_POSTFIX);
+  }
+
+  @Override
+  public long getResponseCacheTtl() {
+    return config.getLong(
+        KEY_PREFIX + "." + RESPONSE_CACHE_TTL_POSTFIX, DEFAULT_RESPONSE_CACHE_TTL);
+  }
+
+  @Override
+  public long getResponseCacheMaxSize() {
+    return config.getLong(
+        KEY_PREFIX + "." + RESPONSE_CACHE_MAX_SIZE_POSTFIX, DEFAULT_RESPONSE_CACHE_MAX_SIZE);
+  }
+
+  @Override
+  public String[] getSingleFlightMethods() {
+    return config.getStringArray(KEY_PREFIX + "." + SINGLE_FLIGHT_METHODS_POSTFIX);
+  }
 }
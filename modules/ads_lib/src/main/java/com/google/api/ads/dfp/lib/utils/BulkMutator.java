@@ -0,0 +1,273 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import com.google.api.client.util.Sleeper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
+
+/**
+ * Creates or updates many entities by splitting them into chunks and sending the chunks
+ * concurrently.
+ *
+ * <p>Chunks of at most {@code chunkSize} entities are passed to the {@link MutateFunction} on the
+ * provided executor with at most {@code maxParallelism} chunks in flight. A chunk that fails with
+ * an exception that {@code isTransient} accepts is retried after an exponentially increasing delay,
+ * up to {@code maxAttempts} times in total. A chunk that still fails does not stop the other
+ * chunks; its failure is reported in the {@link BulkMutationResult} for each of its entities.
+ *
+ * <p>Creates are not idempotent: a request that timed out or lost its connection may still have
+ * created its entities, so retrying it can create duplicates. When creating entities, only accept
+ * errors that the service reports before making changes, such as quota errors, and not network
+ * failures. The DFP Axis {@code TransientErrorPredicate} does this by default.
+ *
+ * <p>Example usage with the v201702 {@code LineItemService}:
+ * <pre>
+ * BulkMutator&lt;LineItem&gt; bulkMutator = new BulkMutator&lt;LineItem&gt;(
+ *     new MutateFunction&lt;LineItem&gt;() {
+ *       public List&lt;LineItem&gt; mutate(List&lt;LineItem&gt; lineItems) throws Exception {
+ *         return Arrays.asList(lineItemService.createLineItems(
+ *             lineItems.toArray(new LineItem[lineItems.size()])));
+ *       }
+ *     }, 200, 8, 3, new TransientErrorPredicate(), executorService);
+ * BulkMutationResult&lt;LineItem&gt; result = bulkMutator.mutateAll(lineItems);
+ * </pre>
+ *
+ * @param <T> the entity type, such as {@code LineItem}
+ */
+public class BulkMutator<T> {
+
+  /** The delay before the first retry of a chunk. Doubles with every retry. */
+  public static final long INITIAL_RETRY_DELAY_MILLIS = 5000L;
+
+  private final MutateFunction<T> mutateFunction;
+  private final int chunkSize;
+  private final int maxParallelism;
+  private final int maxAttempts;
+  private final Predicate<? super Exception> isTransient;
+  private final ExecutorService executorService;
+  private final Sleeper sleeper;
+
+  /**
+   * Constructor.
+   *
+   * @param mutateFunction the function that sends a chunk of entities to the service
+   * @param chunkSize the maximum number of entities per request
+   * @param maxParallelism the maximum number of requests in flight at once
+   * @param maxAttempts the maximum number of requests per chunk, including retries
+   * @param isTransient accepts the exceptions after which a chunk should be retried. For creates,
+   *     this must not accept failures after which the chunk may already have been created.
+   * @param executorService the executor to send requests on. This mutator does not shut it down.
+   */
+  public BulkMutator(MutateFunction<T> mutateFunction, int chunkSize, int maxParallelism,
+      int maxAttempts, Predicate<? super Exception> isTransient,
+      ExecutorService executorService) {
+    this(mutateFunction, chunkSize, maxParallelism, maxAttempts, isTransient, executorService,
+        Sleeper.DEFAULT);
+  }
+
+  @VisibleForTesting
+  BulkMutator(MutateFunction<T> mutateFunction, int chunkSize, int maxParallelism,
+      int maxAttempts, Predicate<? super Exception> isTransient, ExecutorService executorService,
+      Sleeper sleeper) {
+    Preconditions.checkArgument(chunkSize > 0, "Chunk size must be > 0");
+    Preconditions.checkArgument(maxParallelism > 0, "Max parallelism must be > 0");
+    Preconditions.checkArgument(maxAttempts > 0, "Max attempts must be > 0");
+    this.mutateFunction = Preconditions.checkNotNull(mutateFunction, "Null mutate function");
+    this.chunkSize = chunkSize;
+    this.maxParallelism = maxParallelism;
+    this.maxAttempts = maxAttempts;
+    this.isTransient = Preconditions.checkNotNull(isTransient, "Null transient predicate");
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+    this.sleeper = sleeper;
+  }
+
+  /**
+   * Sends all entities to the service in chunks and waits for every chunk to finish.
+   *
+   * @param entities the entities to create or update
+   * @return the result for each entity, in the order of {@code entities}
+   * @throws InterruptedException if the calling thread was interrupted. Chunks still in flight
+   *     are cancelled.
+   */
+  public BulkMutationResult<T> mutateAll(List<T> entities) throws InterruptedException {
+    Preconditions.checkNotNull(entities, "Null entities");
+    final List<T> results = Arrays.asList(newNullArray(entities.size()));
+    final List<Exception> failures = Arrays.asList(new Exception[entities.size()]);
+
+    final List<List<T>> chunks = Lists.partition(entities, chunkSize);
+    List<Callable<List<T>>> mutations = Lists.transform(chunks,
+        new Function<List<T>, Callable<List<T>>>() {
+          @Override
+          public Callable<List<T>> apply(List<T> chunk) {
+            final List<T> chunkCopy = ImmutableList.copyOf(chunk);
+            return new Callable<List<T>>() {
+              @Override
+              public List<T> call() throws Exception {
+                return mutateWithRetries(chunkCopy);
+              }
+            };
+          }
+        });
+    ParallelTasks.runAll(mutations, maxParallelism, executorService,
+        new ParallelTasks.TaskCallback<List<T>>() {
+          @Override
+          public void onSuccess(int chunkIndex, List<T> chunkResults) {
+            int fromIndex = chunkIndex * chunkSize;
+            for (int i = 0; i < chunkResults.size(); i++) {
+              results.set(fromIndex + i, chunkResults.get(i));
+            }
+          }
+
+          @Override
+          public void onFailure(int chunkIndex, Exception failure) {
+            int fromIndex = chunkIndex * chunkSize;
+            for (int i = 0; i < chunks.get(chunkIndex).size(); i++) {
+              failures.set(fromIndex + i, failure);
+            }
+          }
+        });
+    return new BulkMutationResult<T>(results, failures);
+  }
+
+  /**
+   * Sends a chunk to the service, retrying failures that {@code isTransient} accepts. A retried
+   * chunk is sent again in full, even if the failed request was processed.
+   */
+  private List<T> mutateWithRetries(List<T> chunk) throws Exception {
+    long retryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+    for (int attempt = 1; ; attempt++) {
+      List<T> results;
+      try {
+        results = mutateFunction.mutate(chunk);
+      } catch (Exception e) {
+        if (attempt >= maxAttempts || !isTransient.apply(e)) {
+          throw e;
+        }
+        sleeper.sleep(retryDelayMillis);
+        retryDelayMillis *= 2;
+        continue;
+      }
+      if (results == null || results.size() != chunk.size()) {
+        throw new IllegalStateException(String.format(
+            "Expected %d results for the chunk but got %s", chunk.size(),
+            results == null ? null : results.size()));
+      }
+      return results;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T[] newNullArray(int length) {
+    return (T[]) new Object[length];
+  }
+
+  /**
+   * Sends one chunk of entities to the service, such as by calling
+   * {@code LineItemService.createLineItems} or
+   * {@code CustomTargetingService.createCustomTargetingValues}.
+   *
+   * @param <T> the entity type
+   */
+  public interface MutateFunction<T> {
+
+    /**
+     * Creates or updates the entities. Called concurrently on the executor.
+     *
+     * @return the created or updated entities, in the order of {@code entities}
+     * @throws Exception if the request failed
+     */
+    List<T> mutate(List<T> entities) throws Exception;
+  }
+
+  /**
+   * The outcome of {@link BulkMutator#mutateAll(List)}, by the index of each entity in the input
+   * list.
+   *
+   * @param <T> the entity type
+   */
+  public static final class BulkMutationResult<T> {
+    private final List<T> results;
+    private final List<Exception> failures;
+
+    private BulkMutationResult(List<T> results, List<Exception> failures) {
+      this.results = Collections.unmodifiableList(results);
+      this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns the number of entities.
+     */
+    public int size() {
+      return results.size();
+    }
+
+    /**
+     * Returns true if every chunk succeeded.
+     */
+    public boolean isSuccessful() {
+      return getFailedIndexes().isEmpty();
+    }
+
+    /**
+     * Returns the entity returned by the service for the entity at {@code index}, or null if its
+     * chunk failed.
+     */
+    @Nullable
+    public T getResult(int index) {
+      return results.get(index);
+    }
+
+    /**
+     * Returns the exception of the chunk of the entity at {@code index}, or null if its chunk
+     * succeeded.
+     */
+    @Nullable
+    public Exception getFailure(int index) {
+      return failures.get(index);
+    }
+
+    /**
+     * Returns the entities returned by the service, in the order of the input list, with null for
+     * the entities whose chunk failed.
+     */
+    public List<T> getResults() {
+      return results;
+    }
+
+    /**
+     * Returns the indexes of the entities whose chunk failed, in ascending order.
+     */
+    public List<Integer> getFailedIndexes() {
+      List<Integer> failedIndexes = Lists.newArrayList();
+      for (int i = 0; i < failures.size(); i++) {
+        if (failures.get(i) != null) {
+          failedIndexes.add(i);
+        }
+      }
+      return failedIndexes;
+    }
+  }
+}
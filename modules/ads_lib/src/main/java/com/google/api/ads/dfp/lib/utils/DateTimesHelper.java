@@ -14,20 +14,29 @@
 
 package com.google.api.ads.dfp.lib.utils;
 
+import com.google.common.collect.Maps;
+
 import org.apache.commons.beanutils.PropertyUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Instant;
 import org.joda.time.format.ISODateTimeFormat;
 
-import java.lang.reflect.InvocationTargetException;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A utility class for handling {@code DateTime} objects.
  *
+ * <p>The accessors of the {@code DateTime} and {@code Date} classes are resolved once, when the
+ * helper is constructed, so conversions do not use reflection.
+ *
  * @param <T> the {@code DateTime} type
  * @param <D> the {@code Date} type
  */
@@ -35,18 +44,76 @@ public class DateTimesHelper<T, D> {
 
   private static final String DATE_PATTERN = "%04d-%02d-%02d";
 
-  private Class<T> dateTimeClass;
-  private Class<D> dateClass;
+  /**
+   * The maximum number of entries in each time zone cache. Time zone IDs come from API objects
+   * and user input, so the caches stop growing rather than holding arbitrary strings.
+   */
+  private static final int MAX_CACHED_TIME_ZONES = 1024;
+
+  private static final ConcurrentMap<String, DateTimeZone> ZONES_BY_ID = Maps.newConcurrentMap();
+  private static final ConcurrentMap<DateTimeZone, String> IDS_BY_ZONE = Maps.newConcurrentMap();
+
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Class<T> dateTimeClass;
+  private final Class<D> dateClass;
+
+  private final MethodHandle newDate;
+  private final MethodHandle getYear;
+  private final MethodHandle setYear;
+  private final MethodHandle getMonth;
+  private final MethodHandle setMonth;
+  private final MethodHandle getDay;
+  private final MethodHandle setDay;
+
+  private final MethodHandle newDateTime;
+  private final MethodHandle getDate;
+  private final MethodHandle setDate;
+  private final MethodHandle getHour;
+  private final MethodHandle setHour;
+  private final MethodHandle getMinute;
+  private final MethodHandle setMinute;
+  private final MethodHandle getSecond;
+  private final MethodHandle setSecond;
+  private final MethodHandle getTimeZoneId;
+  private final MethodHandle setTimeZoneId;
 
   /**
    * Constructor.
    *
    * @param dateTimeClass the date time class
    * @param dateClass the date class
+   * @throws IllegalArgumentException if either class is missing a public no-arg constructor or
+   *     one of the expected properties
    */
   public DateTimesHelper(Class<T> dateTimeClass, Class<D> dateClass) {
     this.dateTimeClass = dateTimeClass;
     this.dateClass = dateClass;
+
+    PropertyDescriptor[] dateProperties = PropertyUtils.getPropertyDescriptors(dateClass);
+    this.newDate = findConstructor(dateClass);
+    this.getYear = findGetter(dateClass, dateProperties, "year");
+    this.setYear = findSetter(dateClass, dateProperties, "year");
+    this.getMonth = findGetter(dateClass, dateProperties, "month");
+    this.setMonth = findSetter(dateClass, dateProperties, "month");
+    this.getDay = findGetter(dateClass, dateProperties, "day");
+    this.setDay = findSetter(dateClass, dateProperties, "day");
+
+    PropertyDescriptor[] dateTimeProperties = PropertyUtils.getPropertyDescriptors(dateTimeClass);
+    this.newDateTime = findConstructor(dateTimeClass);
+    this.getDate = findGetter(dateTimeClass, dateTimeProperties, "date");
+    this.setDate = findSetter(dateTimeClass, dateTimeProperties, "date");
+    this.getHour = findGetter(dateTimeClass, dateTimeProperties, "hour");
+    this.setHour = findSetter(dateTimeClass, dateTimeProperties, "hour");
+    this.getMinute = findGetter(dateTimeClass, dateTimeProperties, "minute");
+    this.setMinute = findSetter(dateTimeClass, dateTimeProperties, "minute");
+    this.getSecond = findGetter(dateTimeClass, dateTimeProperties, "second");
+    this.setSecond = findSetter(dateTimeClass, dateTimeProperties, "second");
+    this.getTimeZoneId = findGetter(dateTimeClass, dateTimeProperties, "timeZoneID");
+    this.setTimeZoneId = findSetter(dateTimeClass, dateTimeProperties, "timeZoneID");
   }
 
   /**
@@ -62,8 +129,7 @@ public class DateTimesHelper<T, D> {
    * supplied.
    */
   public T toDateTime(Instant instant, String timeZoneId) {
-    return toDateTime(
-        instant.toDateTime(DateTimeZone.forTimeZone(TimeZone.getTimeZone(timeZoneId))));
+    return toDateTime(instant.toDateTime(getTimeZone(timeZoneId)));
   }
 
   /**
@@ -71,29 +137,19 @@ public class DateTimesHelper<T, D> {
    * time zone.
    */
   public T toDateTime(DateTime dateTime) {
-    try {
-      D dateObj = dateClass.newInstance();
-      PropertyUtils.setProperty(dateObj, "year", dateTime.getYear());
-      PropertyUtils.setProperty(dateObj, "month", dateTime.getMonthOfYear());
-      PropertyUtils.setProperty(dateObj, "day", dateTime.getDayOfMonth());
-
-      T dateTimeObj = dateTimeClass.newInstance();
-      PropertyUtils.setProperty(dateTimeObj, "date", dateObj);
-      PropertyUtils.setProperty(dateTimeObj, "hour", dateTime.getHourOfDay());
-      PropertyUtils.setProperty(dateTimeObj, "minute", dateTime.getMinuteOfHour());
-      PropertyUtils.setProperty(dateTimeObj, "second", dateTime.getSecondOfMinute());
-      PropertyUtils.setProperty(dateTimeObj, "timeZoneID", dateTime.getZone().toTimeZone().getID());
-
-      return dateTimeObj;
-    } catch (InstantiationException e) {
-      throw new IllegalStateException("Could not instantiate class.", e);
-    } catch (IllegalAccessException e) {
-      throw new IllegalStateException("Could not instantiate class.", e);
-    } catch (InvocationTargetException e) {
-      throw new IllegalStateException("Could not set field.", e);
-    } catch (NoSuchMethodException e) {
-      throw new IllegalStateException("Could not set field.", e);
-    }
+    D dateObj = dateClass.cast(newInstance(newDate));
+    set(setYear, dateObj, dateTime.getYear());
+    set(setMonth, dateObj, dateTime.getMonthOfYear());
+    set(setDay, dateObj, dateTime.getDayOfMonth());
+
+    T dateTimeObj = dateTimeClass.cast(newInstance(newDateTime));
+    set(setDate, dateTimeObj, dateObj);
+    set(setHour, dateTimeObj, dateTime.getHourOfDay());
+    set(setMinute, dateTimeObj, dateTime.getMinuteOfHour());
+    set(setSecond, dateTimeObj, dateTime.getSecondOfMinute());
+    set(setTimeZoneId, dateTimeObj, getTimeZoneId(dateTime.getZone()));
+
+    return dateTimeObj;
   }
 
   /**
@@ -102,7 +158,7 @@ public class DateTimesHelper<T, D> {
    */
   public T toDateTime(String dateTime, String timeZoneId) {
     return toDateTime(ISODateTimeFormat.dateHourMinuteSecond().parseDateTime(dateTime)
-        .withZoneRetainFields(DateTimeZone.forTimeZone(TimeZone.getTimeZone(timeZoneId))));
+        .withZoneRetainFields(getTimeZone(timeZoneId)));
   }
 
   /**
@@ -121,44 +177,36 @@ public class DateTimesHelper<T, D> {
    * @return a string representation of the {@code Date} in {@code yyyy-MM-dd}
    */
   public String dateToString(D date) {
-    try {
-      return String.format(DATE_PATTERN,
-          (Integer) PropertyUtils.getProperty(date, "year"),
-          (Integer) PropertyUtils.getProperty(date, "month"),
-          (Integer) PropertyUtils.getProperty(date, "day"));
-    } catch (IllegalAccessException e) {
-      throw new IllegalStateException("Could not access class.", e);
-    } catch (InvocationTargetException e) {
-      throw new IllegalStateException("Could not get field.", e);
-    } catch (NoSuchMethodException e) {
-      throw new IllegalStateException("Could not get field.", e);
+    Integer year = (Integer) get(getYear, date);
+    Integer month = (Integer) get(getMonth, date);
+    Integer day = (Integer) get(getDay, date);
+    if (year == null || month == null || day == null || year < 0 || month < 0 || day < 0) {
+      // Let the formatter render the unusual cases exactly as it always has.
+      return String.format(DATE_PATTERN, year, month, day);
     }
+    StringBuilder builder = new StringBuilder(10);
+    appendZeroPadded(builder, year, 4);
+    builder.append('-');
+    appendZeroPadded(builder, month, 2);
+    builder.append('-');
+    appendZeroPadded(builder, day, 2);
+    return builder.toString();
   }
 
   /**
    * Converts an API date time to a {@code DateTime} preserving the time zone.
    */
   public DateTime toDateTime(T dateTime) {
-    try {
-      @SuppressWarnings("unchecked") // Expected class.
-      D dateObj = (D) PropertyUtils.getProperty(dateTime, "date");
-      return new DateTime(
-          (Integer) PropertyUtils.getProperty(dateObj, "year"),
-          (Integer) PropertyUtils.getProperty(dateObj, "month"),
-          (Integer) PropertyUtils.getProperty(dateObj, "day"),
-          (Integer) PropertyUtils.getProperty(dateTime, "hour"),
-          (Integer) PropertyUtils.getProperty(dateTime, "minute"),
-          (Integer) PropertyUtils.getProperty(dateTime, "second"),
-          0,
-          DateTimeZone.forTimeZone(
-              TimeZone.getTimeZone((String) PropertyUtils.getProperty(dateTime, "timeZoneID"))));
-    } catch (IllegalAccessException e) {
-      throw new IllegalStateException("Could not access class.", e);
-    } catch (InvocationTargetException e) {
-      throw new IllegalStateException("Could not get field.", e);
-    } catch (NoSuchMethodException e) {
-      throw new IllegalStateException("Could not get field.", e);
-    }
+    Object dateObj = get(getDate, dateTime);
+    return new DateTime(
+        (Integer) get(getYear, dateObj),
+        (Integer) get(getMonth, dateObj),
+        (Integer) get(getDay, dateObj),
+        (Integer) get(getHour, dateTime),
+        (Integer) get(getMinute, dateTime),
+        (Integer) get(getSecond, dateTime),
+        0,
+        getTimeZone((String) get(getTimeZoneId, dateTime)));
   }
 
   /**
@@ -230,7 +278,128 @@ public class DateTimesHelper<T, D> {
    */
   public String toStringForTimeZone(T dateTime, String newZoneID) {
     return toDateTime(dateTime)
-        .withZone(DateTimeZone.forTimeZone(TimeZone.getTimeZone(newZoneID)))
+        .withZone(getTimeZone(newZoneID))
         .toString(ISODateTimeFormat.dateHourMinuteSecond());
   }
+
+  /**
+   * Returns the Joda time zone for a Java time zone ID. Unknown IDs resolve to GMT, as they do
+   * with {@link TimeZone#getTimeZone(String)}.
+   */
+  private static DateTimeZone getTimeZone(String timeZoneId) {
+    DateTimeZone timeZone = ZONES_BY_ID.get(timeZoneId);
+    if (timeZone == null) {
+      timeZone = DateTimeZone.forTimeZone(TimeZone.getTimeZone(timeZoneId));
+      if (ZONES_BY_ID.size() < MAX_CACHED_TIME_ZONES) {
+        ZONES_BY_ID.putIfAbsent(timeZoneId, timeZone);
+      }
+    }
+    return timeZone;
+  }
+
+  /**
+   * Returns the Java time zone ID of a Joda time zone, which is what the API expects.
+   */
+  private static String getTimeZoneId(DateTimeZone timeZone) {
+    String timeZoneId = IDS_BY_ZONE.get(timeZone);
+    if (timeZoneId == null) {
+      timeZoneId = timeZone.toTimeZone().getID();
+      if (IDS_BY_ZONE.size() < MAX_CACHED_TIME_ZONES) {
+        IDS_BY_ZONE.putIfAbsent(timeZone, timeZoneId);
+      }
+    }
+    return timeZoneId;
+  }
+
+  private static void appendZeroPadded(StringBuilder builder, int value, int width) {
+    for (int limit = 10; width > 1 && limit <= 1000; limit *= 10, width--) {
+      if (value < limit) {
+        builder.append('0');
+      }
+    }
+    builder.append(value);
+  }
+
+  private static Object newInstance(MethodHandle constructor) {
+    try {
+      return (Object) constructor.invokeExact();
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Could not instantiate class.", t);
+    }
+  }
+
+  private static Object get(MethodHandle getter, Object bean) {
+    try {
+      return (Object) getter.invokeExact(bean);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Could not get field.", t);
+    }
+  }
+
+  private static void set(MethodHandle setter, Object bean, Object value) {
+    try {
+      setter.invokeExact(bean, value);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException("Could not set field.", t);
+    }
+  }
+
+  private static MethodHandle findConstructor(Class<?> clazz) {
+    try {
+      return MethodHandles.publicLookup()
+          .findConstructor(clazz, MethodType.methodType(void.class))
+          .asType(CONSTRUCTOR_TYPE);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("Could not instantiate class " + clazz.getName(), e);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Could not instantiate class " + clazz.getName(), e);
+    }
+  }
+
+  private static MethodHandle findGetter(
+      Class<?> clazz, PropertyDescriptor[] properties, String propertyName) {
+    PropertyDescriptor property = findProperty(clazz, properties, propertyName);
+    if (property.getReadMethod() == null) {
+      throw new IllegalArgumentException(
+          "Could not get field " + propertyName + " of class " + clazz.getName());
+    }
+    try {
+      return MethodHandles.publicLookup().unreflect(property.getReadMethod()).asType(GETTER_TYPE);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException(
+          "Could not get field " + propertyName + " of class " + clazz.getName(), e);
+    }
+  }
+
+  private static MethodHandle findSetter(
+      Class<?> clazz, PropertyDescriptor[] properties, String propertyName) {
+    PropertyDescriptor property = findProperty(clazz, properties, propertyName);
+    if (property.getWriteMethod() == null) {
+      throw new IllegalArgumentException(
+          "Could not set field " + propertyName + " of class " + clazz.getName());
+    }
+    try {
+      return MethodHandles.publicLookup().unreflect(property.getWriteMethod()).asType(SETTER_TYPE);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException(
+          "Could not set field " + propertyName + " of class " + clazz.getName(), e);
+    }
+  }
+
+  private static PropertyDescriptor findProperty(
+      Class<?> clazz, PropertyDescriptor[] properties, String propertyName) {
+    for (PropertyDescriptor property : properties) {
+      if (propertyName.equals(property.getName())) {
+        return property;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Class " + clazz.getName() + " has no property " + propertyName);
+  }
 }
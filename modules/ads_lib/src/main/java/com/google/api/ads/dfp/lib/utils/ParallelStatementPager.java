@@ -0,0 +1,213 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Queues;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Retrieves all pages of a PQL statement by fetching the offset ranges after the first page
+ * concurrently.
+ *
+ * <p>The first page is retrieved on the calling thread to learn the total result set size. The
+ * remaining pages are then requested on the provided executor with at most
+ * {@code maxParallelism} requests in flight. Every page is handed to the {@link PageCallback} on
+ * the calling thread, either in offset order or in the order the pages complete.
+ *
+ * <p>Example usage with a {@code StatementBuilder}:
+ * <pre>
+ * final StatementBuilder statementBuilder = new StatementBuilder().where("status = :status")...;
+ * new ParallelStatementPager&lt;Statement, LineItemPage&gt;(
+ *     new StatementPageFetcher&lt;Statement, LineItemPage&gt;() {
+ *       public Statement createStatement(int offset, int limit) {
+ *         return statementBuilder.offset(offset).limit(limit).toStatement();
+ *       }
+ *       public LineItemPage getPage(Statement statement) throws Exception {
+ *         return lineItemService.getLineItemsByStatement(statement);
+ *       }
+ *       public int getTotalResultSetSize(LineItemPage page) {
+ *         return page.getTotalResultSetSize();
+ *       }
+ *     }, StatementBuilder.SUGGESTED_PAGE_LIMIT, 8, executorService)
+ *     .fetchAll(callback, true);
+ * </pre>
+ *
+ * @param <StatementT> the statement type of the API version
+ * @param <PageT> the page type returned by the service
+ */
+public class ParallelStatementPager<StatementT, PageT> {
+
+  private final StatementPageFetcher<StatementT, PageT> pageFetcher;
+  private final int pageSize;
+  private final int maxParallelism;
+  private final ExecutorService executorService;
+
+  /**
+   * Constructor.
+   *
+   * @param pageFetcher the fetcher that creates statements and retrieves their pages
+   * @param pageSize the number of results to request per page
+   * @param maxParallelism the maximum number of page requests in flight at once
+   * @param executorService the executor to retrieve pages on. This pager does not shut it down.
+   */
+  public ParallelStatementPager(StatementPageFetcher<StatementT, PageT> pageFetcher,
+      int pageSize, int maxParallelism, ExecutorService executorService) {
+    Preconditions.checkArgument(pageSize > 0, "Page size must be > 0");
+    Preconditions.checkArgument(maxParallelism > 0, "Max parallelism must be > 0");
+    this.pageFetcher = Preconditions.checkNotNull(pageFetcher, "Null page fetcher");
+    this.pageSize = pageSize;
+    this.maxParallelism = maxParallelism;
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+  }
+
+  /**
+   * Retrieves every page of the statement and passes each one to {@code callback}.
+   *
+   * @param callback the callback to receive the pages, called on the calling thread
+   * @param inOrder if true, pages are passed to the callback in offset order. Otherwise, pages
+   *     are passed to the callback as soon as they are retrieved.
+   * @return the number of pages retrieved
+   * @throws ServiceException if retrieving any page failed. Pages still in flight are cancelled.
+   * @throws InterruptedException if the calling thread was interrupted while waiting for a page
+   */
+  public int fetchAll(PageCallback<PageT> callback, boolean inOrder) throws InterruptedException {
+    Preconditions.checkNotNull(callback, "Null page callback");
+    PageT firstPage;
+    try {
+      firstPage = pageFetcher.getPage(pageFetcher.createStatement(0, pageSize));
+    } catch (Exception e) {
+      throw new ServiceException("Failed to retrieve page at offset 0", e);
+    }
+    int totalResultSetSize = pageFetcher.getTotalResultSetSize(firstPage);
+    callback.onPage(0, firstPage);
+    int pageCount = 1;
+
+    CompletionService<OffsetPage<PageT>> completionService =
+        new ExecutorCompletionService<OffsetPage<PageT>>(executorService);
+    Deque<Future<OffsetPage<PageT>>> pagesInFlight = Queues.newArrayDeque();
+    int nextOffset = pageSize;
+    try {
+      while (nextOffset < totalResultSetSize || !pagesInFlight.isEmpty()) {
+        while (pagesInFlight.size() < maxParallelism && nextOffset < totalResultSetSize) {
+          Callable<OffsetPage<PageT>> pageRequest = createPageRequest(nextOffset);
+          // Only submit to the completion service when it will be drained, otherwise its queue
+          // would retain every completed page.
+          pagesInFlight.addLast(inOrder
+              ? executorService.submit(pageRequest)
+              : completionService.submit(pageRequest));
+          nextOffset += pageSize;
+        }
+        Future<OffsetPage<PageT>> completedPage;
+        if (inOrder) {
+          completedPage = pagesInFlight.removeFirst();
+        } else {
+          completedPage = completionService.take();
+          pagesInFlight.remove(completedPage);
+        }
+        OffsetPage<PageT> offsetPage;
+        try {
+          offsetPage = completedPage.get();
+        } catch (ExecutionException e) {
+          throw new ServiceException("Failed to retrieve page", e.getCause());
+        }
+        callback.onPage(offsetPage.offset, offsetPage.page);
+        pageCount++;
+      }
+    } finally {
+      for (Future<OffsetPage<PageT>> pageInFlight : pagesInFlight) {
+        pageInFlight.cancel(true);
+      }
+    }
+    return pageCount;
+  }
+
+  /**
+   * Returns a request for the page at {@code offset}. The statement is created on the calling
+   * thread since statement builders are not thread safe.
+   */
+  private Callable<OffsetPage<PageT>> createPageRequest(final int offset) {
+    final StatementT statement = pageFetcher.createStatement(offset, pageSize);
+    return new Callable<OffsetPage<PageT>>() {
+      @Override
+      public OffsetPage<PageT> call() throws Exception {
+        return new OffsetPage<PageT>(offset, pageFetcher.getPage(statement));
+      }
+    };
+  }
+
+  /**
+   * Creates the statements for each offset range and retrieves their pages.
+   *
+   * @param <StatementT> the statement type of the API version
+   * @param <PageT> the page type returned by the service
+   */
+  public interface StatementPageFetcher<StatementT, PageT> {
+
+    /**
+     * Returns the statement for the page with the given offset and limit. Always called on the
+     * thread that called {@link ParallelStatementPager#fetchAll(PageCallback, boolean)}.
+     */
+    StatementT createStatement(int offset, int limit);
+
+    /**
+     * Retrieves the page of results for {@code statement}. Called concurrently on the executor.
+     *
+     * @throws Exception if the request for the page failed
+     */
+    PageT getPage(StatementT statement) throws Exception;
+
+    /**
+     * Returns the total result set size reported by {@code page}.
+     */
+    int getTotalResultSetSize(PageT page);
+  }
+
+  /**
+   * Receives the pages retrieved by a {@link ParallelStatementPager}.
+   *
+   * @param <PageT> the page type returned by the service
+   */
+  public interface PageCallback<PageT> {
+
+    /**
+     * Called on the thread that called {@link ParallelStatementPager#fetchAll} for each page.
+     *
+     * @param offset the offset of the page
+     * @param page the page of results
+     */
+    void onPage(int offset, PageT page);
+  }
+
+  /**
+   * A page along with the offset it was requested for.
+   */
+  private static class OffsetPage<PageT> {
+    final int offset;
+    final PageT page;
+
+    OffsetPage(int offset, PageT page) {
+      this.offset = offset;
+      this.page = page;
+    }
+  }
+}
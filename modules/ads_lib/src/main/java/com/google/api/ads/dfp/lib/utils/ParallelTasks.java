@@ -0,0 +1,97 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a list of independent tasks on an executor with a bounded number of tasks in flight, for
+ * the utilities that split one large operation into many requests.
+ */
+final class ParallelTasks {
+
+  private ParallelTasks() {}
+
+  /**
+   * Runs every task on {@code executorService} with at most {@code maxParallelism} tasks in flight
+   * and waits for all of them. A failed task does not stop the other tasks.
+   *
+   * @param tasks the tasks to run. Each task is retrieved from the list once, just before it is
+   *     submitted, so the list can be a lazy view such as {@code Lists.transform}.
+   * @param maxParallelism the maximum number of tasks in flight at once
+   * @param executorService the executor to run the tasks on
+   * @param callback receives the outcome of each task, on the calling thread, in the order the
+   *     tasks complete
+   * @throws InterruptedException if the calling thread was interrupted. Tasks still in flight are
+   *     cancelled.
+   */
+  static <V> void runAll(List<? extends Callable<V>> tasks, int maxParallelism,
+      ExecutorService executorService, TaskCallback<? super V> callback)
+      throws InterruptedException {
+    CompletionService<V> completionService = new ExecutorCompletionService<V>(executorService);
+    Map<Future<V>, Integer> tasksInFlight = Maps.newHashMap();
+    int nextTask = 0;
+    try {
+      while (nextTask < tasks.size() || !tasksInFlight.isEmpty()) {
+        while (tasksInFlight.size() < maxParallelism && nextTask < tasks.size()) {
+          tasksInFlight.put(completionService.submit(tasks.get(nextTask)), nextTask);
+          nextTask++;
+        }
+        Future<V> completedTask = completionService.take();
+        int taskIndex = tasksInFlight.remove(completedTask);
+        V result;
+        try {
+          result = completedTask.get();
+        } catch (ExecutionException e) {
+          callback.onFailure(taskIndex, e.getCause() instanceof Exception
+              ? (Exception) e.getCause() : new ExecutionException(e.getCause()));
+          continue;
+        }
+        callback.onSuccess(taskIndex, result);
+      }
+    } finally {
+      for (Future<V> taskInFlight : tasksInFlight.keySet()) {
+        taskInFlight.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Receives the outcome of each task of {@link ParallelTasks#runAll}.
+   *
+   * @param <V> the result type of the tasks
+   */
+  interface TaskCallback<V> {
+
+    /**
+     * Called with the result of the task at {@code taskIndex}.
+     */
+    void onSuccess(int taskIndex, V result);
+
+    /**
+     * Called with the exception of the task at {@code taskIndex}. An {@link Error} thrown by the
+     * task is wrapped in an {@link ExecutionException}.
+     */
+    void onFailure(int taskIndex, Exception failure);
+  }
+}
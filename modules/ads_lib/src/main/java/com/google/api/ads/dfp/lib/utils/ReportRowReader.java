@@ -0,0 +1,581 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the rows of a {@code CSV_DUMP}, {@code TSV} or {@code XML} report one at a time, without
+ * holding more than the current row in memory.
+ *
+ * <p>The reader is a cursor: {@link #next()} advances to the next row, and the typed accessors
+ * read the fields of the current row directly from a reused character buffer, so no
+ * {@code String} or array is created per row or per field, except by {@link #getString(int)},
+ * {@link #getDouble(int)} and the XML parser of {@code XML} reports. Look up column indexes once with {@link #getColumnIndex(String)}:
+ * <pre>
+ * try (ReportRowReader reader = ReportRowReader.forCsvDump(charSource.openBufferedStream())) {
+ *   int adUnitId = reader.getColumnIndex("Dimension.AD_UNIT_ID");
+ *   int revenue = reader.getColumnIndex("Column.AD_SERVER_CPM_AND_CPC_REVENUE");
+ *   while (reader.next()) {
+ *     totals.add(reader.getLong(adUnitId), reader.getMicros(revenue));
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>Fields may be quoted with {@code "}, in which case they may contain delimiters, line breaks
+ * and quotes escaped as {@code ""}.
+ *
+ * <p>In {@code XML} reports, each {@code Row} element is a row and each child element of a row
+ * is a field, whose header is its {@code name} attribute, or its element name if it has none, and
+ * whose value is the text it contains. The headers are the {@code name} attributes of the
+ * {@code ColumnHeader} elements, or those of the first row if there are none. Other elements,
+ * such as totals, are skipped.
+ */
+@NotThreadSafe
+public final class ReportRowReader implements Closeable {
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+  private static final int MICROS_PER_UNIT = 1000000;
+  private static final int MICROS_DIGITS = 6;
+  private static final String XML_ROW_ELEMENT = "Row";
+  private static final String XML_COLUMN_HEADER_ELEMENT = "ColumnHeader";
+  private static final String XML_NAME_ATTRIBUTE = "name";
+
+  private final Reader reader;
+  @Nullable private final XMLStreamReader xmlReader;
+  private final char delimiter;
+  private final boolean moneyInMicros;
+  private final ImmutableList<String> headers;
+  private final ImmutableMap<String, Integer> columnIndexes;
+
+  private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+  private int readPosition;
+  private int readLimit;
+
+  /** The unescaped characters of the fields of the current row. */
+  private char[] row = new char[1024];
+  private int rowLength;
+  private int[] fieldStarts = new int[16];
+  private int[] fieldEnds = new int[16];
+  private int fieldCount;
+  private long rowNumber;
+  /** Whether the first row of an XML report, read to get the headers, was not returned yet. */
+  private boolean pendingRow;
+
+  private ReportRowReader(Reader reader, char delimiter, boolean moneyInMicros)
+      throws IOException {
+    this.reader = Preconditions.checkNotNull(reader, "Null reader");
+    this.xmlReader = null;
+    this.delimiter = delimiter;
+    this.moneyInMicros = moneyInMicros;
+
+    if (!readRow()) {
+      throw new IOException("Report has no header row");
+    }
+    ImmutableList.Builder<String> headersBuilder = ImmutableList.builder();
+    Map<String, Integer> columnIndexesBuilder = Maps.newHashMap();
+    for (int i = 0; i < fieldCount; i++) {
+      String header = getString(i);
+      headersBuilder.add(header);
+      if (!columnIndexesBuilder.containsKey(header)) {
+        columnIndexesBuilder.put(header, i);
+      }
+    }
+    this.headers = headersBuilder.build();
+    this.columnIndexes = ImmutableMap.copyOf(columnIndexesBuilder);
+  }
+
+  private ReportRowReader(Reader reader, XMLStreamReader xmlReader) throws IOException {
+    this.reader = reader;
+    this.xmlReader = xmlReader;
+    this.delimiter = 0;
+    this.moneyInMicros = true;
+
+    List<String> headersBuilder = Lists.newArrayList();
+    boolean hasRow = nextXmlRowElement(headersBuilder);
+    boolean hasColumnHeaders = !headersBuilder.isEmpty();
+    if (hasRow && !hasColumnHeaders) {
+      readXmlRowFields(headersBuilder);
+    }
+    Map<String, Integer> columnIndexesBuilder = Maps.newHashMap();
+    for (int i = 0; i < headersBuilder.size(); i++) {
+      if (!columnIndexesBuilder.containsKey(headersBuilder.get(i))) {
+        columnIndexesBuilder.put(headersBuilder.get(i), i);
+      }
+    }
+    this.headers = ImmutableList.copyOf(headersBuilder);
+    this.columnIndexes = ImmutableMap.copyOf(columnIndexesBuilder);
+    if (hasRow && hasColumnHeaders) {
+      readXmlRowFields(null);
+    }
+    pendingRow = hasRow;
+  }
+
+  /**
+   * Returns a reader of a report downloaded with {@code ExportFormat.CSV_DUMP}, whose money
+   * values are in micros.
+   *
+   * @param reader the report contents. Closed when the returned reader is closed.
+   * @throws IOException if the header row could not be read
+   */
+  public static ReportRowReader forCsvDump(Reader reader) throws IOException {
+    return new ReportRowReader(reader, ',', true);
+  }
+
+  /**
+   * Returns a reader of a report downloaded with {@code ExportFormat.TSV}, whose money values are
+   * decimal amounts in the network's currency.
+   *
+   * @param reader the report contents. Closed when the returned reader is closed.
+   * @throws IOException if the header row could not be read
+   */
+  public static ReportRowReader forTsv(Reader reader) throws IOException {
+    return new ReportRowReader(reader, '\t', false);
+  }
+
+  /**
+   * Returns a reader of a report downloaded with {@code ExportFormat.XML}, whose money values are
+   * in micros.
+   *
+   * @param reader the report contents. Closed when the returned reader is closed.
+   * @throws IOException if the first row could not be read
+   */
+  public static ReportRowReader forXml(Reader reader) throws IOException {
+    Preconditions.checkNotNull(reader, "Null reader");
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    try {
+      return new ReportRowReader(reader, xmlInputFactory.createXMLStreamReader(reader));
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not read XML report", e);
+    }
+  }
+
+  /**
+   * Returns the headers of the report's columns, such as {@code Dimension.AD_UNIT_ID} or
+   * {@code Column.AD_SERVER_IMPRESSIONS}.
+   */
+  public ImmutableList<String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Returns the index of the first column with the given header.
+   *
+   * @throws IllegalArgumentException if the report has no such column
+   */
+  public int getColumnIndex(String header) {
+    Integer columnIndex = columnIndexes.get(header);
+    Preconditions.checkArgument(columnIndex != null, "Report has no column %s. Columns: %s",
+        header, headers);
+    return columnIndex;
+  }
+
+  /**
+   * Advances to the next row. Blank lines are skipped.
+   *
+   * @return false if there are no more rows
+   * @throws IOException if the report could not be read
+   */
+  public boolean next() throws IOException {
+    if (pendingRow) {
+      pendingRow = false;
+      rowNumber++;
+      return true;
+    }
+    while (xmlReader == null ? readRow() : readXmlRow()) {
+      if (xmlReader != null || fieldCount > 1 || fieldEnds[0] > fieldStarts[0]) {
+        rowNumber++;
+        return true;
+      }
+    }
+    fieldCount = 0;
+    return false;
+  }
+
+  /**
+   * Returns the 1-based number of the current row, not counting the header row.
+   */
+  public long getRowNumber() {
+    return rowNumber;
+  }
+
+  /**
+   * Returns the number of fields in the current row.
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Returns true if the field is empty.
+   */
+  public boolean isEmpty(int column) {
+    checkColumn(column);
+    return fieldEnds[column] == fieldStarts[column];
+  }
+
+  /**
+   * Returns the field as a {@code long}, such as an ID or a count.
+   *
+   * @throws NumberFormatException if the field is not an integer
+   */
+  public long getLong(int column) {
+    checkColumn(column);
+    int start = fieldStarts[column];
+    int end = fieldEnds[column];
+    int i = start;
+    boolean negative = i < end && row[i] == '-';
+    if (negative) {
+      i++;
+    }
+    if (i == end) {
+      throw numberFormatException(column);
+    }
+    // Accumulates negatively to parse Long.MIN_VALUE.
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = row[i] - '0';
+      if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+        throw numberFormatException(column);
+      }
+      value = value * 10 - digit;
+    }
+    if (!negative) {
+      if (value == Long.MIN_VALUE) {
+        throw numberFormatException(column);
+      }
+      value = -value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns a money field in micros of the network's currency. {@code CSV_DUMP} reports contain
+   * micros, which are returned as is. {@code TSV} reports contain decimal amounts, such as
+   * {@code 1,234.56}, which are converted to micros ignoring grouping separators and currency
+   * symbols; digits beyond micros are truncated.
+   *
+   * @throws NumberFormatException if the field is not a money value
+   */
+  public long getMicros(int column) {
+    if (moneyInMicros) {
+      return getLong(column);
+    }
+    checkColumn(column);
+    long units = 0;
+    long micros = 0;
+    int fractionDigits = -1;
+    boolean negative = false;
+    boolean hasDigits = false;
+    for (int i = fieldStarts[column]; i < fieldEnds[column]; i++) {
+      char c = row[i];
+      if (c >= '0' && c <= '9') {
+        hasDigits = true;
+        if (fractionDigits < 0) {
+          if (units > (Long.MAX_VALUE / MICROS_PER_UNIT - (c - '0')) / 10) {
+            throw numberFormatException(column);
+          }
+          units = units * 10 + (c - '0');
+        } else if (fractionDigits < MICROS_DIGITS) {
+          micros = micros * 10 + (c - '0');
+          fractionDigits++;
+        }
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else if (c == '-' && !hasDigits) {
+        negative = true;
+      } else if (Character.isDigit(c) || c == '.') {
+        throw numberFormatException(column);
+      }
+    }
+    if (!hasDigits) {
+      throw numberFormatException(column);
+    }
+    for (int i = Math.max(fractionDigits, 0); i < MICROS_DIGITS; i++) {
+      micros *= 10;
+    }
+    long value = units * MICROS_PER_UNIT + micros;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Returns the field as a {@code double}, such as a rate. Creates a {@code String}.
+   *
+   * @throws NumberFormatException if the field is not a number
+   */
+  public double getDouble(int column) {
+    return Double.parseDouble(getString(column));
+  }
+
+  /**
+   * Returns the field as a new {@code String}.
+   */
+  public String getString(int column) {
+    checkColumn(column);
+    return new String(row, fieldStarts[column], fieldEnds[column] - fieldStarts[column]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (xmlReader != null) {
+        xmlReader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not close XML report", e);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void checkColumn(int column) {
+    Preconditions.checkState(fieldCount > 0, "No current row");
+    Preconditions.checkElementIndex(column, fieldCount, "Column");
+  }
+
+  private NumberFormatException numberFormatException(int column) {
+    return new NumberFormatException(String.format("Invalid number '%s' in column %s of row %d",
+        getString(column), headers == null ? column : headers.get(column), rowNumber));
+  }
+
+  /**
+   * Reads the fields of the next line into {@code row}.
+   *
+   * @return false at the end of the report
+   */
+  private boolean readRow() throws IOException {
+    rowLength = 0;
+    fieldCount = 0;
+    int c = read();
+    if (c < 0) {
+      return false;
+    }
+    boolean quoted = false;
+    startField();
+    while (true) {
+      if (quoted) {
+        if (c < 0) {
+          throw new IOException("Unterminated quoted field in row " + (rowNumber + 1));
+        }
+        if (c == '"') {
+          c = read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+        }
+        append((char) c);
+      } else if (c < 0 || c == '\n') {
+        break;
+      } else if (c == '\r') {
+        c = read();
+        if (c >= 0 && c != '\n') {
+          unread();
+        }
+        break;
+      } else if (c == delimiter) {
+        endField();
+        startField();
+      } else if (c == '"' && rowLength == fieldStarts[fieldCount]) {
+        quoted = true;
+      } else {
+        append((char) c);
+      }
+      c = read();
+    }
+    endField();
+    return true;
+  }
+
+  /**
+   * Reads the fields of the next {@code Row} element into {@code row}.
+   *
+   * @return false at the end of the report
+   */
+  private boolean readXmlRow() throws IOException {
+    if (!nextXmlRowElement(null)) {
+      rowLength = 0;
+      fieldCount = 0;
+      return false;
+    }
+    readXmlRowFields(null);
+    return true;
+  }
+
+  /**
+   * Advances to the start of the next {@code Row} element.
+   *
+   * @param columnHeaders if not null, the {@code name} attributes of the {@code ColumnHeader}
+   *     elements before the row are added to it
+   * @return false at the end of the report
+   */
+  private boolean nextXmlRowElement(@Nullable List<String> columnHeaders) throws IOException {
+    try {
+      while (xmlReader.hasNext()) {
+        if (xmlReader.next() == XMLStreamConstants.START_ELEMENT) {
+          if (XML_ROW_ELEMENT.equals(xmlReader.getLocalName())) {
+            return true;
+          }
+          if (columnHeaders != null
+              && XML_COLUMN_HEADER_ELEMENT.equals(xmlReader.getLocalName())) {
+            String header = xmlReader.getAttributeValue(null, XML_NAME_ATTRIBUTE);
+            if (header == null) {
+              throw new IOException("Column header without name");
+            }
+            columnHeaders.add(header);
+          }
+        }
+      }
+      return false;
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not read XML report after row " + rowNumber, e);
+    }
+  }
+
+  /**
+   * Reads the fields of the {@code Row} element that was just started into {@code row}.
+   *
+   * @param headersInRow if not null, the report has no column headers, and the headers of the
+   *     row's fields are added to it. Otherwise, fields are placed at the index of their header,
+   *     and missing fields are empty.
+   */
+  private void readXmlRowFields(@Nullable List<String> headersInRow) throws IOException {
+    rowLength = 0;
+    fieldCount = 0;
+    if (headersInRow == null) {
+      while (fieldCount < headers.size()) {
+        startField();
+        endField();
+      }
+    }
+    try {
+      int depth = 0;
+      int column = -1;
+      while (true) {
+        switch (xmlReader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            if (depth++ == 0) {
+              column = startXmlField(headersInRow);
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+            if (depth > 0 && !xmlReader.isWhiteSpace()) {
+              char[] text = xmlReader.getTextCharacters();
+              int end = xmlReader.getTextStart() + xmlReader.getTextLength();
+              for (int i = xmlReader.getTextStart(); i < end; i++) {
+                append(text[i]);
+              }
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (depth == 0) {
+              return;
+            }
+            if (--depth == 0) {
+              fieldEnds[column] = rowLength;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not read row " + (rowNumber + 1) + " of XML report", e);
+    }
+  }
+
+  /**
+   * Starts the field of the current child element of a {@code Row}.
+   *
+   * @return the index of the field
+   */
+  private int startXmlField(@Nullable List<String> headersInRow) throws IOException {
+    String header = xmlReader.getAttributeValue(null, XML_NAME_ATTRIBUTE);
+    if (header == null) {
+      header = xmlReader.getLocalName();
+    }
+    if (headersInRow != null) {
+      headersInRow.add(header);
+      startField();
+      endField();
+      return fieldCount - 1;
+    }
+    Integer column = columnIndexes.get(header);
+    if (column == null) {
+      throw new IOException(
+          String.format("Unexpected column %s in row %d", header, rowNumber + 1));
+    }
+    fieldStarts[column] = rowLength;
+    return column;
+  }
+
+  private void startField() {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = rowLength;
+  }
+
+  private void endField() {
+    fieldEnds[fieldCount++] = rowLength;
+  }
+
+  private void append(char c) {
+    if (rowLength == row.length) {
+      row = Arrays.copyOf(row, rowLength * 2);
+    }
+    row[rowLength++] = c;
+  }
+
+  private int read() throws IOException {
+    if (readPosition == readLimit) {
+      int count = reader.read(readBuffer, 0, readBuffer.length);
+      if (count <= 0) {
+        return -1;
+      }
+      readPosition = 0;
+      readLimit = count;
+    }
+    return readBuffer[readPosition++];
+  }
+
+  /**
+   * Unreads the character returned by the last {@link #read()}.
+   */
+  private void unread() {
+    readPosition--;
+  }
+}
@@ -0,0 +1,282 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
+
+/**
+ * Performs an action, such as {@code performLineItemAction}, on many entities by capturing their
+ * IDs first and then performing the action on chunks of IDs concurrently.
+ *
+ * <p>Performing an action on a filter one offset page at a time is fragile, because the action can
+ * change which entities match the filter and therefore shift the later pages. Instead,
+ * {@link #collectIds(IdPageFetcher, int)} pages through the IDs with {@code id > lastId}
+ * conditions, and {@link #performAction(List)} performs the action with
+ * {@code WHERE id IN (...)} statements, at most {@code maxParallelism} at once.
+ *
+ * <p>Example usage with the v201702 Axis classes:
+ * <pre>
+ * List&lt;Long&gt; lineItemIds = StatementActionExecutor.collectIds(new IdPageFetcher() {
+ *   public List&lt;Long&gt; getIds(long afterId, int limit) throws Exception {
+ *     ResultSet resultSet = pqlService.select(new StatementBuilder()
+ *         .select("Id").from("Line_Item")
+ *         .where("Status = 'PAUSED' AND Id &gt; :afterId").orderBy("Id ASC").limit(limit)
+ *         .withBindVariableValue("afterId", afterId).toStatement());
+ *     ...
+ *   }
+ * }, StatementBuilder.SUGGESTED_PAGE_LIMIT);
+ * ActionResult result = new StatementActionExecutor(new ActionFunction() {
+ *   public int performAction(String whereClause) throws Exception {
+ *     return lineItemService.performLineItemAction(new ArchiveLineItems(),
+ *         new StatementBuilder().where(whereClause).toStatement()).getNumChanges();
+ *   }
+ * }, 500, 8, executorService).performAction(lineItemIds);
+ * </pre>
+ */
+public class StatementActionExecutor {
+
+  private final ActionFunction actionFunction;
+  private final int chunkSize;
+  private final int maxParallelism;
+  private final ExecutorService executorService;
+
+  /**
+   * Constructor.
+   *
+   * @param actionFunction the function that performs the action on the entities matched by a
+   *     where clause
+   * @param chunkSize the maximum number of IDs per where clause
+   * @param maxParallelism the maximum number of actions in flight at once
+   * @param executorService the executor to perform actions on. This action executor does not
+   *     shut it down.
+   */
+  public StatementActionExecutor(ActionFunction actionFunction, int chunkSize,
+      int maxParallelism, ExecutorService executorService) {
+    Preconditions.checkArgument(chunkSize > 0, "Chunk size must be > 0");
+    Preconditions.checkArgument(maxParallelism > 0, "Max parallelism must be > 0");
+    this.actionFunction = Preconditions.checkNotNull(actionFunction, "Null action function");
+    this.chunkSize = chunkSize;
+    this.maxParallelism = maxParallelism;
+    this.executorService = Preconditions.checkNotNull(executorService, "Null executor service");
+  }
+
+  /**
+   * Retrieves all IDs from {@code idPageFetcher}, one page of at most {@code pageSize} IDs at a
+   * time, each page starting after the last ID of the previous page.
+   *
+   * @return the IDs in ascending order
+   * @throws ServiceException if retrieving a page failed
+   * @throws IllegalStateException if a page was not in ascending order
+   */
+  public static List<Long> collectIds(IdPageFetcher idPageFetcher, int pageSize) {
+    Preconditions.checkNotNull(idPageFetcher, "Null ID page fetcher");
+    Preconditions.checkArgument(pageSize > 0, "Page size must be > 0");
+    List<Long> ids = Lists.newArrayList();
+    long afterId = 0L;
+    while (true) {
+      List<Long> page;
+      try {
+        page = idPageFetcher.getIds(afterId, pageSize);
+      } catch (Exception e) {
+        throw new ServiceException("Failed to retrieve IDs after " + afterId, e);
+      }
+      for (long id : page) {
+        Preconditions.checkState(id > afterId, "ID %s is not greater than %s", id, afterId);
+        ids.add(id);
+        afterId = id;
+      }
+      if (page.size() < pageSize) {
+        return ids;
+      }
+    }
+  }
+
+  /**
+   * Performs the action on the entities with the given IDs, in chunks, and waits for every chunk
+   * to finish. A failed chunk does not stop the other chunks.
+   *
+   * @param ids the IDs of the entities
+   * @return the number of changes and the failure of each chunk
+   * @throws InterruptedException if the calling thread was interrupted. Chunks still in flight
+   *     are cancelled.
+   */
+  public ActionResult performAction(List<Long> ids) throws InterruptedException {
+    Preconditions.checkNotNull(ids, "Null IDs");
+    final List<List<Long>> chunks = Lists.partition(ImmutableList.copyOf(ids), chunkSize);
+    final ChunkResult[] chunkResults = new ChunkResult[chunks.size()];
+
+    List<Callable<Integer>> actions = Lists.transform(chunks,
+        new Function<List<Long>, Callable<Integer>>() {
+          @Override
+          public Callable<Integer> apply(List<Long> chunk) {
+            final String whereClause = createWhereClause(chunk);
+            return new Callable<Integer>() {
+              @Override
+              public Integer call() throws Exception {
+                return actionFunction.performAction(whereClause);
+              }
+            };
+          }
+        });
+    ParallelTasks.runAll(actions, maxParallelism, executorService,
+        new ParallelTasks.TaskCallback<Integer>() {
+          @Override
+          public void onSuccess(int chunkIndex, Integer numChanges) {
+            chunkResults[chunkIndex] = new ChunkResult(chunks.get(chunkIndex), numChanges, null);
+          }
+
+          @Override
+          public void onFailure(int chunkIndex, Exception failure) {
+            chunkResults[chunkIndex] = new ChunkResult(chunks.get(chunkIndex), 0, failure);
+          }
+        });
+    return new ActionResult(ImmutableList.copyOf(chunkResults));
+  }
+
+  /**
+   * Returns the where clause that matches the entities with the given IDs.
+   */
+  @VisibleForTesting
+  static String createWhereClause(List<Long> ids) {
+    return "id IN (" + Joiner.on(", ").join(ids) + ")";
+  }
+
+  /**
+   * Retrieves the IDs of the entities to perform the action on, such as with a PQL
+   * {@code SELECT Id} query.
+   */
+  public interface IdPageFetcher {
+
+    /**
+     * Returns at most {@code limit} IDs greater than {@code afterId}, in ascending order.
+     *
+     * @throws Exception if the request failed
+     */
+    List<Long> getIds(long afterId, int limit) throws Exception;
+  }
+
+  /**
+   * Performs the action, such as by calling {@code LineItemService.performLineItemAction} with a
+   * statement built from the where clause.
+   */
+  public interface ActionFunction {
+
+    /**
+     * Performs the action on the entities matched by {@code whereClause}. Called concurrently on
+     * the executor.
+     *
+     * @param whereClause a where clause such as {@code id IN (1, 2, 3)}
+     * @return the {@code numChanges} of the {@code UpdateResult}
+     * @throws Exception if the request failed
+     */
+    int performAction(String whereClause) throws Exception;
+  }
+
+  /**
+   * The outcome of the action on one chunk of IDs.
+   */
+  public static final class ChunkResult {
+    private final ImmutableList<Long> ids;
+    private final int numChanges;
+    private final Exception failure;
+
+    private ChunkResult(List<Long> ids, int numChanges, @Nullable Exception failure) {
+      this.ids = ImmutableList.copyOf(ids);
+      this.numChanges = numChanges;
+      this.failure = failure;
+    }
+
+    /**
+     * Returns the IDs of the chunk.
+     */
+    public ImmutableList<Long> getIds() {
+      return ids;
+    }
+
+    /**
+     * Returns the number of changes reported for the chunk, or 0 if the chunk failed.
+     */
+    public int getNumChanges() {
+      return numChanges;
+    }
+
+    /**
+     * Returns the exception of the chunk, or null if the chunk succeeded.
+     */
+    @Nullable
+    public Exception getFailure() {
+      return failure;
+    }
+  }
+
+  /**
+   * The outcome of {@link StatementActionExecutor#performAction(List)}.
+   */
+  public static final class ActionResult {
+    private final ImmutableList<ChunkResult> chunkResults;
+
+    private ActionResult(ImmutableList<ChunkResult> chunkResults) {
+      this.chunkResults = chunkResults;
+    }
+
+    /**
+     * Returns the result of each chunk, in the order of the IDs.
+     */
+    public ImmutableList<ChunkResult> getChunkResults() {
+      return chunkResults;
+    }
+
+    /**
+     * Returns the total number of changes of the successful chunks.
+     */
+    public int getNumChanges() {
+      int numChanges = 0;
+      for (ChunkResult chunkResult : chunkResults) {
+        numChanges += chunkResult.getNumChanges();
+      }
+      return numChanges;
+    }
+
+    /**
+     * Returns the chunks that failed.
+     */
+    public List<ChunkResult> getFailedChunks() {
+      List<ChunkResult> failedChunks = Lists.newArrayList();
+      for (ChunkResult chunkResult : chunkResults) {
+        if (chunkResult.getFailure() != null) {
+          failedChunks.add(chunkResult);
+        }
+      }
+      return failedChunks;
+    }
+
+    /**
+     * Returns true if the action succeeded on every chunk.
+     */
+    public boolean isSuccessful() {
+      return getFailedChunks().isEmpty();
+    }
+  }
+}
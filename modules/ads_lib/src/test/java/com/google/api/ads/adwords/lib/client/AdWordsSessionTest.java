@@ -387,6 +387,44 @@ public class AdWordsSessionTest {
     assertSame(adWordsSession.getReportingConfiguration(), copy.getReportingConfiguration());
   }
 
+  /**
+   * Tests that {@link AdWordsSession#forClientCustomerId(String)} copies all other values and
+   * isn't affected by later changes to the original session.
+   */
+  @Test
+  public void testForClientCustomerId() throws Exception {
+    AdWordsSession adWordsSession = build(allSettingsBuilder);
+    if (!isImmutable) {
+      // The builder has no Express settings, and an immutable session rejects all setters.
+      adWordsSession.setExpressBusinessId(123L);
+    }
+
+    ImmutableAdWordsSession copy = adWordsSession.forClientCustomerId("other customer id");
+
+    assertNotSame(adWordsSession, copy);
+    assertEquals("other customer id", copy.getClientCustomerId());
+    assertEquals("customer id", adWordsSession.getClientCustomerId());
+    assertEquals(adWordsSession.getExpressBusinessId(), copy.getExpressBusinessId());
+    assertEquals(adWordsSession.getExpressPlusPageId(), copy.getExpressPlusPageId());
+    assertEquals(adWordsSession.getDeveloperToken(), copy.getDeveloperToken());
+    assertEquals(adWordsSession.getEndpoint(), copy.getEndpoint());
+    assertEquals(adWordsSession.getUserAgent(), copy.getUserAgent());
+    assertEquals(adWordsSession.isPartialFailure(), copy.isPartialFailure());
+    assertEquals(adWordsSession.isValidateOnly(), copy.isValidateOnly());
+    assertSame(adWordsSession.getOAuth2Credential(), copy.getOAuth2Credential());
+    assertSame(adWordsSession.getReportingConfiguration(), copy.getReportingConfiguration());
+
+    if (!isImmutable) {
+      adWordsSession.setClientCustomerId("changed customer id");
+      adWordsSession.setValidateOnly(false);
+      assertEquals("other customer id", copy.getClientCustomerId());
+      assertTrue(copy.isValidateOnly());
+    }
+
+    thrown.expect(UnsupportedOperationException.class);
+    copy.setClientCustomerId("changed customer id");
+  }
+
   /** Tests that copy constructor on {@link ImmutableAdWordsSession} copies all values correctly. */
   @Test
   public void testImmutable_setters_fail() throws Exception {
@@ -32,9 +32,13 @@ import com.google.api.client.testing.http.MockHttpTransport;
 import com.google.api.client.testing.http.MockLowLevelHttpRequest;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Rule;
@@ -69,7 +73,8 @@ public class BatchJobUploaderTest {
     MockitoAnnotations.initMocks(this);
     mockHttpServer = new MockHttpServer();
     uploader =
-        new BatchJobUploader(adWordsSession, mockHttpServer.getHttpTransport(), batchJobLogger);
+        new BatchJobUploader(
+            adWordsSession, mockHttpServer.getHttpTransport(), batchJobLogger);
     when(request.createBatchJobUploadBodyProvider()).thenReturn(uploadBodyProvider);
   }
 
@@ -260,6 +265,80 @@ public class BatchJobUploaderTest {
         actualStatus.getResumableUploadUri());
   }
   
+  /**
+   * Tests that compressed incremental uploads decompress to the trimmed request followed by
+   * padding, and that the compressed length is padded to the required increment.
+   */
+  @Test
+  public void testUploadIncrementalBatchJobOperations_compressed_notFirst_notLast()
+      throws Exception {
+    uploader = new BatchJobUploader(
+        adWordsSession, mockHttpServer.getHttpTransport(), batchJobLogger, true);
+    BatchJobUploadStatus status =
+        new BatchJobUploadStatus(10, URI.create(mockHttpServer.getServerUrl()));
+    String uploadRequestBody = "<mutate>testUpload</mutate>";
+    when(uploadBodyProvider.getHttpContent(request, false, false))
+        .thenReturn(new ByteArrayContent(null, uploadRequestBody.getBytes(UTF_8)));
+    mockHttpServer.setMockResponse(new MockResponse("testUploadResponse"));
+
+    BatchJobUploadResponse response =
+        uploader.uploadIncrementalBatchJobOperations(request, false, status);
+
+    // The mock server decompresses the request body.
+    String actualRequest = mockHttpServer.getLastResponse().getRequestBody();
+    assertEquals("Request body is incorrect", "testUpload", actualRequest.trim());
+    assertEquals(
+        "gzip", mockHttpServer.getLastResponse().getRequestHeader("content-encoding").get(0));
+    long uploadedLength = response.getBatchJobUploadStatus().getTotalContentLength() - 10;
+    assertEquals("Compressed length is not a multiple of the required increment",
+        0, uploadedLength % BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT);
+  }
+
+  @Test
+  public void testUploadIncrementalBatchJobOperations_compressed_firstAndLast() throws Exception {
+    uploader = new BatchJobUploader(
+        adWordsSession, mockHttpServer.getHttpTransport(), batchJobLogger, true);
+    BatchJobUploadStatus status =
+        new BatchJobUploadStatus(0, URI.create(mockHttpServer.getServerUrl()));
+    String uploadRequestBody = Strings.repeat("<mutate>testUpload</mutate>", 1000);
+    when(uploadBodyProvider.getHttpContent(request, true, true))
+        .thenReturn(new ByteArrayContent(null, uploadRequestBody.getBytes(UTF_8)));
+    mockHttpServer.setMockResponses(
+        Lists.newArrayList(new MockResponse("ignore"), new MockResponse("testUploadResponse")));
+
+    BatchJobUploadResponse response =
+        uploader.uploadIncrementalBatchJobOperations(request, true, status);
+
+    assertEquals("Request body is incorrect",
+        uploadRequestBody, mockHttpServer.getLastResponse().getRequestBody());
+    assertEquals("Initiation request should declare the encoding of the object", "gzip",
+        mockHttpServer.getAllResponses().get(0).getRequestHeader("content-encoding").get(0));
+    assertTrue("Upload should be smaller than the uncompressed request",
+        response.getBatchJobUploadStatus().getTotalContentLength()
+            < uploadRequestBody.getBytes(UTF_8).length);
+  }
+
+  /**
+   * Tests that the padding member has exactly the requested length when possible, and that it
+   * decompresses to spaces.
+   */
+  @Test
+  public void testWriteGzipPadding() throws Exception {
+    for (int paddingLength : new int[] {1, 22, 23, 1000, 65558, 65559, 262143}) {
+      ByteArrayOutputStream padding = new ByteArrayOutputStream();
+      BatchJobUploader.writeGzipPadding(padding, paddingLength);
+      int expectedLength = paddingLength < 23
+          ? paddingLength + BatchJobUploader.REQUIRED_CONTENT_LENGTH_INCREMENT : paddingLength;
+      assertEquals("Wrong padding length", expectedLength, padding.size());
+
+      String decompressed = new String(
+          ByteStreams.toByteArray(
+              new GZIPInputStream(new ByteArrayInputStream(padding.toByteArray()))),
+          UTF_8);
+      assertEquals("Padding should decompress to spaces", "", decompressed.trim());
+    }
+  }
+
   @Test
   public void testConstructContentRangeHeaderValue_notLast_nonZeroLength_zeroPrevious() {
     BatchJobUploadStatus status = new BatchJobUploadStatus(0, null);
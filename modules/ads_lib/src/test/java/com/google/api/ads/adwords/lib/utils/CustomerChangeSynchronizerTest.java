@@ -0,0 +1,189 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.ChangeSource;
+import com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.ChangedEntityFetcher;
+import com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.InMemorySyncTimestampStore;
+import com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.SyncResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link CustomerChangeSynchronizer}.
+ */
+@RunWith(JUnit4.class)
+public class CustomerChangeSynchronizerTest {
+
+  private static final String INITIAL_TIMESTAMP = "20170101 000000 UTC";
+  private static final String LAST_CHANGE_TIMESTAMP = "20170301 120000 UTC";
+  private static final int MAX_IDS_PER_GET = 2;
+  private static final int MAX_PARALLELISM = 3;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private ExecutorService executorService;
+  private FakeCustomerSyncService service;
+  private InMemorySyncTimestampStore syncTimestampStore;
+  private CustomerChangeSynchronizer synchronizer;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(MAX_PARALLELISM * 2);
+    service = new FakeCustomerSyncService();
+    syncTimestampStore = new InMemorySyncTimestampStore(INITIAL_TIMESTAMP);
+    synchronizer = new CustomerChangeSynchronizer(
+        service, service, syncTimestampStore, MAX_IDS_PER_GET, MAX_PARALLELISM, executorService);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that only new and changed entities are retrieved, in batches, and that the next sync
+   * starts from the last change timestamp.
+   */
+  @Test
+  public void testSyncCustomer() throws Exception {
+    CustomerChanges changes = synchronizer.syncCustomer("123");
+
+    assertEquals(ImmutableList.of(1L, 2L, 3L), changes.getChangedCampaignIds());
+    assertEquals(ImmutableList.of(10L), changes.getChangedAdGroupIds());
+    assertEquals(Collections.<Long>emptyList(), changes.getChangedFeedIds());
+    assertEquals(
+        ImmutableList.of("123 campaigns [1, 2]", "123 campaigns [3]", "123 adGroups [10]"),
+        service.fetches);
+    assertEquals(ImmutableList.of("123 " + INITIAL_TIMESTAMP), service.changeRequests);
+    assertEquals(LAST_CHANGE_TIMESTAMP, syncTimestampStore.getLastSyncTimestamp("123"));
+
+    synchronizer.syncCustomer("123");
+    assertEquals("123 " + LAST_CHANGE_TIMESTAMP, service.changeRequests.get(1));
+  }
+
+  /**
+   * Tests that a failed sync does not advance the account's sync timestamp.
+   */
+  @Test
+  public void testSyncCustomer_fetchFailed() throws Exception {
+    service.failingCustomerId = "123";
+    thrown.expect(IllegalStateException.class);
+    try {
+      synchronizer.syncCustomer("123");
+    } finally {
+      assertEquals(INITIAL_TIMESTAMP, syncTimestampStore.getLastSyncTimestamp("123"));
+    }
+  }
+
+  /**
+   * Tests that accounts are synced concurrently up to the maximum parallelism and that a failed
+   * account doesn't affect the others.
+   */
+  @Test
+  public void testSyncCustomers() {
+    service.failingCustomerId = "5";
+    service.fetchDelayMillis = 20L;
+    List<String> clientCustomerIds = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      clientCustomerIds.add(String.valueOf(i));
+    }
+
+    SyncResult result = synchronizer.syncCustomers(clientCustomerIds);
+
+    assertEquals(9, result.getChanges().size());
+    assertEquals(1, result.getFailures().size());
+    assertTrue(result.getFailures().get("5") instanceof IllegalStateException);
+    assertEquals(LAST_CHANGE_TIMESTAMP, syncTimestampStore.getLastSyncTimestamp("4"));
+    assertEquals(INITIAL_TIMESTAMP, syncTimestampStore.getLastSyncTimestamp("5"));
+    assertTrue("Accounts should be synced concurrently", service.maxConcurrentSyncs.get() > 1);
+    assertTrue("No more than the max parallelism should be in flight",
+        service.maxConcurrentSyncs.get() <= MAX_PARALLELISM);
+  }
+
+  /**
+   * Reports the same changes for every account and records the requests it receives.
+   */
+  private static class FakeCustomerSyncService implements ChangeSource, ChangedEntityFetcher {
+    final List<String> changeRequests = Collections.synchronizedList(Lists.<String>newArrayList());
+    final List<String> fetches = Collections.synchronizedList(Lists.<String>newArrayList());
+    final AtomicInteger concurrentSyncs = new AtomicInteger();
+    final AtomicInteger maxConcurrentSyncs = new AtomicInteger();
+    volatile String failingCustomerId;
+    volatile long fetchDelayMillis;
+
+    @Override
+    public CustomerChanges getChanges(String clientCustomerId, String minDateTime) {
+      changeRequests.add(clientCustomerId + " " + minDateTime);
+      return CustomerChanges.builder()
+          .addCampaign(1L, "FIELDS_CHANGED")
+          .addCampaign(2L, "NEW")
+          .addCampaign(4L, "FIELDS_UNCHANGED")
+          .addCampaign(3L, "FIELDS_CHANGED")
+          .addCampaign(1L, "FIELDS_CHANGED")
+          .addAdGroup(10L, "NEW")
+          .addAdGroup(11L, "FIELDS_UNCHANGED")
+          .addFeed(20L, null)
+          .withLastChangeTimestamp(LAST_CHANGE_TIMESTAMP)
+          .build();
+    }
+
+    @Override
+    public void fetchCampaigns(String clientCustomerId, List<Long> campaignIds)
+        throws InterruptedException {
+      int concurrent = concurrentSyncs.incrementAndGet();
+      try {
+        synchronized (maxConcurrentSyncs) {
+          maxConcurrentSyncs.set(Math.max(maxConcurrentSyncs.get(), concurrent));
+        }
+        Thread.sleep(fetchDelayMillis);
+        fetches.add(clientCustomerId + " campaigns " + campaignIds);
+      } finally {
+        concurrentSyncs.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void fetchAdGroups(String clientCustomerId, List<Long> adGroupIds) {
+      if (clientCustomerId.equals(failingCustomerId)) {
+        throw new IllegalStateException("Fetch failed");
+      }
+      fetches.add(clientCustomerId + " adGroups " + adGroupIds);
+    }
+
+    @Override
+    public void fetchFeeds(String clientCustomerId, List<Long> feedIds) {
+      fetches.add(clientCustomerId + " feeds " + feedIds);
+    }
+  }
+}
@@ -0,0 +1,259 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.adwords.lib.utils.ManagedCustomerHierarchyWalker.CustomerCallback;
+import com.google.api.ads.adwords.lib.utils.ManagedCustomerHierarchyWalker.ManagedCustomerPageFetcher;
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link ManagedCustomerHierarchyWalker}.
+ */
+@RunWith(JUnit4.class)
+public class ManagedCustomerHierarchyWalkerTest {
+
+  private static final int PAGE_SIZE = 10;
+  private static final int MAX_PARALLELISM = 3;
+
+  /** The root manager. Customers 2 to 11 are sub-managers, and each manages ten clients. */
+  private static final long ROOT_ID = 1L;
+  private static final int CUSTOMER_COUNT = 111;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  /** A selector builder whose selectors are simply the requested offset. */
+  @Mock
+  private SelectorBuilderInterface<Integer> selectorBuilder;
+
+  private final AtomicInteger builderOffset = new AtomicInteger();
+  private ExecutorService executorService;
+  private FakeManagedCustomerService service;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(selectorBuilder.offset(anyInt())).thenAnswer(
+        new Answer<SelectorBuilderInterface<Integer>>() {
+          @Override
+          public SelectorBuilderInterface<Integer> answer(InvocationOnMock invocation) {
+            builderOffset.set((Integer) invocation.getArguments()[0]);
+            return selectorBuilder;
+          }
+        });
+    when(selectorBuilder.limit(anyInt())).thenReturn(selectorBuilder);
+    when(selectorBuilder.build()).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) {
+        return builderOffset.get();
+      }
+    });
+    executorService = Executors.newFixedThreadPool(MAX_PARALLELISM * 2);
+    service = new FakeManagedCustomerService();
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that every account is passed to the callback once and that the index reflects the
+   * hierarchy.
+   */
+  @Test
+  public void testWalk_allCustomersAndLinks() {
+    final List<Long> discovered = Lists.newArrayList();
+    CustomerHierarchyIndex index = createWalker().walk(new CustomerCallback<Long>() {
+      @Override
+      public void onCustomer(Long customer) {
+        discovered.add(customer);
+      }
+    });
+
+    Collections.sort(discovered);
+    assertEquals(CUSTOMER_COUNT, discovered.size());
+    assertEquals(Long.valueOf(ROOT_ID), discovered.get(0));
+    assertEquals(CUSTOMER_COUNT, index.getCustomerCount());
+    assertEquals(CUSTOMER_COUNT - 1, index.getLinkCount());
+    assertArrayEquals(new long[] {ROOT_ID}, index.getRootIds());
+    assertArrayEquals(new long[] {2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L},
+        index.getChildIds(ROOT_ID));
+    assertEquals(10, index.getChildIds(2L).length);
+    assertArrayEquals(new long[] {2L}, index.getParentIds(index.getChildIds(2L)[0]));
+    assertEquals(0, index.getChildIds(111L).length);
+    assertTrue(index.contains(111L));
+    assertFalse(index.contains(112L));
+  }
+
+  /**
+   * Tests that each page is requested once and that no more than the maximum number of pages
+   * are in flight at once.
+   */
+  @Test
+  public void testWalk_boundedParallelism() {
+    createWalker().walk(new CustomerCallback<Long>() {
+      @Override
+      public void onCustomer(Long customer) {}
+    });
+
+    assertEquals("Each page should be requested exactly once",
+        (CUSTOMER_COUNT + PAGE_SIZE - 1) / PAGE_SIZE, service.requestCount.get());
+    assertTrue("Pages should be requested concurrently", service.maxConcurrentRequests.get() > 1);
+    assertTrue("No more than the max parallelism should be in flight",
+        service.maxConcurrentRequests.get() <= MAX_PARALLELISM);
+  }
+
+  /**
+   * Tests that a failed page fails the walk.
+   */
+  @Test
+  public void testWalk_failedPage() {
+    service.failingOffset = 50;
+    thrown.expect(ServiceException.class);
+    thrown.expectCause(Matchers.<Throwable>instanceOf(IllegalStateException.class));
+    createWalker().walk(new CustomerCallback<Long>() {
+      @Override
+      public void onCustomer(Long customer) {}
+    });
+  }
+
+  /**
+   * Tests that duplicate customers and links are only indexed once.
+   */
+  @Test
+  public void testIndex_duplicates() {
+    CustomerHierarchyIndex index = CustomerHierarchyIndex.builder()
+        .addLink(1L, 2L)
+        .addLink(1L, 2L)
+        .addLink(3L, 2L)
+        .addCustomer(2L)
+        .build();
+    assertEquals(3, index.getCustomerCount());
+    assertEquals(2, index.getLinkCount());
+    assertArrayEquals(new long[] {1L, 3L}, index.getParentIds(2L));
+    assertArrayEquals(new long[] {1L, 3L}, index.getRootIds());
+  }
+
+  private ManagedCustomerHierarchyWalker<Integer, FakePage, Long, long[]> createWalker() {
+    return new ManagedCustomerHierarchyWalker<Integer, FakePage, Long, long[]>(
+        selectorBuilder, PAGE_SIZE, MAX_PARALLELISM, executorService, service);
+  }
+
+  /**
+   * A page of customers, which are represented by their IDs, and their links to their managers,
+   * which are represented by {manager ID, client ID} pairs.
+   */
+  private static class FakePage {
+    final List<Long> customers = Lists.newArrayList();
+    final List<long[]> links = Lists.newArrayList();
+  }
+
+  /**
+   * A service for the hierarchy described by {@link #ROOT_ID}, which records how many requests
+   * are in flight.
+   */
+  private static class FakeManagedCustomerService
+      implements ManagedCustomerPageFetcher<Integer, FakePage, Long, long[]> {
+    final AtomicInteger requestCount = new AtomicInteger();
+    final AtomicInteger concurrentRequests = new AtomicInteger();
+    final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    volatile int failingOffset = -1;
+
+    @Override
+    public FakePage getPage(Integer offset) throws Exception {
+      requestCount.incrementAndGet();
+      int concurrent = concurrentRequests.incrementAndGet();
+      try {
+        synchronized (maxConcurrentRequests) {
+          maxConcurrentRequests.set(Math.max(maxConcurrentRequests.get(), concurrent));
+        }
+        // Simulate latency so that requests overlap.
+        Thread.sleep(20L);
+        if (offset == failingOffset) {
+          throw new IllegalStateException("Page failed");
+        }
+        FakePage page = new FakePage();
+        for (long id = offset + 1; id <= Math.min(offset + PAGE_SIZE, CUSTOMER_COUNT); id++) {
+          page.customers.add(id);
+          if (id != ROOT_ID) {
+            long managerId = id <= 11 ? ROOT_ID : 2 + (id - 12) / 10;
+            page.links.add(new long[] {managerId, id});
+          }
+        }
+        return page;
+      } finally {
+        concurrentRequests.decrementAndGet();
+      }
+    }
+
+    @Override
+    public int getTotalNumEntries(FakePage page) {
+      return CUSTOMER_COUNT;
+    }
+
+    @Override
+    public List<Long> getCustomers(FakePage page) {
+      return page.customers;
+    }
+
+    @Override
+    public List<long[]> getLinks(FakePage page) {
+      return page.links;
+    }
+
+    @Override
+    public long getCustomerId(Long customer) {
+      return customer;
+    }
+
+    @Override
+    public long getManagerCustomerId(long[] link) {
+      return link[0];
+    }
+
+    @Override
+    public long getClientCustomerId(long[] link) {
+      return link[1];
+    }
+  }
+}
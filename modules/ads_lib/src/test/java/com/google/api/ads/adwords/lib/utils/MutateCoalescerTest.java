@@ -0,0 +1,255 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.ads.adwords.lib.utils.MutateCoalescer.MutateHandler;
+import com.google.api.ads.adwords.lib.utils.MutateCoalescer.MutateResponse;
+import com.google.api.ads.adwords.lib.utils.MutateCoalescer.OperationFailedException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link MutateCoalescer}.
+ */
+@RunWith(JUnit4.class)
+public class MutateCoalescerTest {
+
+  private static final int MAX_OPERATIONS = 3;
+  private static final long LINGER_MILLIS = 50L;
+
+  @Mock private ScheduledExecutorService scheduler;
+
+  private FakeMutateHandler mutateHandler;
+  private MutateCoalescer<String, String, String, FakeError> coalescer;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    // Runs dispatched batches on the calling thread.
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((Runnable) invocation.getArguments()[0]).run();
+        return null;
+      }
+    }).when(scheduler).execute(any(Runnable.class));
+    mutateHandler = new FakeMutateHandler();
+    coalescer = new MutateCoalescer<String, String, String, FakeError>(
+        mutateHandler, MAX_OPERATIONS, LINGER_MILLIS, scheduler);
+  }
+
+  /**
+   * Tests that operations for the same key are sent in one call once the batch is full, and that
+   * operations for other keys are buffered separately.
+   */
+  @Test
+  public void testFullBatchSentInOneCall() throws Exception {
+    ListenableFuture<String> op1 = coalescer.submit("customer1", "a");
+    ListenableFuture<String> other = coalescer.submit("customer2", "x");
+    ListenableFuture<String> op2 = coalescer.submit("customer1", "b");
+    assertTrue("No call should be made before a batch is full", mutateHandler.calls.isEmpty());
+
+    ListenableFuture<String> op3 = coalescer.submit("customer1", "c");
+    assertEquals(1, mutateHandler.calls.size());
+    assertEquals(ImmutableList.of("a", "b", "c"), mutateHandler.calls.get(0));
+    assertEquals("a-done", op1.get());
+    assertEquals("b-done", op2.get());
+    assertEquals("c-done", op3.get());
+    assertFalse(other.isDone());
+    assertEquals(1, coalescer.getPendingOperationCount());
+  }
+
+  /**
+   * Tests that a batch that does not fill up is sent by its linger task.
+   */
+  @Test
+  public void testLingerSendsPartialBatch() throws Exception {
+    ListenableFuture<String> op1 = coalescer.submit("customer1", "a");
+    ListenableFuture<String> op2 = coalescer.submit("customer1", "b");
+
+    ArgumentCaptor<Runnable> lingerTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler, times(1)).schedule(
+        lingerTask.capture(), eq(LINGER_MILLIS), eq(TimeUnit.MILLISECONDS));
+    lingerTask.getValue().run();
+
+    assertEquals(ImmutableList.of(ImmutableList.of("a", "b")), mutateHandler.calls);
+    assertEquals("a-done", op1.get());
+    assertEquals("b-done", op2.get());
+    assertEquals(0, coalescer.getPendingOperationCount());
+  }
+
+  /**
+   * Tests that the linger task of a batch that was already sent does not send anything.
+   */
+  @Test
+  public void testLingerAfterFullBatch_noCall() throws Exception {
+    coalescer.submit("customer1", "a");
+    coalescer.submit("customer1", "b");
+    coalescer.submit("customer1", "c");
+
+    ArgumentCaptor<Runnable> lingerTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler, times(1)).schedule(lingerTask.capture(), anyLong(), any(TimeUnit.class));
+    lingerTask.getValue().run();
+    assertEquals(1, mutateHandler.calls.size());
+  }
+
+  /**
+   * Tests that partial failure errors fail only the operations their field paths refer to.
+   */
+  @Test
+  public void testPartialFailureErrorsSplitByOperation() throws Exception {
+    mutateHandler.failures.add(new FakeError("operations[1].operand.bid"));
+    ListenableFuture<String> op1 = coalescer.submit("customer1", "a");
+    ListenableFuture<String> op2 = coalescer.submit("customer1", "b");
+    ListenableFuture<String> op3 = coalescer.submit("customer1", "c");
+
+    assertEquals("a-done", op1.get());
+    assertEquals("c-done", op3.get());
+    try {
+      op2.get();
+      fail("Expected the failed operation's future to fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof OperationFailedException);
+      OperationFailedException cause = (OperationFailedException) e.getCause();
+      assertEquals(1, cause.getOperationIndex());
+      assertEquals(1, cause.getApiErrors().size());
+      assertSame(mutateHandler.failures.get(0), cause.getApiErrors().get(0));
+    }
+  }
+
+  /**
+   * Tests that an exception from the whole call fails every operation in the batch.
+   */
+  @Test
+  public void testCallFailure_failsAllOperations() throws Exception {
+    mutateHandler.exception = new Exception("Call failed");
+    List<ListenableFuture<String>> futures = Lists.newArrayList();
+    for (String operation : ImmutableList.of("a", "b", "c")) {
+      futures.add(coalescer.submit("customer1", operation));
+    }
+    for (ListenableFuture<String> future : futures) {
+      try {
+        future.get();
+        fail("Expected the future to fail");
+      } catch (ExecutionException e) {
+        assertSame(mutateHandler.exception, e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Tests that close sends buffered operations and rejects new ones.
+   */
+  @Test
+  public void testClose_flushesAndRejects() throws Exception {
+    ListenableFuture<String> op1 = coalescer.submit("customer1", "a");
+    ListenableFuture<String> op2 = coalescer.submit("customer2", "b");
+    coalescer.close();
+
+    assertEquals(2, mutateHandler.calls.size());
+    assertEquals("a-done", op1.get());
+    assertEquals("b-done", op2.get());
+    try {
+      coalescer.submit("customer1", "c");
+      fail("Expected submit after close to fail");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Tests parsing the operation index from error field paths.
+   */
+  @Test
+  public void testGetOperationIndex() {
+    assertEquals(0, MutateCoalescer.getOperationIndex("operations[0]"));
+    assertEquals(12, MutateCoalescer.getOperationIndex("operations[12].operand.bid"));
+    assertEquals(-1, MutateCoalescer.getOperationIndex(null));
+    assertEquals(-1, MutateCoalescer.getOperationIndex(""));
+    assertEquals(-1, MutateCoalescer.getOperationIndex("operand.bid"));
+    assertEquals(-1, MutateCoalescer.getOperationIndex("operations[x]"));
+    assertEquals(-1, MutateCoalescer.getOperationIndex("operations[3"));
+  }
+
+  /**
+   * A partial failure error with a field path.
+   */
+  private static class FakeError {
+    final String fieldPath;
+
+    FakeError(String fieldPath) {
+      this.fieldPath = fieldPath;
+    }
+  }
+
+  /**
+   * Returns {@code <operation>-done} for each operation, or null for operations that
+   * {@link #failures} refer to.
+   */
+  private static class FakeMutateHandler
+      implements MutateHandler<String, String, String, FakeError> {
+    final List<List<String>> calls = Lists.newArrayList();
+    final List<FakeError> failures = Lists.newArrayList();
+    Exception exception;
+
+    @Override
+    public MutateResponse<String, FakeError> mutate(String key, List<String> operations)
+        throws Exception {
+      calls.add(operations);
+      if (exception != null) {
+        throw exception;
+      }
+      List<String> results = Lists.newArrayList();
+      for (int i = 0; i < operations.size(); i++) {
+        results.add(operations.get(i) + "-done");
+      }
+      for (FakeError failure : failures) {
+        results.set(MutateCoalescer.getOperationIndex(failure.fieldPath), null);
+      }
+      return new MutateResponse<String, FakeError>(results, failures);
+    }
+
+    @Override
+    public String getFieldPath(FakeError error) {
+      return error.fieldPath;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link PrefetchingPageIterator}.
+ */
+@RunWith(JUnit4.class)
+public class PrefetchingPageIteratorTest {
+
+  private static final int PAGE_SIZE = 100;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  /** A selector builder whose selectors are simply the requested offset. */
+  @Mock
+  private SelectorBuilderInterface<Integer> selectorBuilder;
+
+  private final AtomicInteger builderOffset = new AtomicInteger();
+  private final List<Integer> requestedOffsets =
+      Collections.synchronizedList(Lists.<Integer>newArrayList());
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    when(selectorBuilder.offset(anyInt())).thenAnswer(
+        new Answer<SelectorBuilderInterface<Integer>>() {
+          @Override
+          public SelectorBuilderInterface<Integer> answer(InvocationOnMock invocation) {
+            builderOffset.set((Integer) invocation.getArguments()[0]);
+            return selectorBuilder;
+          }
+        });
+    when(selectorBuilder.limit(anyInt())).thenReturn(selectorBuilder);
+    when(selectorBuilder.build()).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) {
+        return builderOffset.get();
+      }
+    });
+    executorService = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that all pages are returned in offset order.
+   */
+  @Test
+  public void testAllPagesReturnedInOrder() {
+    PrefetchingPageIterator<Integer, FakePage> iterator =
+        new PrefetchingPageIterator<Integer, FakePage>(
+            selectorBuilder, PAGE_SIZE, 3, executorService, new FakePageFetcher(1050));
+
+    List<Integer> pageOffsets = Lists.newArrayList();
+    while (iterator.hasNext()) {
+      pageOffsets.add(iterator.next().offset);
+    }
+    assertEquals(
+        ImmutableList.of(0, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000), pageOffsets);
+    assertEquals("Each page should be requested exactly once", 11, requestedOffsets.size());
+  }
+
+  /**
+   * Tests that the iterator requests upcoming pages before the caller asks for them, but never
+   * more than the prefetch depth.
+   */
+  @Test
+  public void testPrefetchDepth() {
+    PrefetchingPageIterator<Integer, FakePage> iterator =
+        new PrefetchingPageIterator<Integer, FakePage>(selectorBuilder, PAGE_SIZE, 2,
+            MoreExecutors.newDirectExecutorService(), new FakePageFetcher(1000));
+    assertEquals("Only the first page should be requested before its total is known",
+        ImmutableList.of(0), requestedOffsets);
+
+    assertEquals(0, iterator.next().offset);
+    assertEquals("Two pages should be prefetched after the first page",
+        ImmutableList.of(0, 100, 200), requestedOffsets);
+
+    assertEquals(100, iterator.next().offset);
+    assertEquals(ImmutableList.of(0, 100, 200, 300), requestedOffsets);
+  }
+
+  /**
+   * Tests a selector that matches no entries.
+   */
+  @Test
+  public void testNoEntries() {
+    PrefetchingPageIterator<Integer, FakePage> iterator =
+        new PrefetchingPageIterator<Integer, FakePage>(
+            selectorBuilder, PAGE_SIZE, 2, executorService, new FakePageFetcher(0));
+    assertTrue("The first page should always be returned", iterator.hasNext());
+    assertEquals(0, iterator.next().offset);
+    assertFalse(iterator.hasNext());
+  }
+
+  /**
+   * Tests that a failure to retrieve a page is surfaced to the caller with its cause.
+   */
+  @Test
+  public void testPageFailure() {
+    final RuntimeException failure = new IllegalStateException("service unavailable");
+    PrefetchingPageIterator<Integer, FakePage> iterator =
+        new PrefetchingPageIterator<Integer, FakePage>(selectorBuilder, PAGE_SIZE, 2,
+            executorService, new FakePageFetcher(500) {
+              @Override
+              public FakePage getPage(Integer selector) throws Exception {
+                if (selector == 200) {
+                  throw failure;
+                }
+                return super.getPage(selector);
+              }
+            });
+    iterator.next();
+    iterator.next();
+
+    thrown.expect(ServiceException.class);
+    thrown.expectCause(Matchers.<Throwable>sameInstance(failure));
+    iterator.next();
+  }
+
+  /**
+   * Tests that closing the iterator discards all pending pages.
+   */
+  @Test
+  public void testClose() {
+    PrefetchingPageIterator<Integer, FakePage> iterator =
+        new PrefetchingPageIterator<Integer, FakePage>(
+            selectorBuilder, PAGE_SIZE, 2, executorService, new FakePageFetcher(1000));
+    iterator.next();
+    iterator.close();
+    assertFalse("No pages should remain after close", iterator.hasNext());
+  }
+
+  /**
+   * A page that records the offset it was requested for.
+   */
+  private static class FakePage {
+    final int offset;
+    final int totalNumEntries;
+
+    FakePage(int offset, int totalNumEntries) {
+      this.offset = offset;
+      this.totalNumEntries = totalNumEntries;
+    }
+  }
+
+  /**
+   * A fetcher for a fake service with a fixed number of entries.
+   */
+  private class FakePageFetcher implements PageFetcher<Integer, FakePage> {
+    private final int totalNumEntries;
+
+    FakePageFetcher(int totalNumEntries) {
+      this.totalNumEntries = totalNumEntries;
+    }
+
+    @Override
+    public FakePage getPage(Integer selector) throws Exception {
+      requestedOffsets.add(selector);
+      return new FakePage(selector, totalNumEntries);
+    }
+
+    @Override
+    public int getTotalNumEntries(FakePage page) {
+      return page.totalNumEntries;
+    }
+  }
+}
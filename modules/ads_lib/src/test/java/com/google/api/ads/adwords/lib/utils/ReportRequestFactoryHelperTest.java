@@ -17,6 +17,7 @@ package com.google.api.ads.adwords.lib.utils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
@@ -30,6 +31,7 @@ import com.google.api.ads.common.lib.exception.AuthenticationException;
 import com.google.api.ads.common.lib.exception.ValidationException;
 import com.google.api.ads.common.lib.useragent.UserAgentCombiner;
 import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.http.GZipEncoding;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpRequest;
@@ -183,6 +185,7 @@ public class ReportRequestFactoryHelperTest {
     assertEquals("fooauthheader", headers.getAuthorization());
     assertEquals("fooclientcustomerid", headers.get("clientCustomerId"));
     assertTrue((headers.getUserAgent()).contains("foouseragent"));
+    assertNull("Requests should not be compressed by default", request.getEncoding());
 
     if (reportingConfiguration == null) {
       assertFalse("skipReportHeader should not be in the header if no reporting config is set",
@@ -218,6 +221,35 @@ public class ReportRequestFactoryHelperTest {
     }
   }
 
+  /**
+   * Tests that report requests are compressed if request compression is enabled.
+   */
+  @Test
+  public void testGetHttpRequestFactory_requestCompression()
+      throws ValidationException, AuthenticationException, IOException {
+    when(adWordsLibConfiguration.isRequestCompressionEnabled()).thenReturn(true);
+    AdWordsSession session = new AdWordsSession.Builder()
+        .withDeveloperToken("foodevtoken")
+        .withClientCustomerId("fooclientcustomerid")
+        .withOAuth2Credential(credential)
+        .withUserAgent("userAgent")
+        .withReportingConfiguration(reportingConfiguration)
+        .build();
+    ReportRequestFactoryHelper helper =
+        new ReportRequestFactoryHelper(
+            session,
+            authorizationHeaderProvider,
+            userAgentCombiner,
+            transport,
+            adWordsLibConfiguration,
+            reportResponseInterceptor);
+    HttpRequestFactory requestFactory = helper.getHttpRequestFactory(ENDPOINT_URL.build(), version);
+
+    HttpRequest request = requestFactory.buildPostRequest(
+        ENDPOINT_URL, new AwqlReportBodyProvider("select 1", "csv").getHttpContent());
+    assertTrue("Request should be gzipped", request.getEncoding() instanceof GZipEncoding);
+  }
+
   private HttpTransport createTransport(final LowLevelHttpRequest request) {
     return new HttpTransport() {
       @Override
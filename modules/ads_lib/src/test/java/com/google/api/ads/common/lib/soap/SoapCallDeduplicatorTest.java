@@ -0,0 +1,228 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.api.ads.common.lib.soap.testing.MockSoapClientInterface;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SoapCallDeduplicator}.
+ */
+@RunWith(JUnit4.class)
+public class SoapCallDeduplicatorTest {
+
+  private static final int CALLER_COUNT = 5;
+
+  private Method method;
+  private SoapCallDeduplicator callDeduplicator;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    method = MockSoapClientInterface.class.getMethod("identityCallSingle", Object.class);
+    callDeduplicator =
+        new SoapCallDeduplicator(ImmutableSet.of("MockSoapClient.identityCallSingle"));
+    executor = Executors.newFixedThreadPool(CALLER_COUNT);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testIsDeduplicated() throws Exception {
+    assertTrue(callDeduplicator.isDeduplicated(method));
+    assertFalse(callDeduplicator.isDeduplicated(
+        MockSoapClientInterface.class.getMethod("identityCall", Object[].class)));
+  }
+
+  /**
+   * Tests that identical concurrent calls share the response of a single request.
+   */
+  @Test
+  public void testConcurrentIdenticalCalls_shareRequest() throws Exception {
+    BlockingCall soapCall = new BlockingCall();
+    List<Future<Object>> responses = submitCallers("session", soapCall);
+
+    // Let the first request complete only once every caller is waiting on it.
+    assertTrue(soapCall.started.await(5, TimeUnit.SECONDS));
+    waitForCallers();
+    soapCall.release.countDown();
+
+    Object response = responses.get(0).get(5, TimeUnit.SECONDS);
+    for (Future<Object> otherResponse : responses) {
+      assertSame(response, otherResponse.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, soapCall.count.get());
+    assertEquals(0, callDeduplicator.getCallsInFlightCount());
+    assertEquals(0, callDeduplicator.getWaitingCallCount());
+  }
+
+  /**
+   * Tests that a failure of the shared request is thrown to every waiting caller.
+   */
+  @Test
+  public void testConcurrentIdenticalCalls_shareFailure() throws Exception {
+    BlockingCall soapCall = new BlockingCall();
+    soapCall.failure = new Exception("Call failed");
+    List<Future<Object>> responses = submitCallers("session", soapCall);
+
+    assertTrue(soapCall.started.await(5, TimeUnit.SECONDS));
+    waitForCallers();
+    soapCall.release.countDown();
+
+    for (Future<Object> response : responses) {
+      try {
+        response.get(5, TimeUnit.SECONDS);
+        fail("Expected the shared failure");
+      } catch (ExecutionException e) {
+        assertSame(soapCall.failure, e.getCause());
+      }
+    }
+    assertEquals(1, soapCall.count.get());
+  }
+
+  /**
+   * Tests that calls with different scopes or sequential calls are not shared.
+   */
+  @Test
+  public void testDifferentScopesAndSequentialCalls_notShared() throws Exception {
+    BlockingCall soapCall = new BlockingCall();
+    soapCall.release.countDown();
+
+    callDeduplicator.call("session1", method, new Object[] {"arg"}, soapCall);
+    callDeduplicator.call("session2", method, new Object[] {"arg"}, soapCall);
+    callDeduplicator.call("session1", method, new Object[] {"arg"}, soapCall);
+    assertEquals(3, soapCall.count.get());
+  }
+
+  /**
+   * Tests that concurrent calls of services with the same name in different API versions are not
+   * shared.
+   */
+  @Test
+  public void testSameServiceNameInDifferentVersions_notShared() throws Exception {
+    final Method otherVersionMethod = OtherVersion.MockSoapClientInterface.class.getMethod(
+        "identityCallSingle", Object.class);
+    assertTrue(callDeduplicator.isDeduplicated(otherVersionMethod));
+    final BlockingCall soapCall = new BlockingCall();
+    Future<Object> response = executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return callDeduplicator.call("session", method, new Object[0], soapCall);
+      }
+    });
+    assertTrue(soapCall.started.await(5, TimeUnit.SECONDS));
+
+    // The other version's call must make its own request while the first is still in flight.
+    final BlockingCall otherVersionCall = new BlockingCall();
+    otherVersionCall.release.countDown();
+    Object otherVersionResponse = executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return callDeduplicator.call("session", otherVersionMethod, new Object[0],
+            otherVersionCall);
+      }
+    }).get(5, TimeUnit.SECONDS);
+    soapCall.release.countDown();
+
+    assertNotSame(otherVersionResponse, response.get(5, TimeUnit.SECONDS));
+    assertEquals(1, soapCall.count.get());
+    assertEquals(1, otherVersionCall.count.get());
+  }
+
+  private List<Future<Object>> submitCallers(final String scope, final BlockingCall soapCall) {
+    List<Future<Object>> responses = Lists.newArrayList();
+    for (int i = 0; i < CALLER_COUNT; i++) {
+      responses.add(executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          return callDeduplicator.call(scope, method, new Object[] {"arg"}, soapCall);
+        }
+      }));
+    }
+    return responses;
+  }
+
+  /**
+   * Waits until the callers that are not sending the request found it in flight.
+   */
+  private void waitForCallers() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (callDeduplicator.getWaitingCallCount() < CALLER_COUNT - 1) {
+      if (System.nanoTime() > deadline) {
+        fail("Only " + callDeduplicator.getWaitingCallCount() + " callers are waiting");
+      }
+      Thread.sleep(1L);
+    }
+  }
+
+  /**
+   * Holds a service interface with the same simple name as {@link MockSoapClientInterface}, like
+   * the same service in another API version.
+   */
+  private static class OtherVersion {
+    interface MockSoapClientInterface {
+      Object identityCallSingle(Object arg);
+    }
+  }
+
+  /**
+   * Blocks until released, then returns a new object or throws {@link #failure}.
+   */
+  private static class BlockingCall implements Callable<Object> {
+    final AtomicInteger count = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Exception failure;
+
+    @Override
+    public Object call() throws Exception {
+      count.incrementAndGet();
+      started.countDown();
+      release.await();
+      if (failure != null) {
+        throw failure;
+      }
+      return new Object();
+    }
+  }
+}
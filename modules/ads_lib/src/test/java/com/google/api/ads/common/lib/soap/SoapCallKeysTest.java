@@ -0,0 +1,71 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.google.api.ads.common.lib.soap.testing.MockSoapClientInterface;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Method;
+
+/**
+ * Tests for {@link SoapCallKeys}.
+ */
+@RunWith(JUnit4.class)
+public class SoapCallKeysTest {
+
+  @Test
+  public void testGetMethodName() throws Exception {
+    Method method = MockSoapClientInterface.class.getMethod("identityCallSingle", Object.class);
+    assertEquals("MockSoapClient.identityCallSingle", SoapCallKeys.getMethodName(method));
+  }
+
+  @Test
+  public void testCanonicalize() throws Exception {
+    assertEquals(SoapCallKeys.canonicalize(new Paging(0, new int[] {1}), 0),
+        SoapCallKeys.canonicalize(new Paging(0, new int[] {1}), 0));
+    assertNotEquals(SoapCallKeys.canonicalize(new Paging(0, new int[] {1}), 0),
+        SoapCallKeys.canonicalize(new Paging(0, new int[] {2}), 0));
+    assertNotEquals(SoapCallKeys.canonicalize(new Paging(0, null), 0),
+        SoapCallKeys.canonicalize(new Paging(100, null), 0));
+    assertEquals("value", SoapCallKeys.canonicalize("value", 0));
+  }
+
+  /**
+   * A bean without {@code equals}, like generated JAX-WS request types.
+   */
+  public static class Paging {
+    private final int startIndex;
+    private final int[] sizes;
+
+    Paging(int startIndex, int[] sizes) {
+      this.startIndex = startIndex;
+      this.sizes = sizes;
+    }
+
+    public int getStartIndex() {
+      return startIndex;
+    }
+
+    public int[] getSizes() {
+      return sizes;
+    }
+  }
+}
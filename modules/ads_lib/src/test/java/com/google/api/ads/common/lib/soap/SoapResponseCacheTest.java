@@ -0,0 +1,194 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.api.ads.common.lib.soap.testing.MockSoapClientInterface;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link SoapResponseCache}.
+ */
+@RunWith(JUnit4.class)
+public class SoapResponseCacheTest {
+
+  private static final long TTL_MILLIS = 1000L;
+
+  private Method cachedMethod;
+  private Method uncachedMethod;
+  private FakeTicker ticker;
+  private SoapResponseCache responseCache;
+
+  @Before
+  public void setUp() throws Exception {
+    cachedMethod = MockSoapClientInterface.class.getMethod("identityCallSingle", Object.class);
+    uncachedMethod = MockSoapClientInterface.class.getMethod("identityCall", Object[].class);
+    ticker = new FakeTicker();
+    responseCache = new SoapResponseCache(
+        ImmutableSet.of("MockSoapClient.identityCallSingle"), TTL_MILLIS, 10L, ticker);
+  }
+
+  @Test
+  public void testIsCacheable() {
+    assertTrue(responseCache.isCacheable(cachedMethod));
+    assertFalse(responseCache.isCacheable(uncachedMethod));
+  }
+
+  /**
+   * Tests that equal arguments in the same scope share a response until the TTL passes.
+   */
+  @Test
+  public void testGet_cachedUntilTtl() throws Exception {
+    CountingCall soapCall = new CountingCall();
+    Object[] args = new Object[] {new Selector("Id", new String[] {"1", "2"})};
+    Object[] equalArgs = new Object[] {new Selector("Id", new String[] {"1", "2"})};
+
+    Object response = responseCache.get("session", cachedMethod, args, soapCall);
+    assertSame(response, responseCache.get("session", cachedMethod, equalArgs, soapCall));
+    assertEquals(1, soapCall.count);
+
+    ticker.advance(TTL_MILLIS + 1);
+    assertNotEquals(response, responseCache.get("session", cachedMethod, args, soapCall));
+    assertEquals(2, soapCall.count);
+  }
+
+  /**
+   * Tests that responses are not shared between scopes or different arguments.
+   */
+  @Test
+  public void testGet_differentScopeOrArgs() throws Exception {
+    CountingCall soapCall = new CountingCall();
+    responseCache.get("session1", cachedMethod, new Object[] {new Selector("Id", null)}, soapCall);
+    responseCache.get("session2", cachedMethod, new Object[] {new Selector("Id", null)}, soapCall);
+    responseCache.get("session1", cachedMethod, new Object[] {new Selector("Name", null)},
+        soapCall);
+    assertEquals(3, soapCall.count);
+  }
+
+  /**
+   * Tests that responses are not shared between services with the same name in different API
+   * versions, even though both match the same configured method name.
+   */
+  @Test
+  public void testGet_sameServiceNameInDifferentVersions() throws Exception {
+    Method otherVersionMethod = OtherVersion.MockSoapClientInterface.class.getMethod(
+        "identityCallSingle", Object.class);
+    assertTrue(responseCache.isCacheable(otherVersionMethod));
+
+    CountingCall soapCall = new CountingCall();
+    Object response = responseCache.get("session", cachedMethod, new Object[0], soapCall);
+    Object otherVersionResponse =
+        responseCache.get("session", otherVersionMethod, new Object[0], soapCall);
+    assertNotEquals(response, otherVersionResponse);
+    assertEquals(2, soapCall.count);
+  }
+
+  /**
+   * Tests that failures are thrown unwrapped and are not cached.
+   */
+  @Test
+  public void testGet_failureNotCached() throws Exception {
+    final Exception failure = new Exception("Call failed");
+    Callable<Object> failingCall = new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        throw failure;
+      }
+    };
+    try {
+      responseCache.get("session", cachedMethod, new Object[] {"arg"}, failingCall);
+      fail("Expected the failure to be thrown");
+    } catch (Exception e) {
+      assertSame(failure, e);
+    }
+
+    CountingCall soapCall = new CountingCall();
+    responseCache.get("session", cachedMethod, new Object[] {"arg"}, soapCall);
+    assertEquals(1, soapCall.count);
+  }
+
+  /**
+   * A bean without {@code equals}, like generated JAX-WS request types.
+   */
+  public static class Selector {
+    private final String field;
+    private final String[] values;
+
+    Selector(String field, String[] values) {
+      this.field = field;
+      this.values = values;
+    }
+
+    public String getField() {
+      return field;
+    }
+
+    public String[] getValues() {
+      return values;
+    }
+  }
+
+  /**
+   * Holds a service interface with the same simple name as {@link MockSoapClientInterface}, like
+   * the same service in another API version.
+   */
+  private static class OtherVersion {
+    interface MockSoapClientInterface {
+      Object identityCallSingle(Object arg);
+    }
+  }
+
+  /**
+   * Returns a new object on each call and counts the calls.
+   */
+  private static class CountingCall implements Callable<Object> {
+    int count;
+
+    @Override
+    public Object call() {
+      count++;
+      return new Object();
+    }
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}
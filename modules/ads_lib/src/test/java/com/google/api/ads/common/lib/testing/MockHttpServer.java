@@ -78,15 +78,18 @@ public class MockHttpServer {
     request.getStreamingContent().writeTo(byteOutStream);
     final byte[] rawRequestBytes = byteOutStream.toByteArray();
   
-    // Inflate the raw bytes if they are in gzip format.
-    boolean isGzipFormat = false;
-    List<String> contentEncodingValues = request.getHeaders().get("Content-Encoding");
-    if (contentEncodingValues != null && !contentEncodingValues.isEmpty()) {
-      isGzipFormat = "gzip".equals(contentEncodingValues.get(0));
+    // Inflate the raw bytes if they are in gzip format. An empty body, such as that of a request
+    // that only sets headers for later requests, has nothing to inflate.
+    // Header names are stored in lower case, so look the header up by a case-insensitive name.
+    String contentEncoding = request.getFirstHeaderValue("Content-Encoding");
+    if (contentEncoding == null) {
+      // Set by HttpRequest when the request has an HttpEncoding.
+      contentEncoding = request.getContentEncoding();
     }
+    boolean isGzipFormat = "gzip".equals(contentEncoding);
 
     byte[] requestBytes;
-    if (isGzipFormat) {
+    if (isGzipFormat && rawRequestBytes.length > 0) {
       requestBytes =
           new ByteSource() {
             @Override
@@ -15,6 +15,9 @@
 package com.google.api.ads.common.lib.useragent;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
@@ -61,4 +64,28 @@ public class UserAgentCombinerTest {
         "myUserAgent (userAgent/1, userAgent/2)",
         userAgentCombiner.getUserAgent(nonLibraryUserAgent));
   }
+
+  @Test
+  public void testFixedUserAgentsRetrievedOnce() {
+    AdsUtilitiesUserAgentProvider adsUtilitiesUserAgentProvider =
+        mock(AdsUtilitiesUserAgentProvider.class);
+    userAgentCombiner = new UserAgentCombiner(
+        Lists.newArrayList(userAgentProvider1, adsUtilitiesUserAgentProvider, userAgentProvider2));
+
+    when(userAgentProvider1.getUserAgent()).thenReturn("userAgent/1");
+    when(userAgentProvider2.getUserAgent()).thenReturn("userAgent/2");
+    when(adsUtilitiesUserAgentProvider.getUserAgent())
+        .thenReturn("SelectorBuilder", null, "SelectorBuilder");
+
+    assertEquals("myUserAgent (userAgent/1, SelectorBuilder, userAgent/2)",
+        userAgentCombiner.getUserAgent("myUserAgent"));
+    assertEquals("myUserAgent (userAgent/1, userAgent/2)",
+        userAgentCombiner.getUserAgent("myUserAgent"));
+    assertEquals("otherUserAgent (userAgent/1, SelectorBuilder, userAgent/2)",
+        userAgentCombiner.getUserAgent("otherUserAgent"));
+
+    verify(userAgentProvider1, times(1)).getUserAgent();
+    verify(userAgentProvider2, times(1)).getUserAgent();
+    verify(adsUtilitiesUserAgentProvider, times(3)).getUserAgent();
+  }
 }
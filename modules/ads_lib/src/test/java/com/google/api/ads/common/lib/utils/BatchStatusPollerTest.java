@@ -0,0 +1,242 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.ads.common.lib.utils.BatchStatusPoller.PollDelayPolicy;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller.StatusFetcher;
+import com.google.api.client.testing.http.FixedClock;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link BatchStatusPoller}.
+ */
+@RunWith(JUnit4.class)
+public class BatchStatusPollerTest {
+
+  private static final long TICK_MILLIS = 100L;
+
+  @Mock private ScheduledExecutorService scheduler;
+  @Mock private ScheduledFuture<?> pollTask;
+
+  private FixedClock clock;
+  private FakeStatusFetcher statusFetcher;
+  private BatchStatusPoller<String> poller;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    doReturn(pollTask).when(scheduler).scheduleWithFixedDelay(
+        any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+    clock = new FixedClock(0L);
+    statusFetcher = new FakeStatusFetcher();
+    PollDelayPolicy<String> policy = BatchStatusPoller.exponentialBackoff(1000L, 4000L, 2);
+    poller = new BatchStatusPoller<String>(statusFetcher, policy, scheduler, TICK_MILLIS, clock);
+  }
+
+  /**
+   * Tests that all due jobs are checked with a single call and that a single periodic task is
+   * scheduled for all jobs.
+   */
+  @Test
+  public void testDueJobsPolledInOneBatch() throws Exception {
+    ListenableFuture<String> job1 = poller.track(1L);
+    ListenableFuture<String> job2 = poller.track(2L);
+    ListenableFuture<String> job3 = poller.track(3L);
+    verify(scheduler, times(1)).scheduleWithFixedDelay(
+        any(Runnable.class), eq(TICK_MILLIS), eq(TICK_MILLIS), eq(TimeUnit.MILLISECONDS));
+
+    poller.pollDueJobs();
+    assertTrue("No jobs should be polled before their initial delay",
+        statusFetcher.calls.isEmpty());
+
+    statusFetcher.statuses.put(2L, "DONE");
+    clock.setTime(1000L);
+    poller.pollDueJobs();
+    assertEquals(ImmutableSet.of(1L, 2L, 3L), statusFetcher.calls.get(0));
+    assertFalse(job1.isDone());
+    assertEquals("DONE", job2.get());
+    assertFalse(job3.isDone());
+    assertEquals(2, poller.getTrackedJobCount());
+  }
+
+  /**
+   * Tests that each job's poll delay grows after every unfinished poll, up to the maximum.
+   */
+  @Test
+  public void testExponentialBackoff() throws Exception {
+    poller.track(1L);
+    List<Long> pollTimes = Lists.newArrayList();
+    for (long time = 0; time <= 16000L; time += TICK_MILLIS) {
+      clock.setTime(time);
+      int callsBefore = statusFetcher.calls.size();
+      poller.pollDueJobs();
+      if (statusFetcher.calls.size() > callsBefore) {
+        pollTimes.add(time);
+      }
+    }
+    assertEquals(Lists.newArrayList(1000L, 3000L, 7000L, 11000L, 15000L), pollTimes);
+  }
+
+  /**
+   * Tests that a job added after others is polled on its own schedule.
+   */
+  @Test
+  public void testJobsHaveIndependentSchedules() throws Exception {
+    poller.track(1L);
+    clock.setTime(1000L);
+    poller.pollDueJobs();
+    poller.track(2L);
+    clock.setTime(2000L);
+    poller.pollDueJobs();
+    assertEquals("Only the new job should be due", ImmutableSet.of(2L),
+        statusFetcher.calls.get(1));
+  }
+
+  /**
+   * Tests that a failure to retrieve statuses fails the futures of the polled jobs.
+   */
+  @Test
+  public void testFetchFailure() throws Exception {
+    ListenableFuture<String> job = poller.track(1L);
+    Exception failure = new Exception("service unavailable");
+    statusFetcher.failure = failure;
+    clock.setTime(1000L);
+    poller.pollDueJobs();
+    try {
+      job.get();
+      fail("Expected the job's future to fail");
+    } catch (ExecutionException e) {
+      assertSame(failure, e.getCause());
+    }
+    assertEquals(0, poller.getTrackedJobCount());
+  }
+
+  /**
+   * Tests that a job whose status could not be retrieved fails on its own, without affecting the
+   * other jobs polled with it.
+   */
+  @Test
+  public void testFetchFailure_singleJob() throws Exception {
+    ListenableFuture<String> failedJob = poller.track(1L);
+    ListenableFuture<String> doneJob = poller.track(2L);
+    ListenableFuture<String> activeJob = poller.track(3L);
+    Exception failure = new Exception("job not found");
+    statusFetcher.jobFailures.put(1L, failure);
+    statusFetcher.statuses.put(2L, "DONE");
+    clock.setTime(1000L);
+    poller.pollDueJobs();
+    try {
+      failedJob.get();
+      fail("Expected the failed job's future to fail");
+    } catch (ExecutionException e) {
+      assertSame(failure, e.getCause());
+    }
+    assertEquals("DONE", doneJob.get());
+    assertFalse(activeJob.isDone());
+    assertEquals(1, poller.getTrackedJobCount());
+  }
+
+  /**
+   * Tests that tracking the same job twice returns the same future, and that cancelled jobs are
+   * no longer polled.
+   */
+  @Test
+  public void testTrackSameJobAndCancel() throws Exception {
+    ListenableFuture<String> job = poller.track(1L);
+    assertSame(job, poller.track(1L));
+    job.cancel(false);
+    clock.setTime(1000L);
+    poller.pollDueJobs();
+    assertTrue(statusFetcher.calls.isEmpty());
+    assertEquals(0, poller.getTrackedJobCount());
+  }
+
+  /**
+   * Tests that closing the poller cancels unfinished jobs and rejects new ones.
+   */
+  @Test
+  public void testClose() throws Exception {
+    ListenableFuture<String> job = poller.track(1L);
+    poller.close();
+    assertTrue(job.isCancelled());
+    try {
+      poller.track(2L);
+      fail("Expected tracking to fail after close");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * A status fetcher backed by a map of job statuses. Jobs without a status are in progress.
+   */
+  private static class FakeStatusFetcher implements StatusFetcher<String> {
+    final Map<Long, String> statuses = Maps.newHashMap();
+    final Map<Long, Exception> jobFailures = Maps.newHashMap();
+    final List<Set<Long>> calls = Lists.newArrayList();
+    Exception failure;
+
+    @Override
+    public Map<Long, String> getStatuses(Set<Long> jobIds, Map<Long, Exception> failures)
+        throws Exception {
+      calls.add(jobIds);
+      if (failure != null) {
+        throw failure;
+      }
+      Map<Long, String> result = Maps.newHashMap();
+      for (Long jobId : jobIds) {
+        if (jobFailures.containsKey(jobId)) {
+          failures.put(jobId, jobFailures.get(jobId));
+          continue;
+        }
+        result.put(jobId, statuses.containsKey(jobId) ? statuses.get(jobId) : "IN_PROGRESS");
+      }
+      return result;
+    }
+
+    @Override
+    public boolean isFinished(String status) {
+      return !"IN_PROGRESS".equals(status);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.api.ads.common.lib.utils.DelimitedTextWriter.Format;
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link DelimitedTextWriter}.
+ */
+@RunWith(JUnit4.class)
+public class DelimitedTextWriterTest {
+
+  @Test
+  public void testWriteCsv() throws Exception {
+    StringWriter output = new StringWriter();
+    DelimitedTextWriter writer = new DelimitedTextWriter(output, Format.CSV);
+    writer.writeRow(ImmutableList.of("id", "name"));
+    writer.writeRow(Arrays.asList("1", null));
+    writer.writeRow(ImmutableList.of("2", "comma,quote\"newline\n"));
+    writer.writeRow(ImmutableList.of("3", "tab\tonly"));
+    writer.close();
+
+    assertEquals("id,name\n1,\n2,\"comma,quote\"\"newline\n\"\n3,tab\tonly\n", output.toString());
+  }
+
+  @Test
+  public void testWriteTsv() throws Exception {
+    StringWriter output = new StringWriter();
+    DelimitedTextWriter writer = new DelimitedTextWriter(output, Format.TSV);
+    writer.writeField("a,b");
+    writer.writeField("c\td");
+    writer.endRow();
+    writer.close();
+
+    assertEquals("a,b\t\"c\td\"\n", output.toString());
+  }
+}
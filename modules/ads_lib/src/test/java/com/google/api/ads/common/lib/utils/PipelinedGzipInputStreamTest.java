@@ -0,0 +1,231 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Bytes;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link PipelinedGzipInputStream}.
+ */
+@RunWith(JUnit4.class)
+public class PipelinedGzipInputStreamTest {
+
+  private final List<Thread> threads = Collections.synchronizedList(Lists.<Thread>newArrayList());
+
+  private final ThreadFactory threadFactory = new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable);
+      thread.setDaemon(true);
+      threads.add(thread);
+      return thread;
+    }
+  };
+
+  /**
+   * Tests that a stream of many chunks is decompressed through a small buffer.
+   */
+  @Test
+  public void testRead() throws Exception {
+    StringBuilder csv = new StringBuilder("Campaign ID,Impressions\n");
+    for (int i = 0; i < 10000; i++) {
+      csv.append(i).append(',').append(i * 7).append('\n');
+    }
+    byte[] expected = csv.toString().getBytes(UTF_8);
+
+    InputStream inputStream =
+        new PipelinedGzipInputStream(new ByteArrayInputStream(gzip(expected)), 1000, 2,
+            threadFactory);
+
+    assertArrayEquals(expected, ByteStreams.toByteArray(inputStream));
+    assertEquals(-1, inputStream.read());
+    inputStream.close();
+  }
+
+  /**
+   * Tests that all members of a multi-member gzip stream are decompressed.
+   */
+  @Test
+  public void testRead_multipleMembers() throws Exception {
+    byte[] first = "first member,".getBytes(UTF_8);
+    byte[] second = "second member".getBytes(UTF_8);
+
+    InputStream inputStream = new PipelinedGzipInputStream(
+        new ByteArrayInputStream(Bytes.concat(gzip(first), gzip(second))));
+
+    assertEquals("first member,second member",
+        new String(ByteStreams.toByteArray(inputStream), UTF_8));
+    inputStream.close();
+  }
+
+  /**
+   * Tests that a decompression failure is thrown to the reader after the bytes decompressed
+   * before it, and on every later read.
+   */
+  @Test
+  public void testRead_corruptStream() throws Exception {
+    byte[] compressed = gzip(new byte[10000]);
+    byte[] truncated = Arrays.copyOf(compressed, compressed.length - 4);
+
+    InputStream inputStream = new PipelinedGzipInputStream(
+        new ByteArrayInputStream(truncated), 1000, 2, threadFactory);
+
+    byte[] firstChunk = new byte[1000];
+    ByteStreams.readFully(inputStream, firstChunk);
+    assertArrayEquals(new byte[1000], firstChunk);
+    try {
+      ByteStreams.toByteArray(inputStream);
+      fail("Expected the truncated stream to fail");
+    } catch (IOException e) {
+      // Expected.
+    }
+    try {
+      inputStream.read();
+      fail("Expected every later read to fail");
+    } catch (IOException e) {
+      // Expected.
+    }
+    inputStream.close();
+  }
+
+  /**
+   * Tests that an unchecked exception from the compressed stream is thrown to the reader instead
+   * of leaving it waiting for more bytes.
+   */
+  @Test
+  public void testRead_uncheckedException() throws Exception {
+    final IllegalStateException failure = new IllegalStateException("Connection pool shut down");
+    InputStream compressedStream = new ByteArrayInputStream(gzip(new byte[10000])) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        throw failure;
+      }
+    };
+    InputStream inputStream =
+        new PipelinedGzipInputStream(compressedStream, 1000, 2, threadFactory);
+
+    try {
+      inputStream.read();
+      fail("Expected the failure of the compressed stream");
+    } catch (IOException e) {
+      assertSame(failure, Throwables.getRootCause(e));
+    }
+    inputStream.close();
+  }
+
+  /**
+   * Tests that closing the stream before the end stops the background thread and closes the
+   * compressed stream.
+   */
+  @Test
+  public void testClose() throws Exception {
+    final boolean[] compressedStreamClosed = new boolean[1];
+    InputStream compressedStream = new ByteArrayInputStream(gzip(new byte[100000])) {
+      @Override
+      public void close() throws IOException {
+        compressedStreamClosed[0] = true;
+        super.close();
+      }
+    };
+    InputStream inputStream =
+        new PipelinedGzipInputStream(compressedStream, 100, 1, threadFactory);
+
+    assertEquals(0, inputStream.read());
+    inputStream.close();
+
+    Thread decompressionThread = threads.get(0);
+    decompressionThread.join(10000);
+    assertFalse("The background thread should stop", decompressionThread.isAlive());
+    assertTrue("The compressed stream should be closed", compressedStreamClosed[0]);
+    try {
+      inputStream.read();
+      fail("Expected reads after close to fail");
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Tests that closing the stream stops a background thread blocked on a read of the compressed
+   * stream that ignores interrupts, like a socket read.
+   */
+  @Test
+  public void testClose_blockedRead() throws Exception {
+    final CountDownLatch readStarted = new CountDownLatch(1);
+    final CountDownLatch closed = new CountDownLatch(1);
+    InputStream compressedStream = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        readStarted.countDown();
+        while (true) {
+          try {
+            closed.await();
+            throw new IOException("Socket closed");
+          } catch (InterruptedException e) {
+            // Ignored like by a blocked socket read.
+          }
+        }
+      }
+
+      @Override
+      public void close() {
+        closed.countDown();
+      }
+    };
+    InputStream inputStream =
+        new PipelinedGzipInputStream(compressedStream, 100, 1, threadFactory);
+
+    assertTrue("The background thread should read",
+        readStarted.await(10, TimeUnit.SECONDS));
+    inputStream.close();
+
+    Thread decompressionThread = threads.get(0);
+    decompressionThread.join(10000);
+    assertFalse("The background thread should stop", decompressionThread.isAlive());
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+      gzipOutputStream.write(bytes);
+    }
+    return compressed.toByteArray();
+  }
+}
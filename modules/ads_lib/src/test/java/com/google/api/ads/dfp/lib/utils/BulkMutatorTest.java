@@ -0,0 +1,220 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.dfp.lib.utils.BulkMutator.BulkMutationResult;
+import com.google.api.ads.dfp.lib.utils.BulkMutator.MutateFunction;
+import com.google.api.client.util.Sleeper;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link BulkMutator}.
+ */
+@RunWith(JUnit4.class)
+public class BulkMutatorTest {
+
+  private static final int CHUNK_SIZE = 3;
+  private static final int MAX_PARALLELISM = 2;
+  private static final int MAX_ATTEMPTS = 3;
+
+  private static final Predicate<Exception> IS_TRANSIENT = new Predicate<Exception>() {
+    @Override
+    public boolean apply(Exception exception) {
+      return exception instanceof IOException;
+    }
+  };
+
+  private ExecutorService executorService;
+  private FakeService service;
+  private List<Long> sleeps;
+  private BulkMutator<String> bulkMutator;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(MAX_PARALLELISM * 2);
+    service = new FakeService();
+    sleeps = Collections.synchronizedList(Lists.<Long>newArrayList());
+    Sleeper sleeper = new Sleeper() {
+      @Override
+      public void sleep(long millis) {
+        sleeps.add(millis);
+      }
+    };
+    bulkMutator = new BulkMutator<String>(service, CHUNK_SIZE, MAX_PARALLELISM, MAX_ATTEMPTS,
+        IS_TRANSIENT, executorService, sleeper);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that entities are sent in chunks, concurrently up to the maximum parallelism, and that
+   * the results are mapped back to the input indexes.
+   */
+  @Test
+  public void testMutateAll() throws Exception {
+    service.delayMillis = 20L;
+    List<String> entities = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      entities.add("e" + i);
+    }
+
+    BulkMutationResult<String> result = bulkMutator.mutateAll(entities);
+
+    assertTrue(result.isSuccessful());
+    assertEquals(10, result.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("E" + i, result.getResult(i));
+      assertNull(result.getFailure(i));
+    }
+    assertEquals(4, service.requests.size());
+    assertTrue(service.requests.contains(ImmutableList.of("e9")));
+    assertTrue("Chunks should be sent concurrently", service.maxConcurrentRequests.get() > 1);
+    assertTrue("No more than the max parallelism should be in flight",
+        service.maxConcurrentRequests.get() <= MAX_PARALLELISM);
+  }
+
+  /**
+   * Tests that a chunk that fails transiently is retried with an increasing delay.
+   */
+  @Test
+  public void testMutateAll_transientFailure() throws Exception {
+    service.transientFailures.set(2);
+
+    BulkMutationResult<String> result = bulkMutator.mutateAll(ImmutableList.of("a", "b"));
+
+    assertTrue(result.isSuccessful());
+    assertEquals(ImmutableList.of("A", "B"), result.getResults());
+    assertEquals(3, service.requests.size());
+    assertEquals(ImmutableList.of(BulkMutator.INITIAL_RETRY_DELAY_MILLIS,
+        BulkMutator.INITIAL_RETRY_DELAY_MILLIS * 2), sleeps);
+  }
+
+  /**
+   * Tests that a chunk that keeps failing transiently fails after the maximum attempts.
+   */
+  @Test
+  public void testMutateAll_transientFailureExhaustsAttempts() throws Exception {
+    service.transientFailures.set(MAX_ATTEMPTS);
+
+    BulkMutationResult<String> result = bulkMutator.mutateAll(ImmutableList.of("a"));
+
+    assertFalse(result.isSuccessful());
+    assertTrue(result.getFailure(0) instanceof IOException);
+    assertEquals(MAX_ATTEMPTS, service.requests.size());
+  }
+
+  /**
+   * Tests that a permanent failure is not retried and only fails the entities of its chunk.
+   */
+  @Test
+  public void testMutateAll_permanentFailure() throws Exception {
+    BulkMutationResult<String> result =
+        bulkMutator.mutateAll(ImmutableList.of("a", "b", "c", "d", "fail", "f", "g"));
+
+    assertFalse(result.isSuccessful());
+    assertEquals(ImmutableList.of(3, 4, 5), result.getFailedIndexes());
+    assertTrue(result.getFailure(3) instanceof IllegalArgumentException);
+    assertSame(result.getFailure(3), result.getFailure(5));
+    assertNull(result.getResult(4));
+    assertEquals("A", result.getResult(0));
+    assertEquals("G", result.getResult(6));
+    assertEquals(3, service.requests.size());
+    assertTrue(sleeps.isEmpty());
+  }
+
+  /**
+   * Tests that a chunk whose results don't match its entities fails.
+   */
+  @Test
+  public void testMutateAll_missingResults() throws Exception {
+    BulkMutationResult<String> result = bulkMutator.mutateAll(ImmutableList.of("a", "drop"));
+
+    assertEquals(ImmutableList.of(0, 1), result.getFailedIndexes());
+    assertTrue(result.getFailure(0) instanceof IllegalStateException);
+  }
+
+  @Test
+  public void testMutateAll_empty() throws Exception {
+    BulkMutationResult<String> result = bulkMutator.mutateAll(ImmutableList.<String>of());
+
+    assertTrue(result.isSuccessful());
+    assertEquals(0, result.size());
+    assertTrue(service.requests.isEmpty());
+  }
+
+  /**
+   * Uppercases entities, like a service that returns the created entities, and records the
+   * requests it receives.
+   */
+  private static class FakeService implements MutateFunction<String> {
+    final List<List<String>> requests =
+        Collections.synchronizedList(Lists.<List<String>>newArrayList());
+    final AtomicInteger transientFailures = new AtomicInteger();
+    final AtomicInteger concurrentRequests = new AtomicInteger();
+    final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    volatile long delayMillis;
+
+    @Override
+    public List<String> mutate(List<String> entities) throws Exception {
+      requests.add(entities);
+      int concurrent = concurrentRequests.incrementAndGet();
+      try {
+        synchronized (maxConcurrentRequests) {
+          maxConcurrentRequests.set(Math.max(maxConcurrentRequests.get(), concurrent));
+        }
+        Thread.sleep(delayMillis);
+        if (transientFailures.getAndDecrement() > 0) {
+          throw new IOException("Connection reset");
+        }
+        List<String> results = Lists.newArrayList();
+        for (String entity : entities) {
+          if (entity.equals("fail")) {
+            throw new IllegalArgumentException("Invalid entity");
+          }
+          if (!entity.equals("drop")) {
+            results.add(entity.toUpperCase());
+          }
+        }
+        return results;
+      } finally {
+        concurrentRequests.decrementAndGet();
+      }
+    }
+  }
+}
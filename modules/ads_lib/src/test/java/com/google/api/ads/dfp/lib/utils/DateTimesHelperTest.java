@@ -232,6 +232,20 @@ public class DateTimesHelperTest {
     Assert.assertEquals(stringDate3, dateTimesHelper.dateToString(apiDateTime3.getDate()));
   }
 
+  @Test
+  public void testToString_fromApiDate_zeroPadded() {
+    ApiDate apiDate = new ApiDate();
+    apiDate.year = 987;
+    apiDate.month = 3;
+    apiDate.day = 4;
+    Assert.assertEquals("0987-03-04", dateTimesHelper.dateToString(apiDate));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_missingProperty() {
+    new DateTimesHelper<ApiDate, ApiDate>(ApiDate.class, ApiDate.class);
+  }
+
   @Test
   public void testToString_fromApiDateTime() {
     Assert.assertEquals(stringDateTime1, dateTimesHelper.toString(apiDateTime1));
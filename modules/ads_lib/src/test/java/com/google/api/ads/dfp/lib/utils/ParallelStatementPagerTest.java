@@ -0,0 +1,203 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.api.ads.dfp.lib.utils.ParallelStatementPager.PageCallback;
+import com.google.api.ads.dfp.lib.utils.ParallelStatementPager.StatementPageFetcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ParallelStatementPager}.
+ */
+@RunWith(JUnit4.class)
+public class ParallelStatementPagerTest {
+
+  private static final int PAGE_SIZE = 500;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(8);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that in order paging delivers every page sorted by offset.
+   */
+  @Test
+  public void testFetchAllInOrder() throws InterruptedException {
+    FakeService service = new FakeService(5250);
+    RecordingCallback callback = new RecordingCallback();
+    int pageCount = new ParallelStatementPager<String, FakePage>(
+        service, PAGE_SIZE, 4, executorService).fetchAll(callback, true);
+
+    assertEquals(11, pageCount);
+    assertEquals(expectedOffsets(5250), callback.offsets);
+    assertThat("Too many requests in flight at once", service.maxConcurrentRequests.get(),
+        Matchers.lessThanOrEqualTo(4));
+  }
+
+  /**
+   * Tests that unordered paging delivers every page exactly once.
+   */
+  @Test
+  public void testFetchAllUnordered() throws InterruptedException {
+    FakeService service = new FakeService(5250);
+    RecordingCallback callback = new RecordingCallback();
+    int pageCount = new ParallelStatementPager<String, FakePage>(
+        service, PAGE_SIZE, 3, executorService).fetchAll(callback, false);
+
+    assertEquals(11, pageCount);
+    assertEquals(expectedOffsets(5250), Ordering.natural().sortedCopy(callback.offsets));
+    assertThat("Too many requests in flight at once", service.maxConcurrentRequests.get(),
+        Matchers.lessThanOrEqualTo(3));
+  }
+
+  /**
+   * Tests a statement with no results.
+   */
+  @Test
+  public void testFetchAllNoResults() throws InterruptedException {
+    RecordingCallback callback = new RecordingCallback();
+    int pageCount = new ParallelStatementPager<String, FakePage>(
+        new FakeService(0), PAGE_SIZE, 4, executorService).fetchAll(callback, true);
+
+    assertEquals(1, pageCount);
+    assertEquals(ImmutableList.of(0), callback.offsets);
+  }
+
+  /**
+   * Tests that a failed page request is surfaced with its cause.
+   */
+  @Test
+  public void testFetchAllFailure() throws InterruptedException {
+    final RuntimeException failure = new IllegalStateException("quota exceeded");
+    FakeService service = new FakeService(5000) {
+      @Override
+      public FakePage getPage(String statement) throws Exception {
+        if (statement.equals("LIMIT 500 OFFSET 2500")) {
+          throw failure;
+        }
+        return super.getPage(statement);
+      }
+    };
+
+    thrown.expect(ServiceException.class);
+    thrown.expectCause(Matchers.<Throwable>sameInstance(failure));
+    new ParallelStatementPager<String, FakePage>(service, PAGE_SIZE, 4, executorService)
+        .fetchAll(new RecordingCallback(), true);
+  }
+
+  private static List<Integer> expectedOffsets(int totalResultSetSize) {
+    List<Integer> offsets = Lists.newArrayList(0);
+    for (int offset = PAGE_SIZE; offset < totalResultSetSize; offset += PAGE_SIZE) {
+      offsets.add(offset);
+    }
+    return offsets;
+  }
+
+  /**
+   * A page that records the offset it was requested for.
+   */
+  private static class FakePage {
+    final int offset;
+    final int totalResultSetSize;
+
+    FakePage(int offset, int totalResultSetSize) {
+      this.offset = offset;
+      this.totalResultSetSize = totalResultSetSize;
+    }
+  }
+
+  /**
+   * A fake service whose statements are PQL paging clauses.
+   */
+  private static class FakeService implements StatementPageFetcher<String, FakePage> {
+    private final int totalResultSetSize;
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+    FakeService(int totalResultSetSize) {
+      this.totalResultSetSize = totalResultSetSize;
+    }
+
+    @Override
+    public String createStatement(int offset, int limit) {
+      return "LIMIT " + limit + " OFFSET " + offset;
+    }
+
+    @Override
+    public FakePage getPage(String statement) throws Exception {
+      int current = concurrentRequests.incrementAndGet();
+      try {
+        synchronized (maxConcurrentRequests) {
+          maxConcurrentRequests.set(Math.max(maxConcurrentRequests.get(), current));
+        }
+        // Simulate the round trip so that requests overlap.
+        Thread.sleep(5);
+        int offset = Integer.parseInt(statement.substring(statement.lastIndexOf(' ') + 1));
+        return new FakePage(offset, totalResultSetSize);
+      } finally {
+        concurrentRequests.decrementAndGet();
+      }
+    }
+
+    @Override
+    public int getTotalResultSetSize(FakePage page) {
+      return page.totalResultSetSize;
+    }
+  }
+
+  /**
+   * A callback that records the offsets of the pages it receives.
+   */
+  private static class RecordingCallback implements PageCallback<FakePage> {
+    final List<Integer> offsets = Lists.newArrayList();
+
+    @Override
+    public void onPage(int offset, FakePage page) {
+      assertEquals("Page offset does not match the requested offset", offset, page.offset);
+      offsets.add(offset);
+    }
+  }
+}
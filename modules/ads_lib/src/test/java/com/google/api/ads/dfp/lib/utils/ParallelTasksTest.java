@@ -0,0 +1,111 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ParallelTasks}.
+ */
+@RunWith(JUnit4.class)
+public class ParallelTasksTest {
+
+  private static final int MAX_PARALLELISM = 2;
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(MAX_PARALLELISM * 2);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that every task runs with at most {@code maxParallelism} in flight, and that a failed
+   * task is reported by its index without stopping the others.
+   */
+  @Test
+  public void testRunAll() throws Exception {
+    final AtomicInteger tasksRunning = new AtomicInteger();
+    final AtomicInteger maxTasksRunning = new AtomicInteger();
+    final IllegalStateException failure = new IllegalStateException("Task 3 failed");
+    List<Callable<Integer>> tasks = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      final int taskIndex = i;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          int running = tasksRunning.incrementAndGet();
+          synchronized (maxTasksRunning) {
+            maxTasksRunning.set(Math.max(maxTasksRunning.get(), running));
+          }
+          try {
+            Thread.sleep(10);
+            if (taskIndex == 3) {
+              throw failure;
+            }
+            return taskIndex * 10;
+          } finally {
+            tasksRunning.decrementAndGet();
+          }
+        }
+      });
+    }
+
+    final Map<Integer, Integer> results = Maps.newHashMap();
+    final Map<Integer, Exception> failures = Maps.newHashMap();
+    ParallelTasks.runAll(tasks, MAX_PARALLELISM, executorService,
+        new ParallelTasks.TaskCallback<Integer>() {
+          @Override
+          public void onSuccess(int taskIndex, Integer result) {
+            results.put(taskIndex, result);
+          }
+
+          @Override
+          public void onFailure(int taskIndex, Exception exception) {
+            failures.put(taskIndex, exception);
+          }
+        });
+
+    assertEquals(9, results.size());
+    assertEquals(Integer.valueOf(90), results.get(9));
+    assertEquals(1, failures.size());
+    assertSame(failure, failures.get(3));
+    assertTrue("Too many tasks in flight: " + maxTasksRunning.get(),
+        maxTasksRunning.get() <= MAX_PARALLELISM);
+  }
+}
@@ -0,0 +1,330 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ReportRowReader}.
+ */
+@RunWith(JUnit4.class)
+public class ReportRowReaderTest {
+
+  private static final String CSV_DUMP_REPORT =
+      "Dimension.AD_UNIT_ID,Dimension.AD_UNIT_NAME,Column.AD_SERVER_IMPRESSIONS,"
+      + "Column.AD_SERVER_CPM_AND_CPC_REVENUE\r\n"
+      + "123,\"Ad unit, \"\"top\"\"\",42,1500000\r\n"
+      + "\r\n"
+      + "-9223372036854775808,\"Multi\nline\",0,-5\r\n"
+      + "9223372036854775807,,1,2";
+
+  private static final String XML_REPORT = "<?xml version='1.0'?>\n"
+      + "<Report>\n"
+      + "  <ReportData>\n"
+      + "    <ColumnHeaders>\n"
+      + "      <ColumnHeader name='adUnitId' localizedName='Ad unit ID' />\n"
+      + "      <ColumnHeader name='adUnitName' localizedName='Ad unit' />\n"
+      + "      <ColumnHeader name='revenue' localizedName='Revenue' />\n"
+      + "    </ColumnHeaders>\n"
+      + "    <DataSet>\n"
+      + "      <Row rowNum='1'>\n"
+      + "        <Column name='adUnitId'>\n"
+      + "          <Val>123</Val>\n"
+      + "        </Column>\n"
+      + "        <Column name='adUnitName'><Val>Ad unit &amp; &lt;top&gt;</Val></Column>\n"
+      + "        <Column name='revenue'><Val>1500000</Val></Column>\n"
+      + "      </Row>\n"
+      + "      <Row rowNum='2'>\n"
+      + "        <Column name='revenue'><Val>-5</Val></Column>\n"
+      + "        <Column name='adUnitId'><Val>456</Val></Column>\n"
+      + "      </Row>\n"
+      + "      <Total rowNum='3'>\n"
+      + "        <Column name='revenue'><Val>1499995</Val></Column>\n"
+      + "      </Total>\n"
+      + "    </DataSet>\n"
+      + "  </ReportData>\n"
+      + "</Report>\n";
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testForCsvDump() throws IOException {
+    ReportRowReader reader = ReportRowReader.forCsvDump(new StringReader(CSV_DUMP_REPORT));
+    assertEquals(ImmutableList.of("Dimension.AD_UNIT_ID", "Dimension.AD_UNIT_NAME",
+        "Column.AD_SERVER_IMPRESSIONS", "Column.AD_SERVER_CPM_AND_CPC_REVENUE"),
+        reader.getHeaders());
+    int adUnitId = reader.getColumnIndex("Dimension.AD_UNIT_ID");
+    int adUnitName = reader.getColumnIndex("Dimension.AD_UNIT_NAME");
+    int impressions = reader.getColumnIndex("Column.AD_SERVER_IMPRESSIONS");
+    int revenue = reader.getColumnIndex("Column.AD_SERVER_CPM_AND_CPC_REVENUE");
+
+    assertTrue(reader.next());
+    assertEquals(1, reader.getRowNumber());
+    assertEquals(123L, reader.getLong(adUnitId));
+    assertEquals("Ad unit, \"top\"", reader.getString(adUnitName));
+    assertEquals(42L, reader.getLong(impressions));
+    assertEquals(1500000L, reader.getMicros(revenue));
+
+    // Skips the blank line.
+    assertTrue(reader.next());
+    assertEquals(2, reader.getRowNumber());
+    assertEquals(Long.MIN_VALUE, reader.getLong(adUnitId));
+    assertEquals("Multi\nline", reader.getString(adUnitName));
+    assertEquals(-5L, reader.getMicros(revenue));
+
+    assertTrue(reader.next());
+    assertEquals(Long.MAX_VALUE, reader.getLong(adUnitId));
+    assertTrue(reader.isEmpty(adUnitName));
+    assertEquals(4, reader.getFieldCount());
+
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  @Test
+  public void testForTsv() throws IOException {
+    ReportRowReader reader = ReportRowReader.forTsv(new StringReader(
+        "Dimension.ORDER_ID\tColumn.AD_SERVER_CPM_AND_CPC_REVENUE\tColumn.AD_SERVER_CTR\n"
+        + "1\t$1,234.56\t0.0125\n"
+        + "2\t-0.1234567\t0\n"
+        + "3\t12\t1\n"));
+
+    assertTrue(reader.next());
+    assertEquals(1234560000L, reader.getMicros(1));
+    assertEquals(0.0125, reader.getDouble(2), 0);
+    assertTrue(reader.next());
+    // Digits beyond micros are truncated.
+    assertEquals(-123456L, reader.getMicros(1));
+    assertTrue(reader.next());
+    assertEquals(12000000L, reader.getMicros(1));
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testGetLong_overflow() throws IOException {
+    ReportRowReader reader =
+        ReportRowReader.forCsvDump(new StringReader("Dimension.ID\n9223372036854775808\n"));
+    assertTrue(reader.next());
+
+    thrown.expect(NumberFormatException.class);
+    thrown.expectMessage("Dimension.ID");
+    reader.getLong(0);
+  }
+
+  @Test
+  public void testGetLong_notANumber() throws IOException {
+    ReportRowReader reader = ReportRowReader.forCsvDump(new StringReader("Dimension.ID\n1x\n"));
+    assertTrue(reader.next());
+
+    thrown.expect(NumberFormatException.class);
+    reader.getLong(0);
+  }
+
+  @Test
+  public void testGetColumnIndex_missing() throws IOException {
+    ReportRowReader reader = ReportRowReader.forCsvDump(new StringReader(CSV_DUMP_REPORT));
+
+    thrown.expect(IllegalArgumentException.class);
+    reader.getColumnIndex("Column.AD_SERVER_CLICKS");
+  }
+
+  @Test
+  public void testNext_unterminatedQuote() throws IOException {
+    ReportRowReader reader =
+        ReportRowReader.forCsvDump(new StringReader("Dimension.ID\n\"1,2\n"));
+
+    thrown.expect(IOException.class);
+    reader.next();
+  }
+
+  @Test
+  public void testEmptyReport() throws IOException {
+    thrown.expect(IOException.class);
+    ReportRowReader.forCsvDump(new StringReader(""));
+  }
+
+  @Test
+  public void testForXml() throws IOException {
+    ReportRowReader reader = ReportRowReader.forXml(new StringReader(XML_REPORT));
+    assertEquals(ImmutableList.of("adUnitId", "adUnitName", "revenue"), reader.getHeaders());
+    int adUnitId = reader.getColumnIndex("adUnitId");
+    int adUnitName = reader.getColumnIndex("adUnitName");
+    int revenue = reader.getColumnIndex("revenue");
+
+    assertTrue(reader.next());
+    assertEquals(1, reader.getRowNumber());
+    assertEquals(123L, reader.getLong(adUnitId));
+    assertEquals("Ad unit & <top>", reader.getString(adUnitName));
+    assertEquals(1500000L, reader.getMicros(revenue));
+
+    // Fields are placed by header, and missing fields are empty.
+    assertTrue(reader.next());
+    assertEquals(2, reader.getRowNumber());
+    assertEquals(456L, reader.getLong(adUnitId));
+    assertTrue(reader.isEmpty(adUnitName));
+    assertEquals(-5L, reader.getMicros(revenue));
+    assertEquals(3, reader.getFieldCount());
+
+    // Skips the total.
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  @Test
+  public void testForXml_noColumnHeaders() throws IOException {
+    ReportRowReader reader = ReportRowReader.forXml(new StringReader(
+        "<Report><Row><Column name='a'><Val>1</Val></Column><b>2</b></Row>"
+        + "<Row><b>4</b><Column name='a'><Val>3</Val></Column></Row></Report>"));
+    assertEquals(ImmutableList.of("a", "b"), reader.getHeaders());
+
+    assertTrue(reader.next());
+    assertEquals(1L, reader.getLong(0));
+    assertEquals(2L, reader.getLong(1));
+    assertTrue(reader.next());
+    assertEquals(3L, reader.getLong(0));
+    assertEquals(4L, reader.getLong(1));
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testForXml_noRows() throws IOException {
+    ReportRowReader reader = ReportRowReader.forXml(new StringReader(
+        "<Report><ColumnHeaders><ColumnHeader name='a' /></ColumnHeaders><DataSet /></Report>"));
+    assertEquals(ImmutableList.of("a"), reader.getHeaders());
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testForXml_unexpectedColumn() throws IOException {
+    ReportRowReader reader = ReportRowReader.forXml(new StringReader(
+        "<Report><Row><a>1</a></Row><Row><b>2</b></Row></Report>"));
+    assertTrue(reader.next());
+
+    thrown.expect(IOException.class);
+    thrown.expectMessage("Unexpected column b");
+    reader.next();
+  }
+
+  /**
+   * Tests that a report much larger than the memory the reader may use is read in full, and that
+   * the memory in use does not grow with the number of rows read.
+   */
+  @Test
+  public void testNext_largeReport() throws IOException {
+    testLargeReport(false);
+    testLargeReport(true);
+  }
+
+  private static void testLargeReport(boolean xml) throws IOException {
+    // About 40 MB of either format.
+    int rows = xml ? 200000 : 1000000;
+    GeneratedReportReader generatedReport = new GeneratedReportReader(rows, xml);
+    ReportRowReader reader = xml
+        ? ReportRowReader.forXml(generatedReport) : ReportRowReader.forCsvDump(generatedReport);
+    int impressions = reader.getColumnIndex("Column.AD_SERVER_IMPRESSIONS");
+
+    long impressionsSum = 0;
+    long usedMemoryAfterFirstRows = 0;
+    while (reader.next()) {
+      impressionsSum += reader.getLong(impressions);
+      if (reader.getRowNumber() == 1000) {
+        usedMemoryAfterFirstRows = getUsedMemory();
+      }
+    }
+    long memoryGrowth = getUsedMemory() - usedMemoryAfterFirstRows;
+    reader.close();
+
+    assertEquals(rows, reader.getRowNumber());
+    assertEquals((long) rows * (rows + 1) / 2, impressionsSum);
+    assertTrue("Generated report is too small: " + generatedReport.getCharCount(),
+        generatedReport.getCharCount() > 32L * 1024 * 1024);
+    assertTrue("Memory grew by " + memoryGrowth + " bytes",
+        memoryGrowth < generatedReport.getCharCount() / 8);
+  }
+
+  private static long getUsedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Generates the rows of a {@code CSV_DUMP} or {@code XML} report as they are read, so that the
+   * report is never in memory.
+   */
+  private static final class GeneratedReportReader extends Reader {
+    private final int rows;
+    private final boolean xml;
+    private int row;
+    private boolean ended;
+    private String chunk;
+    private int chunkPosition;
+    private long charCount;
+
+    GeneratedReportReader(int rows, boolean xml) {
+      this.rows = rows;
+      this.xml = xml;
+      this.chunk = xml
+          ? "<Report><DataSet>"
+          : "Dimension.AD_UNIT_ID,Dimension.AD_UNIT_NAME,Column.AD_SERVER_IMPRESSIONS\n";
+    }
+
+    long getCharCount() {
+      return charCount;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (chunkPosition == chunk.length()) {
+        if (row < rows) {
+          row++;
+          chunk = xml
+              ? String.format("<Row><Column name='Dimension.AD_UNIT_ID'><Val>%d</Val></Column>"
+                  + "<Column name='Dimension.AD_UNIT_NAME'><Val>Ad unit %d</Val></Column>"
+                  + "<Column name='Column.AD_SERVER_IMPRESSIONS'><Val>%d</Val></Column></Row>\n",
+                  row, row, row)
+              : String.format("%d,\"Ad unit %d, \"\"generated\"\"\",%d\n", row, row, row);
+        } else if (xml && !ended) {
+          ended = true;
+          chunk = "</DataSet></Report>";
+        } else {
+          return -1;
+        }
+        chunkPosition = 0;
+      }
+      int count = Math.min(length, chunk.length() - chunkPosition);
+      chunk.getChars(chunkPosition, chunkPosition + count, buffer, offset);
+      chunkPosition += count;
+      charCount += count;
+      return count;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
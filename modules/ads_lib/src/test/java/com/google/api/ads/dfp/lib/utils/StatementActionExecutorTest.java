@@ -0,0 +1,169 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.lib.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.api.ads.dfp.lib.utils.StatementActionExecutor.ActionFunction;
+import com.google.api.ads.dfp.lib.utils.StatementActionExecutor.ActionResult;
+import com.google.api.ads.dfp.lib.utils.StatementActionExecutor.ChunkResult;
+import com.google.api.ads.dfp.lib.utils.StatementActionExecutor.IdPageFetcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link StatementActionExecutor}.
+ */
+@RunWith(JUnit4.class)
+public class StatementActionExecutorTest {
+
+  private static final int CHUNK_SIZE = 2;
+  private static final int MAX_PARALLELISM = 2;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private ExecutorService executorService;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(MAX_PARALLELISM);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that IDs are retrieved one page after another by the last ID of each page.
+   */
+  @Test
+  public void testCollectIds() {
+    final NavigableSet<Long> activeIds = Sets.newTreeSet(ImmutableList.of(3L, 5L, 8L, 13L, 21L));
+    final List<Long> afterIds = Lists.newArrayList();
+
+    List<Long> ids = StatementActionExecutor.collectIds(new IdPageFetcher() {
+      @Override
+      public List<Long> getIds(long afterId, int limit) {
+        afterIds.add(afterId);
+        List<Long> page = Lists.newArrayList();
+        for (Long id : activeIds.tailSet(afterId, false)) {
+          if (page.size() == limit) {
+            break;
+          }
+          page.add(id);
+        }
+        return page;
+      }
+    }, 2);
+
+    assertEquals(ImmutableList.of(3L, 5L, 8L, 13L, 21L), ids);
+    assertEquals(ImmutableList.of(0L, 5L, 13L), afterIds);
+  }
+
+  @Test
+  public void testCollectIds_notAscending() {
+    thrown.expect(IllegalStateException.class);
+    StatementActionExecutor.collectIds(new IdPageFetcher() {
+      @Override
+      public List<Long> getIds(long afterId, int limit) {
+        return ImmutableList.of(5L, 3L);
+      }
+    }, 2);
+  }
+
+  @Test
+  public void testCollectIds_failure() {
+    thrown.expect(ServiceException.class);
+    StatementActionExecutor.collectIds(new IdPageFetcher() {
+      @Override
+      public List<Long> getIds(long afterId, int limit) throws Exception {
+        throw new Exception("Request failed");
+      }
+    }, 2);
+  }
+
+  /**
+   * Tests that the action is performed on every chunk of IDs, and that a failed chunk doesn't
+   * affect the others.
+   */
+  @Test
+  public void testPerformAction() throws Exception {
+    final List<String> whereClauses =
+        Collections.synchronizedList(Lists.<String>newArrayList());
+    StatementActionExecutor executor = new StatementActionExecutor(new ActionFunction() {
+      @Override
+      public int performAction(String whereClause) {
+        whereClauses.add(whereClause);
+        if (whereClause.contains("4")) {
+          throw new IllegalStateException("Action failed");
+        }
+        return 2;
+      }
+    }, CHUNK_SIZE, MAX_PARALLELISM, executorService);
+
+    ActionResult result = executor.performAction(ImmutableList.of(1L, 2L, 3L, 4L, 5L));
+
+    assertFalse(result.isSuccessful());
+    assertEquals(4, result.getNumChanges());
+    List<ChunkResult> chunkResults = result.getChunkResults();
+    assertEquals(3, chunkResults.size());
+    assertEquals(ImmutableList.of(1L, 2L), chunkResults.get(0).getIds());
+    assertEquals(2, chunkResults.get(0).getNumChanges());
+    assertNull(chunkResults.get(0).getFailure());
+    assertEquals(ImmutableList.of(3L, 4L), chunkResults.get(1).getIds());
+    assertTrue(chunkResults.get(1).getFailure() instanceof IllegalStateException);
+    assertEquals(ImmutableList.of(chunkResults.get(1)), result.getFailedChunks());
+    assertEquals(ImmutableList.of(5L), chunkResults.get(2).getIds());
+    assertEquals(3, whereClauses.size());
+    assertTrue(whereClauses.contains("id IN (1, 2)"));
+    assertTrue(whereClauses.contains("id IN (5)"));
+  }
+
+  @Test
+  public void testPerformAction_empty() throws Exception {
+    StatementActionExecutor executor = new StatementActionExecutor(new ActionFunction() {
+      @Override
+      public int performAction(String whereClause) {
+        throw new AssertionError("No action expected");
+      }
+    }, CHUNK_SIZE, MAX_PARALLELISM, executorService);
+
+    ActionResult result = executor.performAction(ImmutableList.<Long>of());
+
+    assertTrue(result.isSuccessful());
+    assertEquals(0, result.getNumChanges());
+  }
+}
@@ -28,9 +28,11 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.xml.namespace.QName;
@@ -57,6 +59,12 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
 
   private final JaxWsSoapContextHandlerFactory contextHandlerFactory;
 
+  /**
+   * Port factories keyed by service interface. Creating a JAX-WS service locator loads and parses
+   * its WSDL, so each locator is created once and shared by all clients of that service.
+   */
+  private final ConcurrentMap<Class<?>, PortFactory> portFactories = Maps.newConcurrentMap();
+
   /**
    * Constructor.
    *
@@ -200,6 +208,9 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
   /**
    * Creates a SOAP client using a SOAP service descriptor.
    *
+   * <p>The service locator for each service is created on first use and reused afterwards. Each
+   * call returns a new port, since ports hold per-client state such as headers and the endpoint.
+   *
    * @param soapServiceDescriptor the descriptor to use for creating a client
    * @return the SOAP client for this descriptor
    * @throws ServiceException thrown if the SOAP client cannot be created
@@ -209,12 +220,7 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
       throws ServiceException {
     try {
       if (soapServiceDescriptor instanceof JaxWsCompatible) {
-        JaxWsCompatible jaxWsCompatibleService = (JaxWsCompatible) soapServiceDescriptor;
-        Object portLocator = jaxWsCompatibleService.getServiceClass()
-            .getConstructor(new Class[0]).newInstance(new Object[0]);
-        String interfaceClassName = soapServiceDescriptor.getInterfaceClass().getSimpleName();
-        BindingProvider soapClient = (BindingProvider) portLocator.getClass()
-            .getMethod("get" + interfaceClassName + "Port").invoke(portLocator);
+        BindingProvider soapClient = getPortFactory(soapServiceDescriptor).createPort();
 
         // Required for App Engine to avoid default 10s timeout for UrlFetch requests.
         setConnectTimeout(soapClient);
@@ -244,6 +250,29 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
     }
   }
 
+  /**
+   * Returns the port factory for a JAX-WS compatible service, creating its service locator if
+   * needed.
+   */
+  private PortFactory getPortFactory(SoapServiceDescriptor soapServiceDescriptor)
+      throws ClassNotFoundException, NoSuchMethodException, InstantiationException,
+      IllegalAccessException, InvocationTargetException {
+    Class<?> interfaceClass = soapServiceDescriptor.getInterfaceClass();
+    PortFactory portFactory = portFactories.get(interfaceClass);
+    if (portFactory == null) {
+      Object portLocator = ((JaxWsCompatible) soapServiceDescriptor).getServiceClass()
+          .getConstructor(new Class[0]).newInstance(new Object[0]);
+      Method portGetter = portLocator.getClass()
+          .getMethod("get" + interfaceClass.getSimpleName() + "Port");
+      portFactory = new PortFactory(portLocator, portGetter);
+      PortFactory existingPortFactory = portFactories.putIfAbsent(interfaceClass, portFactory);
+      if (existingPortFactory != null) {
+        portFactory = existingPortFactory;
+      }
+    }
+    return portFactory;
+  }
+
   /**
    * Sets properties into the message context to alter the timeout on App Engine.
    */
@@ -265,6 +294,11 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
   /**
    * Invoke a SOAP call.
    *
+   * <p>This method does not lock the SOAP client. Callers must not invoke calls on the same client
+   * concurrently; {@code SoapServiceClient} already confines each client to one call at a time.
+   * Threads that need to make calls in parallel should each use their own service, which is cheap
+   * to create since service locators are reused.
+   *
    * @param soapCall the call to make to a SOAP web service
    * @return information about the SOAP response
    */
@@ -272,31 +306,29 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
   public SoapCallReturn invokeSoapCall(SoapCall<BindingProvider> soapCall) {
     BindingProvider webService = soapCall.getSoapClient();
     SoapCallReturn.Builder builder = new SoapCallReturn.Builder();
-    synchronized (webService) {
-      Object result = null;
-      try {
-        result = invoke(soapCall);
-      } catch (InvocationTargetException e) {
-        builder.withException(e.getTargetException());
-      } catch (Exception e) {
-        builder.withException(e);
-      } finally {
-        JaxWsSoapContextHandler contextHandler = getContextHandlerFromClient(webService);
-        builder.withRequestInfo(new RequestInfo.Builder()
-            .withSoapRequestXml(contextHandler.getLastRequestXml())
-            .withMethodName(contextHandler.getLastOperationCalled())
-            .withServiceName(contextHandler.getLastServiceCalled())
-            .withUrl((String) webService.getRequestContext().get(
-                BindingProvider.ENDPOINT_ADDRESS_PROPERTY))
-            .build());
-        builder.withResponseInfo(
-            new ResponseInfo.Builder()
-                .withSoapResponseXml(contextHandler.getLastResponseXml())
-                .withRequestId(contextHandler.getLastRequestId())
-                .build());
-      }
-      return builder.withReturnValue(result).build();
+    Object result = null;
+    try {
+      result = invoke(soapCall);
+    } catch (InvocationTargetException e) {
+      builder.withException(e.getTargetException());
+    } catch (Exception e) {
+      builder.withException(e);
+    } finally {
+      JaxWsSoapContextHandler contextHandler = getContextHandlerFromClient(webService);
+      builder.withRequestInfo(new RequestInfo.Builder()
+          .withSoapRequestXml(contextHandler.getLastRequestXml())
+          .withMethodName(contextHandler.getLastOperationCalled())
+          .withServiceName(contextHandler.getLastServiceCalled())
+          .withUrl((String) webService.getRequestContext().get(
+              BindingProvider.ENDPOINT_ADDRESS_PROPERTY))
+          .build());
+      builder.withResponseInfo(
+          new ResponseInfo.Builder()
+              .withSoapResponseXml(contextHandler.getLastResponseXml())
+              .withRequestId(contextHandler.getLastRequestId())
+              .build());
     }
+    return builder.withReturnValue(result).build();
   }
 
   /**
@@ -339,4 +371,22 @@ public class JaxWsHandler extends SoapClientHandler<BindingProvider> {
     throw new IllegalStateException("The SOAP client passed into the JaxWsHandler does not "
         + "have the necessary context handler on its binding chain.");
   }
+
+  /**
+   * Creates ports from a shared JAX-WS service locator. Service locators are thread safe, so
+   * ports may be created concurrently.
+   */
+  private static class PortFactory {
+    private final Object portLocator;
+    private final Method portGetter;
+
+    PortFactory(Object portLocator, Method portGetter) {
+      this.portLocator = portLocator;
+      this.portGetter = portGetter;
+    }
+
+    BindingProvider createPort() throws IllegalAccessException, InvocationTargetException {
+      return (BindingProvider) portGetter.invoke(portLocator);
+    }
+  }
 }
@@ -16,6 +16,7 @@ package com.google.api.ads.common.lib.soap.jaxws;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -28,6 +29,7 @@ import com.google.api.ads.common.lib.soap.SoapServiceDescriptor;
 import com.google.api.ads.common.lib.soap.jaxws.testing.mocks.CampaignServiceInterface;
 import com.google.api.ads.common.lib.soap.jaxws.testing.mocks.CampaignServiceInterfaceImpl;
 import com.google.api.ads.common.lib.soap.jaxws.testing.mocks.MockJaxWsCompatibleDescriptor;
+import com.google.api.ads.common.lib.soap.jaxws.testing.mocks.ServiceClass;
 import com.google.api.ads.common.lib.utils.NodeExtractor;
 import com.google.common.collect.Lists;
 
@@ -100,6 +102,18 @@ public class JaxWsHandlerTest {
     assertTrue(provider.getBinding().getHandlerChain().get(0) instanceof JaxWsSoapContextHandler);
   }
 
+  @Test
+  public void testCreateSoapClient_reusesServiceLocator() {
+    SoapServiceDescriptor serviceDescriptor = new MockJaxWsCompatibleDescriptor();
+    int initialInstanceCount = ServiceClass.instanceCount.get();
+
+    BindingProvider provider1 = jaxWsHandler.createSoapClient(serviceDescriptor);
+    BindingProvider provider2 = jaxWsHandler.createSoapClient(serviceDescriptor);
+
+    assertNotSame(provider1, provider2);
+    assertEquals(initialInstanceCount + 1, ServiceClass.instanceCount.get());
+  }
+
   @Test
   public void testCreateSoapClient_notJaxWsCompatible() {
     thrown.expect(ServiceException.class);
@@ -16,6 +16,8 @@ package com.google.api.ads.common.lib.soap.jaxws.testing.mocks;
 
 import com.google.api.ads.common.lib.soap.jaxws.JaxWsHandler;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
 * Mock of a JAX-WS service locator class used to test
 * {@link JaxWsHandler#createSoapClient(com.google.api.ads.common.lib.soap.SoapServiceDescriptor)}.
@@ -23,6 +25,13 @@ import com.google.api.ads.common.lib.soap.jaxws.JaxWsHandler;
 */
 public class ServiceClass {
 
+  /** The number of service locators created, so tests can check that locators are reused. */
+  public static final AtomicInteger instanceCount = new AtomicInteger();
+
+  public ServiceClass() {
+    instanceCount.incrementAndGet();
+  }
+
   public CampaignServiceInterface getCampaignServiceInterfacePort() {
     return new CampaignServiceInterfaceImpl();
   }
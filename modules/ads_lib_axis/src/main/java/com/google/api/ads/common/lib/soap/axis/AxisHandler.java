@@ -55,13 +55,23 @@ public class AxisHandler extends SoapClientHandler<Stub> {
   private final EngineConfigurationFactory engineConfigurationFactory;
   private final NodeExtractor nodeExtractor;
   private final ImmutableList<String> requestIdXPathComponents;
-  
-  @Inject
+  private final StubTypeMappingRegistry stubTypeMappingRegistry;
+
   public AxisHandler(EngineConfigurationFactory engineConfigurationFactory,
       NodeExtractor nodeExtractor,
       AdsApiConfiguration adsApiConfiguration) {
+    this(engineConfigurationFactory, nodeExtractor, adsApiConfiguration,
+        new StubTypeMappingRegistry());
+  }
+
+  @Inject
+  public AxisHandler(EngineConfigurationFactory engineConfigurationFactory,
+      NodeExtractor nodeExtractor,
+      AdsApiConfiguration adsApiConfiguration,
+      StubTypeMappingRegistry stubTypeMappingRegistry) {
     this.engineConfigurationFactory = engineConfigurationFactory;
     this.nodeExtractor = nodeExtractor;
+    this.stubTypeMappingRegistry = stubTypeMappingRegistry;
     String requestIdXPath = adsApiConfiguration.getRequestIdXPath();
     if (!Strings.isNullOrEmpty(requestIdXPath)) {
       requestIdXPathComponents = ImmutableList.<String>copyOf(
@@ -191,7 +201,8 @@ public class AxisHandler extends SoapClientHandler<Stub> {
   }
 
   /**
-   * Creates a SOAP client using a SOAP service descriptor.
+   * Creates a SOAP client using a SOAP service descriptor. The client shares the type mappings
+   * of all other clients of the same stub class through the {@link StubTypeMappingRegistry}.
    *
    * @param soapServiceDescriptor the descriptor to use for creating a client
    * @return the SOAP client for this descriptor
@@ -208,8 +219,10 @@ public class AxisHandler extends SoapClientHandler<Stub> {
         Service locator = (Service) axisCompatibleService.getLocatorClass()
             .getConstructor(new Class[] {EngineConfiguration.class})
             .newInstance(new Object[] {engineConfiguration});
-        return (Stub) locator.getClass().getMethod("getPort", Class.class)
+        Stub stub = (Stub) locator.getClass().getMethod("getPort", Class.class)
             .invoke(locator, soapServiceDescriptor.getInterfaceClass());
+        stubTypeMappingRegistry.share(stub);
+        return stub;
       }
       throw new ServiceException(
           "Service [" + soapServiceDescriptor + "] not compatible with Axis", null);
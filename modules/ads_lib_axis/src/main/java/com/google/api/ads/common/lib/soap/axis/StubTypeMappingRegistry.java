@@ -0,0 +1,218 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap.axis;
+
+import com.google.api.ads.common.lib.exception.ServiceException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.xml.namespace.QName;
+import org.apache.axis.client.Stub;
+import org.apache.axis.encoding.ser.BaseDeserializerFactory;
+import org.apache.axis.encoding.ser.BaseSerializerFactory;
+
+/**
+ * Shares the type mappings of WSDL2Java-generated stubs between all instances of each stub class.
+ *
+ * <p>Each generated {@code *SoapBindingStub} fills vectors of serializer classes, XML type names
+ * and serializer and deserializer factory classes in its constructor. On the first call of each
+ * stub instance, every factory class is instantiated through reflection and registered with the
+ * stub's service. This registry builds the factories of a stub class once, from the first stub
+ * of that class, and replaces the vectors of every stub of the class with the same shared
+ * vectors. The generated code registers factory instances directly, so later stubs only register
+ * the shared factories on their first call and don't retain their own vectors.
+ *
+ * <p>Stubs that don't have the generated vectors are left unchanged.
+ */
+@Singleton
+@ThreadSafe
+public class StubTypeMappingRegistry {
+
+  @VisibleForTesting
+  static final String SERIALIZER_CLASSES_FIELD = "cachedSerClasses";
+  @VisibleForTesting
+  static final String XML_TYPE_NAMES_FIELD = "cachedSerQNames";
+  @VisibleForTesting
+  static final String SERIALIZER_FACTORIES_FIELD = "cachedSerFactories";
+  @VisibleForTesting
+  static final String DESERIALIZER_FACTORIES_FIELD = "cachedDeserFactories";
+
+  /** The shared type mappings of each stub class, or absent if the class can't share them. */
+  private final ConcurrentMap<Class<?>, Optional<TypeMappings>> typeMappingsByStubClass =
+      Maps.newConcurrentMap();
+
+  @Inject
+  public StubTypeMappingRegistry() {}
+
+  /**
+   * Replaces the type mappings of the stub with the shared type mappings of its class, creating
+   * them from this stub if it is the first of its class. Must be called before the first call
+   * of the stub.
+   *
+   * @param stub the newly created stub
+   * @throws ServiceException if the type mappings could not be read or replaced
+   */
+  public void share(Stub stub) {
+    Class<?> stubClass = stub.getClass();
+    Optional<TypeMappings> typeMappings = typeMappingsByStubClass.get(stubClass);
+    if (typeMappings == null) {
+      typeMappings = createTypeMappings(stub);
+      Optional<TypeMappings> existingTypeMappings =
+          typeMappingsByStubClass.putIfAbsent(stubClass, typeMappings);
+      if (existingTypeMappings != null) {
+        typeMappings = existingTypeMappings;
+      }
+    }
+    if (typeMappings.isPresent()) {
+      typeMappings.get().applyTo(stub);
+    }
+  }
+
+  /**
+   * Returns the number of stub classes whose type mappings are shared.
+   */
+  @VisibleForTesting
+  int getSharedStubClassCount() {
+    int count = 0;
+    for (Optional<TypeMappings> typeMappings : typeMappingsByStubClass.values()) {
+      if (typeMappings.isPresent()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Creates the shared type mappings from the vectors of the first stub of its class.
+   */
+  private static Optional<TypeMappings> createTypeMappings(Stub stub) {
+    Field serializerClassesField = getVectorField(stub.getClass(), SERIALIZER_CLASSES_FIELD);
+    Field xmlTypeNamesField = getVectorField(stub.getClass(), XML_TYPE_NAMES_FIELD);
+    Field serializerFactoriesField = getVectorField(stub.getClass(), SERIALIZER_FACTORIES_FIELD);
+    Field deserializerFactoriesField =
+        getVectorField(stub.getClass(), DESERIALIZER_FACTORIES_FIELD);
+    if (serializerClassesField == null || xmlTypeNamesField == null
+        || serializerFactoriesField == null || deserializerFactoriesField == null) {
+      return Optional.absent();
+    }
+
+    List<?> serializerClasses = getVector(serializerClassesField, stub);
+    List<?> xmlTypeNames = getVector(xmlTypeNamesField, stub);
+    List<?> serializerFactories = getVector(serializerFactoriesField, stub);
+    List<?> deserializerFactories = getVector(deserializerFactoriesField, stub);
+    int size = serializerClasses.size();
+    if (xmlTypeNames.size() != size || serializerFactories.size() != size
+        || deserializerFactories.size() != size) {
+      return Optional.absent();
+    }
+
+    Vector<Object> sharedSerializerFactories = new Vector<Object>(size);
+    Vector<Object> sharedDeserializerFactories = new Vector<Object>(size);
+    for (int i = 0; i < size; i++) {
+      Object serializerFactory = serializerFactories.get(i);
+      Object deserializerFactory = deserializerFactories.get(i);
+      if (serializerFactory instanceof Class && deserializerFactory instanceof Class) {
+        // Instantiates the factories the same way Call.registerTypeMapping does for factory
+        // classes. Entries with a factory that can't be instantiated keep their classes, so
+        // that the generated code handles them as it would without this registry.
+        Class<?> javaType = (Class<?>) serializerClasses.get(i);
+        QName xmlType = (QName) xmlTypeNames.get(i);
+        Object serializerFactoryInstance =
+            BaseSerializerFactory.createFactory((Class<?>) serializerFactory, javaType, xmlType);
+        Object deserializerFactoryInstance = BaseDeserializerFactory.createFactory(
+            (Class<?>) deserializerFactory, javaType, xmlType);
+        if (serializerFactoryInstance != null && deserializerFactoryInstance != null) {
+          serializerFactory = serializerFactoryInstance;
+          deserializerFactory = deserializerFactoryInstance;
+        }
+      }
+      sharedSerializerFactories.add(serializerFactory);
+      sharedDeserializerFactories.add(deserializerFactory);
+    }
+    return Optional.of(new TypeMappings(
+        serializerClassesField,
+        new Vector<Object>(serializerClasses),
+        xmlTypeNamesField,
+        new Vector<Object>(xmlTypeNames),
+        serializerFactoriesField,
+        sharedSerializerFactories,
+        deserializerFactoriesField,
+        sharedDeserializerFactories));
+  }
+
+  /**
+   * Returns the accessible, non-final {@code Vector} field declared by the stub class with the
+   * given name, or null if there is none.
+   */
+  private static Field getVectorField(Class<?> stubClass, String name) {
+    try {
+      Field field = stubClass.getDeclaredField(name);
+      if (!Vector.class.equals(field.getType()) || Modifier.isFinal(field.getModifiers())
+          || Modifier.isStatic(field.getModifiers())) {
+        return null;
+      }
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException e) {
+      return null;
+    } catch (SecurityException e) {
+      return null;
+    }
+  }
+
+  private static List<?> getVector(Field field, Stub stub) {
+    try {
+      return (List<?>) field.get(stub);
+    } catch (IllegalAccessException e) {
+      throw new ServiceException("Unexpected Exception.", e);
+    }
+  }
+
+  /**
+   * The shared vectors of a stub class and the fields to set them to.
+   */
+  private static final class TypeMappings {
+    private final Field[] fields;
+    private final Vector<?>[] vectors;
+
+    TypeMappings(Field serializerClassesField, Vector<?> serializerClasses,
+        Field xmlTypeNamesField, Vector<?> xmlTypeNames,
+        Field serializerFactoriesField, Vector<?> serializerFactories,
+        Field deserializerFactoriesField, Vector<?> deserializerFactories) {
+      this.fields = new Field[] {serializerClassesField, xmlTypeNamesField,
+          serializerFactoriesField, deserializerFactoriesField};
+      this.vectors = new Vector<?>[] {serializerClasses, xmlTypeNames, serializerFactories,
+          deserializerFactories};
+    }
+
+    void applyTo(Stub stub) {
+      try {
+        for (int i = 0; i < fields.length; i++) {
+          fields[i].set(stub, vectors[i]);
+        }
+      } catch (IllegalAccessException e) {
+        throw new ServiceException("Unexpected Exception.", e);
+      }
+    }
+  }
+}
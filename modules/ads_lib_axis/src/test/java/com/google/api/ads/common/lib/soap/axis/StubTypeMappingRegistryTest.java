@@ -0,0 +1,134 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.common.lib.soap.axis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.common.lib.soap.axis.testing.mocks.v201611.MockAxisServiceSoapBindingStub;
+import java.util.Vector;
+import javax.xml.namespace.QName;
+import org.apache.axis.client.Stub;
+import org.apache.axis.encoding.ser.BeanDeserializerFactory;
+import org.apache.axis.encoding.ser.BeanSerializerFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link StubTypeMappingRegistry}.
+ */
+@RunWith(JUnit4.class)
+public class StubTypeMappingRegistryTest {
+
+  private static final String NAMESPACE = "https://example.com/api/v201611";
+  private static final QName OTHER_BEAN_QNAME = new QName(NAMESPACE, "OtherBean");
+  private static final BeanSerializerFactory OTHER_BEAN_SERIALIZER_FACTORY =
+      new BeanSerializerFactory(OtherBean.class, OTHER_BEAN_QNAME);
+  private static final BeanDeserializerFactory OTHER_BEAN_DESERIALIZER_FACTORY =
+      new BeanDeserializerFactory(OtherBean.class, OTHER_BEAN_QNAME);
+
+  private StubTypeMappingRegistry stubTypeMappingRegistry;
+
+  @Before
+  public void setUp() {
+    stubTypeMappingRegistry = new StubTypeMappingRegistry();
+  }
+
+  /**
+   * Tests that stubs of the same class share one set of type mappings, with factory classes
+   * replaced by factory instances.
+   */
+  @Test
+  public void testShare_generatedStubs() {
+    GeneratedStub stub1 = new GeneratedStub();
+    GeneratedStub stub2 = new GeneratedStub();
+    Vector<Object> originalSerializerFactories = stub2.cachedSerFactories;
+    stubTypeMappingRegistry.share(stub1);
+    stubTypeMappingRegistry.share(stub2);
+
+    assertEquals(1, stubTypeMappingRegistry.getSharedStubClassCount());
+    assertSame(stub1.cachedSerClasses, stub2.cachedSerClasses);
+    assertSame(stub1.cachedSerQNames, stub2.cachedSerQNames);
+    assertSame(stub1.cachedSerFactories, stub2.cachedSerFactories);
+    assertSame(stub1.cachedDeserFactories, stub2.cachedDeserFactories);
+    assertNotSame(originalSerializerFactories, stub2.cachedSerFactories);
+
+    assertEquals(2, stub2.cachedSerFactories.size());
+    assertEquals(Bean.class, stub2.cachedSerClasses.get(0));
+    assertEquals(new QName(NAMESPACE, "Bean"), stub2.cachedSerQNames.get(0));
+    assertTrue(stub2.cachedSerFactories.get(0) instanceof BeanSerializerFactory);
+    assertTrue(stub2.cachedDeserFactories.get(0) instanceof BeanDeserializerFactory);
+    // Factory instances created by the stub itself are kept.
+    assertSame(OTHER_BEAN_SERIALIZER_FACTORY, stub2.cachedSerFactories.get(1));
+    assertSame(OTHER_BEAN_DESERIALIZER_FACTORY, stub2.cachedDeserFactories.get(1));
+  }
+
+  /**
+   * Tests that stubs without the generated type mapping vectors are left unchanged.
+   */
+  @Test
+  public void testShare_otherStubs() {
+    stubTypeMappingRegistry.share(new MockAxisServiceSoapBindingStub(null));
+    stubTypeMappingRegistry.share(new MockAxisServiceSoapBindingStub(null));
+
+    assertEquals(0, stubTypeMappingRegistry.getSharedStubClassCount());
+  }
+
+  /**
+   * A bean type of the test service.
+   */
+  public static class Bean {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Another bean type of the test service, whose factories the stub creates itself.
+   */
+  public static class OtherBean extends Bean {}
+
+  /**
+   * Mirrors the type mapping vectors of stubs generated by WSDL2Java.
+   */
+  private static class GeneratedStub extends Stub {
+    private Vector<Object> cachedSerClasses = new Vector<Object>();
+    private Vector<Object> cachedSerQNames = new Vector<Object>();
+    private Vector<Object> cachedSerFactories = new Vector<Object>();
+    private Vector<Object> cachedDeserFactories = new Vector<Object>();
+
+    GeneratedStub() {
+      cachedSerQNames.add(new QName(NAMESPACE, "Bean"));
+      cachedSerClasses.add(Bean.class);
+      cachedSerFactories.add(BeanSerializerFactory.class);
+      cachedDeserFactories.add(BeanDeserializerFactory.class);
+
+      cachedSerQNames.add(OTHER_BEAN_QNAME);
+      cachedSerClasses.add(OtherBean.class);
+      cachedSerFactories.add(OTHER_BEAN_SERIALIZER_FACTORY);
+      cachedDeserFactories.add(OTHER_BEAN_DESERIALIZER_FACTORY);
+    }
+  }
+}
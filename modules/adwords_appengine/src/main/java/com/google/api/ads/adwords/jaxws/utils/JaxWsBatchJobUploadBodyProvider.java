@@ -21,6 +21,8 @@ import com.google.api.ads.common.lib.soap.jaxb.JaxBSerializer;
 import com.google.api.client.http.ByteArrayContent;
 import com.google.common.base.Preconditions;
 
+import java.io.ByteArrayOutputStream;
+
 import javax.xml.namespace.QName;
 
 /**
@@ -31,26 +33,23 @@ public class JaxWsBatchJobUploadBodyProvider<RequestT extends BatchJobMutateRequ
   private static final String REQUEST_NAMESPACE_TEMPLATE =
       "https://adwords.google.com/api/adwords/cm/%s";
 
-  private final QName requestQName;
-  private final Class<RequestT> requestClass;
+  private final JaxBSerializer<RequestT> serializer;
 
   public JaxWsBatchJobUploadBodyProvider(String apiVersion, Class<RequestT> requestClass) {
-    this.requestQName = new QName(
+    QName requestQName = new QName(
         String.format(
             REQUEST_NAMESPACE_TEMPLATE, Preconditions.checkNotNull(apiVersion, "Null API version")),
         "mutate");
-    this.requestClass = requestClass;
+    this.serializer = new JaxBSerializer<RequestT>(requestClass, requestQName);
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public ByteArrayContent getHttpContent(BatchJobMutateRequestInterface request,
       boolean isFirstRequest, boolean isLastRequest) throws BatchJobException {
-    JaxBSerializer<RequestT> serializer =
-        new JaxBSerializer<RequestT>(requestClass, requestQName);
-
-    String serializedRequest = serializer.serialize((RequestT) request, false);
+    ByteArrayOutputStream serializedRequest = new ByteArrayOutputStream();
+    serializer.serialize((RequestT) request, false, serializedRequest);
 
-    return new ByteArrayContent("application/xml", serializedRequest.getBytes());
+    return new ByteArrayContent("application/xml", serializedRequest.toByteArray());
   }
 }
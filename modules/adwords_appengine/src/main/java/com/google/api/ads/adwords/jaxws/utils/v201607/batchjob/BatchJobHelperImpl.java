@@ -37,6 +37,8 @@ class BatchJobHelperImpl
         Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse> {
   private final BatchJobUploader uploader;
   private final BatchJobLogger batchJobLogger;
+  private final JaxBDeserializer<BatchJobMutateResponse> deserializer =
+      new JaxBDeserializer<BatchJobMutateResponse>(BatchJobMutateResponse.class);
 
   @Inject
   BatchJobHelperImpl(BatchJobUploader uploader, BatchJobLogger batchJobLogger) {
@@ -55,8 +57,6 @@ class BatchJobHelperImpl
   @Override
   public BatchJobMutateResponse downloadBatchJobMutateResponse(String downloadUrl)
       throws BatchJobException {
-    JaxBDeserializer<BatchJobMutateResponse> deserializer =
-        new JaxBDeserializer<BatchJobMutateResponse>(BatchJobMutateResponse.class);
     MutateResult[] mutateResults;
     try {
       mutateResults =
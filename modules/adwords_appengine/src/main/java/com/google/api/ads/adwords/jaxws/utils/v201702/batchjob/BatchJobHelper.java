@@ -24,11 +24,9 @@ import com.google.api.ads.adwords.lib.utils.BatchJobHelperInterface;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadResponse;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadStatus;
 import com.google.api.ads.adwords.lib.utils.SessionUtility;
-import com.google.api.ads.common.lib.utils.AdsUtilityInvocationHandler;
+import com.google.api.ads.common.lib.utils.AdsUtility;
 import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
-import com.google.common.reflect.Reflection;
 import com.google.inject.Inject;
-import java.lang.reflect.InvocationHandler;
 
 /** Implementation of {@link BatchJobHelperInterface} for JAX-WS v201702. */
 @SessionUtility
@@ -36,9 +34,10 @@ public class BatchJobHelper
     implements BatchJobHelperInterface<
         Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse> {
 
-  private BatchJobHelperInterface<
+  private final BatchJobHelperInterface<
           Operation, Operand, ApiError, MutateResult, BatchJobMutateResponse>
       impl;
+  private final AdsUtilityRegistry adsUtilityRegistry;
 
   public BatchJobHelper(AdWordsSession session) {
     this(
@@ -47,17 +46,16 @@ public class BatchJobHelper
   }
 
   /** Constructor for Guice. */
-  @SuppressWarnings("unchecked")
   @Inject
   BatchJobHelper(BatchJobHelperImpl helperImpl, AdsUtilityRegistry adsUtilityRegistry) {
-    InvocationHandler invocationHandler =
-        new AdsUtilityInvocationHandler(helperImpl, adsUtilityRegistry);
-    this.impl = Reflection.newProxy(BatchJobHelperInterface.class, invocationHandler);
+    this.impl = helperImpl;
+    this.adsUtilityRegistry = adsUtilityRegistry;
   }
 
   @Override
   public BatchJobUploadResponse uploadBatchJobOperations(
       Iterable<Operation> operations, String uploadUrl) throws BatchJobException {
+    adsUtilityRegistry.addUtility(AdsUtility.BATCH_JOB_HELPER);
     return impl.uploadBatchJobOperations(operations, uploadUrl);
   }
 
@@ -67,6 +65,7 @@ public class BatchJobHelper
       boolean isLastRequest,
       BatchJobUploadStatus batchJobUploadStatus)
       throws BatchJobException {
+    adsUtilityRegistry.addUtility(AdsUtility.BATCH_JOB_HELPER);
     return impl.uploadIncrementalBatchJobOperations(
         operations, isLastRequest, batchJobUploadStatus);
   }
@@ -74,6 +73,7 @@ public class BatchJobHelper
   @Override
   public BatchJobMutateResponse downloadBatchJobMutateResponse(String downloadUrl)
       throws BatchJobException {
+    adsUtilityRegistry.addUtility(AdsUtility.BATCH_JOB_HELPER);
     return impl.downloadBatchJobMutateResponse(downloadUrl);
   }
 }
@@ -0,0 +1,333 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.jaxws.utils.v201702.batchjob;
+
+import com.google.api.ads.adwords.jaxws.utils.v201702.SelectorBuilder;
+import com.google.api.ads.adwords.jaxws.v201702.cm.ApiError;
+import com.google.api.ads.adwords.jaxws.v201702.cm.ApiException;
+import com.google.api.ads.adwords.jaxws.v201702.cm.ApiException_Exception;
+import com.google.api.ads.adwords.jaxws.v201702.cm.BatchJob;
+import com.google.api.ads.adwords.jaxws.v201702.cm.BatchJobPage;
+import com.google.api.ads.adwords.jaxws.v201702.cm.BatchJobServiceInterface;
+import com.google.api.ads.adwords.jaxws.v201702.cm.BatchJobStatus;
+import com.google.api.ads.adwords.jaxws.v201702.cm.InternalApiError;
+import com.google.api.ads.adwords.jaxws.v201702.cm.RateExceededError;
+import com.google.api.ads.adwords.jaxws.v201702.cm.Selector;
+import com.google.api.ads.adwords.lib.selectorfields.v201702.cm.BatchJobField;
+import com.google.api.ads.adwords.lib.utils.BatchJobException;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller.PollDelayPolicy;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller.StatusFetcher;
+import com.google.api.client.util.Clock;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+
+/**
+ * Waits for many batch jobs to finish using a single {@link ScheduledExecutorService}.
+ *
+ * <p>All jobs that are due to be polled are retrieved with one {@code BatchJobService.get} call
+ * whose selector has an {@code IN} predicate on the job IDs. By default, each job is polled after
+ * {@link #INITIAL_POLL_DELAY_MILLIS} and the delay doubles after every poll up to
+ * {@link #MAX_POLL_DELAY_MILLIS}. Once an active job reports progress, the next poll is instead
+ * scheduled halfway to its estimated completion, based on how fast its
+ * {@code estimatedPercentExecuted} increased since the previous poll, so jobs close to completion
+ * are polled more often.
+ *
+ * <p>If the {@code BatchJobService.get} call fails with a transient error, such as a
+ * {@code RateExceededError} or a network failure, the due jobs are polled again after backing off
+ * instead of failing. Any other failure fails the futures of the due jobs. If the call succeeds
+ * but doesn't return a batch job, such as one that was deleted, only that job's future fails.
+ */
+public class BatchJobPoller implements AutoCloseable {
+
+  /** The delay before the first poll of a batch job. */
+  public static final long INITIAL_POLL_DELAY_MILLIS = 10000L;
+
+  /** The maximum delay between polls of a batch job. */
+  public static final long MAX_POLL_DELAY_MILLIS = 5 * 60 * 1000L;
+
+  /** How often to check for batch jobs that are due to be polled. */
+  private static final long TICK_MILLIS = 500L;
+
+  private final BatchStatusPoller<BatchJob> poller;
+  @Nullable private final ProgressPollDelayPolicy progressPolicy;
+
+  /**
+   * Constructs a poller that adapts the delay between polls of each batch job to its progress.
+   *
+   * @param batchJobService the BatchJobService stub to make calls to
+   * @param scheduler the scheduler to poll on. This poller does not shut it down.
+   */
+  public BatchJobPoller(BatchJobServiceInterface batchJobService,
+      ScheduledExecutorService scheduler) {
+    this(batchJobService, scheduler,
+        new ProgressPollDelayPolicy(INITIAL_POLL_DELAY_MILLIS, MAX_POLL_DELAY_MILLIS));
+  }
+
+  /**
+   * Constructs a poller that uses the specified policy between polls of each batch job.
+   *
+   * @param batchJobService the BatchJobService stub to make calls to
+   * @param scheduler the scheduler to poll on. This poller does not shut it down.
+   * @param pollDelayPolicy determines how long to wait between polls of each batch job
+   */
+  public BatchJobPoller(BatchJobServiceInterface batchJobService,
+      ScheduledExecutorService scheduler, PollDelayPolicy<BatchJob> pollDelayPolicy) {
+    Preconditions.checkNotNull(batchJobService, "Null batch job service");
+    long tickMillis = Math.max(1L,
+        Math.min(TICK_MILLIS, pollDelayPolicy.getNextPollDelayMillis(null, 0)));
+    this.progressPolicy = pollDelayPolicy instanceof ProgressPollDelayPolicy
+        ? (ProgressPollDelayPolicy) pollDelayPolicy : null;
+    this.poller = new BatchStatusPoller<BatchJob>(new BatchJobStatusFetcher(batchJobService),
+        pollDelayPolicy, scheduler, tickMillis);
+  }
+
+  /**
+   * Starts tracking a batch job.
+   *
+   * @param batchJobId the batch job ID
+   * @return a future for the batch job once its status is {@link BatchJobStatus#DONE} or
+   *     {@link BatchJobStatus#CANCELED}. The future fails if there was an error retrieving the
+   *     job, and can be cancelled to stop tracking the job.
+   */
+  public ListenableFuture<BatchJob> track(final long batchJobId) {
+    ListenableFuture<BatchJob> batchJob = poller.track(batchJobId);
+    if (progressPolicy != null) {
+      // Discards the job's progress however the future completes, including cancellation.
+      batchJob.addListener(new Runnable() {
+        @Override
+        public void run() {
+          progressPolicy.forget(batchJobId);
+        }
+      }, MoreExecutors.directExecutor());
+    }
+    return batchJob;
+  }
+
+  /**
+   * Starts tracking a batch job and returns a future for the URL of its results.
+   *
+   * @param batchJobId the batch job ID
+   * @return a future for the download URL of the batch job once it is done. The future fails
+   *     with a {@link BatchJobException} if the job was cancelled or has no download URL.
+   */
+  public ListenableFuture<String> trackDownloadUrl(final long batchJobId) {
+    return Futures.transformAsync(track(batchJobId), new AsyncFunction<BatchJob, String>() {
+      @Override
+      public ListenableFuture<String> apply(BatchJob batchJob) {
+        if (batchJob.getStatus() != BatchJobStatus.DONE
+            || batchJob.getDownloadUrl() == null || batchJob.getDownloadUrl().getUrl() == null) {
+          return Futures.immediateFailedFuture(new BatchJobException(String.format(
+              "Batch job %d finished with status %s and no download URL", batchJobId,
+              batchJob.getStatus())));
+        }
+        return Futures.immediateFuture(batchJob.getDownloadUrl().getUrl());
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Returns the number of batch jobs that have not finished yet.
+   */
+  public int getTrackedBatchJobCount() {
+    return poller.getTrackedJobCount();
+  }
+
+  /**
+   * Stops polling and cancels the futures of all unfinished batch jobs.
+   */
+  @Override
+  public void close() {
+    poller.close();
+    if (progressPolicy != null) {
+      progressPolicy.forgetAll();
+    }
+  }
+
+  /**
+   * Retrieves all due batch jobs from the BatchJobService with a single call.
+   */
+  private static class BatchJobStatusFetcher implements StatusFetcher<BatchJob> {
+    private final BatchJobServiceInterface batchJobService;
+
+    BatchJobStatusFetcher(BatchJobServiceInterface batchJobService) {
+      this.batchJobService = batchJobService;
+    }
+
+    @Override
+    public Map<Long, BatchJob> getStatuses(Set<Long> batchJobIds, Map<Long, Exception> failures)
+        throws Exception {
+      String[] ids = new String[batchJobIds.size()];
+      int i = 0;
+      for (Long batchJobId : batchJobIds) {
+        ids[i++] = String.valueOf(batchJobId);
+      }
+      Selector selector = new SelectorBuilder()
+          .fields(BatchJobField.Id, BatchJobField.Status, BatchJobField.ProgressStats,
+              BatchJobField.DownloadUrl, BatchJobField.ProcessingErrors)
+          .in(BatchJobField.Id, ids)
+          .offset(0)
+          .limit(ids.length)
+          .build();
+      BatchJobPage page;
+      try {
+        page = batchJobService.get(selector);
+      } catch (Exception e) {
+        if (!isTransient(e)) {
+          throw e;
+        }
+        // Returns no statuses, so the poller backs off and polls the jobs again.
+        return Collections.emptyMap();
+      }
+
+      Map<Long, BatchJob> batchJobs = Maps.newHashMap();
+      if (page != null) {
+        for (BatchJob batchJob : page.getEntries()) {
+          batchJobs.put(batchJob.getId(), batchJob);
+        }
+      }
+      for (Long batchJobId : batchJobIds) {
+        if (!batchJobs.containsKey(batchJobId)) {
+          // Otherwise the missing job would be polled again forever.
+          failures.put(batchJobId, new BatchJobException("Batch job not found: " + batchJobId));
+        }
+      }
+      return batchJobs;
+    }
+
+    /**
+     * Returns true if the get call may succeed when retried: every error of the API exception is
+     * a {@link RateExceededError} or an {@link InternalApiError}, or the call failed because of a
+     * network error.
+     */
+    private static boolean isTransient(Exception exception) {
+      if (exception instanceof ApiException_Exception) {
+        ApiException apiException = ((ApiException_Exception) exception).getFaultInfo();
+        List<ApiError> errors = apiException == null ? null : apiException.getErrors();
+        if (errors == null || errors.isEmpty()) {
+          return false;
+        }
+        for (ApiError error : errors) {
+          if (!(error instanceof RateExceededError || error instanceof InternalApiError)) {
+            return false;
+          }
+        }
+        return true;
+      }
+      // JAX-WS wraps network failures in a WebServiceException.
+      return exception.getCause() instanceof IOException;
+    }
+
+    @Override
+    public boolean isFinished(BatchJob batchJob) {
+      return batchJob.getStatus() == BatchJobStatus.DONE
+          || batchJob.getStatus() == BatchJobStatus.CANCELED;
+    }
+  }
+
+  /**
+   * Backs off exponentially until an active job reports progress, then polls the job halfway to
+   * its estimated completion, within the initial and maximum delays.
+   */
+  @VisibleForTesting
+  static class ProgressPollDelayPolicy implements PollDelayPolicy<BatchJob> {
+    private final PollDelayPolicy<BatchJob> backoff;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final Clock clock;
+
+    /** The most recent progress of each active job, by job ID. */
+    private final ConcurrentMap<Long, Progress> lastProgress = Maps.newConcurrentMap();
+
+    ProgressPollDelayPolicy(long initialDelayMillis, long maxDelayMillis) {
+      this(initialDelayMillis, maxDelayMillis, Clock.SYSTEM);
+    }
+
+    @VisibleForTesting
+    ProgressPollDelayPolicy(long initialDelayMillis, long maxDelayMillis, Clock clock) {
+      this.backoff =
+          BatchStatusPoller.<BatchJob>exponentialBackoff(initialDelayMillis, maxDelayMillis, 2);
+      this.initialDelayMillis = initialDelayMillis;
+      this.maxDelayMillis = maxDelayMillis;
+      this.clock = clock;
+    }
+
+    @Override
+    public long getNextPollDelayMillis(@Nullable BatchJob batchJob, int pollCount) {
+      if (batchJob == null || batchJob.getId() == null
+          || batchJob.getStatus() != BatchJobStatus.ACTIVE
+          || batchJob.getProgressStats() == null
+          || batchJob.getProgressStats().getEstimatedPercentExecuted() == null) {
+        return backoff.getNextPollDelayMillis(batchJob, pollCount);
+      }
+      Progress progress = new Progress(clock.currentTimeMillis(),
+          batchJob.getProgressStats().getEstimatedPercentExecuted());
+      Progress previous = lastProgress.put(batchJob.getId(), progress);
+      if (previous == null || progress.percentExecuted <= previous.percentExecuted
+          || progress.timeMillis <= previous.timeMillis) {
+        return backoff.getNextPollDelayMillis(batchJob, pollCount);
+      }
+      double millisPerPercent = (double) (progress.timeMillis - previous.timeMillis)
+          / (progress.percentExecuted - previous.percentExecuted);
+      double remainingMillis = Math.max(0, 100 - progress.percentExecuted) * millisPerPercent;
+      return (long) Math.max(initialDelayMillis, Math.min(maxDelayMillis, remainingMillis / 2));
+    }
+
+    /**
+     * Discards the progress of a job that is no longer tracked.
+     */
+    void forget(long batchJobId) {
+      lastProgress.remove(batchJobId);
+    }
+
+    /**
+     * Discards the progress of all jobs.
+     */
+    void forgetAll() {
+      lastProgress.clear();
+    }
+
+    @VisibleForTesting
+    int getActiveJobCount() {
+      return lastProgress.size();
+    }
+  }
+
+  /**
+   * The estimated percent of a job's operations executed at a point in time.
+   */
+  private static final class Progress {
+    final long timeMillis;
+    final int percentExecuted;
+
+    Progress(long timeMillis, int percentExecuted) {
+      this.timeMillis = timeMillis;
+      this.percentExecuted = percentExecuted;
+    }
+  }
+}
@@ -32,6 +32,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.xml.sax.SAXException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 
@@ -87,6 +88,12 @@ public class JaxWsSerializationTest {
     XMLAssert.assertXMLEqual(
         "Serialized request with XML declaration excluded does not match expected value",
         expectedSerializedRequest, serializedRequest);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    serializer.serialize((BatchJobMutateRequest) request, false, outputStream);
+    XMLAssert.assertXMLEqual(
+        "Request serialized to a stream does not match expected value",
+        expectedSerializedRequest, outputStream.toString("UTF-8"));
   }
 }
 
@@ -18,35 +18,59 @@ import com.google.api.ads.adwords.lib.utils.BatchJobException;
 import com.google.api.ads.adwords.lib.utils.BatchJobMutateRequestInterface;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadBodyProvider;
 import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.util.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSortedSet;
 
+import org.apache.axis.Constants;
 import org.apache.axis.encoding.SerializationContext;
 import org.xml.sax.Attributes;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.SortedSet;
 
 import javax.xml.namespace.QName;
 
 /**
  * Implementation of {@link BatchJobUploadBodyProvider} for Axis requests.
+ *
+ * <p>By default, operations are pretty printed. In compact mode, which
+ * {@code BatchJobMutateRequest} uses, whitespace between elements is omitted and the
+ * {@code xsi} and {@code xsd} namespaces used by the {@code xsi:type} attributes are declared
+ * once on the {@code mutate} element instead of on every operation and every element of a simple
+ * type, which makes uploads of many operations considerably smaller.
  */
 public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvider {
-  
+
   private final SortedSet<String> namespaceUris;
-  
+  private final boolean prettyPrint;
+
   public AxisBatchJobUploadBodyProvider(Iterable<String> namespaceUris) {
+    this(namespaceUris, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param namespaceUris the namespace URIs of the operations' types
+   * @param prettyPrint if false, the operations are serialized in compact mode
+   */
+  public AxisBatchJobUploadBodyProvider(Iterable<String> namespaceUris, boolean prettyPrint) {
     this.namespaceUris = ImmutableSortedSet.copyOf(namespaceUris);
+    this.prettyPrint = prettyPrint;
   }
-  
+
   @Override
   public ByteArrayContent getHttpContent(BatchJobMutateRequestInterface request,
       boolean isFirstRequest, boolean isLastRequest) throws BatchJobException {
     Preconditions.checkNotNull(request, "Null request");
 
-    StringWriter writer = new StringWriter();
+    ByteArrayOutputStream serializedRequest = new ByteArrayOutputStream();
+    Writer writer = new BufferedWriter(new OutputStreamWriter(serializedRequest, Charsets.UTF_8));
     SerializationContext context = new SerializationContext(writer) {
       /**
        * Override the serialize method called by the Axis serializer and force it to
@@ -60,7 +84,7 @@ public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvide
       }
     };
     context.setSendDecl(false);
-    context.setPretty(true);
+    context.setPretty(prettyPrint);
     
     // Pre-register namespaces using the *sorted* list of namespaces. This ensures that
     // when performing an incremental upload, the same namespace prefix will be used
@@ -70,11 +94,22 @@ public class AxisBatchJobUploadBodyProvider implements BatchJobUploadBodyProvide
       context.registerPrefixForURI(String.format("ns%d", namespaceIndex++),
           namespaceUri);
     }
+    if (!prettyPrint) {
+      // Declare the xsi and xsd namespaces on the mutate element. Otherwise Axis declares xsi on
+      // each operation and xsd on each element of a simple type, such as an ID or a name.
+      context.registerPrefixForURI("xsi", Constants.URI_DEFAULT_SCHEMA_XSI);
+      context.registerPrefixForURI("xsd", Constants.URI_DEFAULT_SCHEMA_XSD);
+    }
     
     AxisSerializer serializer = new AxisSerializer();
     serializer.serialize(request, context);
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new BatchJobException("Failed to serialize the request", e);
+    }
 
-    return new ByteArrayContent("application/xml", writer.toString().getBytes());
+    return new ByteArrayContent("application/xml", serializedRequest.toByteArray());
   }
 
 }
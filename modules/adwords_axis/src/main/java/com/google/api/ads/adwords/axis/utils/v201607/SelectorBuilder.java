@@ -18,13 +18,11 @@ import com.google.api.ads.adwords.axis.v201607.cm.Selector;
 import com.google.api.ads.adwords.lib.selectorfields.EntityField;
 import com.google.api.ads.adwords.lib.utils.AdWordsInternals;
 import com.google.api.ads.adwords.lib.utils.SelectorBuilderInterface;
-import com.google.api.ads.common.lib.utils.AdsUtilityInvocationHandler;
-import com.google.common.reflect.Reflection;
+import com.google.api.ads.common.lib.utils.AdsUtility;
+import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
 
 import org.joda.time.DateTime;
 
-import java.lang.reflect.InvocationHandler;
-
 /**
  * A builder for {@link Selector} objects.
  *
@@ -33,281 +31,340 @@ import java.lang.reflect.InvocationHandler;
 public class SelectorBuilder implements SelectorBuilderInterface<Selector> {
 
   private final SelectorBuilderInterface<Selector> impl;
+  private final AdsUtilityRegistry adsUtilityRegistry;
 
-  @SuppressWarnings("unchecked")
   public SelectorBuilder() {
-    InvocationHandler invocationHandler =
-        new AdsUtilityInvocationHandler(
-            new SelectorBuilderImpl(), AdWordsInternals.getInstance().getAdsUtilityRegistry());
-    this.impl = Reflection.newProxy(SelectorBuilderInterface.class, invocationHandler);
+    this.impl = new SelectorBuilderImpl();
+    this.adsUtilityRegistry = AdWordsInternals.getInstance().getAdsUtilityRegistry();
   }
 
   @Override
   public Selector build() {
+    trackUsage();
     return impl.build();
   }
 
   @Override
   public SelectorBuilder fields(String... fields) {
+    trackUsage();
     impl.fields(fields);
     return this;
   }
 
   @Override
   public SelectorBuilder fields(EntityField... fields) {
+    trackFieldUsage();
     impl.fields(fields);
     return this;
   }
 
   @Override
   public SelectorBuilder increaseOffsetBy(int additionalOffset) {
+    trackUsage();
     impl.increaseOffsetBy(additionalOffset);
     return this;
   }
 
   @Override
   public SelectorBuilder limit(int limit) {
+    trackUsage();
     impl.limit(limit);
     return this;
   }
 
   @Override
   public SelectorBuilder offset(int offset) {
+    trackUsage();
     impl.offset(offset);
     return this;
   }
 
   @Override
   public SelectorBuilder removeLimitAndOffset() {
+    trackUsage();
     impl.removeLimitAndOffset();
     return this;
   }
 
   @Override
   public SelectorBuilder orderAscBy(String field) {
+    trackUsage();
     impl.orderAscBy(field);
     return this;
   }
 
   @Override
   public SelectorBuilder orderAscBy(EntityField field) {
+    trackFieldUsage();
     impl.orderAscBy(field);
     return this;
   }
 
   @Override
   public SelectorBuilder orderDescBy(String field) {
+    trackUsage();
     impl.orderDescBy(field);
     return this;
   }
 
   @Override
   public SelectorBuilder orderDescBy(EntityField field) {
+    trackFieldUsage();
     impl.orderDescBy(field);
     return this;
   }
 
   @Override
   public SelectorBuilder removeOrderBy(String field) {
+    trackUsage();
     impl.removeOrderBy(field);
     return this;
   }
 
   @Override
   public SelectorBuilder removeOrderBy(EntityField field) {
+    trackFieldUsage();
     impl.removeOrderBy(field);
     return this;
   }
 
   @Override
   public SelectorBuilder forDateRange(DateTime start, DateTime end) {
+    trackUsage();
     impl.forDateRange(start, end);
     return this;
   }
 
   @Override
   public SelectorBuilder equals(String field, String propertyValue) {
+    trackUsage();
     impl.equals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder equals(EntityField field, String propertyValue) {
+    trackFieldUsage();
     impl.equals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder notEquals(String field, String propertyValue) {
+    trackUsage();
     impl.notEquals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder notEquals(EntityField field, String propertyValue) {
+    trackFieldUsage();
     impl.notEquals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder contains(String field, String propertyValue) {
+    trackUsage();
     impl.contains(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder contains(EntityField field, String propertyValue) {
+    trackFieldUsage();
     impl.contains(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder containsIgnoreCase(String field, String propertyValue) {
+    trackUsage();
     impl.containsIgnoreCase(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder containsIgnoreCase(EntityField field, String propertyValue) {
+    trackFieldUsage();
     impl.containsIgnoreCase(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder doesNotContain(String field, String propertyValue) {
+    trackUsage();
     impl.doesNotContain(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder doesNotContain(EntityField field, String propertyValue) {
+    trackFieldUsage();
     impl.doesNotContain(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder doesNotContainIgnoreCase(String field, String propertyValue) {
+    trackUsage();
     impl.doesNotContainIgnoreCase(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder doesNotContainIgnoreCase(EntityField field, String propertyValue) {
+    trackFieldUsage();
     impl.doesNotContainIgnoreCase(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder greaterThan(String field, long propertyValue) {
+    trackUsage();
     impl.greaterThan(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder greaterThan(EntityField field, long propertyValue) {
+    trackFieldUsage();
     impl.greaterThan(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder greaterThanEquals(String field, long propertyValue) {
+    trackUsage();
     impl.greaterThanEquals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder greaterThanEquals(EntityField field, long propertyValue) {
+    trackFieldUsage();
     impl.greaterThanEquals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder lessThan(String field, long propertyValue) {
+    trackUsage();
     impl.lessThan(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder lessThan(EntityField field, long propertyValue) {
+    trackFieldUsage();
     impl.lessThan(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder lessThanEquals(String field, long propertyValue) {
+    trackUsage();
     impl.lessThanEquals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder lessThanEquals(EntityField field, long propertyValue) {
+    trackFieldUsage();
     impl.lessThanEquals(field, propertyValue);
     return this;
   }
 
   @Override
   public SelectorBuilder equalsId(Long id) {
+    trackUsage();
     impl.equalsId(id);
     return this;
   }
 
   @Override
   public SelectorBuilder in(String field, String... values) {
+    trackUsage();
     impl.in(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder in(EntityField field, String... values) {
+    trackFieldUsage();
     impl.in(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder notIn(String field, String... values) {
+    trackUsage();
     impl.notIn(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder notIn(EntityField field, String... values) {
+    trackFieldUsage();
     impl.notIn(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder containsAny(String field, String... values) {
+    trackUsage();
     impl.containsAny(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder containsAny(EntityField field, String... values) {
+    trackFieldUsage();
     impl.containsAny(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder containsAll(String field, String... values) {
+    trackUsage();
     impl.containsAll(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder containsAll(EntityField field, String... values) {
+    trackFieldUsage();
     impl.containsAll(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder containsNone(String field, String... values) {
+    trackUsage();
     impl.containsNone(field, values);
     return this;
   }
 
   @Override
   public SelectorBuilder containsNone(EntityField field, String... values) {
+    trackFieldUsage();
     impl.containsNone(field, values);
     return this;
   }
+
+  /**
+   * Records use of the selector builder. The utilities recorded here must match the
+   * {@code UsesAdsUtilities} annotations on {@link SelectorBuilderInterface}.
+   */
+  private void trackUsage() {
+    adsUtilityRegistry.addUtility(AdsUtility.SELECTOR_BUILDER);
+  }
+
+  /**
+   * Records use of the selector builder with {@code EntityField} arguments.
+   */
+  private void trackFieldUsage() {
+    adsUtilityRegistry.addUtility(AdsUtility.SELECTOR_BUILDER);
+    adsUtilityRegistry.addUtility(AdsUtility.SELECTOR_FIELD);
+  }
 }
@@ -21,6 +21,8 @@ import com.google.api.ads.adwords.lib.utils.BatchJobMutateRequestInterface;
 import com.google.api.ads.adwords.lib.utils.BatchJobUploadBodyProvider;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -60,18 +62,30 @@ public class BatchJobMutateRequest implements BatchJobMutateRequestInterface {
     TYPE_DESC.addFieldDesc(elemField);
   }
 
+  /**
+   * The compact upload body provider shared by all requests. Finding the namespace URIs requires
+   * creating a service call, so it is only done once.
+   */
+  private static final Supplier<BatchJobUploadBodyProvider> UPLOAD_BODY_PROVIDER =
+      Suppliers.memoize(new Supplier<BatchJobUploadBodyProvider>() {
+        @Override
+        public BatchJobUploadBodyProvider get() {
+          Set<String> namespaceUris = Sets.newHashSet();
+          for (TypeMapping typeMapping : BatchJobHelperImpl.getServiceTypeMappings()) {
+            for (Class<?> clazz : typeMapping.getAllClasses()) {
+              QName qName = typeMapping.getTypeQName(clazz);
+              if (qName != null) {
+                namespaceUris.add(qName.getNamespaceURI());
+              }
+            }
+          }
+          return new AxisBatchJobUploadBodyProvider(namespaceUris, false);
+        }
+      });
+
   @Override
   public BatchJobUploadBodyProvider createBatchJobUploadBodyProvider() {
-    Set<String> namespaceUris = Sets.newHashSet();
-    for (TypeMapping typeMapping : BatchJobHelperImpl.getServiceTypeMappings()) {
-      for (Class<?> clazz : typeMapping.getAllClasses()) {
-        QName qName = typeMapping.getTypeQName(clazz);
-        if (qName != null) {
-          namespaceUris.add(qName.getNamespaceURI());
-        }
-      }
-    }
-    return new AxisBatchJobUploadBodyProvider(namespaceUris);
+    return UPLOAD_BODY_PROVIDER.get();
   }
 
   public Operation[] getOperations() {
@@ -18,11 +18,13 @@ import com.google.api.ads.adwords.axis.v201607.cm.AdGroupCriterion;
 import com.google.api.ads.adwords.axis.v201607.cm.ProductDimension;
 import com.google.api.ads.adwords.axis.v201607.cm.ProductPartition;
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.lang.SerializationUtils;
@@ -33,6 +35,7 @@ import org.apache.commons.lang.builder.ToStringStyle;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 
 import javax.annotation.Nullable;
@@ -47,6 +50,18 @@ public class ProductPartitionNode {
   @Nullable private final ProductDimension dimension;
   @Nullable private Long partitionId;
   private NodeState nodeState;
+
+  /**
+   * Indicates if this node's type, bid, or set of children has changed since the last call to
+   * {@link #clearChanges()}. New nodes start out as changed.
+   */
+  private boolean isChanged;
+
+  /**
+   * The children of this node whose subtrees contain at least one changed node. Used by
+   * {@link ProductPartitionTreeImpl} to limit its diff to the modified parts of the tree.
+   */
+  private final Set<ProductPartitionNode> childrenWithChanges;
   
   /**
    * A map from ProductDimension to child ProductPartitionNode.
@@ -76,6 +91,8 @@ public class ProductPartitionNode {
     this.children = Maps.newTreeMap(comparator);
     this.partitionId = partitionId;
     this.nodeState = new BiddableUnitState();
+    this.isChanged = true;
+    this.childrenWithChanges = Sets.newIdentityHashSet();
   }
 
   /**
@@ -154,7 +171,7 @@ public class ProductPartitionNode {
    * @return this node, updated to a subdivision node
    */
   public ProductPartitionNode asSubdivision() {
-    nodeState = nodeState.transitionTo(NodeType.SUBDIVISION);
+    transitionTo(NodeType.SUBDIVISION);
     return this;
   }
 
@@ -301,6 +318,7 @@ public class ProductPartitionNode {
           String.format("A child with dimension %s already exists", toString(childDimension)));
     }
     children.put(childDimension, newChild);
+    markChanged();
     return newChild;
   }
 
@@ -316,7 +334,8 @@ public class ProductPartitionNode {
       throw new IllegalArgumentException(String.format(
           "Attempted to remove child %s but no such child exists", toString(childDimension)));
     }
-    children.remove(childDimension);
+    childrenWithChanges.remove(children.remove(childDimension));
+    markChanged();
     return this;
   }
   
@@ -326,7 +345,11 @@ public class ProductPartitionNode {
    * @return this node
    */
   public ProductPartitionNode removeAllChildren() {
-    children.clear();
+    if (hasChildren()) {
+      children.clear();
+      childrenWithChanges.clear();
+      markChanged();
+    }
     return this;
   }
 
@@ -341,7 +364,7 @@ public class ProductPartitionNode {
     if (getParent() == null) {
       throw new IllegalStateException("The root node cannot be an excluded unit");
     }
-    nodeState = nodeState.transitionTo(NodeType.EXCLUDED_UNIT);
+    transitionTo(NodeType.EXCLUDED_UNIT);
     removeAllChildren();
     return this;
   }
@@ -352,7 +375,7 @@ public class ProductPartitionNode {
    * @return this node, updated to a biddable node
    */
   public ProductPartitionNode asBiddableUnit() {
-    nodeState = nodeState.transitionTo(NodeType.BIDDABLE_UNIT);
+    transitionTo(NodeType.BIDDABLE_UNIT);
     removeAllChildren();
     return this;
   }
@@ -365,7 +388,76 @@ public class ProductPartitionNode {
    * @throws IllegalStateException if this node is not a biddable UNIT node
    */
   public ProductPartitionNode setBid(@Nullable Long bidInMicros) {
+    Long previousBidInMicros = this.nodeState.getBidInMicros();
     this.nodeState.setBidInMicros(bidInMicros);
+    if (!Objects.equal(previousBidInMicros, bidInMicros)) {
+      markChanged();
+    }
+    return this;
+  }
+
+  /**
+   * Transitions this node's state to the specified type, marking this node as changed if the type
+   * differs from the current type.
+   */
+  private void transitionTo(NodeType nodeType) {
+    NodeState newNodeState = nodeState.transitionTo(nodeType);
+    if (newNodeState != nodeState) {
+      nodeState = newNodeState;
+      markChanged();
+    }
+  }
+
+  /**
+   * Marks this node as changed and records the path from this node up to the root so that
+   * ancestors know which of their children lead to a changed node.
+   */
+  private void markChanged() {
+    isChanged = true;
+    ProductPartitionNode node = this;
+    ProductPartitionNode ancestor = parentNode;
+    // Stop as soon as an ancestor already knows about the path, since all nodes above it will
+    // have been updated by a previous call.
+    while (ancestor != null && ancestor.childrenWithChanges.add(node)) {
+      node = ancestor;
+      ancestor = ancestor.parentNode;
+    }
+  }
+
+  /**
+   * Returns true if this node's type, bid, or set of children has changed since the last call to
+   * {@link #clearChanges()}.
+   */
+  boolean isChanged() {
+    return isChanged;
+  }
+
+  /**
+   * Returns true if this node or any node in its subtree has changed since the last call to
+   * {@link #clearChanges()}.
+   */
+  boolean hasChanges() {
+    return isChanged || !childrenWithChanges.isEmpty();
+  }
+
+  /**
+   * Returns the children of this node whose subtrees contain at least one changed node.
+   */
+  Iterable<ProductPartitionNode> getChildrenWithChanges() {
+    return ImmutableList.copyOf(childrenWithChanges);
+  }
+
+  /**
+   * Clears the change tracking state of this node and all of its descendants.
+   *
+   * @return this node
+   */
+  ProductPartitionNode clearChanges() {
+    isChanged = false;
+    childrenWithChanges.clear();
+    for (ProductPartitionNode child : children.values()) {
+      child.clearChanges();
+    }
     return this;
   }
   
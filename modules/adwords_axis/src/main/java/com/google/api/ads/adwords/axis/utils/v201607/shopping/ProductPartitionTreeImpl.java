@@ -85,7 +85,7 @@ class ProductPartitionTreeImpl
    * be a deep copy of the ad group's original root node.
    *
    * <p>This root will be used to detect changes made to the tree under {@code root}. See
-   * {@link #createMutateOperationPairs()}.
+   * {@link #createMutateOperationPairs(boolean)}.
    */
   private final ProductPartitionNode originalRoot;
 
@@ -143,6 +143,9 @@ class ProductPartitionTreeImpl
       // The starting temp ID should be -1 if all nodes are non-temporary (have positive IDs),
       // else start at one less than the lowest ID found in the tree.
       startingTempId = minimumId >= 0L ? -1L : minimumId - 1L;
+      // The tree under root now matches originalRoot, so only nodes modified from this point on
+      // need to be compared when creating mutate operations.
+      root.clearChanges();
     }
     this.idGenerator = new AbstractSequentialIterator<Long>(startingTempId) {
       @Override
@@ -354,7 +357,17 @@ class ProductPartitionTreeImpl
 
   @Override
   public List<AdGroupCriterionOperation> getMutateOperations() {
-    return Lists.transform(createMutateOperationPairs(),
+    return getMutateOperations(true);
+  }
+
+  /**
+   * Returns the operations that will apply the changes made to this tree.
+   *
+   * @param onlyChangedSubtrees if true, only compare the subtrees that contain nodes modified since
+   *     this tree was created. Otherwise, compare every node of the original and current trees.
+   */
+  List<AdGroupCriterionOperation> getMutateOperations(boolean onlyChangedSubtrees) {
+    return Lists.transform(createMutateOperationPairs(onlyChangedSubtrees),
         new Function<OperationPair, AdGroupCriterionOperation>() {
           @Override
           public AdGroupCriterionOperation apply(OperationPair input) {
@@ -365,8 +378,11 @@ class ProductPartitionTreeImpl
 
   /**
    * Creates and returns the pairs of node/operation that will apply the changes made to this tree.
+   *
+   * @param onlyChangedSubtrees if true, skip subtrees that have not changed since this tree was
+   *     created
    */
-  private List<OperationPair> createMutateOperationPairs() {
+  private List<OperationPair> createMutateOperationPairs(boolean onlyChangedSubtrees) {
     List<OperationPair> ops = Lists.newArrayList();
 
     if (originalRoot == null) {
@@ -374,11 +390,17 @@ class ProductPartitionTreeImpl
       return createAddOperations(root);
     }
 
+    if (onlyChangedSubtrees && !root.hasChanges()) {
+      // Nothing has been modified since the tree was created.
+      return ops;
+    }
+
     // Add the mutate operations required to apply changes to the root node.
-    Set<ProductDimension> dimensionsToProcess = addMutateOperations(originalRoot, root, ops);
+    Set<ProductDimension> dimensionsToProcess =
+        addMutateOperations(originalRoot, root, onlyChangedSubtrees, ops);
 
     // Add additional mutate operations for the remaining child dimensions to process.
-    addMutateOperationsByParent(originalRoot, root, dimensionsToProcess, ops);
+    addMutateOperationsByParent(originalRoot, root, dimensionsToProcess, onlyChangedSubtrees, ops);
     return ops;
   }
 
@@ -389,11 +411,12 @@ class ProductPartitionTreeImpl
    * @param originalParentNode required - must not be null
    * @param newParentNode required - must not be null
    * @param childDimensionsToProcess the child dimensions to process
+   * @param onlyChangedSubtrees if true, skip subtrees that have not changed
    * @param ops the operations list to add to
    */
   private void addMutateOperationsByParent(ProductPartitionNode originalParentNode,
       ProductPartitionNode newParentNode, Set<ProductDimension> childDimensionsToProcess,
-      List<OperationPair> ops) {
+      boolean onlyChangedSubtrees, List<OperationPair> ops) {
     for (ProductDimension dimensionToProcess : childDimensionsToProcess) {
       ProductPartitionNode originalChild = originalParentNode.hasChild(dimensionToProcess)
               ? originalParentNode.getChild(dimensionToProcess)
@@ -401,8 +424,13 @@ class ProductPartitionTreeImpl
       ProductPartitionNode newChild = newParentNode.hasChild(dimensionToProcess)
               ? newParentNode.getChild(dimensionToProcess)
               : null;
+      if (onlyChangedSubtrees && originalChild != null && newChild != null
+          && !newChild.hasChanges()) {
+        // Neither the child nor any of its descendants changed, so it still matches the original.
+        continue;
+      }
       Set<ProductDimension> grandchildDimensionsToProcess =
-          addMutateOperations(originalChild, newChild, ops);
+          addMutateOperations(originalChild, newChild, onlyChangedSubtrees, ops);
       if (!grandchildDimensionsToProcess.isEmpty()) {
         // Logic check - the only condition where further processing of children is required
         // is when the parent exists in both trees. If the parent is null in one tree but
@@ -415,7 +443,8 @@ class ProductPartitionTreeImpl
             "Original child should not be null if there are children to process");
         Preconditions.checkState(newChild != null,
             "New child should not be null if there are children to process");
-        addMutateOperationsByParent(originalChild, newChild, grandchildDimensionsToProcess, ops);
+        addMutateOperationsByParent(originalChild, newChild, grandchildDimensionsToProcess,
+            onlyChangedSubtrees, ops);
       }
     }
   }
@@ -429,12 +458,14 @@ class ProductPartitionTreeImpl
    *
    * @param originalNode may be null
    * @param newNode may be null
+   * @param onlyChangedSubtrees if true, only return the child dimensions whose subtrees changed
    * @param ops the operations list to add to
    *
    * @return the set of child product dimensions that require further processing
    */
   private Set<ProductDimension> addMutateOperations(@Nullable ProductPartitionNode originalNode,
-      @Nullable ProductPartitionNode newNode, List<OperationPair> ops) {
+      @Nullable ProductPartitionNode newNode, boolean onlyChangedSubtrees,
+      List<OperationPair> ops) {
     Set<ProductDimension> childDimensionsToProcess =
         Sets.newTreeSet(dimensionComparator);
 
@@ -483,8 +514,15 @@ class ProductPartitionTreeImpl
     }
 
     if (isProcessChildren) {
-      for (ProductPartitionNode childNode :
-          Iterables.concat(originalNode.getChildren(), newNode.getChildren())) {
+      Iterable<ProductPartitionNode> childNodes;
+      if (onlyChangedSubtrees && !newNode.isChanged()) {
+        // The set of children is the same in both trees, so only the children that lead to
+        // changed nodes can produce operations.
+        childNodes = newNode.getChildrenWithChanges();
+      } else {
+        childNodes = Iterables.concat(originalNode.getChildren(), newNode.getChildren());
+      }
+      for (ProductPartitionNode childNode : childNodes) {
         childDimensionsToProcess.add(childNode.getDimension());
       }
     }
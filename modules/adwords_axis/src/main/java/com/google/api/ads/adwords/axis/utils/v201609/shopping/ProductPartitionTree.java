@@ -24,12 +24,11 @@ import com.google.api.ads.adwords.axis.v201609.cm.Selector;
 import com.google.api.ads.adwords.lib.client.AdWordsSession;
 import com.google.api.ads.adwords.lib.selectorfields.v201609.cm.AdGroupCriterionField;
 import com.google.api.ads.adwords.lib.utils.AdWordsInternals;
-import com.google.api.ads.common.lib.utils.AdsUtilityInvocationHandler;
+import com.google.api.ads.common.lib.utils.AdsUtility;
+import com.google.api.ads.common.lib.utils.AdsUtilityRegistry;
 import com.google.common.base.Functions;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
-import com.google.common.reflect.Reflection;
-import java.lang.reflect.InvocationHandler;
 import java.rmi.RemoteException;
 import java.util.List;
 
@@ -41,6 +40,7 @@ public class ProductPartitionTree
     implements ProductPartitionTreeInterface<ProductPartitionNode, AdGroupCriterionOperation> {
 
   private final ProductPartitionTreeInterface<ProductPartitionNode, AdGroupCriterionOperation> impl;
+  private final AdsUtilityRegistry adsUtilityRegistry;
   
   /**
    * Required fields for any {@link Selector} used to fetch {@link AdGroupCriterion} objects used by
@@ -60,17 +60,9 @@ public class ProductPartitionTree
       ImmutableList.copyOf(
           Collections2.transform(REQUIRED_SELECTOR_FIELD_ENUMS, Functions.toStringFunction()));
 
-  @SuppressWarnings("unchecked")
-  private ProductPartitionTree(final ProductPartitionTreeImpl impl) {
-    InvocationHandler invocationHandler =
-        new AdsUtilityInvocationHandler(
-            impl, AdWordsInternals.getInstance().getAdsUtilityRegistry()) {
-          @Override
-          public String toString() {
-            return impl.toString();
-          }
-        };
-    this.impl = Reflection.newProxy(ProductPartitionTreeInterface.class, invocationHandler);
+  private ProductPartitionTree(ProductPartitionTreeImpl impl) {
+    this.impl = impl;
+    this.adsUtilityRegistry = AdWordsInternals.getInstance().getAdsUtilityRegistry();
   }
 
   /**
@@ -125,6 +117,7 @@ public class ProductPartitionTree
 
   @Override
   public List<AdGroupCriterionOperation> getMutateOperations() {
+    adsUtilityRegistry.addUtility(AdsUtility.PRODUCT_PARTITION_TREE);
     return impl.getMutateOperations();
   }
 
@@ -0,0 +1,324 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.axis.utils.v201702;
+
+import com.google.api.ads.adwords.axis.v201702.ch.AdGroupChangeData;
+import com.google.api.ads.adwords.axis.v201702.ch.CampaignChangeData;
+import com.google.api.ads.adwords.axis.v201702.ch.CustomerChangeData;
+import com.google.api.ads.adwords.axis.v201702.ch.CustomerSyncSelector;
+import com.google.api.ads.adwords.axis.v201702.ch.CustomerSyncServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.ch.FeedChangeData;
+import com.google.api.ads.adwords.axis.v201702.cm.AdGroup;
+import com.google.api.ads.adwords.axis.v201702.cm.AdGroupPage;
+import com.google.api.ads.adwords.axis.v201702.cm.AdGroupServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.cm.ApiException;
+import com.google.api.ads.adwords.axis.v201702.cm.Campaign;
+import com.google.api.ads.adwords.axis.v201702.cm.CampaignPage;
+import com.google.api.ads.adwords.axis.v201702.cm.CampaignServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.cm.DateTimeRange;
+import com.google.api.ads.adwords.axis.v201702.cm.Feed;
+import com.google.api.ads.adwords.axis.v201702.cm.FeedPage;
+import com.google.api.ads.adwords.axis.v201702.cm.FeedServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.cm.Selector;
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.factory.AdWordsServicesInterface;
+import com.google.api.ads.adwords.lib.selectorfields.v201702.cm.AdGroupField;
+import com.google.api.ads.adwords.lib.selectorfields.v201702.cm.CampaignField;
+import com.google.api.ads.adwords.lib.selectorfields.v201702.cm.FeedField;
+import com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.ChangeSource;
+import com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.ChangedEntityFetcher;
+import com.google.api.ads.adwords.lib.utils.CustomerChanges;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * The {@link ChangeSource} and {@link ChangedEntityFetcher} of a
+ * {@link com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer} for the v201702 Axis
+ * services.
+ *
+ * <p>{@link #getChanges(String, String)} selects all campaigns and feeds of the account in a
+ * {@link CustomerSyncSelector} and maps the returned {@link CustomerChangeData}, including the
+ * ad groups nested in each {@link CampaignChangeData}, to {@link CustomerChanges}. The fetch
+ * methods retrieve the changed entities with a get whose selector has an {@code IN} predicate on
+ * the IDs, and pass them to a {@link ChangedEntityHandler}.
+ *
+ * <p>Example:
+ * <pre>
+ * CustomerSyncAdapter adapter =
+ *     new CustomerSyncAdapter(adWordsServices, session, changedEntityHandler);
+ * CustomerChangeSynchronizer synchronizer = new CustomerChangeSynchronizer(adapter, adapter,
+ *     new InMemorySyncTimestampStore(initialTimestamp), 500, 4, executorService);
+ * </pre>
+ *
+ * <p>Implementation is thread-safe if the handler is.
+ */
+@ThreadSafe
+public class CustomerSyncAdapter implements ChangeSource, ChangedEntityFetcher {
+
+  /** The number of entries per page when selecting the IDs of all campaigns and feeds. */
+  static final int PAGE_SIZE = 500;
+
+  private static final DateTimeFormatter DATE_TIME_FORMATTER =
+      DateTimeFormat.forPattern("yyyyMMdd HHmmss ZZZ").withZone(DateTimeZone.UTC);
+
+  private static final CampaignField[] DEFAULT_CAMPAIGN_FIELDS =
+      {CampaignField.Id, CampaignField.Name, CampaignField.Status};
+  private static final AdGroupField[] DEFAULT_AD_GROUP_FIELDS =
+      {AdGroupField.Id, AdGroupField.CampaignId, AdGroupField.Name, AdGroupField.Status};
+  private static final FeedField[] DEFAULT_FEED_FIELDS =
+      {FeedField.Id, FeedField.Name, FeedField.FeedStatus};
+
+  private final AdWordsServicesInterface adWordsServices;
+  private final AdWordsSession session;
+  private final ChangedEntityHandler changedEntityHandler;
+  private final CampaignField[] campaignFields;
+  private final AdGroupField[] adGroupFields;
+  private final FeedField[] feedFields;
+
+  /**
+   * Constructor that retrieves the ID, name and status of changed entities.
+   *
+   * @param adWordsServices the services factory
+   * @param session the session whose credentials are used for all accounts. The client customer
+   *     ID of each account is set on an immutable copy of it.
+   * @param changedEntityHandler the handler of the retrieved entities
+   */
+  public CustomerSyncAdapter(AdWordsServicesInterface adWordsServices, AdWordsSession session,
+      ChangedEntityHandler changedEntityHandler) {
+    this(adWordsServices, session, changedEntityHandler, DEFAULT_CAMPAIGN_FIELDS,
+        DEFAULT_AD_GROUP_FIELDS, DEFAULT_FEED_FIELDS);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param adWordsServices the services factory
+   * @param session the session whose credentials are used for all accounts. The client customer
+   *     ID of each account is set on an immutable copy of it.
+   * @param changedEntityHandler the handler of the retrieved entities
+   * @param campaignFields the fields to retrieve of changed campaigns
+   * @param adGroupFields the fields to retrieve of changed ad groups
+   * @param feedFields the fields to retrieve of changed feeds
+   */
+  public CustomerSyncAdapter(AdWordsServicesInterface adWordsServices, AdWordsSession session,
+      ChangedEntityHandler changedEntityHandler, CampaignField[] campaignFields,
+      AdGroupField[] adGroupFields, FeedField[] feedFields) {
+    this.adWordsServices = Preconditions.checkNotNull(adWordsServices, "Null services");
+    this.session = Preconditions.checkNotNull(session, "Null session");
+    this.changedEntityHandler =
+        Preconditions.checkNotNull(changedEntityHandler, "Null changed entity handler");
+    this.campaignFields = checkFields(campaignFields, "campaign");
+    this.adGroupFields = checkFields(adGroupFields, "ad group");
+    this.feedFields = checkFields(feedFields, "feed");
+  }
+
+  private static <T> T[] checkFields(T[] fields, String entityName) {
+    Preconditions.checkNotNull(fields, "Null %s fields", entityName);
+    Preconditions.checkArgument(fields.length > 0, "No %s fields", entityName);
+    return fields.clone();
+  }
+
+  /**
+   * Returns the changes of all campaigns, ad groups and feeds of the account between
+   * {@code minDateTime} and now.
+   *
+   * @param minDateTime the start of the date time range, in the {@code yyyyMMdd HHmmss <Timezone
+   *     ID>} format of the {@code DateTimeRange} of the {@code CustomerSyncSelector}. The
+   *     service only keeps a limited history of changes, so the initial timestamp of the
+   *     {@link com.google.api.ads.adwords.lib.utils.CustomerChangeSynchronizer.SyncTimestampStore}
+   *     should be recent.
+   */
+  @Override
+  public CustomerChanges getChanges(String clientCustomerId, @Nullable String minDateTime)
+      throws ApiException, RemoteException {
+    AdWordsSession accountSession = session.forClientCustomerId(clientCustomerId);
+    long[] campaignIds = getAllCampaignIds(accountSession);
+    long[] feedIds = getAllFeedIds(accountSession);
+    if (campaignIds.length == 0 && feedIds.length == 0) {
+      return CustomerChanges.builder().build();
+    }
+
+    CustomerSyncSelector selector = new CustomerSyncSelector(
+        new DateTimeRange(minDateTime, DATE_TIME_FORMATTER.print(DateTime.now())),
+        campaignIds, feedIds);
+    CustomerChangeData changeData =
+        adWordsServices.get(accountSession, CustomerSyncServiceInterface.class).get(selector);
+    return toCustomerChanges(changeData);
+  }
+
+  /**
+   * Maps the change data returned by {@code CustomerSyncService} to {@link CustomerChanges}.
+   */
+  static CustomerChanges toCustomerChanges(@Nullable CustomerChangeData changeData) {
+    CustomerChanges.Builder changes = CustomerChanges.builder();
+    if (changeData == null) {
+      return changes.build();
+    }
+    changes.withLastChangeTimestamp(changeData.getLastChangeTimestamp());
+    if (changeData.getChangedCampaigns() != null) {
+      for (CampaignChangeData campaign : changeData.getChangedCampaigns()) {
+        changes.addCampaign(campaign.getCampaignId(),
+            String.valueOf(campaign.getCampaignChangeStatus()));
+        if (campaign.getChangedAdGroups() != null) {
+          for (AdGroupChangeData adGroup : campaign.getChangedAdGroups()) {
+            changes.addAdGroup(adGroup.getAdGroupId(),
+                String.valueOf(adGroup.getAdGroupChangeStatus()));
+          }
+        }
+      }
+    }
+    if (changeData.getChangedFeeds() != null) {
+      for (FeedChangeData feed : changeData.getChangedFeeds()) {
+        changes.addFeed(feed.getFeedId(), String.valueOf(feed.getFeedChangeStatus()));
+      }
+    }
+    return changes.build();
+  }
+
+  @Override
+  public void fetchCampaigns(String clientCustomerId, List<Long> campaignIds)
+      throws ApiException, RemoteException {
+    Selector selector = new SelectorBuilder()
+        .fields(campaignFields)
+        .in(CampaignField.Id, toStrings(campaignIds))
+        .build();
+    CampaignPage page = adWordsServices.get(session.forClientCustomerId(clientCustomerId),
+        CampaignServiceInterface.class).get(selector);
+    changedEntityHandler.handleCampaigns(clientCustomerId,
+        page.getEntries() == null
+            ? Collections.<Campaign>emptyList() : Arrays.asList(page.getEntries()));
+  }
+
+  @Override
+  public void fetchAdGroups(String clientCustomerId, List<Long> adGroupIds)
+      throws ApiException, RemoteException {
+    Selector selector = new SelectorBuilder()
+        .fields(adGroupFields)
+        .in(AdGroupField.Id, toStrings(adGroupIds))
+        .build();
+    AdGroupPage page = adWordsServices.get(session.forClientCustomerId(clientCustomerId),
+        AdGroupServiceInterface.class).get(selector);
+    changedEntityHandler.handleAdGroups(clientCustomerId,
+        page.getEntries() == null
+            ? Collections.<AdGroup>emptyList() : Arrays.asList(page.getEntries()));
+  }
+
+  @Override
+  public void fetchFeeds(String clientCustomerId, List<Long> feedIds)
+      throws ApiException, RemoteException {
+    Selector selector = new SelectorBuilder()
+        .fields(feedFields)
+        .in(FeedField.Id, toStrings(feedIds))
+        .build();
+    FeedPage page = adWordsServices.get(session.forClientCustomerId(clientCustomerId),
+        FeedServiceInterface.class).get(selector);
+    changedEntityHandler.handleFeeds(clientCustomerId,
+        page.getEntries() == null
+            ? Collections.<Feed>emptyList() : Arrays.asList(page.getEntries()));
+  }
+
+  /**
+   * Returns the IDs of all campaigns of the account.
+   */
+  private long[] getAllCampaignIds(AdWordsSession accountSession)
+      throws ApiException, RemoteException {
+    CampaignServiceInterface campaignService =
+        adWordsServices.get(accountSession, CampaignServiceInterface.class);
+    SelectorBuilder builder =
+        new SelectorBuilder().fields(CampaignField.Id).offset(0).limit(PAGE_SIZE);
+    List<Long> ids = Lists.newArrayList();
+    CampaignPage page;
+    do {
+      page = campaignService.get(builder.build());
+      if (page.getEntries() != null) {
+        for (Campaign campaign : page.getEntries()) {
+          ids.add(campaign.getId());
+        }
+      }
+      builder.increaseOffsetBy(PAGE_SIZE);
+    } while (hasMorePages(page.getTotalNumEntries(), ids.size(), page.getEntries()));
+    return Longs.toArray(ids);
+  }
+
+  /**
+   * Returns the IDs of all feeds of the account.
+   */
+  private long[] getAllFeedIds(AdWordsSession accountSession)
+      throws ApiException, RemoteException {
+    FeedServiceInterface feedService =
+        adWordsServices.get(accountSession, FeedServiceInterface.class);
+    SelectorBuilder builder =
+        new SelectorBuilder().fields(FeedField.Id).offset(0).limit(PAGE_SIZE);
+    List<Long> ids = Lists.newArrayList();
+    FeedPage page;
+    do {
+      page = feedService.get(builder.build());
+      if (page.getEntries() != null) {
+        for (Feed feed : page.getEntries()) {
+          ids.add(feed.getId());
+        }
+      }
+      builder.increaseOffsetBy(PAGE_SIZE);
+    } while (hasMorePages(page.getTotalNumEntries(), ids.size(), page.getEntries()));
+    return Longs.toArray(ids);
+  }
+
+  private static boolean hasMorePages(@Nullable Integer totalNumEntries, int numRetrieved,
+      @Nullable Object[] entries) {
+    return entries != null && entries.length > 0 && totalNumEntries != null
+        && numRetrieved < totalNumEntries;
+  }
+
+  private static String[] toStrings(List<Long> ids) {
+    Preconditions.checkArgument(!ids.isEmpty(), "No IDs");
+    String[] strings = new String[ids.size()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = String.valueOf(ids.get(i));
+    }
+    return strings;
+  }
+
+  /**
+   * Updates the local copy of the entities retrieved by a {@link CustomerSyncAdapter}.
+   */
+  public interface ChangedEntityHandler {
+
+    /**
+     * Handles the changed campaigns of the account.
+     */
+    void handleCampaigns(String clientCustomerId, List<Campaign> campaigns);
+
+    /**
+     * Handles the changed ad groups of the account.
+     */
+    void handleAdGroups(String clientCustomerId, List<AdGroup> adGroups);
+
+    /**
+     * Handles the changed feeds of the account.
+     */
+    void handleFeeds(String clientCustomerId, List<Feed> feeds);
+  }
+}
@@ -14,6 +14,10 @@
 
 package com.google.api.ads.adwords.axis.utils.v201609.batchjob;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import com.google.api.ads.adwords.axis.utils.AxisBatchJobUploadBodyProvider;
 import com.google.api.ads.adwords.axis.v201609.cm.AdvertisingChannelType;
 import com.google.api.ads.adwords.axis.v201609.cm.BiddingStrategyConfiguration;
@@ -31,7 +35,19 @@ import com.google.api.ads.adwords.axis.v201609.cm.ManualCpcBiddingScheme;
 import com.google.api.ads.adwords.axis.v201609.cm.Money;
 import com.google.api.ads.adwords.axis.v201609.cm.NegativeCampaignCriterion;
 import com.google.api.ads.adwords.axis.v201609.cm.Operator;
+import com.google.api.ads.adwords.lib.utils.BatchJobUploadBodyProvider;
 import com.google.api.ads.adwords.lib.utils.testing.BatchJobUploadBodyProviderTest;
+import com.google.api.ads.common.lib.soap.testing.CustomDifferenceListener;
+import com.google.api.ads.common.lib.utils.Streams;
+import com.google.api.client.util.Charsets;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.custommonkey.xmlunit.Diff;
+import org.custommonkey.xmlunit.XMLAssert;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -42,6 +58,64 @@ import org.junit.runners.JUnit4;
 public class AxisBatchJobUploadBodyProviderTest
     extends BatchJobUploadBodyProviderTest<BatchJobMutateRequest> {
 
+  /**
+   * Tests that the compact serialization used by requests is equivalent to the pretty printed
+   * one, without whitespace between elements and with the xsi and xsd namespaces declared once.
+   */
+  @Test
+  public void testCompactSerialization() throws Exception {
+    BatchJobMutateRequest request = createMutateRequest();
+    addBudgetOperation(request, -1L, "Test budget", 50000000L, "STANDARD");
+    addCampaignOperation(
+        request, -2L, "Test campaign #1", "PAUSED", "SEARCH", -1L, "MANUAL_CPC", false);
+    addCampaignOperation(
+        request, -3L, "Test campaign #2", "PAUSED", "SEARCH", -1L, "MANUAL_CPC", false);
+    addCampaignNegativeKeywordOperation(request, -2L, "venus", "BROAD");
+    addCampaignNegativeKeywordOperation(request, -3L, "venus", "BROAD");
+
+    List<String> namespaceUris =
+        ImmutableList.of("https://adwords.google.com/api/adwords/cm/v201609");
+    String compactXml =
+        serialize(new AxisBatchJobUploadBodyProvider(namespaceUris, false), request);
+    String prettyXml = serialize(new AxisBatchJobUploadBodyProvider(namespaceUris), request);
+    String requestXml = serialize(request.createBatchJobUploadBodyProvider(), request);
+
+    assertFalse("Compact XML contains whitespace between elements: " + compactXml,
+        Pattern.compile(">\\s+<").matcher(compactXml).find());
+    assertFalse("Request XML is not compact: " + requestXml,
+        Pattern.compile(">\\s+<").matcher(requestXml).find());
+    assertEquals("Compact XML should declare xsi once: " + compactXml, 1,
+        countMatches("xmlns:xsi=", compactXml));
+    assertEquals("Compact XML should declare xsd once: " + compactXml, 1,
+        countMatches("xmlns:xsd=", compactXml));
+    // Compact XML is about 73% of the size of pretty printed XML for these operations, and about
+    // 70% for many operations.
+    assertTrue(String.format("Compact XML is %d bytes, pretty printed XML is %d bytes",
+        compactXml.length(), prettyXml.length()),
+        compactXml.length() < prettyXml.length() * 0.8);
+
+    Diff diff = new Diff(
+        XMLUnit.getWhitespaceStrippedDocument(XMLUnit.buildControlDocument(prettyXml)),
+        XMLUnit.buildTestDocument(compactXml));
+    diff.overrideDifferenceListener(new CustomDifferenceListener());
+    XMLAssert.assertXMLEqual("Compact XML does not match pretty printed XML", diff, true);
+  }
+
+  private static int countMatches(String regex, String text) {
+    Matcher matcher = Pattern.compile(regex).matcher(text);
+    int count = 0;
+    while (matcher.find()) {
+      count++;
+    }
+    return count;
+  }
+
+  private static String serialize(BatchJobUploadBodyProvider bodyProvider,
+      BatchJobMutateRequest request) throws Exception {
+    return Streams.readAll(
+        bodyProvider.getHttpContent(request, true, true).getInputStream(), Charsets.UTF_8);
+  }
+
   @Override
   protected String getApiVersion() {
     return "v201609";
@@ -0,0 +1,321 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.axis.utils.v201609.batchjob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.adwords.axis.utils.v201609.batchjob.BatchJobPoller.ProgressPollDelayPolicy;
+import com.google.api.ads.adwords.axis.v201609.cm.ApiError;
+import com.google.api.ads.adwords.axis.v201609.cm.ApiException;
+import com.google.api.ads.adwords.axis.v201609.cm.BatchJob;
+import com.google.api.ads.adwords.axis.v201609.cm.BatchJobPage;
+import com.google.api.ads.adwords.axis.v201609.cm.BatchJobServiceInterface;
+import com.google.api.ads.adwords.axis.v201609.cm.BatchJobStatus;
+import com.google.api.ads.adwords.axis.v201609.cm.ProgressStats;
+import com.google.api.ads.adwords.axis.v201609.cm.RateExceededError;
+import com.google.api.ads.adwords.axis.v201609.cm.Selector;
+import com.google.api.ads.adwords.axis.v201609.cm.TemporaryUrl;
+import com.google.api.ads.adwords.lib.utils.BatchJobException;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller;
+import com.google.api.client.util.Clock;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.net.SocketTimeoutException;
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link BatchJobPoller}.
+ */
+@RunWith(JUnit4.class)
+public class BatchJobPollerTest {
+
+  private static final String DOWNLOAD_URL = "https://example.com/batchjob/results";
+
+  @Mock private BatchJobServiceInterface batchJobService;
+
+  private ScheduledExecutorService scheduler;
+  private BatchJobPoller poller;
+  private Map<Long, List<BatchJob>> batchJobResponses;
+  private List<Set<String>> requestedIds;
+  private Queue<Exception> failures;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    poller = new BatchJobPoller(batchJobService, scheduler,
+        BatchStatusPoller.<BatchJob>exponentialBackoff(5L, 20L, 2));
+    batchJobResponses = Maps.newConcurrentMap();
+    requestedIds = Collections.synchronizedList(Lists.<Set<String>>newArrayList());
+    failures = Queues.newConcurrentLinkedQueue();
+
+    // Throws the next failure, if any, or returns the next response of each job in the selector's
+    // IN predicate that has responses.
+    when(batchJobService.get(any(Selector.class))).thenAnswer(new Answer<BatchJobPage>() {
+      @Override
+      public BatchJobPage answer(InvocationOnMock invocation) throws Exception {
+        Selector selector = (Selector) invocation.getArguments()[0];
+        String[] ids = selector.getPredicates()[0].getValues();
+        requestedIds.add(ImmutableSet.copyOf(ids));
+        Exception failure = failures.poll();
+        if (failure != null) {
+          throw failure;
+        }
+        List<BatchJob> entries = Lists.newArrayList();
+        for (String id : ids) {
+          List<BatchJob> responses = batchJobResponses.get(Long.valueOf(id));
+          if (responses != null) {
+            entries.add(responses.size() > 1 ? responses.remove(0) : responses.get(0));
+          }
+        }
+        BatchJobPage page = new BatchJobPage();
+        page.setEntries(entries.toArray(new BatchJob[entries.size()]));
+        return page;
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    poller.close();
+    scheduler.shutdownNow();
+    scheduler.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that jobs that are due at the same time are retrieved with one call.
+   */
+  @Test
+  public void testTrack_pollsDueJobsTogether() throws Exception {
+    setResponses(1L, createBatchJob(1L, BatchJobStatus.DONE, null));
+    setResponses(2L, createBatchJob(2L, BatchJobStatus.ACTIVE, 50),
+        createBatchJob(2L, BatchJobStatus.DONE, 100));
+
+    // Blocks the scheduler until both jobs are tracked.
+    final CountDownLatch tracked = new CountDownLatch(1);
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        Uninterruptibles.awaitUninterruptibly(tracked);
+      }
+    });
+    ListenableFuture<BatchJob> job1 = poller.track(1L);
+    ListenableFuture<BatchJob> job2 = poller.track(2L);
+    tracked.countDown();
+
+    assertEquals(BatchJobStatus.DONE, job1.get(10, TimeUnit.SECONDS).getStatus());
+    assertEquals(BatchJobStatus.DONE, job2.get(10, TimeUnit.SECONDS).getStatus());
+    assertEquals(0, poller.getTrackedBatchJobCount());
+    assertEquals(ImmutableSet.of("1", "2"), requestedIds.get(0));
+    assertEquals(ImmutableSet.of("2"), requestedIds.get(1));
+    assertEquals(2, requestedIds.size());
+  }
+
+  @Test
+  public void testTrackDownloadUrl() throws Exception {
+    setResponses(1L, createBatchJob(1L, BatchJobStatus.ACTIVE, 10),
+        createBatchJob(1L, BatchJobStatus.DONE, 100));
+
+    assertEquals(DOWNLOAD_URL, poller.trackDownloadUrl(1L).get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testTrackDownloadUrl_canceled() throws Exception {
+    setResponses(1L, createBatchJob(1L, BatchJobStatus.CANCELED, null));
+
+    try {
+      poller.trackDownloadUrl(1L).get(10, TimeUnit.SECONDS);
+      fail("Expected the download URL's future to fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof BatchJobException);
+    }
+  }
+
+  @Test
+  public void testTrack_exception() throws Exception {
+    ApiException apiException = new ApiException();
+    doThrow(apiException).when(batchJobService).get(any(Selector.class));
+
+    ListenableFuture<BatchJob> job = poller.track(1L);
+    try {
+      job.get(10, TimeUnit.SECONDS);
+      fail("Expected the batch job's future to fail");
+    } catch (ExecutionException e) {
+      assertSame(apiException, e.getCause());
+    }
+  }
+
+  /**
+   * Tests that jobs are polled again after a transient failure instead of failing.
+   */
+  @Test
+  public void testTrack_transientException() throws Exception {
+    ApiException apiException = new ApiException();
+    apiException.setErrors(new ApiError[] {new RateExceededError()});
+    failures.add(apiException);
+    failures.add(new RemoteException("Read timed out", new SocketTimeoutException()));
+    setResponses(1L, createBatchJob(1L, BatchJobStatus.DONE, null));
+
+    ListenableFuture<BatchJob> job = poller.track(1L);
+
+    assertEquals(BatchJobStatus.DONE, job.get(10, TimeUnit.SECONDS).getStatus());
+    assertEquals(3, requestedIds.size());
+  }
+
+  /**
+   * Tests that a job missing from a successful response fails, without failing the jobs polled
+   * with it.
+   */
+  @Test
+  public void testTrack_notFound() throws Exception {
+    setResponses(1L, createBatchJob(1L, BatchJobStatus.DONE, null));
+
+    // Blocks the scheduler until both jobs are tracked.
+    final CountDownLatch tracked = new CountDownLatch(1);
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        Uninterruptibles.awaitUninterruptibly(tracked);
+      }
+    });
+    ListenableFuture<BatchJob> job1 = poller.track(1L);
+    ListenableFuture<BatchJob> missingJob = poller.track(2L);
+    tracked.countDown();
+
+    assertEquals(BatchJobStatus.DONE, job1.get(10, TimeUnit.SECONDS).getStatus());
+    try {
+      missingJob.get(10, TimeUnit.SECONDS);
+      fail("Expected the missing batch job's future to fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof BatchJobException);
+    }
+    assertEquals(0, poller.getTrackedBatchJobCount());
+    assertEquals(1, requestedIds.size());
+  }
+
+  /**
+   * Tests that the progress of jobs is discarded when they are cancelled or the poller is closed.
+   */
+  @Test
+  public void testTrack_cancelAndCloseDiscardProgress() throws Exception {
+    // Long delays, so that the jobs are not polled during the test.
+    ProgressPollDelayPolicy policy = new ProgressPollDelayPolicy(60000L, 120000L);
+    BatchJobPoller progressPoller = new BatchJobPoller(batchJobService, scheduler, policy);
+    policy.getNextPollDelayMillis(createBatchJob(1L, BatchJobStatus.ACTIVE, 10), 1);
+    policy.getNextPollDelayMillis(createBatchJob(2L, BatchJobStatus.ACTIVE, 10), 1);
+
+    progressPoller.track(1L).cancel(false);
+    assertEquals(1, policy.getActiveJobCount());
+
+    progressPoller.track(2L);
+    progressPoller.close();
+    assertEquals(0, policy.getActiveJobCount());
+  }
+
+  /**
+   * Tests that active jobs are polled halfway to their estimated completion.
+   */
+  @Test
+  public void testProgressPollDelayPolicy() {
+    FakeClock clock = new FakeClock();
+    ProgressPollDelayPolicy policy = new ProgressPollDelayPolicy(1000L, 60000L, clock);
+
+    assertEquals(1000L, policy.getNextPollDelayMillis(null, 0));
+    assertEquals(2000L,
+        policy.getNextPollDelayMillis(createBatchJob(1L, BatchJobStatus.AWAITING_FILE, null), 1));
+    // Backs off until the rate of progress is known.
+    assertEquals(4000L,
+        policy.getNextPollDelayMillis(createBatchJob(1L, BatchJobStatus.ACTIVE, 10), 2));
+
+    // 30% in 10 seconds leaves 60% for an estimated 20 seconds.
+    clock.timeMillis = 10000L;
+    assertEquals(10000L,
+        policy.getNextPollDelayMillis(createBatchJob(1L, BatchJobStatus.ACTIVE, 40), 3));
+
+    // Close to completion, polls after the initial delay.
+    clock.timeMillis = 20000L;
+    assertEquals(1000L,
+        policy.getNextPollDelayMillis(createBatchJob(1L, BatchJobStatus.ACTIVE, 90), 4));
+
+    // Without progress, backs off up to the max delay.
+    clock.timeMillis = 30000L;
+    assertEquals(60000L,
+        policy.getNextPollDelayMillis(createBatchJob(1L, BatchJobStatus.ACTIVE, 90), 10));
+
+    assertEquals(1, policy.getActiveJobCount());
+    policy.forget(1L);
+    assertEquals(0, policy.getActiveJobCount());
+  }
+
+  private void setResponses(long batchJobId, BatchJob... responses) {
+    batchJobResponses.put(batchJobId, Collections.synchronizedList(Lists.newArrayList(responses)));
+  }
+
+  private static BatchJob createBatchJob(long id, BatchJobStatus status,
+      Integer estimatedPercentExecuted) {
+    BatchJob batchJob = new BatchJob();
+    batchJob.setId(id);
+    batchJob.setStatus(status);
+    if (estimatedPercentExecuted != null) {
+      ProgressStats progressStats = new ProgressStats();
+      progressStats.setEstimatedPercentExecuted(estimatedPercentExecuted);
+      batchJob.setProgressStats(progressStats);
+    }
+    if (BatchJobStatus.DONE.equals(status)) {
+      TemporaryUrl downloadUrl = new TemporaryUrl();
+      downloadUrl.setUrl(DOWNLOAD_URL);
+      batchJob.setDownloadUrl(downloadUrl);
+    }
+    return batchJob;
+  }
+
+  private static class FakeClock implements Clock {
+    volatile long timeMillis;
+
+    @Override
+    public long currentTimeMillis() {
+      return timeMillis;
+    }
+  }
+}
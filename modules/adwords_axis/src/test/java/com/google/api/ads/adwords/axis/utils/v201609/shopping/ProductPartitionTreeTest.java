@@ -303,6 +303,78 @@ public class ProductPartitionTreeTest extends MockHttpIntegrationTest {
         mutateOperations.get(brandMotorolaOpNumber).getOperator());
   }
 
+  /**
+   * Tests that the operations generated by only diffing the changed subtrees of a tree match the
+   * operations generated by a full diff of the original and current trees.
+   */
+  @Test
+  public void testChangedSubtreeOperationsMatchFullDiff() {
+    isUtilityRegistryExpected = false;
+    final int brandCount = 5;
+    final int offerCount = 10;
+    List<AdGroupCriterion> adGroupCriteria = Lists.newArrayList();
+    long partitionId = 1L;
+    final long rootPartitionId = partitionId++;
+    adGroupCriteria.add(
+        new CriterionDescriptor(false, false, null, null, rootPartitionId, null).createCriterion());
+    adGroupCriteria.add(new CriterionDescriptor(true, true, ProductDimensions.createBrand(null),
+        null, partitionId++, rootPartitionId).createCriterion());
+    for (int brand = 0; brand < brandCount; brand++) {
+      long brandPartitionId = partitionId++;
+      adGroupCriteria.add(new CriterionDescriptor(false, false,
+          ProductDimensions.createBrand("brand" + brand), null, brandPartitionId, rootPartitionId)
+          .createCriterion());
+      adGroupCriteria.add(new CriterionDescriptor(true, true, ProductDimensions.createOfferId(null),
+          null, partitionId++, brandPartitionId).createCriterion());
+      for (int offer = 0; offer < offerCount; offer++) {
+        adGroupCriteria.add(new CriterionDescriptor(true, false,
+            ProductDimensions.createOfferId("offer" + offer), 1000000L * (offer + 1),
+            partitionId++, brandPartitionId).createCriterion());
+      }
+    }
+
+    ProductPartitionTreeImpl changedSubtreeTree =
+        ProductPartitionTreeImpl.createAdGroupTree(-1L, biddingStrategyConfig, adGroupCriteria);
+    ProductPartitionTreeImpl fullDiffTree =
+        ProductPartitionTreeImpl.createAdGroupTree(-1L, biddingStrategyConfig, adGroupCriteria);
+
+    assertTrue("An unmodified tree should not produce any operations",
+        changedSubtreeTree.getMutateOperations().isEmpty());
+
+    for (ProductPartitionTreeImpl tree : Arrays.asList(changedSubtreeTree, fullDiffTree)) {
+      ProductPartitionNode root = tree.getRoot();
+      // Bid change.
+      root.getChild(ProductDimensions.createBrand("brand0"))
+          .getChild(ProductDimensions.createOfferId("offer3")).setBid(7000000L);
+      // Bid change that is reverted, so no operation should be produced.
+      root.getChild(ProductDimensions.createBrand("brand1"))
+          .getChild(ProductDimensions.createOfferId("offer5")).setBid(1L).setBid(6000000L);
+      // Biddable to excluded.
+      root.getChild(ProductDimensions.createBrand("brand2"))
+          .getChild(ProductDimensions.createOfferId("offer1")).asExcludedUnit();
+      // New child under an existing subdivision.
+      root.getChild(ProductDimensions.createBrand("brand3"))
+          .addChild(ProductDimensions.createOfferId("offerNew")).setBid(2500000L);
+      // Removed child.
+      root.getChild(ProductDimensions.createBrand("brand3"))
+          .removeChild(ProductDimensions.createOfferId("offer9"));
+      // Subdivision to unit.
+      root.getChild(ProductDimensions.createBrand("brand4")).asBiddableUnit().setBid(3000000L);
+      // Excluded unit to subdivision.
+      ProductPartitionNode otherBrand =
+          root.getChild(ProductDimensions.createBrand(null)).asSubdivision();
+      otherBrand.addChild(ProductDimensions.createOfferId(null)).asExcludedUnit();
+      otherBrand.addChild(ProductDimensions.createOfferId("offerOther")).setBid(4000000L);
+    }
+
+    List<AdGroupCriterionOperation> changedSubtreeOperations =
+        changedSubtreeTree.getMutateOperations(true);
+    List<AdGroupCriterionOperation> fullDiffOperations = fullDiffTree.getMutateOperations(false);
+    assertEquals("Operations from changed subtrees do not match operations from a full diff",
+        fullDiffOperations, changedSubtreeOperations);
+    assertEquals("Number of operations is incorrect", 11, changedSubtreeOperations.size());
+  }
+
   /**
    * Tests creating an empty tree and then adding several levels of nodes.
    */
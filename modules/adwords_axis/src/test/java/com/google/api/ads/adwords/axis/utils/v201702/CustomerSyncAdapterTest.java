@@ -0,0 +1,235 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.adwords.axis.utils.v201702;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.adwords.axis.v201702.ch.AdGroupChangeData;
+import com.google.api.ads.adwords.axis.v201702.ch.CampaignChangeData;
+import com.google.api.ads.adwords.axis.v201702.ch.ChangeStatus;
+import com.google.api.ads.adwords.axis.v201702.ch.CustomerChangeData;
+import com.google.api.ads.adwords.axis.v201702.ch.CustomerSyncSelector;
+import com.google.api.ads.adwords.axis.v201702.ch.CustomerSyncServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.ch.FeedChangeData;
+import com.google.api.ads.adwords.axis.v201702.cm.AdGroup;
+import com.google.api.ads.adwords.axis.v201702.cm.AdGroupPage;
+import com.google.api.ads.adwords.axis.v201702.cm.AdGroupServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.cm.Campaign;
+import com.google.api.ads.adwords.axis.v201702.cm.CampaignPage;
+import com.google.api.ads.adwords.axis.v201702.cm.CampaignServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.cm.Feed;
+import com.google.api.ads.adwords.axis.v201702.cm.FeedPage;
+import com.google.api.ads.adwords.axis.v201702.cm.FeedServiceInterface;
+import com.google.api.ads.adwords.axis.v201702.cm.Predicate;
+import com.google.api.ads.adwords.axis.v201702.cm.PredicateOperator;
+import com.google.api.ads.adwords.axis.v201702.cm.Selector;
+import com.google.api.ads.adwords.lib.client.AdWordsSession;
+import com.google.api.ads.adwords.lib.factory.AdWordsServicesInterface;
+import com.google.api.ads.adwords.lib.utils.CustomerChanges;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Tests for {@link CustomerSyncAdapter}.
+ */
+@RunWith(JUnit4.class)
+public class CustomerSyncAdapterTest {
+
+  private static final String CLIENT_CUSTOMER_ID = "123-456-7890";
+  private static final String MIN_DATE_TIME = "20170101 000000 UTC";
+  private static final String LAST_CHANGE_TIMESTAMP = "20170301 120000 UTC";
+
+  @Mock private AdWordsServicesInterface adWordsServices;
+  @Mock private CustomerSyncServiceInterface customerSyncService;
+  @Mock private CampaignServiceInterface campaignService;
+  @Mock private AdGroupServiceInterface adGroupService;
+  @Mock private FeedServiceInterface feedService;
+  @Mock private CustomerSyncAdapter.ChangedEntityHandler changedEntityHandler;
+  @Mock private Credential credential;
+
+  private CustomerSyncAdapter adapter;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    when(adWordsServices.get(any(AdWordsSession.class), eq(CustomerSyncServiceInterface.class)))
+        .thenReturn(customerSyncService);
+    when(adWordsServices.get(any(AdWordsSession.class), eq(CampaignServiceInterface.class)))
+        .thenReturn(campaignService);
+    when(adWordsServices.get(any(AdWordsSession.class), eq(AdGroupServiceInterface.class)))
+        .thenReturn(adGroupService);
+    when(adWordsServices.get(any(AdWordsSession.class), eq(FeedServiceInterface.class)))
+        .thenReturn(feedService);
+
+    AdWordsSession session = new AdWordsSession.Builder()
+        .withDeveloperToken("DEV_TOKEN")
+        .withEndpoint("http://www.example.com")
+        .withUserAgent("Test User")
+        .withOAuth2Credential(credential)
+        .build();
+    adapter = new CustomerSyncAdapter(adWordsServices, session, changedEntityHandler);
+  }
+
+  /**
+   * Tests that the selector contains all campaigns and feeds of the account and that the change
+   * data, including the nested ad groups, is mapped to the changed IDs.
+   */
+  @Test
+  public void testGetChanges() throws Exception {
+    when(campaignService.get(any(Selector.class)))
+        .thenReturn(new CampaignPage(2, null, new Campaign[] {campaign(1L), campaign(2L)}));
+    when(feedService.get(any(Selector.class)))
+        .thenReturn(new FeedPage(1, null, new Feed[] {feed(5L)}));
+
+    CampaignChangeData newCampaign = campaignChangeData(1L, ChangeStatus.NEW,
+        adGroupChangeData(11L, ChangeStatus.FIELDS_CHANGED),
+        adGroupChangeData(12L, ChangeStatus.FIELDS_UNCHANGED));
+    CampaignChangeData unchangedCampaign = campaignChangeData(2L, ChangeStatus.FIELDS_UNCHANGED,
+        adGroupChangeData(21L, ChangeStatus.NEW));
+    FeedChangeData changedFeed = new FeedChangeData();
+    changedFeed.setFeedId(5L);
+    changedFeed.setFeedChangeStatus(ChangeStatus.FIELDS_CHANGED);
+    when(customerSyncService.get(any(CustomerSyncSelector.class))).thenReturn(
+        new CustomerChangeData(new CampaignChangeData[] {newCampaign, unchangedCampaign},
+            new FeedChangeData[] {changedFeed}, LAST_CHANGE_TIMESTAMP));
+
+    CustomerChanges changes = adapter.getChanges(CLIENT_CUSTOMER_ID, MIN_DATE_TIME);
+
+    assertEquals(ImmutableList.of(1L), changes.getChangedCampaignIds());
+    assertEquals(ImmutableList.of(11L, 21L), changes.getChangedAdGroupIds());
+    assertEquals(ImmutableList.of(5L), changes.getChangedFeedIds());
+    assertEquals(LAST_CHANGE_TIMESTAMP, changes.getLastChangeTimestamp());
+
+    ArgumentCaptor<CustomerSyncSelector> selectorCaptor =
+        ArgumentCaptor.forClass(CustomerSyncSelector.class);
+    verify(customerSyncService).get(selectorCaptor.capture());
+    CustomerSyncSelector selector = selectorCaptor.getValue();
+    assertArrayEquals(new long[] {1L, 2L}, selector.getCampaignIds());
+    assertArrayEquals(new long[] {5L}, selector.getFeedIds());
+    assertEquals(MIN_DATE_TIME, selector.getDateTimeRange().getMin());
+    assertNotNull(selector.getDateTimeRange().getMax());
+
+    ArgumentCaptor<AdWordsSession> sessionCaptor = ArgumentCaptor.forClass(AdWordsSession.class);
+    verify(adWordsServices).get(sessionCaptor.capture(), eq(CustomerSyncServiceInterface.class));
+    assertEquals(CLIENT_CUSTOMER_ID, sessionCaptor.getValue().getClientCustomerId());
+  }
+
+  /**
+   * Tests that {@code CustomerSyncService} is not called for an account without campaigns and
+   * feeds, since its selector requires at least one of them.
+   */
+  @Test
+  public void testGetChanges_emptyAccount() throws Exception {
+    when(campaignService.get(any(Selector.class))).thenReturn(new CampaignPage(0, null, null));
+    when(feedService.get(any(Selector.class))).thenReturn(new FeedPage(0, null, null));
+
+    CustomerChanges changes = adapter.getChanges(CLIENT_CUSTOMER_ID, MIN_DATE_TIME);
+
+    assertTrue(changes.isEmpty());
+    verify(customerSyncService, never()).get(any(CustomerSyncSelector.class));
+  }
+
+  /**
+   * Tests that changed ad groups are retrieved with an {@code IN} predicate on their IDs and
+   * passed to the handler.
+   */
+  @Test
+  public void testFetchAdGroups() throws Exception {
+    AdGroup adGroup1 = new AdGroup();
+    adGroup1.setId(11L);
+    AdGroup adGroup2 = new AdGroup();
+    adGroup2.setId(21L);
+    when(adGroupService.get(any(Selector.class)))
+        .thenReturn(new AdGroupPage(2, null, new AdGroup[] {adGroup1, adGroup2}));
+
+    adapter.fetchAdGroups(CLIENT_CUSTOMER_ID, Arrays.asList(11L, 21L));
+
+    ArgumentCaptor<Selector> selectorCaptor = ArgumentCaptor.forClass(Selector.class);
+    verify(adGroupService).get(selectorCaptor.capture());
+    assertInPredicate(selectorCaptor.getValue(), "11", "21");
+    verify(changedEntityHandler)
+        .handleAdGroups(CLIENT_CUSTOMER_ID, Arrays.asList(adGroup1, adGroup2));
+  }
+
+  /**
+   * Tests that changed campaigns are retrieved with an {@code IN} predicate on their IDs and that
+   * an empty page is passed to the handler as an empty list.
+   */
+  @Test
+  public void testFetchCampaigns_noEntries() throws Exception {
+    when(campaignService.get(any(Selector.class))).thenReturn(new CampaignPage(0, null, null));
+
+    adapter.fetchCampaigns(CLIENT_CUSTOMER_ID, Arrays.asList(1L));
+
+    ArgumentCaptor<Selector> selectorCaptor = ArgumentCaptor.forClass(Selector.class);
+    verify(campaignService).get(selectorCaptor.capture());
+    assertInPredicate(selectorCaptor.getValue(), "1");
+    verify(changedEntityHandler)
+        .handleCampaigns(CLIENT_CUSTOMER_ID, Collections.<Campaign>emptyList());
+  }
+
+  private static void assertInPredicate(Selector selector, String... ids) {
+    assertEquals(1, selector.getPredicates().length);
+    Predicate predicate = selector.getPredicates(0);
+    assertEquals("Id", predicate.getField());
+    assertEquals(PredicateOperator.IN, predicate.getOperator());
+    assertArrayEquals(ids, predicate.getValues());
+  }
+
+  private static Campaign campaign(long id) {
+    Campaign campaign = new Campaign();
+    campaign.setId(id);
+    return campaign;
+  }
+
+  private static Feed feed(long id) {
+    Feed feed = new Feed();
+    feed.setId(id);
+    return feed;
+  }
+
+  private static CampaignChangeData campaignChangeData(long campaignId, ChangeStatus status,
+      AdGroupChangeData... changedAdGroups) {
+    CampaignChangeData campaign = new CampaignChangeData();
+    campaign.setCampaignId(campaignId);
+    campaign.setCampaignChangeStatus(status);
+    campaign.setChangedAdGroups(changedAdGroups);
+    return campaign;
+  }
+
+  private static AdGroupChangeData adGroupChangeData(long adGroupId, ChangeStatus status) {
+    AdGroupChangeData adGroup = new AdGroupChangeData();
+    adGroup.setAdGroupId(adGroupId);
+    adGroup.setAdGroupChangeStatus(status);
+    return adGroup;
+  }
+}
@@ -0,0 +1,176 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.jaxws.utils.v201605;
+
+import com.google.api.ads.dfp.jaxws.v201605.BooleanValue;
+import com.google.api.ads.dfp.jaxws.v201605.Date;
+import com.google.api.ads.dfp.jaxws.v201605.DateTime;
+import com.google.api.ads.dfp.jaxws.v201605.DateTimeValue;
+import com.google.api.ads.dfp.jaxws.v201605.DateValue;
+import com.google.api.ads.dfp.jaxws.v201605.NumberValue;
+import com.google.api.ads.dfp.jaxws.v201605.Row;
+import com.google.api.ads.dfp.jaxws.v201605.TextValue;
+import com.google.api.ads.dfp.jaxws.v201605.Value;
+import com.google.common.base.Strings;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * Converts the values of a result set column to strings exactly as {@link Pql#toString(Value)}
+ * does, without going through the API and CSV value conversions for every value. A converter is
+ * chosen once per column from the type of the column's value in the first row. Values of any other
+ * type, such as sets and targeting, are converted with {@link Pql#toString(Value)}.
+ *
+ * <p>Integral numbers as the API returns them are passed through unchanged instead of being
+ * parsed and formatted again. Instances are not thread safe.
+ */
+abstract class ColumnConverter {
+
+  private static final ColumnConverter DEFAULT = new ColumnConverter() {
+    @Override
+    String convert(Value value) {
+      return Pql.toString(value);
+    }
+  };
+
+  private static final ColumnConverter TEXT = new ColumnConverter() {
+    @Override
+    String convert(Value value) {
+      if (!(value instanceof TextValue)) {
+        return Pql.toString(value);
+      }
+      return Strings.nullToEmpty(((TextValue) value).getValue());
+    }
+  };
+
+  private static final ColumnConverter BOOLEAN = new ColumnConverter() {
+    @Override
+    String convert(Value value) {
+      if (!(value instanceof BooleanValue)) {
+        return Pql.toString(value);
+      }
+      Boolean booleanValue = ((BooleanValue) value).isValue();
+      return booleanValue == null ? "" : booleanValue.toString();
+    }
+  };
+
+  private static final ColumnConverter DATE = new ColumnConverter() {
+    @Override
+    String convert(Value value) {
+      if (!(value instanceof DateValue)) {
+        return Pql.toString(value);
+      }
+      Date date = ((DateValue) value).getValue();
+      return date == null ? "" : DateTimes.toString(date);
+    }
+  };
+
+  private static final ColumnConverter DATE_TIME = new ColumnConverter() {
+    @Override
+    String convert(Value value) {
+      if (!(value instanceof DateTimeValue)) {
+        return Pql.toString(value);
+      }
+      DateTime dateTime = ((DateTimeValue) value).getValue();
+      return dateTime == null ? "" : DateTimes.toStringWithTimeZone(dateTime);
+    }
+  };
+
+  /**
+   * Converts number values. Numbers that are not plain integers are parsed with a number format
+   * that is created once per column rather than once per value.
+   */
+  private static class NumberConverter extends ColumnConverter {
+
+    private NumberFormat numberFormat;
+
+    @Override
+    String convert(Value value) {
+      if (!(value instanceof NumberValue)) {
+        return Pql.toString(value);
+      }
+      String number = ((NumberValue) value).getValue();
+      if (number == null) {
+        return "";
+      } else if (Pql.isPlainLong(number)) {
+        return number;
+      }
+      if (numberFormat == null) {
+        numberFormat = NumberFormat.getInstance();
+      }
+      try {
+        return numberFormat.parse(number).toString();
+      } catch (ParseException e) {
+        throw new IllegalStateException("Recieved invalid number format from API.");
+      }
+    }
+  }
+
+  /**
+   * Converts a value of this converter's column to a string.
+   *
+   * @param value the value to convert
+   * @return the string representation of the value or an empty string for null
+   * @throws IllegalArgumentException if value cannot be converted
+   */
+  abstract String convert(Value value);
+
+  /**
+   * Creates the converters for the columns of a result set from its first row.
+   *
+   * @param row the first row of the result set
+   * @return the converter of each value in the row
+   */
+  static ColumnConverter[] forRow(Row row) {
+    List<Value> values = row.getValues();
+    ColumnConverter[] converters = new ColumnConverter[values.size()];
+    for (int i = 0; i < converters.length; i++) {
+      converters[i] = forValue(values.get(i));
+    }
+    return converters;
+  }
+
+  /**
+   * Converts the value in a column with the converter of the column, or with
+   * {@link Pql#toString(Value)} if there is no converter for the column.
+   *
+   * @param converters the converters created by {@link #forRow(Row)}
+   * @param column the index of the column of the value
+   * @param value the value to convert
+   * @return the string representation of the value or an empty string for null
+   * @throws IllegalArgumentException if value cannot be converted
+   */
+  static String convert(ColumnConverter[] converters, int column, Value value) {
+    return column < converters.length
+        ? converters[column].convert(value) : Pql.toString(value);
+  }
+
+  private static ColumnConverter forValue(Value value) {
+    if (value instanceof TextValue) {
+      return TEXT;
+    } else if (value instanceof NumberValue) {
+      return new NumberConverter();
+    } else if (value instanceof BooleanValue) {
+      return BOOLEAN;
+    } else if (value instanceof DateTimeValue) {
+      return DATE_TIME;
+    } else if (value instanceof DateValue) {
+      return DATE;
+    } else {
+      return DEFAULT;
+    }
+  }
+}
@@ -0,0 +1,175 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.jaxws.utils.v201605;
+
+import com.google.api.ads.common.lib.utils.BatchStatusPoller;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller.PollDelayPolicy;
+import com.google.api.ads.common.lib.utils.BatchStatusPoller.StatusFetcher;
+import com.google.api.ads.dfp.jaxws.v201605.ApiError;
+import com.google.api.ads.dfp.jaxws.v201605.ApiException;
+import com.google.api.ads.dfp.jaxws.v201605.ApiException_Exception;
+import com.google.api.ads.dfp.jaxws.v201605.QuotaError;
+import com.google.api.ads.dfp.jaxws.v201605.QuotaErrorReason;
+import com.google.api.ads.dfp.jaxws.v201605.ReportJobStatus;
+import com.google.api.ads.dfp.jaxws.v201605.ReportServiceInterface;
+import com.google.api.ads.dfp.jaxws.v201605.ServerError;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Waits for many report jobs to finish using a single {@link ScheduledExecutorService}.
+ *
+ * <p>Unlike {@link ReportDownloader#whenReportReady}, which starts a thread per report, this class
+ * checks all due report jobs from one scheduled task. Each job is polled after
+ * {@link #INITIAL_POLL_DELAY_MILLIS}, and the delay doubles after every poll up to
+ * {@link #MAX_POLL_DELAY_MILLIS}, so small reports are noticed quickly.
+ *
+ * <p>If the {@code getReportJobStatus} call of a job fails with a transient error, such as an
+ * exceeded quota, a server error or a network failure, the job is polled again after backing off
+ * instead of failing. Any other failure fails the future of that job only.
+ */
+public class ReportJobPoller implements AutoCloseable {
+
+  /** The delay before the first poll of a report job. */
+  public static final long INITIAL_POLL_DELAY_MILLIS = 1000L;
+
+  /** The maximum delay between polls of a report job. */
+  public static final long MAX_POLL_DELAY_MILLIS = ReportDownloader.SLEEP_TIMER;
+
+  /** How often to check for report jobs that are due to be polled. */
+  private static final long TICK_MILLIS = 500L;
+
+  private final BatchStatusPoller<ReportJobStatus> poller;
+
+  /**
+   * Constructs a poller that uses exponential backoff between polls of each report job.
+   *
+   * @param reportService the ReportService stub to make calls to
+   * @param scheduler the scheduler to poll on. This poller does not shut it down.
+   */
+  public ReportJobPoller(ReportServiceInterface reportService,
+      ScheduledExecutorService scheduler) {
+    this(reportService, scheduler, BatchStatusPoller.<ReportJobStatus>exponentialBackoff(
+        INITIAL_POLL_DELAY_MILLIS, MAX_POLL_DELAY_MILLIS, 2));
+  }
+
+  /**
+   * Constructs a poller that uses the specified policy between polls of each report job.
+   *
+   * @param reportService the ReportService stub to make calls to
+   * @param scheduler the scheduler to poll on. This poller does not shut it down.
+   * @param pollDelayPolicy determines how long to wait between polls of each report job
+   */
+  public ReportJobPoller(ReportServiceInterface reportService, ScheduledExecutorService scheduler,
+      PollDelayPolicy<ReportJobStatus> pollDelayPolicy) {
+    Preconditions.checkNotNull(reportService, "Null report service");
+    long tickMillis = Math.max(1L,
+        Math.min(TICK_MILLIS, pollDelayPolicy.getNextPollDelayMillis(null, 0)));
+    this.poller = new BatchStatusPoller<ReportJobStatus>(new ReportJobStatusFetcher(reportService),
+        pollDelayPolicy, scheduler, tickMillis);
+  }
+
+  /**
+   * Starts tracking a report job.
+   *
+   * @param reportJobId the report job ID
+   * @return a future for the final status of the report job, either
+   *     {@link ReportJobStatus#COMPLETED} or {@link ReportJobStatus#FAILED}. The future fails if
+   *     there was an error retrieving the status, and can be cancelled to stop tracking the job.
+   */
+  public ListenableFuture<ReportJobStatus> track(long reportJobId) {
+    return poller.track(reportJobId);
+  }
+
+  /**
+   * Returns the number of report jobs that have not finished yet.
+   */
+  public int getTrackedReportJobCount() {
+    return poller.getTrackedJobCount();
+  }
+
+  /**
+   * Stops polling and cancels the futures of all unfinished report jobs.
+   */
+  @Override
+  public void close() {
+    poller.close();
+  }
+
+  /**
+   * Retrieves the status of each report job from the ReportService.
+   */
+  private static class ReportJobStatusFetcher implements StatusFetcher<ReportJobStatus> {
+    private final ReportServiceInterface reportService;
+
+    ReportJobStatusFetcher(ReportServiceInterface reportService) {
+      this.reportService = reportService;
+    }
+
+    @Override
+    public Map<Long, ReportJobStatus> getStatuses(Set<Long> reportJobIds,
+        Map<Long, Exception> failures) {
+      // The ReportService has no multi-job status call, so check each due job in this tick. A
+      // failed call only fails its own job, not the jobs already checked in this tick.
+      Map<Long, ReportJobStatus> statuses = Maps.newHashMap();
+      for (Long reportJobId : reportJobIds) {
+        try {
+          statuses.put(reportJobId, reportService.getReportJobStatus(reportJobId));
+        } catch (Exception e) {
+          // A job without a status or failure is polled again after backing off.
+          if (!isTransient(e)) {
+            failures.put(reportJobId, e);
+          }
+        }
+      }
+      return statuses;
+    }
+
+    /**
+     * Returns true if the status check may succeed when retried: every error of the API exception
+     * is a {@link ServerError} or a {@link QuotaError} with reason
+     * {@link QuotaErrorReason#EXCEEDED_QUOTA}, or the call failed because of a network error.
+     */
+    private static boolean isTransient(Exception exception) {
+      if (exception instanceof ApiException_Exception) {
+        ApiException apiException = ((ApiException_Exception) exception).getFaultInfo();
+        List<ApiError> errors = apiException == null ? null : apiException.getErrors();
+        if (errors == null || errors.isEmpty()) {
+          return false;
+        }
+        for (ApiError error : errors) {
+          if (!(error instanceof ServerError || (error instanceof QuotaError
+              && QuotaErrorReason.EXCEEDED_QUOTA.equals(((QuotaError) error).getReason())))) {
+            return false;
+          }
+        }
+        return true;
+      }
+      // JAX-WS wraps network failures in a WebServiceException.
+      return exception.getCause() instanceof IOException;
+    }
+
+    @Override
+    public boolean isFinished(ReportJobStatus status) {
+      return status != ReportJobStatus.IN_PROGRESS;
+    }
+  }
+}
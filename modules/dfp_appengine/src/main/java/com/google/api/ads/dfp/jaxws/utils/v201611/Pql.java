@@ -176,8 +176,12 @@ public final class Pql {
       if (((NumberValue) value).getValue() == null) {
         return null;
       } else {
+        String number = ((NumberValue) value).getValue();
+        if (isPlainLong(number)) {
+          return Long.parseLong(number);
+        }
         try {
-          return NumberFormat.getInstance().parse(((NumberValue) value).getValue());
+          return NumberFormat.getInstance().parse(number);
         } catch (ParseException e) {
           throw new IllegalStateException("Recieved invalid number format from API.");
         }
@@ -205,6 +209,36 @@ public final class Pql {
     }
   }
   
+  /**
+   * Returns whether the number is an integer in the form that
+   * {@link Long#toString(long)} produces, i.e. without a sign for positive
+   * numbers, leading zeros or grouping separators, so that parsing it with a
+   * {@code NumberFormat} would return a {@code Long} with the same string
+   * representation. Numbers of more than 18 digits are excluded so that they
+   * cannot overflow.
+   *
+   * @param number the number to check
+   * @return true if the number is a plain integer
+   */
+  static boolean isPlainLong(String number) {
+    int start = number.startsWith("-") ? 1 : 0;
+    int digits = number.length() - start;
+    if (digits == 0 || digits > 18) {
+      return false;
+    }
+    if (number.charAt(start) == '0' && (digits > 1 || start > 0)) {
+      // Leading zeros and negative zero are not in canonical form.
+      return false;
+    }
+    for (int i = start; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Gets the underlying value of the {@code Value} object that's considered
    * native to Java (i.e. DateTimeValue will return a Joda DateTime, not an API
@@ -316,9 +350,13 @@ public final class Pql {
     List<String[]> stringArrayList = Lists.newArrayList();
     stringArrayList.add(getColumnLabels(resultSet).toArray(new String[] {}));
     if (resultSet.getRows() != null) {
+      ColumnConverter[] converters = null;
       for (Row row : resultSet.getRows()) {
+        if (converters == null) {
+          converters = ColumnConverter.forRow(row);
+        }
         try {
-          stringArrayList.add(getRowStringValues(row).toArray(new String[] {}));
+          stringArrayList.add(getRowStringValues(row, converters));
         } catch (IllegalArgumentException e) {
           throw new IllegalStateException("Cannot convert result set to string array list", e);
         }
@@ -441,6 +479,19 @@ public final class Pql {
     });
   }
 
+  /**
+   * Gets the values in a row of the result set as strings, converting each
+   * value with the converter of its column.
+   */
+  private static String[] getRowStringValues(Row row, ColumnConverter[] converters) {
+    List<Value> values = row.getValues();
+    String[] stringValues = new String[values.size()];
+    for (int i = 0; i < stringValues.length; i++) {
+      stringValues[i] = ColumnConverter.convert(converters, i, values.get(i));
+    }
+    return stringValues;
+  }
+
   /**
    * Combines the first and second result sets, if and only if, the columns
    * of both result sets match.
@@ -16,12 +16,14 @@ package com.google.api.ads.dfp.jaxws.utils.v201702;
 
 import static org.apache.commons.lang.CharEncoding.UTF_8;
 
+import com.google.api.ads.common.lib.utils.PipelinedGzipInputStream;
 import com.google.api.ads.dfp.jaxws.v201702.ApiException_Exception;
 import com.google.api.ads.dfp.jaxws.v201702.ExportFormat;
 import com.google.api.ads.dfp.jaxws.v201702.ReportDownloadOptions;
 import com.google.api.ads.dfp.jaxws.v201702.ReportJobStatus;
 import com.google.api.ads.dfp.jaxws.v201702.ReportServiceInterface;
 import com.google.api.ads.dfp.lib.utils.ReportCallback;
+import com.google.api.ads.dfp.lib.utils.ReportRowReader;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.ByteSource;
@@ -29,11 +31,11 @@ import com.google.common.io.CharSource;
 import com.google.common.io.Resources;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Retrieves reports using a {@link ReportServiceInterface}.
@@ -73,7 +75,8 @@ public class ReportDownloader {
 
     @Override
     public InputStream openStream() throws IOException {
-      return new GZIPInputStream(containedByteSource.openStream());
+      // Decompresses on a background thread while the caller reads the report.
+      return new PipelinedGzipInputStream(containedByteSource.openStream());
     }
   }
   
@@ -201,4 +204,38 @@ public class ReportDownloader {
     return (options.isUseGzipCompression() ? new GZippedByteSource(byteSource) : byteSource)
         .asCharSource(REPORT_CHARSET);
   }
+
+  /**
+   * Returns a reader of the report's rows, which reads the report one row at a time instead of
+   * into memory. The ExportFormat must be {@link ExportFormat#CSV_DUMP}, {@link ExportFormat#TSV}
+   * or {@link ExportFormat#XML}.
+   *
+   * @param options the options to download the report with
+   * @return a new ReportRowReader positioned before the first row. The caller must close it.
+   * @throws IOException if there was an error performing any I/O action, including any SOAP calls
+   * @throws ApiException_Exception if there was any problem making the SOAP
+   *     call
+   * @throws IllegalStateException if the report is not ready to be downloaded
+   * @throws IllegalArgumentException if the {@link ExportFormat} is not CSV_DUMP, TSV or XML
+   */
+  public ReportRowReader getReportAsRowReader(ReportDownloadOptions options) throws IOException,
+      ApiException_Exception {
+    ExportFormat exportFormat = options.getExportFormat();
+    Preconditions.checkArgument(
+        exportFormat == ExportFormat.CSV_DUMP || exportFormat == ExportFormat.TSV
+            || exportFormat == ExportFormat.XML,
+        "ExportFormat " + exportFormat + " cannot be used with ReportRowReader");
+    Reader reader = getReportAsCharSource(options).openStream();
+    try {
+      if (exportFormat == ExportFormat.CSV_DUMP) {
+        return ReportRowReader.forCsvDump(reader);
+      } else if (exportFormat == ExportFormat.TSV) {
+        return ReportRowReader.forTsv(reader);
+      }
+      return ReportRowReader.forXml(reader);
+    } catch (IOException | RuntimeException e) {
+      reader.close();
+      throw e;
+    }
+  }
 }
@@ -0,0 +1,128 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.jaxws.utils.v201702;
+
+import com.google.api.ads.common.lib.utils.DelimitedTextWriter;
+import com.google.api.ads.common.lib.utils.DelimitedTextWriter.Format;
+import com.google.api.ads.dfp.jaxws.v201702.ResultSet;
+import com.google.api.ads.dfp.jaxws.v201702.Row;
+import com.google.api.ads.dfp.jaxws.v201702.Value;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the pages of a PQL result set to a {@link Writer} as CSV or TSV as they are retrieved,
+ * instead of combining them with {@link Pql#combineResultSets(ResultSet, ResultSet)} first. Each
+ * page's rows are written and can then be discarded, so memory use does not grow with the number
+ * of pages. For example:
+ *
+ * <pre>
+ * <code>
+ * try (ResultSetWriter resultSetWriter = new ResultSetWriter(writer, Format.CSV)) {
+ *   do {
+ *     ResultSet resultSet = pqlService.select(pagedStatement);
+ *     resultSetWriter.write(resultSet);
+ *     // ...
+ *   } while (!finishedCollectingResultSets)
+ * }
+ * </code>
+ * </pre>
+ *
+ * <p>The column labels are written as the header row before the first page's rows. Values are
+ * converted as {@link Pql#toString(Value)} converts them, using a converter per column that is
+ * chosen from the first row's values. This class is not thread safe.
+ */
+public class ResultSetWriter implements Closeable, Flushable {
+
+  private final DelimitedTextWriter delimitedTextWriter;
+
+  /** The column labels of the first page, or null if no page has been written. */
+  private List<String> columnLabels;
+
+  /** The converters for the columns, created from the first row, or null before the first row. */
+  private ColumnConverter[] converters;
+
+  private long rowCount;
+
+  /**
+   * Constructor.
+   *
+   * @param writer the writer to write to. Closing this result set writer closes it.
+   * @param format the format to write
+   */
+  public ResultSetWriter(Writer writer, Format format) {
+    this.delimitedTextWriter = new DelimitedTextWriter(writer, format);
+  }
+
+  /**
+   * Writes the rows of a page of the result set, preceded by the header row if this is the first
+   * page.
+   *
+   * @param resultSet the page to write
+   * @throws IllegalArgumentException if the columns of the page don't match the first page's
+   * @throws IOException if writing failed
+   */
+  public void write(ResultSet resultSet) throws IOException {
+    Preconditions.checkNotNull(resultSet, "Null result set");
+    List<String> pageColumnLabels = ImmutableList.copyOf(Pql.getColumnLabels(resultSet));
+    if (columnLabels == null) {
+      columnLabels = pageColumnLabels;
+      delimitedTextWriter.writeRow(columnLabels);
+    } else if (!columnLabels.equals(pageColumnLabels)) {
+      throw new IllegalArgumentException(String.format(
+          "Result set columns [%s] do not match first result set columns [%s]",
+          Joiner.on(",").join(pageColumnLabels), Joiner.on(",").join(columnLabels)));
+    }
+    if (resultSet.getRows() == null) {
+      return;
+    }
+    for (Row row : resultSet.getRows()) {
+      if (converters == null) {
+        converters = ColumnConverter.forRow(row);
+      }
+      if (row.getValues() != null) {
+        int column = 0;
+        for (Value value : row.getValues()) {
+          delimitedTextWriter.writeField(ColumnConverter.convert(converters, column++, value));
+        }
+      }
+      delimitedTextWriter.endRow();
+      rowCount++;
+    }
+  }
+
+  /**
+   * Returns the number of rows written so far, not counting the header row.
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    delimitedTextWriter.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delimitedTextWriter.close();
+  }
+}
@@ -0,0 +1,117 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.jaxws.utils.v201605;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.api.ads.common.lib.utils.DelimitedTextWriter.Format;
+import com.google.api.ads.dfp.jaxws.v201605.BooleanValue;
+import com.google.api.ads.dfp.jaxws.v201605.ColumnType;
+import com.google.api.ads.dfp.jaxws.v201605.NumberValue;
+import com.google.api.ads.dfp.jaxws.v201605.ResultSet;
+import com.google.api.ads.dfp.jaxws.v201605.Row;
+import com.google.api.ads.dfp.jaxws.v201605.TextValue;
+import com.google.api.ads.dfp.jaxws.v201605.Value;
+import java.io.StringWriter;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ResultSetWriter}.
+ */
+@RunWith(JUnit4.class)
+public class ResultSetWriterTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  /**
+   * Tests that pages are written after a single header row.
+   */
+  @Test
+  public void testWrite_csv() throws Exception {
+    StringWriter output = new StringWriter();
+    ResultSetWriter writer = new ResultSetWriter(output, Format.CSV);
+    writer.write(createResultSet(new String[] {"id", "name", "active"},
+        createRow(number("1"), text("a,b"), bool(true)),
+        createRow(number("2"), text("c"), bool(false))));
+    writer.write(createResultSet(new String[] {"id", "name", "active"},
+        createRow(number("3"), text(null), bool(true))));
+    writer.write(createResultSet(new String[] {"id", "name", "active"}));
+    writer.close();
+
+    assertEquals("id,name,active\n1,\"a,b\",true\n2,c,false\n3,,true\n", output.toString());
+    assertEquals(3, writer.getRowCount());
+  }
+
+  @Test
+  public void testWrite_tsv() throws Exception {
+    StringWriter output = new StringWriter();
+    ResultSetWriter writer = new ResultSetWriter(output, Format.TSV);
+    writer.write(createResultSet(new String[] {"id", "name"},
+        createRow(number("1"), text("a,b"))));
+    writer.close();
+
+    assertEquals("id\tname\n1\ta,b\n", output.toString());
+  }
+
+  @Test
+  public void testWrite_mismatchedColumns() throws Exception {
+    ResultSetWriter writer = new ResultSetWriter(new StringWriter(), Format.CSV);
+    writer.write(createResultSet(new String[] {"id", "name"}));
+
+    thrown.expect(IllegalArgumentException.class);
+    writer.write(createResultSet(new String[] {"id"}));
+  }
+
+  private static ResultSet createResultSet(String[] labels, Row... rows) {
+    ResultSet resultSet = new ResultSet();
+    for (String label : labels) {
+      ColumnType columnType = new ColumnType();
+      columnType.setLabelName(label);
+      resultSet.getColumnTypes().add(columnType);
+    }
+    resultSet.getRows().addAll(Arrays.asList(rows));
+    return resultSet;
+  }
+
+  private static Row createRow(Value... values) {
+    Row row = new Row();
+    row.getValues().addAll(Arrays.asList(values));
+    return row;
+  }
+
+  private static NumberValue number(String value) {
+    NumberValue numberValue = new NumberValue();
+    numberValue.setValue(value);
+    return numberValue;
+  }
+
+  private static TextValue text(String value) {
+    TextValue textValue = new TextValue();
+    textValue.setValue(value);
+    return textValue;
+  }
+
+  private static BooleanValue bool(boolean value) {
+    BooleanValue booleanValue = new BooleanValue();
+    booleanValue.setValue(value);
+    return booleanValue;
+  }
+}
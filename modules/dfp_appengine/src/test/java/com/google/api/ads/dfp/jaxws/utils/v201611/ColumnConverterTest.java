@@ -0,0 +1,140 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.jaxws.utils.v201611;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.dfp.jaxws.v201611.BooleanValue;
+import com.google.api.ads.dfp.jaxws.v201611.Date;
+import com.google.api.ads.dfp.jaxws.v201611.DateTime;
+import com.google.api.ads.dfp.jaxws.v201611.DateTimeValue;
+import com.google.api.ads.dfp.jaxws.v201611.DateValue;
+import com.google.api.ads.dfp.jaxws.v201611.NumberValue;
+import com.google.api.ads.dfp.jaxws.v201611.Row;
+import com.google.api.ads.dfp.jaxws.v201611.SetValue;
+import com.google.api.ads.dfp.jaxws.v201611.TextValue;
+import com.google.api.ads.dfp.jaxws.v201611.Value;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ColumnConverter}.
+ */
+@RunWith(JUnit4.class)
+public class ColumnConverterTest {
+
+  @Test
+  public void testIsPlainLong() {
+    assertTrue(Pql.isPlainLong("0"));
+    assertTrue(Pql.isPlainLong("1"));
+    assertTrue(Pql.isPlainLong("-1"));
+    assertTrue(Pql.isPlainLong("123456789012345678"));
+    assertFalse(Pql.isPlainLong(""));
+    assertFalse(Pql.isPlainLong("-"));
+    assertFalse(Pql.isPlainLong("-0"));
+    assertFalse(Pql.isPlainLong("007"));
+    assertFalse(Pql.isPlainLong("+1"));
+    assertFalse(Pql.isPlainLong("1.0"));
+    assertFalse(Pql.isPlainLong("1,000"));
+    assertFalse(Pql.isPlainLong("1234567890123456789"));
+  }
+
+  /**
+   * Tests that every converter gives the same result as {@link Pql#toString(Value)}, both for
+   * values of its column's type and for values of other types.
+   */
+  @Test
+  public void testConvert_sameAsPqlToString() {
+    Row firstRow = createRow(text("a"), number("1"), bool(true), date(), dateTime(),
+        createSetValue(text("b"), text("c,d")));
+    ColumnConverter[] converters = ColumnConverter.forRow(firstRow);
+    assertEquals(6, converters.length);
+
+    Value[][] columnValues = {
+        {text("a"), text(null), text(""), number("2")},
+        {number("1"), number("-25"), number("1.02"), number("1.50"), number("007"), number("-0"),
+            number("1,000"), number("12345678901234567890"), number(null), text("x")},
+        {bool(true), bool(false), bool(null), number("3")},
+        {date(), new DateValue(), text("y")},
+        {dateTime(), new DateTimeValue(), date()},
+        {createSetValue(text("b"), text("c,d")), createSetValue(), text("z")}};
+    for (int column = 0; column < columnValues.length; column++) {
+      for (Value value : columnValues[column]) {
+        assertEquals(Pql.toString(value), converters[column].convert(value));
+      }
+    }
+    assertEquals("extra", ColumnConverter.convert(converters, 6, text("extra")));
+  }
+
+  private static Row createRow(Value... values) {
+    Row row = new Row();
+    row.getValues().addAll(Arrays.asList(values));
+    return row;
+  }
+
+  private static SetValue createSetValue(Value... values) {
+    SetValue setValue = new SetValue();
+    setValue.getValues().addAll(Arrays.asList(values));
+    return setValue;
+  }
+
+  private static TextValue text(String value) {
+    TextValue textValue = new TextValue();
+    textValue.setValue(value);
+    return textValue;
+  }
+
+  private static NumberValue number(String value) {
+    NumberValue numberValue = new NumberValue();
+    numberValue.setValue(value);
+    return numberValue;
+  }
+
+  private static BooleanValue bool(Boolean value) {
+    BooleanValue booleanValue = new BooleanValue();
+    booleanValue.setValue(value);
+    return booleanValue;
+  }
+
+  private static DateValue date() {
+    DateValue dateValue = new DateValue();
+    dateValue.setValue(createDate());
+    return dateValue;
+  }
+
+  private static DateTimeValue dateTime() {
+    DateTime dateTime = new DateTime();
+    dateTime.setDate(createDate());
+    dateTime.setHour(12);
+    dateTime.setMinute(45);
+    dateTime.setSecond(0);
+    dateTime.setTimeZoneID("Asia/Shanghai");
+    DateTimeValue dateTimeValue = new DateTimeValue();
+    dateTimeValue.setValue(dateTime);
+    return dateTimeValue;
+  }
+
+  private static Date createDate() {
+    Date date = new Date();
+    date.setYear(2012);
+    date.setMonth(12);
+    date.setDay(2);
+    return date;
+  }
+}
@@ -16,11 +16,13 @@ package com.google.api.ads.dfp.axis.utils.v201605;
 
 import static org.apache.commons.lang.CharEncoding.UTF_8;
 
+import com.google.api.ads.common.lib.utils.PipelinedGzipInputStream;
 import com.google.api.ads.dfp.axis.v201605.ExportFormat;
 import com.google.api.ads.dfp.axis.v201605.ReportDownloadOptions;
 import com.google.api.ads.dfp.axis.v201605.ReportJobStatus;
 import com.google.api.ads.dfp.axis.v201605.ReportServiceInterface;
 import com.google.api.ads.dfp.lib.utils.ReportCallback;
+import com.google.api.ads.dfp.lib.utils.ReportRowReader;
 import com.google.api.client.util.Sleeper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -31,12 +33,12 @@ import com.google.common.io.Resources;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.rmi.RemoteException;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Retrieves reports using a {@link ReportServiceInterface}.
@@ -77,7 +79,8 @@ public class ReportDownloader {
 
     @Override
     public InputStream openStream() throws IOException {
-      return new GZIPInputStream(containedByteSource.openStream());
+      // Decompresses on a background thread while the caller reads the report.
+      return new PipelinedGzipInputStream(containedByteSource.openStream());
     }
   }
   
@@ -210,4 +213,34 @@ public class ReportDownloader {
         .asCharSource(REPORT_CHARSET);
   }
 
+  /**
+   * Returns a reader of the report's rows, which reads the report one row at a time instead of
+   * into memory. The ExportFormat must be {@link ExportFormat#CSV_DUMP}, {@link ExportFormat#TSV}
+   * or {@link ExportFormat#XML}.
+   *
+   * @param options the options to download the report with
+   * @return a new ReportRowReader positioned before the first row. The caller must close it.
+   * @throws IOException if there was an error performing any I/O action, including any SOAP calls
+   * @throws IllegalStateException if the report is not ready to be downloaded
+   * @throws IllegalArgumentException if the {@link ExportFormat} is not CSV_DUMP, TSV or XML
+   */
+  public ReportRowReader getReportAsRowReader(ReportDownloadOptions options) throws IOException {
+    ExportFormat exportFormat = options.getExportFormat();
+    Preconditions.checkArgument(
+        exportFormat == ExportFormat.CSV_DUMP || exportFormat == ExportFormat.TSV
+            || exportFormat == ExportFormat.XML,
+        "ExportFormat " + exportFormat + " cannot be used with ReportRowReader");
+    Reader reader = getReportAsCharSource(options).openStream();
+    try {
+      if (exportFormat == ExportFormat.CSV_DUMP) {
+        return ReportRowReader.forCsvDump(reader);
+      } else if (exportFormat == ExportFormat.TSV) {
+        return ReportRowReader.forTsv(reader);
+      }
+      return ReportRowReader.forXml(reader);
+    } catch (IOException | RuntimeException e) {
+      reader.close();
+      throw e;
+    }
+  }
 }
@@ -0,0 +1,95 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.axis.utils.v201611;
+
+import com.google.api.ads.dfp.axis.v201611.ApiError;
+import com.google.api.ads.dfp.axis.v201611.ApiException;
+import com.google.api.ads.dfp.axis.v201611.QuotaError;
+import com.google.api.ads.dfp.axis.v201611.QuotaErrorReason;
+import com.google.api.ads.dfp.axis.v201611.ServerError;
+import com.google.common.base.Predicate;
+import java.io.IOException;
+import java.rmi.RemoteException;
+import javax.annotation.Nullable;
+
+/**
+ * Accepts exceptions of DFP Axis service calls that may succeed if the call is retried, for use
+ * with {@link com.google.api.ads.dfp.lib.utils.BulkMutator}.
+ *
+ * <p>An {@link ApiException} is transient if all of its errors are {@link ServerError}s or
+ * {@link QuotaError}s with reason {@link QuotaErrorReason#EXCEEDED_QUOTA}. Network failures, such
+ * as a timeout or a dropped connection, are only transient if enabled with
+ * {@link #TransientErrorPredicate(boolean)}.
+ *
+ * <p>Creates are not idempotent. After a network failure, the request may have been processed even
+ * though no response was received, so retrying it can create duplicate entities. Only retry
+ * network failures for calls that are safe to repeat, such as updates or reads.
+ */
+public class TransientErrorPredicate implements Predicate<Exception> {
+
+  private final boolean retryNetworkFailures;
+
+  /**
+   * Constructs a predicate that accepts transient API errors but not network failures, which is
+   * safe for creates.
+   */
+  public TransientErrorPredicate() {
+    this(false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param retryNetworkFailures whether to also accept exceptions that are, or are caused by, an
+   *     {@link IOException} other than an {@link ApiException}. Only enable this for calls that
+   *     are safe to repeat.
+   */
+  public TransientErrorPredicate(boolean retryNetworkFailures) {
+    this.retryNetworkFailures = retryNetworkFailures;
+  }
+
+  @Override
+  public boolean apply(@Nullable Exception exception) {
+    if (exception == null) {
+      return false;
+    }
+    if (exception instanceof ApiException) {
+      ApiError[] errors = ((ApiException) exception).getErrors();
+      if (errors == null || errors.length == 0) {
+        return false;
+      }
+      for (ApiError error : errors) {
+        if (!isTransient(error)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (!retryNetworkFailures) {
+      return false;
+    }
+    if (exception instanceof RemoteException) {
+      // Axis wraps network failures in an AxisFault.
+      return exception.getCause() instanceof IOException;
+    }
+    return exception instanceof IOException || exception.getCause() instanceof IOException;
+  }
+
+  private static boolean isTransient(ApiError error) {
+    return error instanceof ServerError
+        || (error instanceof QuotaError
+            && QuotaErrorReason.EXCEEDED_QUOTA.equals(((QuotaError) error).getReason()));
+  }
+}
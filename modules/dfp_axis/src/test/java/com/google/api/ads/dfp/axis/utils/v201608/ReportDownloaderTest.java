@@ -27,7 +27,9 @@ import com.google.api.ads.dfp.axis.v201608.ReportDownloadOptions;
 import com.google.api.ads.dfp.axis.v201608.ReportJobStatus;
 import com.google.api.ads.dfp.axis.v201608.ReportServiceInterface;
 import com.google.api.ads.dfp.lib.utils.ReportCallback;
+import com.google.api.ads.dfp.lib.utils.ReportRowReader;
 import com.google.api.client.util.Sleeper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.CharSource;
 import com.google.common.io.Resources;
 import java.io.IOException;
@@ -118,6 +120,36 @@ public class ReportDownloaderTest {
     assertEquals(report, reportCharSource.read());
   } 
   
+  @Test
+  public void testGetReportAsRowReader_xml() throws IOException {
+    ReportDownloader downloader = new ReportDownloader(reportService, 1);
+    URL resourceUrl = ReportProvider.TEST_REPORT_RESOURCE;
+    when(reportService.getReportJobStatus(Matchers.anyLong()))
+      .thenReturn(ReportJobStatus.COMPLETED);
+    when(reportService.getReportDownloadUrlWithOptions(Matchers.anyLong(),
+        Matchers.any(ReportDownloadOptions.class)))
+        .thenReturn(resourceUrl.toString());
+
+    ReportDownloadOptions options = new ReportDownloadOptions();
+    options.setExportFormat(ExportFormat.XML);
+    options.setUseGzipCompression(false);
+    ReportRowReader reader = downloader.getReportAsRowReader(options);
+    assertEquals(
+        ImmutableList.of("adSlotID0", "adSlotName0", "reservationImpressionsDelivered"),
+        reader.getHeaders());
+    // The report only has a total.
+    assertFalse(reader.next());
+    reader.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetReportAsRowReader_xlsx() throws IOException {
+    ReportDownloader downloader = new ReportDownloader(reportService, 1);
+    ReportDownloadOptions options = new ReportDownloadOptions();
+    options.setExportFormat(ExportFormat.XLSX);
+    downloader.getReportAsRowReader(options);
+  }
+
   @Test
   public void testWhenReportReady_complete() throws IOException, InterruptedException {
     ReportDownloader downloader = new ReportDownloader(reportService, 1);
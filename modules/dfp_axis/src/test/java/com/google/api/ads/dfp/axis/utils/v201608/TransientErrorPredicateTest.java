@@ -0,0 +1,86 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.axis.utils.v201608;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.ads.dfp.axis.v201608.ApiError;
+import com.google.api.ads.dfp.axis.v201608.ApiException;
+import com.google.api.ads.dfp.axis.v201608.NotNullError;
+import com.google.api.ads.dfp.axis.v201608.QuotaError;
+import com.google.api.ads.dfp.axis.v201608.QuotaErrorReason;
+import com.google.api.ads.dfp.axis.v201608.ServerError;
+import com.google.api.ads.dfp.axis.v201608.ServerErrorReason;
+import java.net.SocketTimeoutException;
+import org.apache.axis.AxisFault;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link TransientErrorPredicate}.
+ */
+@RunWith(JUnit4.class)
+public class TransientErrorPredicateTest {
+
+  private final TransientErrorPredicate isTransient = new TransientErrorPredicate();
+
+  @Test
+  public void testApply_serverAndQuotaErrors() {
+    ServerError serverError = new ServerError();
+    serverError.setReason(ServerErrorReason.SERVER_BUSY);
+    QuotaError quotaError = new QuotaError();
+    quotaError.setReason(QuotaErrorReason.EXCEEDED_QUOTA);
+
+    assertTrue(isTransient.apply(createApiException(serverError, quotaError)));
+  }
+
+  @Test
+  public void testApply_permanentError() {
+    ServerError serverError = new ServerError();
+    serverError.setReason(ServerErrorReason.SERVER_ERROR);
+
+    assertFalse(isTransient.apply(createApiException(serverError, new NotNullError())));
+    assertFalse(isTransient.apply(createApiException()));
+  }
+
+  /**
+   * Tests that network failures are not retried by default, since a create may have succeeded.
+   */
+  @Test
+  public void testApply_networkFailure_notRetriedByDefault() {
+    assertFalse(isTransient.apply(new AxisFault("Timed out", new SocketTimeoutException())));
+    assertFalse(isTransient.apply(new SocketTimeoutException()));
+    assertFalse(isTransient.apply(null));
+  }
+
+  @Test
+  public void testApply_networkFailure_retryNetworkFailures() {
+    TransientErrorPredicate isTransient = new TransientErrorPredicate(true);
+
+    assertTrue(isTransient.apply(new AxisFault("Timed out", new SocketTimeoutException())));
+    assertTrue(isTransient.apply(new SocketTimeoutException()));
+    assertFalse(isTransient.apply(new AxisFault("Bad request")));
+    assertFalse(isTransient.apply(new IllegalArgumentException()));
+    assertFalse(isTransient.apply(null));
+  }
+
+  private static ApiException createApiException(ApiError... errors) {
+    ApiException apiException = new ApiException();
+    apiException.setErrors(errors);
+    return apiException;
+  }
+}
@@ -0,0 +1,138 @@
+// Copyright 2017 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.api.ads.dfp.axis.utils.v201611;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.ads.common.lib.utils.BatchStatusPoller;
+import com.google.api.ads.dfp.axis.v201611.ApiError;
+import com.google.api.ads.dfp.axis.v201611.ApiException;
+import com.google.api.ads.dfp.axis.v201611.ReportJobStatus;
+import com.google.api.ads.dfp.axis.v201611.ReportServiceInterface;
+import com.google.api.ads.dfp.axis.v201611.ServerError;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Test for {@link ReportJobPoller}.
+ */
+@RunWith(JUnit4.class)
+public class ReportJobPollerTest {
+
+  @Mock private ReportServiceInterface reportService;
+
+  private ScheduledExecutorService scheduler;
+  private ReportJobPoller poller;
+
+  @Before
+  public void setUp() {
+    MockitoAnnotations.initMocks(this);
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    poller = new ReportJobPoller(reportService, scheduler,
+        BatchStatusPoller.<ReportJobStatus>exponentialBackoff(5L, 20L, 2));
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    poller.close();
+    scheduler.shutdownNow();
+    scheduler.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testTrack_completesEachReport() throws Exception {
+    when(reportService.getReportJobStatus(1L)).thenReturn(ReportJobStatus.COMPLETED);
+    when(reportService.getReportJobStatus(2L))
+        .thenReturn(ReportJobStatus.IN_PROGRESS, ReportJobStatus.IN_PROGRESS,
+            ReportJobStatus.FAILED);
+
+    ListenableFuture<ReportJobStatus> report1 = poller.track(1L);
+    ListenableFuture<ReportJobStatus> report2 = poller.track(2L);
+
+    assertEquals(ReportJobStatus.COMPLETED, report1.get(10, TimeUnit.SECONDS));
+    assertEquals(ReportJobStatus.FAILED, report2.get(10, TimeUnit.SECONDS));
+    assertEquals(0, poller.getTrackedReportJobCount());
+  }
+
+  @Test
+  public void testTrack_exception() throws Exception {
+    ApiException apiException = new ApiException();
+    when(reportService.getReportJobStatus(1L)).thenThrow(apiException);
+
+    ListenableFuture<ReportJobStatus> report = poller.track(1L);
+    try {
+      report.get(10, TimeUnit.SECONDS);
+      fail("Expected the report's future to fail");
+    } catch (ExecutionException e) {
+      assertSame(apiException, e.getCause());
+    }
+  }
+
+  /**
+   * Tests that a failure to retrieve the status of one report doesn't fail the other reports
+   * checked with it.
+   */
+  @Test
+  public void testTrack_exceptionOnlyFailsItsReport() throws Exception {
+    ApiException apiException = new ApiException();
+    when(reportService.getReportJobStatus(1L)).thenThrow(apiException);
+    when(reportService.getReportJobStatus(2L)).thenReturn(ReportJobStatus.COMPLETED);
+
+    ListenableFuture<ReportJobStatus> failedReport = poller.track(1L);
+    ListenableFuture<ReportJobStatus> completedReport = poller.track(2L);
+
+    assertEquals(ReportJobStatus.COMPLETED, completedReport.get(10, TimeUnit.SECONDS));
+    try {
+      failedReport.get(10, TimeUnit.SECONDS);
+      fail("Expected the failed report's future to fail");
+    } catch (ExecutionException e) {
+      assertSame(apiException, e.getCause());
+    }
+    assertEquals(0, poller.getTrackedReportJobCount());
+  }
+
+  /**
+   * Tests that a transient failure to retrieve the status of a report doesn't fail it, and the
+   * report is polled again.
+   */
+  @Test
+  public void testTrack_transientException() throws Exception {
+    ApiException apiException = new ApiException();
+    apiException.setErrors(new ApiError[] {new ServerError()});
+    when(reportService.getReportJobStatus(1L))
+        .thenThrow(apiException)
+        .thenReturn(ReportJobStatus.COMPLETED);
+
+    ListenableFuture<ReportJobStatus> report = poller.track(1L);
+
+    assertEquals(ReportJobStatus.COMPLETED, report.get(10, TimeUnit.SECONDS));
+    verify(reportService, times(2)).getReportJobStatus(1L);
+  }
+}